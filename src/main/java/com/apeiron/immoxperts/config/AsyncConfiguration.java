@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.aop.interceptor.SimpleAsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.task.TaskExecutionProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -23,6 +24,9 @@ public class AsyncConfiguration implements AsyncConfigurer {
 
     private static final Logger LOG = LoggerFactory.getLogger(AsyncConfiguration.class);
 
+    /** Qualifier of the executor of long in-memory builds, for {@code @Async}. */
+    public static final String BUILD_EXECUTOR = "buildExecutor";
+
     private final TaskExecutionProperties taskExecutionProperties;
 
     public AsyncConfiguration(TaskExecutionProperties taskExecutionProperties) {
@@ -41,6 +45,20 @@ public class AsyncConfiguration implements AsyncConfigurer {
         return new ExceptionHandlingAsyncTaskExecutor(executor);
     }
 
+    /**
+     * Runs the long in-memory builds started once the application is ready, on a schedule or after a view refresh, so
+     * they neither hold the threads of the shared executor (mails) nor those of the scheduler.
+     */
+    @Bean(name = BUILD_EXECUTOR)
+    public Executor getBuildExecutor(@Value("${build-executor.pool-size:2}") int poolSize) {
+        LOG.debug("Creating Build Task Executor");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("immoxperts-build-");
+        return new ExceptionHandlingAsyncTaskExecutor(executor);
+    }
+
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
         return new SimpleAsyncUncaughtExceptionHandler();
@@ -5,6 +5,7 @@ import java.util.OptionalLong;
 import java.util.concurrent.TimeUnit;
 import org.hibernate.cache.jcache.ConfigSettings;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.cache.JCacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.info.BuildProperties;
@@ -22,8 +23,12 @@ public class CacheConfiguration {
     private GitProperties gitProperties;
     private BuildProperties buildProperties;
     private final javax.cache.configuration.Configuration<Object, Object> jcacheConfiguration;
+    private final javax.cache.configuration.Configuration<Object, Object> listingCountConfiguration;
 
-    public CacheConfiguration(JHipsterProperties jHipsterProperties) {
+    public CacheConfiguration(
+        JHipsterProperties jHipsterProperties,
+        @Value("${listing.count.cache-ttl-seconds:120}") long listingCountTtlSeconds
+    ) {
         JHipsterProperties.Cache.Caffeine caffeine = jHipsterProperties.getCache().getCaffeine();
 
         CaffeineConfiguration<Object, Object> caffeineConfiguration = new CaffeineConfiguration<>();
@@ -31,6 +36,13 @@ public class CacheConfiguration {
         caffeineConfiguration.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(caffeine.getTimeToLiveSeconds())));
         caffeineConfiguration.setStatisticsEnabled(true);
         jcacheConfiguration = caffeineConfiguration;
+
+        // Listing totals only need to survive a user flipping pages: short TTL, same size bound
+        CaffeineConfiguration<Object, Object> listingCountCaffeine = new CaffeineConfiguration<>();
+        listingCountCaffeine.setMaximumSize(OptionalLong.of(caffeine.getMaxEntries()));
+        listingCountCaffeine.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(listingCountTtlSeconds)));
+        listingCountCaffeine.setStatisticsEnabled(true);
+        listingCountConfiguration = listingCountCaffeine;
     }
 
     @Bean
@@ -68,15 +80,31 @@ public class CacheConfiguration {
             createCache(cm, "parcelAddressesCache");
             // Cache for statistics by city
             createCache(cm, "statsByCityCache");
+            // Per-commune counts read from commune_mutation_stats_mv, evicted when the view is refreshed
+            createCache(cm, com.apeiron.immoxperts.repository.MutationCustomRepository.COMMUNE_STATS_CACHE);
+            // Short-lived caches for listing search totals (exact and sampled estimate)
+            createCache(cm, com.apeiron.immoxperts.repository.DvfAchatRepository.ACHAT_COUNT_CACHE, listingCountConfiguration);
+            createCache(cm, com.apeiron.immoxperts.repository.DvfAchatRepository.ACHAT_COUNT_ESTIMATE_CACHE, listingCountConfiguration);
+            createCache(cm, com.apeiron.immoxperts.repository.DvfLouerRepository.LOUER_COUNT_CACHE, listingCountConfiguration);
+            createCache(cm, com.apeiron.immoxperts.repository.DvfLouerRepository.LOUER_COUNT_ESTIMATE_CACHE, listingCountConfiguration);
+            createCache(cm, com.apeiron.immoxperts.repository.ListingFacetRepository.LISTING_FACETS_CACHE, listingCountConfiguration);
         };
     }
 
     private void createCache(javax.cache.CacheManager cm, String cacheName) {
+        createCache(cm, cacheName, jcacheConfiguration);
+    }
+
+    private void createCache(
+        javax.cache.CacheManager cm,
+        String cacheName,
+        javax.cache.configuration.Configuration<Object, Object> configuration
+    ) {
         javax.cache.Cache<Object, Object> cache = cm.getCache(cacheName);
         if (cache != null) {
             cache.clear();
         } else {
-            cm.createCache(cacheName, jcacheConfiguration);
+            cm.createCache(cacheName, configuration);
         }
     }
 
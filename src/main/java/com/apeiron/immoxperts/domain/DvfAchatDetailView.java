@@ -6,12 +6,12 @@ import java.math.BigDecimal;
 import org.hibernate.annotations.Immutable;
 
 /**
- * Read-only mapping to materialized view dvf_achat_detail_mv.
+ * Read-only mapping to table dvf_achat_detail, filled by ListingDetailIndexer.
  * One row per dvf_achat.id with parsed characteristics from the details column.
  */
 @Entity
 @Immutable
-@Table(name = "dvf_achat_detail_mv", schema = "dvf_plus_2025_2")
+@Table(name = "dvf_achat_detail", schema = "dvf_plus_2025_2")
 public class DvfAchatDetailView implements Serializable {
 
     private static final long serialVersionUID = 1L;
@@ -0,0 +1,25 @@
+package com.apeiron.immoxperts.domain.enumeration;
+
+/**
+ * The two scraped listing tables: properties for sale (dvf_achat) and for rent (dvf_louer).
+ */
+public enum ListingKind {
+    ACHAT("dvf_achat"),
+    LOUER("dvf_louer");
+
+    private final String tableName;
+
+    ListingKind(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /** Table name inside the dvf_plus_2025_2 schema. */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /** Table holding the characteristics parsed from {@code details}, keyed by publication_id. */
+    public String getDetailTableName() {
+        return tableName + "_detail";
+    }
+}
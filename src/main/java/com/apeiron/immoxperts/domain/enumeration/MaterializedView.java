@@ -0,0 +1,62 @@
+package com.apeiron.immoxperts.domain.enumeration;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The materialized views of the dvf_plus_2025_2 schema the application reads, in the order they are refreshed: views
+ * built on other views come after them. Dependencies found in the database catalog are added to that order.
+ */
+public enum MaterializedView {
+    ADRESSE_COMPLETE_GEOM("adresse_complete_geom_mv", false, "addressSuggestionsCache"),
+    PARCELLE_ADRESSE("parcelle_adresse_mv", false, "parcelAddressesCache"),
+    PARCELLES_GEOJSON("parcelles_geojson_mv", false),
+    PARCELLE_ADRESSE_MUTATION(
+        "parcelle_adresse_mutation_mv_2025",
+        true,
+        "mutationSearchCache",
+        "streetCommuneCache",
+        "parcelAddressesCache"
+    ),
+    MUTATION_SEARCH("mutation_search_mv", false),
+    MUTATION_STATS_BY_CITY("mutation_stats_by_city", true, "statsByCityCache"),
+    PROPERTY_STATISTICS("property_statistics_mv", true),
+    COMMUNE_MUTATION_STATS("commune_mutation_stats_mv", false, "communeStatsCache");
+
+    private final String viewName;
+    private final boolean swapped;
+    private final List<String> caches;
+
+    MaterializedView(String viewName, boolean swapped, String... caches) {
+        this.viewName = viewName;
+        this.swapped = swapped;
+        this.caches = List.of(caches);
+    }
+
+    /** View name inside the dvf_plus_2025_2 schema. */
+    public String getViewName() {
+        return viewName;
+    }
+
+    /**
+     * Whether the view is rebuilt under a shadow name and swapped in rather than refreshed in place, for the large
+     * views behind the map and search queries, which slow down while refreshed in place.
+     */
+    public boolean isSwapped() {
+        return swapped;
+    }
+
+    /** Caches holding results read from the view, cleared once it is refreshed. */
+    public List<String> getCaches() {
+        return caches;
+    }
+
+    public static Optional<MaterializedView> fromViewName(String viewName) {
+        for (MaterializedView view : values()) {
+            if (view.viewName.equalsIgnoreCase(viewName)) {
+                return Optional.of(view);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,4 @@
+/**
+ * Domain enumerations.
+ */
+package com.apeiron.immoxperts.domain.enumeration;
@@ -0,0 +1,26 @@
+package com.apeiron.immoxperts.management;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Service;
+
+/**
+ * Meters of the comparable sales search: {@value #SEARCH_METER_NAME} is the time taken by one search of the in-memory
+ * index, without the lookups around it.
+ */
+@Service
+public class ComparableSalesMetersService {
+
+    public static final String SEARCH_METER_NAME = "comparables.search";
+
+    private final Timer searchTimer;
+
+    public ComparableSalesMetersService(MeterRegistry registry) {
+        this.searchTimer = Timer.builder(SEARCH_METER_NAME).description("Time taken to find the comparables of a sale.").register(registry);
+    }
+
+    public void trackSearch(long nanos) {
+        searchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
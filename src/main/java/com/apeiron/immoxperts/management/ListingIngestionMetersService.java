@@ -0,0 +1,69 @@
+package com.apeiron.immoxperts.management;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-stage meters of the listing ingestion pipeline. The rate of {@value #STAGE_RECORDS_METER_NAME} is the
+ * throughput of a stage; {@value #STAGE_TIME_METER_NAME} is the time spent in it per batch.
+ */
+@Service
+public class ListingIngestionMetersService {
+
+    public static final String STAGE_RECORDS_METER_NAME = "listing.ingestion.stage.records";
+    public static final String STAGE_TIME_METER_NAME = "listing.ingestion.stage.time";
+    public static final String RESULT_METER_NAME = "listing.ingestion.records";
+
+    public static final String STAGE_READ = "read";
+    public static final String STAGE_TRANSFORM = "transform";
+    public static final String STAGE_WRITE = "write";
+
+    public static final String RESULT_INSERTED = "inserted";
+    public static final String RESULT_UPDATED = "updated";
+    public static final String RESULT_UNCHANGED = "unchanged";
+    public static final String RESULT_REJECTED = "rejected";
+
+    private final MeterRegistry registry;
+
+    public ListingIngestionMetersService(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void trackStage(ListingKind kind, String stage, int records, long nanos) {
+        Counter.builder(STAGE_RECORDS_METER_NAME)
+            .baseUnit("records")
+            .description("Records processed by a listing ingestion stage.")
+            .tag("kind", tag(kind))
+            .tag("stage", stage)
+            .register(registry)
+            .increment(records);
+        Timer.builder(STAGE_TIME_METER_NAME)
+            .description("Time spent in a listing ingestion stage, per batch.")
+            .tag("kind", tag(kind))
+            .tag("stage", stage)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackResult(ListingKind kind, String result, long records) {
+        if (records == 0) {
+            return;
+        }
+        Counter.builder(RESULT_METER_NAME)
+            .baseUnit("records")
+            .description("Ingested listings by outcome.")
+            .tag("kind", tag(kind))
+            .tag("result", result)
+            .register(registry)
+            .increment(records);
+    }
+
+    private static String tag(ListingKind kind) {
+        return kind.name().toLowerCase(Locale.ROOT);
+    }
+}
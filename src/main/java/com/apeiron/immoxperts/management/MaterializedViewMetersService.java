@@ -0,0 +1,32 @@
+package com.apeiron.immoxperts.management;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Service;
+
+/**
+ * Meters of the materialized view refreshes: {@value #REFRESH_METER_NAME} is the time taken to refresh one view, by
+ * view and result ({@code refreshed}, {@code swapped}, {@code locked} when another session was refreshing it,
+ * {@code missing}, {@code failed}).
+ */
+@Service
+public class MaterializedViewMetersService {
+
+    public static final String REFRESH_METER_NAME = "materialized.view.refresh";
+
+    private final MeterRegistry registry;
+
+    public MaterializedViewMetersService(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void trackRefresh(String view, String result, long nanos) {
+        Timer.builder(REFRESH_METER_NAME)
+            .description("Time taken to refresh a materialized view.")
+            .tag("view", view)
+            .tag("result", result)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
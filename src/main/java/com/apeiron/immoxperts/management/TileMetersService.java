@@ -0,0 +1,75 @@
+package com.apeiron.immoxperts.management;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-layer meters of the GeatMap vector tile endpoints. {@value #CONNECTION_WAIT_METER_NAME} is the time a request
+ * waited for a pooled .mbtiles connection; {@value #QUERY_TIME_METER_NAME} the time spent reading from the file, i.e.
+ * on tile cache misses; {@value #RELOAD_METER_NAME} the time taken to swap in a changed layer file, by result.
+ */
+@Service
+public class TileMetersService {
+
+    public static final String CONNECTION_WAIT_METER_NAME = "tiles.connection.wait";
+    public static final String QUERY_TIME_METER_NAME = "tiles.query.time";
+    public static final String CACHE_NAME = "geatmapTiles";
+    public static final String CACHE_RESIDENT_BYTES_METER_NAME = "tiles.cache.resident";
+    public static final String CACHE_HIT_RATIO_METER_NAME = "tiles.cache.hit.ratio";
+    public static final String RELOAD_METER_NAME = "tiles.reload";
+
+    public static final String RELOAD_SUCCESS = "success";
+    public static final String RELOAD_FAILURE = "failure";
+    public static final String RELOAD_REMOVED = "removed";
+
+    private final MeterRegistry registry;
+
+    public TileMetersService(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Standard cache meters (cache.gets hit/miss, cache.size, cache.evictions with cache={@value #CACHE_NAME}) plus the
+     * bytes held and the hit ratio since startup.
+     */
+    public void monitorTileCache(Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        Gauge.builder(CACHE_RESIDENT_BYTES_METER_NAME, cache, c -> c.policy().eviction().flatMap(e -> e.weightedSize()).orElse(0L))
+            .baseUnit("bytes")
+            .description("Bytes of tiles held in memory.")
+            .register(registry);
+        Gauge.builder(CACHE_HIT_RATIO_METER_NAME, cache, c -> c.stats().hitRate())
+            .description("Share of tile requests served from memory.")
+            .register(registry);
+    }
+
+    public void trackConnectionWait(String layer, long nanos) {
+        Timer.builder(CONNECTION_WAIT_METER_NAME)
+            .description("Time waited for a pooled .mbtiles connection.")
+            .tag("layer", layer)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackQuery(String layer, long nanos) {
+        Timer.builder(QUERY_TIME_METER_NAME)
+            .description("Time spent reading a tile or metadata from an .mbtiles file.")
+            .tag("layer", layer)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void trackReload(String layer, String result, long nanos) {
+        Timer.builder(RELOAD_METER_NAME)
+            .description("Time taken to open, validate, warm and swap in a changed tile file.")
+            .tag("layer", layer)
+            .tag("result", result)
+            .register(registry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
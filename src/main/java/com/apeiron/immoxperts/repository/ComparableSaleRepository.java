@@ -0,0 +1,39 @@
+package com.apeiron.immoxperts.repository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Located sales of a single property: the input of the in-memory comparables index.
+ */
+public interface ComparableSaleRepository {
+    /**
+     * @param typeBien {@code maison}, {@code appartement} or {@code local_commercial}, classified like the statistics
+     * cube.
+     * @param surface built surface in m², 0 when unknown.
+     * @param pieces main rooms, -1 when unknown.
+     */
+    record ComparableSale(
+        int idmutation,
+        int idadresse,
+        String departement,
+        double latitude,
+        double longitude,
+        String typeBien,
+        double surface,
+        int pieces,
+        LocalDate date,
+        double valeurFonciere
+    ) {}
+
+    record Location(double latitude, double longitude) {}
+
+    /**
+     * Streams every sale since {@code since} whose address has coordinates, without holding them in memory.
+     */
+    void forEachSale(LocalDate since, Consumer<ComparableSale> consumer);
+
+    /** Coordinates of address {@code idadresse}, empty when it has none. */
+    Optional<Location> findLocation(int idadresse);
+}
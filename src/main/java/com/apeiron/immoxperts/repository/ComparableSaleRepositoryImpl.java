@@ -0,0 +1,122 @@
+package com.apeiron.immoxperts.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class ComparableSaleRepositoryImpl implements ComparableSaleRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * Sales with a price of exactly one house, flat or commercial premises, classified as in the statistics cube, at
+     * the first address of the sale that has coordinates.
+     */
+    private static final String SALES_SQL = """
+        WITH single_sales AS (
+            SELECT
+                m.idmutation,
+                m.coddep,
+                m.datemut,
+                m.valeurfonc::float8 AS prix,
+                MAX(UPPER(l.libtyploc)) AS type_local,
+                MAX(l.sbati)::float8 AS surface,
+                MAX(l.nbpprinc) AS pieces
+            FROM dvf_plus_2025_2.dvf_plus_mutation m
+            JOIN dvf_plus_2025_2.dvf_plus_local l ON l.idmutation = m.idmutation
+            WHERE UPPER(m.libnatmut) = 'VENTE'
+              AND m.valeurfonc > 0
+              AND m.datemut >= ?
+            GROUP BY m.idmutation, m.coddep, m.datemut, m.valeurfonc
+            HAVING COUNT(l.iddispoloc) = 1
+        ),
+        coordinates AS (
+            SELECT idadresse, MIN(latitude)::float8 AS latitude, MIN(longitude)::float8 AS longitude
+            FROM dvf_plus_2025_2.adresse_complete_geom_mv
+            WHERE latitude IS NOT NULL AND longitude IS NOT NULL
+            GROUP BY idadresse
+        ),
+        located AS (
+            SELECT DISTINCT ON (al.idmutation) al.idmutation, c.idadresse, c.latitude, c.longitude
+            FROM dvf_plus_2025_2.dvf_plus_adresse_local al
+            JOIN coordinates c ON c.idadresse = al.idadresse
+            ORDER BY al.idmutation, c.idadresse
+        )
+        SELECT
+            s.idmutation,
+            l.idadresse,
+            s.coddep,
+            l.latitude,
+            l.longitude,
+            CASE
+                WHEN s.type_local = 'MAISON' THEN 'maison'
+                WHEN s.type_local = 'APPARTEMENT' THEN 'appartement'
+                WHEN s.type_local LIKE 'LOCAL%' THEN 'local_commercial'
+            END,
+            COALESCE(s.surface, 0),
+            COALESCE(s.pieces, -1),
+            s.datemut,
+            s.prix
+        FROM single_sales s
+        JOIN located l ON l.idmutation = s.idmutation
+        WHERE s.type_local = 'MAISON' OR s.type_local = 'APPARTEMENT' OR s.type_local LIKE 'LOCAL%'
+        """;
+
+    private static final String LOCATION_SQL = """
+        SELECT MIN(latitude)::float8, MIN(longitude)::float8
+        FROM dvf_plus_2025_2.adresse_complete_geom_mv
+        WHERE idadresse = :idadresse AND latitude IS NOT NULL AND longitude IS NOT NULL
+        HAVING COUNT(*) > 0
+        """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachSale(LocalDate since, Consumer<ComparableSale> consumer) {
+        // A fetch size inside a transaction makes the PostgreSQL driver read through a cursor instead of all at once
+        em
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(SALES_SQL)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    ps.setDate(1, Date.valueOf(since));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            consumer.accept(
+                                new ComparableSale(
+                                    rs.getInt(1),
+                                    rs.getInt(2),
+                                    rs.getString(3),
+                                    rs.getDouble(4),
+                                    rs.getDouble(5),
+                                    rs.getString(6),
+                                    rs.getDouble(7),
+                                    rs.getInt(8),
+                                    rs.getDate(9).toLocalDate(),
+                                    rs.getDouble(10)
+                                )
+                            );
+                        }
+                    }
+                }
+            });
+    }
+
+    @Override
+    public Optional<Location> findLocation(int idadresse) {
+        List<Object[]> rows = em.createNativeQuery(LOCATION_SQL).setParameter("idadresse", idadresse).getResultList();
+        return rows.stream().findFirst().map(r -> new Location(((Number) r[0]).doubleValue(), ((Number) r[1]).doubleValue()));
+    }
+}
@@ -1,15 +1,21 @@
 package com.apeiron.immoxperts.repository;
 
 import com.apeiron.immoxperts.domain.DvfLouer;
+import com.apeiron.immoxperts.service.dto.ListingSearchRowProjection;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
-import org.springframework.data.domain.Page;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 public interface DvfLouerRepository extends JpaRepository<DvfLouer, Long> {
+    String LOUER_COUNT_CACHE = "dvfLouerCount";
+
+    String LOUER_COUNT_ESTIMATE_CACHE = "dvfLouerCountEstimate";
+
     @Query(
         value = """
         WITH suggestions AS (
@@ -69,44 +75,275 @@ public interface DvfLouerRepository extends JpaRepository<DvfLouer, Long> {
     )
     List<Object[]> findSuggestions(@Param("query") String query, @Param("limit") int limit);
 
+    /**
+     * Location dictionary for in-memory suggestions: one row per department, commune / postal code pair and address,
+     * with its listing count. {@code g_department} / {@code g_address} are 0 on department / address rows.
+     */
     @Query(
         value = """
-        SELECT * FROM dvf_plus_2025_2.dvf_louer
-        WHERE
-            ((:type = 'commune' AND LOWER(commune) = LOWER(:value)) OR
-             (:type IN ('postal_code', 'search_postal_code') AND LOWER(search_postal_code) = LOWER(:value)) OR
-             (:type = 'department' AND (LOWER(department) = LOWER(:value) OR LOWER(code_department) = LOWER(:value))) OR
-             (:type = 'adresse' AND LOWER(address) LIKE LOWER(CONCAT('%', :value, '%')))) AND
-            (:minBudget IS NULL OR price >= :minBudget) AND
-            (:maxBudget IS NULL OR price <= :maxBudget) AND
-            (:propertyType IS NULL OR LOWER(property_type) LIKE LOWER(CONCAT('%', :propertyType, '%')))
-        ORDER BY source ASC, created_at DESC NULLS LAST, id ASC
+        SELECT GROUPING(LOWER(department)) AS g_department,
+            GROUPING(LOWER(address)) AS g_address,
+            MAX(department) AS department,
+            commune,
+            search_postal_code,
+            MAX(address) AS address,
+            COUNT(*) AS count
+        FROM dvf_plus_2025_2.dvf_louer
+        GROUP BY GROUPING SETS ((LOWER(department)), (commune, search_postal_code), (LOWER(address)))
         """,
-        countQuery = """
-        SELECT COUNT(*) FROM dvf_plus_2025_2.dvf_louer
-        WHERE
-            ((:type = 'commune' AND LOWER(commune) = LOWER(:value)) OR
-             (:type IN ('postal_code', 'search_postal_code') AND LOWER(search_postal_code) = LOWER(:value)) OR
-             (:type = 'department' AND (LOWER(department) = LOWER(:value) OR LOWER(code_department) = LOWER(:value))) OR
-             (:type = 'adresse' AND LOWER(address) LIKE LOWER(CONCAT('%', :value, '%')))) AND
-            (:minBudget IS NULL OR price >= :minBudget) AND
-            (:maxBudget IS NULL OR price <= :maxBudget) AND
-            (:propertyType IS NULL OR LOWER(property_type) LIKE LOWER(CONCAT('%', :propertyType, '%')))
+        nativeQuery = true
+    )
+    List<Object[]> findLocationDictionaryRows();
+
+    /**
+     * One page of search results with the parsed detail columns joined in, read straight into a projection. Rows are
+     * lean: details and description cut to 280 characters and only the first image, the rest is read through
+     * findDetailsByIdIn. Unless {@code expandDuplicates}, each duplicate cluster shows its smallest id among the
+     * listings passing the filters.
+     */
+    @Query(
+        value = """
+        SELECT
+            l.id,
+            l.source,
+            l.search_postal_code as searchPostalCode,
+            l.department,
+            l.department_name as departmentName,
+            l.commune,
+            l.code_department as codeDepartment,
+            l.property_type as propertyType,
+            l.price_text as priceText,
+            l.price,
+            l.address,
+            LEFT(l.details, 280) as details,
+            LEFT(l.description, 280) as description,
+            l.property_url as propertyUrl,
+            CAST(NULL AS text) as images,
+            l.images ->> 0 as firstImage,
+            CASE WHEN jsonb_typeof(l.images) = 'array' THEN jsonb_array_length(l.images) END as imageCount,
+            d.surface,
+            d.chambre,
+            d.pieces,
+            d.dpe,
+            d.terrain_sqm as terrainSqm,
+            d.piscine,
+            d.meuble,
+            d.terrasse,
+            d.balcon,
+            d.cave,
+            d.jardin,
+            d.parking,
+            d.etage,
+            l.cluster_id as clusterId
+        FROM (
+            SELECT l.id, ROW_NUMBER() OVER (PARTITION BY COALESCE(l.cluster_id, l.id) ORDER BY l.id) AS cluster_rank
+            FROM dvf_plus_2025_2.dvf_louer l
+            LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
+            WHERE
+                ((:type = 'commune' AND LOWER(commune) = LOWER(:value)) OR
+                 (:type IN ('postal_code', 'search_postal_code') AND LOWER(search_postal_code) = LOWER(:value)) OR
+                 (:type = 'department' AND (LOWER(department) = LOWER(:value) OR LOWER(code_department) = LOWER(:value))) OR
+                 (:type = 'adresse' AND LOWER(address) LIKE LOWER(CONCAT('%', :value, '%')))) AND
+                (:minBudget IS NULL OR price >= :minBudget) AND
+                (:maxBudget IS NULL OR price <= :maxBudget) AND
+                (:propertyType IS NULL OR LOWER(property_type) LIKE LOWER(CONCAT('%', :propertyType, '%')))
+        ) m
+        JOIN dvf_plus_2025_2.dvf_louer l ON l.id = m.id
+        LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
+        WHERE :expandDuplicates = TRUE OR m.cluster_rank = 1
+        ORDER BY l.source ASC, l.created_at DESC NULLS LAST, l.id ASC
+        """,
+        nativeQuery = true
+    )
+    List<ListingSearchRowProjection> findByLocationAndFiltersPaginated(
+        @Param("value") String value,
+        @Param("type") String type,
+        @Param("minBudget") BigDecimal minBudget,
+        @Param("maxBudget") BigDecimal maxBudget,
+        @Param("propertyType") String propertyType,
+        @Param("expandDuplicates") boolean expandDuplicates,
+        Pageable pageable
+    );
+
+    @Query(
+        value = """
+        SELECT
+            l.id,
+            l.source,
+            l.search_postal_code as searchPostalCode,
+            l.department,
+            l.department_name as departmentName,
+            l.commune,
+            l.code_department as codeDepartment,
+            l.property_type as propertyType,
+            l.price_text as priceText,
+            l.price,
+            l.address,
+            LEFT(l.details, 280) as details,
+            LEFT(l.description, 280) as description,
+            l.property_url as propertyUrl,
+            CAST(NULL AS text) as images,
+            l.images ->> 0 as firstImage,
+            CASE WHEN jsonb_typeof(l.images) = 'array' THEN jsonb_array_length(l.images) END as imageCount,
+            d.surface,
+            d.chambre,
+            d.pieces,
+            d.dpe,
+            d.terrain_sqm as terrainSqm,
+            d.piscine,
+            d.meuble,
+            d.terrasse,
+            d.balcon,
+            d.cave,
+            d.jardin,
+            d.parking,
+            d.etage,
+            l.cluster_id as clusterId
+        FROM (
+            SELECT l.id, ROW_NUMBER() OVER (PARTITION BY COALESCE(l.cluster_id, l.id) ORDER BY l.id) AS cluster_rank
+            FROM dvf_plus_2025_2.dvf_louer l
+            LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
+            WHERE
+                ((:type = 'commune' AND LOWER(commune) = LOWER(:value)) OR
+                 (:type IN ('postal_code', 'search_postal_code') AND LOWER(search_postal_code) = LOWER(:value)) OR
+                 (:type = 'department' AND (LOWER(department) = LOWER(:value) OR LOWER(code_department) = LOWER(:value))) OR
+                 (:type = 'adresse' AND LOWER(address) LIKE LOWER(CONCAT('%', :value, '%')))) AND
+                (:minBudget IS NULL OR price >= :minBudget) AND
+                (:maxBudget IS NULL OR price <= :maxBudget) AND
+                (:propertyType IS NULL OR LOWER(property_type) LIKE LOWER(CONCAT('%', :propertyType, '%')))
+                AND (
+                  (:chambre1 IS NOT NULL AND d.chambre = :chambre1)
+                  OR (:chambre2 IS NOT NULL AND d.chambre = :chambre2)
+                  OR (:chambre3 IS NOT NULL AND d.chambre = :chambre3)
+                  OR (:chambre4 IS NOT NULL AND d.chambre = :chambre4)
+                  OR (:chambresMin IS NOT NULL AND d.chambre >= :chambresMin)
+                )
+        ) m
+        JOIN dvf_plus_2025_2.dvf_louer l ON l.id = m.id
+        LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
+        WHERE :expandDuplicates = TRUE OR m.cluster_rank = 1
+        ORDER BY l.source ASC, l.created_at DESC NULLS LAST, l.id ASC
         """,
         nativeQuery = true
     )
-    Page<DvfLouer> findByLocationAndFiltersPaginated(
+    List<ListingSearchRowProjection> findByLocationAndFiltersPaginatedWithChambres(
         @Param("value") String value,
         @Param("type") String type,
         @Param("minBudget") BigDecimal minBudget,
         @Param("maxBudget") BigDecimal maxBudget,
         @Param("propertyType") String propertyType,
+        @Param("expandDuplicates") boolean expandDuplicates,
+        @Param("chambre1") Integer chambre1,
+        @Param("chambre2") Integer chambre2,
+        @Param("chambre3") Integer chambre3,
+        @Param("chambre4") Integer chambre4,
+        @Param("chambresMin") Integer chambresMin,
         Pageable pageable
     );
 
+    /**
+     * Full listings (complete description and image list) for the search results the client opens.
+     */
+    @Query(
+        value = """
+        SELECT
+            l.id,
+            l.source,
+            l.search_postal_code as searchPostalCode,
+            l.department,
+            l.department_name as departmentName,
+            l.commune,
+            l.code_department as codeDepartment,
+            l.property_type as propertyType,
+            l.price_text as priceText,
+            l.price,
+            l.address,
+            l.details,
+            l.description,
+            l.property_url as propertyUrl,
+            l.images::text as images,
+            l.images ->> 0 as firstImage,
+            CASE WHEN jsonb_typeof(l.images) = 'array' THEN jsonb_array_length(l.images) END as imageCount,
+            d.surface,
+            d.chambre,
+            d.pieces,
+            d.dpe,
+            d.terrain_sqm as terrainSqm,
+            d.piscine,
+            d.meuble,
+            d.terrasse,
+            d.balcon,
+            d.cave,
+            d.jardin,
+            d.parking,
+            d.etage,
+            l.cluster_id as clusterId
+        FROM dvf_plus_2025_2.dvf_louer l
+        LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
+        WHERE l.id IN (:ids)
+        """,
+        nativeQuery = true
+    )
+    List<ListingSearchRowProjection> findDetailsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * All listings of the duplicate cluster of {@code id} (the listing itself included), by id: the order in which
+     * search picks the listing it shows for the cluster, the smallest id among those passing the filters.
+     */
+    @Query(
+        value = """
+        SELECT
+            l.id,
+            l.source,
+            l.search_postal_code as searchPostalCode,
+            l.department,
+            l.department_name as departmentName,
+            l.commune,
+            l.code_department as codeDepartment,
+            l.property_type as propertyType,
+            l.price_text as priceText,
+            l.price,
+            l.address,
+            LEFT(l.details, 280) as details,
+            LEFT(l.description, 280) as description,
+            l.property_url as propertyUrl,
+            CAST(NULL AS text) as images,
+            l.images ->> 0 as firstImage,
+            CASE WHEN jsonb_typeof(l.images) = 'array' THEN jsonb_array_length(l.images) END as imageCount,
+            d.surface,
+            d.chambre,
+            d.pieces,
+            d.dpe,
+            d.terrain_sqm as terrainSqm,
+            d.piscine,
+            d.meuble,
+            d.terrasse,
+            d.balcon,
+            d.cave,
+            d.jardin,
+            d.parking,
+            d.etage,
+            l.cluster_id as clusterId
+        FROM dvf_plus_2025_2.dvf_louer l
+        LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
+        WHERE l.cluster_id = (SELECT cluster_id FROM dvf_plus_2025_2.dvf_louer WHERE id = :id)
+        ORDER BY l.id
+        """,
+        nativeQuery = true
+    )
+    List<ListingSearchRowProjection> findDuplicateCluster(@Param("id") Long id);
+
+    /**
+     * Exact total for search-with-filters, with or without the chambres filter (all chambre params null means no filter),
+     * on the parsed bedrooms of the detail table like the search page and the facets.
+     * Cached per normalized filter set with a short TTL so flipping pages does not re-run the count.
+     */
+    @Cacheable(cacheNames = LOUER_COUNT_CACHE)
     @Query(
         value = """
-        SELECT * FROM dvf_plus_2025_2.dvf_louer
+        SELECT CASE WHEN :expandDuplicates = TRUE THEN COUNT(*) ELSE COUNT(DISTINCT COALESCE(l.cluster_id, l.id)) END
+        FROM dvf_plus_2025_2.dvf_louer l
+        LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
         WHERE
             ((:type = 'commune' AND LOWER(commune) = LOWER(:value)) OR
              (:type IN ('postal_code', 'search_postal_code') AND LOWER(search_postal_code) = LOWER(:value)) OR
@@ -116,16 +353,40 @@ public interface DvfLouerRepository extends JpaRepository<DvfLouer, Long> {
             (:maxBudget IS NULL OR price <= :maxBudget) AND
             (:propertyType IS NULL OR LOWER(property_type) LIKE LOWER(CONCAT('%', :propertyType, '%')))
             AND (
-              (:chambre1 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre1)
-              OR (:chambre2 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre2)
-              OR (:chambre3 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre3)
-              OR (:chambre4 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre4)
-              OR (:chambresMin IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) >= :chambresMin)
+              (:chambre1 IS NULL AND :chambre2 IS NULL AND :chambre3 IS NULL AND :chambre4 IS NULL AND :chambresMin IS NULL)
+              OR (:chambre1 IS NOT NULL AND d.chambre = :chambre1)
+              OR (:chambre2 IS NOT NULL AND d.chambre = :chambre2)
+              OR (:chambre3 IS NOT NULL AND d.chambre = :chambre3)
+              OR (:chambre4 IS NOT NULL AND d.chambre = :chambre4)
+              OR (:chambresMin IS NOT NULL AND d.chambre >= :chambresMin)
             )
-        ORDER BY source ASC, created_at DESC NULLS LAST, id ASC
         """,
-        countQuery = """
-        SELECT COUNT(*) FROM dvf_plus_2025_2.dvf_louer
+        nativeQuery = true
+    )
+    long countByLocationAndFilters(
+        @Param("value") String value,
+        @Param("type") String type,
+        @Param("minBudget") BigDecimal minBudget,
+        @Param("maxBudget") BigDecimal maxBudget,
+        @Param("propertyType") String propertyType,
+        @Param("expandDuplicates") boolean expandDuplicates,
+        @Param("chambre1") Integer chambre1,
+        @Param("chambre2") Integer chambre2,
+        @Param("chambre3") Integer chambre3,
+        @Param("chambre4") Integer chambre4,
+        @Param("chambresMin") Integer chambresMin
+    );
+
+    /**
+     * Estimated total from a 1% block sample of dvf_louer (TABLESAMPLE SYSTEM), scaled back up.
+     * Reads a fraction of the pages the exact count reads; only meaningful for large result sets.
+     */
+    @Cacheable(cacheNames = LOUER_COUNT_ESTIMATE_CACHE)
+    @Query(
+        value = """
+        SELECT CASE WHEN :expandDuplicates = TRUE THEN COUNT(*) ELSE COUNT(DISTINCT COALESCE(l.cluster_id, l.id)) END * 100
+        FROM dvf_plus_2025_2.dvf_louer l TABLESAMPLE SYSTEM (1)
+        LEFT JOIN dvf_plus_2025_2.dvf_louer_detail d ON d.publication_id = l.id
         WHERE
             ((:type = 'commune' AND LOWER(commune) = LOWER(:value)) OR
              (:type IN ('postal_code', 'search_postal_code') AND LOWER(search_postal_code) = LOWER(:value)) OR
@@ -135,26 +396,27 @@ public interface DvfLouerRepository extends JpaRepository<DvfLouer, Long> {
             (:maxBudget IS NULL OR price <= :maxBudget) AND
             (:propertyType IS NULL OR LOWER(property_type) LIKE LOWER(CONCAT('%', :propertyType, '%')))
             AND (
-              (:chambre1 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre1)
-              OR (:chambre2 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre2)
-              OR (:chambre3 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre3)
-              OR (:chambre4 IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) = :chambre4)
-              OR (:chambresMin IS NOT NULL AND (COALESCE((SELECT (regexp_matches(COALESCE(details, ''), 'Chambres?[[:space:]]*:[[:space:]]*([0-9]+)'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*ch\\.'))[1]), (SELECT (regexp_matches(COALESCE(details, ''), '([0-9]+)[[:space:]]*chambre'))[1]))::int) >= :chambresMin)
+              (:chambre1 IS NULL AND :chambre2 IS NULL AND :chambre3 IS NULL AND :chambre4 IS NULL AND :chambresMin IS NULL)
+              OR (:chambre1 IS NOT NULL AND d.chambre = :chambre1)
+              OR (:chambre2 IS NOT NULL AND d.chambre = :chambre2)
+              OR (:chambre3 IS NOT NULL AND d.chambre = :chambre3)
+              OR (:chambre4 IS NOT NULL AND d.chambre = :chambre4)
+              OR (:chambresMin IS NOT NULL AND d.chambre >= :chambresMin)
             )
         """,
         nativeQuery = true
     )
-    Page<DvfLouer> findByLocationAndFiltersPaginatedWithChambres(
+    long estimateCountByLocationAndFilters(
         @Param("value") String value,
         @Param("type") String type,
         @Param("minBudget") BigDecimal minBudget,
         @Param("maxBudget") BigDecimal maxBudget,
         @Param("propertyType") String propertyType,
+        @Param("expandDuplicates") boolean expandDuplicates,
         @Param("chambre1") Integer chambre1,
         @Param("chambre2") Integer chambre2,
         @Param("chambre3") Integer chambre3,
         @Param("chambre4") Integer chambre4,
-        @Param("chambresMin") Integer chambresMin,
-        Pageable pageable
+        @Param("chambresMin") Integer chambresMin
     );
 }
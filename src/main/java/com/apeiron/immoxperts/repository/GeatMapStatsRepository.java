@@ -0,0 +1,13 @@
+package com.apeiron.immoxperts.repository;
+
+import java.util.List;
+
+/**
+ * Reads the precomputed sale statistics per commune (mutation_stats_by_city) baked into the GeatMap statistics tiles.
+ */
+public interface GeatMapStatsRepository {
+    record CommuneStats(String codeInsee, String typeBien, long nombreMutations, Double prixMoyen, Double prixM2Moyen) {}
+
+    /** Every row of mutation_stats_by_city, ordered by commune and property type. */
+    List<CommuneStats> findAllCommuneStats();
+}
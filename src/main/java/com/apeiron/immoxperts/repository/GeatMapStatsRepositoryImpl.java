@@ -0,0 +1,38 @@
+package com.apeiron.immoxperts.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.List;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class GeatMapStatsRepositoryImpl implements GeatMapStatsRepository {
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<CommuneStats> findAllCommuneStats() {
+        List<Object[]> rows = em
+            .createNativeQuery(
+                "SELECT code_insee, type_bien, nombre_mutations, prix_moyen_dec2024, prix_m2_moyen_dec2024 FROM " +
+                SCHEMA +
+                "mutation_stats_by_city WHERE code_insee IS NOT NULL AND type_bien IS NOT NULL ORDER BY code_insee, type_bien"
+            )
+            .getResultList();
+        return rows
+            .stream()
+            .map(r ->
+                new CommuneStats(
+                    (String) r[0],
+                    (String) r[1],
+                    r[2] != null ? ((Number) r[2]).longValue() : 0,
+                    r[3] != null ? ((Number) r[3]).doubleValue() : null,
+                    r[4] != null ? ((Number) r[4]).doubleValue() : null
+                )
+            )
+            .toList();
+    }
+}
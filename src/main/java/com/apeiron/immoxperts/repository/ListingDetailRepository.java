@@ -0,0 +1,51 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.service.dto.ListingDetailSourceRow;
+import com.apeiron.immoxperts.service.dto.ListingDetailsDTO;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reads listing details to parse and writes the parsed characteristics into dvf_achat_detail / dvf_louer_detail,
+ * together with the (created_at, id) watermark of the incremental sync. Each detail row keeps the MD5 of the text it
+ * was parsed from, so listings whose details changed since can be found.
+ */
+public interface ListingDetailRepository {
+    /** Position of the last listing parsed by the incremental sync, in (created_at, id) order. */
+    record Watermark(LocalDateTime createdAt, long id) {}
+
+    /** Characteristics parsed from {@code source}, the details text of the listing. */
+    record ParsedDetails(String source, ListingDetailsDTO details) {}
+
+    List<ListingDetailSourceRow> findSourcesAfter(ListingKind kind, Watermark after, int limit);
+
+    /** Listings with {@code fromId <= id < toId}. */
+    List<ListingDetailSourceRow> findSourcesByIdRange(ListingKind kind, long fromId, long toId);
+
+    /**
+     * Listings with {@code id > afterId} that have no detail row, or whose details changed since they were parsed, in id
+     * order.
+     */
+    List<ListingDetailSourceRow> findStaleSources(ListingKind kind, long afterId, int limit);
+
+    /** Smallest and largest listing id, empty when the table is empty. */
+    Optional<long[]> findIdBounds(ListingKind kind);
+
+    /** Watermark of the most recent listing currently in the table. */
+    Optional<Watermark> findLatest(ListingKind kind);
+
+    Optional<Watermark> findWatermark(ListingKind kind);
+
+    /**
+     * Upsert parsed details and, when {@code advanceTo} is not null, move the watermark in the same transaction.
+     */
+    void saveDetails(ListingKind kind, Map<Long, ParsedDetails> details, Watermark advanceTo);
+
+    void saveWatermark(ListingKind kind, Watermark watermark);
+
+    /** Remove detail rows whose listing no longer exists. */
+    int deleteOrphans(ListingKind kind);
+}
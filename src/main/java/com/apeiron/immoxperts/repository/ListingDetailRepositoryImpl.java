@@ -0,0 +1,236 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.service.dto.ListingDetailSourceRow;
+import com.apeiron.immoxperts.service.dto.ListingDetailsDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class ListingDetailRepositoryImpl implements ListingDetailRepository {
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    /** Sort key of the sync: listings without created_at sort first. */
+    private static final String CREATED_AT_KEY = "COALESCE(created_at, TIMESTAMP '1970-01-01')";
+
+    /** Fingerprint of the text a detail row was parsed from; stored as md5(COALESCE(?, '')) too. */
+    private static final String DETAILS_MD5 = "md5(COALESCE(l.details, ''))";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<ListingDetailSourceRow> findSourcesAfter(ListingKind kind, Watermark after, int limit) {
+        List<Object[]> rows = em
+            .createNativeQuery(
+                "SELECT id, " +
+                CREATED_AT_KEY +
+                ", details FROM " +
+                SCHEMA +
+                kind.getTableName() +
+                " WHERE (" +
+                CREATED_AT_KEY +
+                ", id) > (:createdAt, :id) ORDER BY " +
+                CREATED_AT_KEY +
+                ", id LIMIT :limit"
+            )
+            .setParameter("createdAt", after.createdAt())
+            .setParameter("id", after.id())
+            .setParameter("limit", limit)
+            .getResultList();
+        return toSourceRows(rows);
+    }
+
+    @Override
+    public List<ListingDetailSourceRow> findSourcesByIdRange(ListingKind kind, long fromId, long toId) {
+        List<Object[]> rows = em
+            .createNativeQuery(
+                "SELECT id, " + CREATED_AT_KEY + ", details FROM " + SCHEMA + kind.getTableName() + " WHERE id >= :fromId AND id < :toId"
+            )
+            .setParameter("fromId", fromId)
+            .setParameter("toId", toId)
+            .getResultList();
+        return toSourceRows(rows);
+    }
+
+    @Override
+    public List<ListingDetailSourceRow> findStaleSources(ListingKind kind, long afterId, int limit) {
+        List<Object[]> rows = em
+            .createNativeQuery(
+                "SELECT l.id, " +
+                CREATED_AT_KEY +
+                ", l.details FROM " +
+                SCHEMA +
+                kind.getTableName() +
+                " l LEFT JOIN " +
+                SCHEMA +
+                kind.getDetailTableName() +
+                " d ON d.publication_id = l.id WHERE l.id > :afterId AND (d.publication_id IS NULL OR d.details_md5 IS DISTINCT FROM " +
+                DETAILS_MD5 +
+                ") ORDER BY l.id LIMIT :limit"
+            )
+            .setParameter("afterId", afterId)
+            .setParameter("limit", limit)
+            .getResultList();
+        return toSourceRows(rows);
+    }
+
+    @Override
+    public Optional<long[]> findIdBounds(ListingKind kind) {
+        Object[] row = (Object[]) em.createNativeQuery("SELECT MIN(id), MAX(id) FROM " + SCHEMA + kind.getTableName()).getSingleResult();
+        if (row[0] == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new long[] { ((Number) row[0]).longValue(), ((Number) row[1]).longValue() });
+    }
+
+    @Override
+    public Optional<Watermark> findLatest(ListingKind kind) {
+        List<Object[]> rows = em
+            .createNativeQuery(
+                "SELECT " +
+                CREATED_AT_KEY +
+                ", id FROM " +
+                SCHEMA +
+                kind.getTableName() +
+                " ORDER BY " +
+                CREATED_AT_KEY +
+                " DESC, id DESC LIMIT 1"
+            )
+            .getResultList();
+        return rows.stream().findFirst().map(r -> new Watermark(toLocalDateTime(r[0]), ((Number) r[1]).longValue()));
+    }
+
+    @Override
+    public Optional<Watermark> findWatermark(ListingKind kind) {
+        List<Object[]> rows = em
+            .createNativeQuery("SELECT last_created_at, last_id FROM " + SCHEMA + "listing_detail_watermark WHERE table_name = :tableName")
+            .setParameter("tableName", kind.getTableName())
+            .getResultList();
+        return rows.stream().findFirst().map(r -> new Watermark(toLocalDateTime(r[0]), ((Number) r[1]).longValue()));
+    }
+
+    @Override
+    @Transactional
+    public void saveDetails(ListingKind kind, Map<Long, ParsedDetails> details, Watermark advanceTo) {
+        if (!details.isEmpty()) {
+            String sql =
+                "INSERT INTO " +
+                SCHEMA +
+                kind.getDetailTableName() +
+                " (publication_id, surface, chambre, pieces, dpe, terrain_sqm, piscine, meuble, balcon, cave, jardin, parking, etage," +
+                " terrasse, details_md5, parsed_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, md5(COALESCE(?, '')), now())" +
+                " ON CONFLICT (publication_id) DO UPDATE SET surface = EXCLUDED.surface, chambre = EXCLUDED.chambre," +
+                " pieces = EXCLUDED.pieces, dpe = EXCLUDED.dpe, terrain_sqm = EXCLUDED.terrain_sqm, piscine = EXCLUDED.piscine," +
+                " meuble = EXCLUDED.meuble, balcon = EXCLUDED.balcon, cave = EXCLUDED.cave, jardin = EXCLUDED.jardin," +
+                " parking = EXCLUDED.parking, etage = EXCLUDED.etage, terrasse = EXCLUDED.terrasse," +
+                " details_md5 = EXCLUDED.details_md5, parsed_at = EXCLUDED.parsed_at";
+            em
+                .unwrap(Session.class)
+                .doWork(connection -> {
+                    try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                        for (Map.Entry<Long, ParsedDetails> entry : details.entrySet()) {
+                            ListingDetailsDTO d = entry.getValue().details();
+                            ps.setLong(1, entry.getKey());
+                            setDecimal(ps, 2, d.surface());
+                            setInteger(ps, 3, d.chambre());
+                            setInteger(ps, 4, d.pieces());
+                            ps.setString(5, d.dpe());
+                            setDecimal(ps, 6, d.terrainSqm());
+                            ps.setString(7, d.piscine());
+                            ps.setString(8, d.meuble());
+                            ps.setString(9, d.balcon());
+                            ps.setString(10, d.cave());
+                            ps.setString(11, d.jardin());
+                            ps.setString(12, d.parking());
+                            ps.setString(13, d.etage());
+                            ps.setString(14, d.terrasse());
+                            ps.setString(15, entry.getValue().source());
+                            ps.addBatch();
+                        }
+                        ps.executeBatch();
+                    }
+                });
+        }
+        if (advanceTo != null) {
+            saveWatermark(kind, advanceTo);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void saveWatermark(ListingKind kind, Watermark watermark) {
+        em
+            .createNativeQuery(
+                "INSERT INTO " +
+                SCHEMA +
+                "listing_detail_watermark (table_name, last_created_at, last_id, updated_at)" +
+                " VALUES (:tableName, :createdAt, :id, now())" +
+                " ON CONFLICT (table_name) DO UPDATE SET last_created_at = EXCLUDED.last_created_at, last_id = EXCLUDED.last_id," +
+                " updated_at = EXCLUDED.updated_at"
+            )
+            .setParameter("tableName", kind.getTableName())
+            .setParameter("createdAt", watermark.createdAt())
+            .setParameter("id", watermark.id())
+            .executeUpdate();
+    }
+
+    @Override
+    @Transactional
+    public int deleteOrphans(ListingKind kind) {
+        return em
+            .createNativeQuery(
+                "DELETE FROM " +
+                SCHEMA +
+                kind.getDetailTableName() +
+                " d WHERE NOT EXISTS (SELECT 1 FROM " +
+                SCHEMA +
+                kind.getTableName() +
+                " l WHERE l.id = d.publication_id)"
+            )
+            .executeUpdate();
+    }
+
+    private static List<ListingDetailSourceRow> toSourceRows(List<Object[]> rows) {
+        return rows
+            .stream()
+            .map(r -> new ListingDetailSourceRow(((Number) r[0]).longValue(), toLocalDateTime(r[1]), (String) r[2]))
+            .toList();
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+
+    private static void setDecimal(PreparedStatement ps, int index, BigDecimal value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.NUMERIC);
+        } else {
+            ps.setBigDecimal(index, value);
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+}
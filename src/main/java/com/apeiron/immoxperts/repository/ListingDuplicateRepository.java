@@ -0,0 +1,24 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Reads what the near-duplicate fingerprint is computed from and stores the resulting cluster_id of dvf_achat /
+ * dvf_louer.
+ */
+public interface ListingDuplicateRepository {
+    record FingerprintSource(long id, String description, String address, BigDecimal price) {}
+
+    /** Listings with {@code fromId <= id < toId}. */
+    List<FingerprintSource> findFingerprintSourcesByIdRange(ListingKind kind, long fromId, long toId);
+
+    /**
+     * Set {@code cluster_id} of {@code ids[i]} to {@code clusterIds[i]} (null for no cluster). Rows already holding
+     * that value are left untouched.
+     *
+     * @return the number of rows changed.
+     */
+    int updateClusterIds(ListingKind kind, long[] ids, Long[] clusterIds);
+}
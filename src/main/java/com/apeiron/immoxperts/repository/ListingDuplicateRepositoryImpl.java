@@ -0,0 +1,63 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.util.List;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class ListingDuplicateRepositoryImpl implements ListingDuplicateRepository {
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<FingerprintSource> findFingerprintSourcesByIdRange(ListingKind kind, long fromId, long toId) {
+        List<Object[]> rows = em
+            .createNativeQuery(
+                "SELECT id, description, address, price FROM " + SCHEMA + kind.getTableName() + " WHERE id >= :fromId AND id < :toId"
+            )
+            .setParameter("fromId", fromId)
+            .setParameter("toId", toId)
+            .getResultList();
+        return rows
+            .stream()
+            .map(r -> new FingerprintSource(((Number) r[0]).longValue(), (String) r[1], (String) r[2], (BigDecimal) r[3]))
+            .toList();
+    }
+
+    @Override
+    @Transactional
+    public int updateClusterIds(ListingKind kind, long[] ids, Long[] clusterIds) {
+        if (ids.length == 0) {
+            return 0;
+        }
+        // One statement per call: both arrays are sent as parameters and joined back with unnest
+        String sql =
+            "UPDATE " +
+            SCHEMA +
+            kind.getTableName() +
+            " t SET cluster_id = v.cluster_id FROM unnest(?::bigint[], ?::bigint[]) AS v(id, cluster_id)" +
+            " WHERE t.id = v.id AND t.cluster_id IS DISTINCT FROM v.cluster_id";
+        Long[] boxedIds = new Long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            boxedIds[i] = ids[i];
+        }
+        return em
+            .unwrap(Session.class)
+            .doReturningWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setArray(1, connection.createArrayOf("bigint", boxedIds));
+                    ps.setArray(2, connection.createArrayOf("bigint", clusterIds));
+                    return ps.executeUpdate();
+                }
+            });
+    }
+}
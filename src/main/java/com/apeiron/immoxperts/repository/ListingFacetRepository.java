@@ -0,0 +1,19 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO;
+import com.apeiron.immoxperts.service.dto.ListingSearchCriteria;
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Facet histograms (property type, bedrooms, budget range, DPE) of a listing search, computed in one scan.
+ */
+public interface ListingFacetRepository {
+    String LISTING_FACETS_CACHE = "listingFacets";
+
+    /**
+     * @param budgetEdges ascending price bounds of the budget ranges; n edges give n + 1 ranges.
+     */
+    ListingFacetsDTO findFacets(ListingKind kind, ListingSearchCriteria criteria, List<BigDecimal> budgetEdges);
+}
@@ -0,0 +1,198 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO.BudgetCount;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO.FacetCount;
+import com.apeiron.immoxperts.service.dto.ListingSearchCriteria;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Repository;
+
+/**
+ * One GROUPING SETS query over the listings of the location: each row carries its facet values and whether it passes
+ * each filter, and every facet count is a {@code COUNT FILTER} over the other filters. The location condition is the
+ * only one in the WHERE clause, so its index drives the scan whatever facets are asked for.
+ * <p>
+ * Unless duplicates are expanded, a duplicate cluster counts once wherever one of its listings passes the other
+ * filters ({@code COUNT(DISTINCT COALESCE(cluster_id, id))}), which is what the search shows for that selection.
+ * <p>
+ * Bedrooms and DPE come from the parsed detail table (dvf_achat_detail / dvf_louer_detail). Every filter uses the same
+ * predicate as the search page and its total (DvfAchatRepository / DvfLouerRepository), so a facet count is the total
+ * the search returns once that value is selected.
+ */
+@Repository
+public class ListingFacetRepositoryImpl implements ListingFacetRepository {
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    /** Raw property types are free text; only the most frequent are returned. */
+    private static final int MAX_PROPERTY_TYPES = 20;
+
+    // GROUPING(property_type, chambres, budget, dpe) of each grouping set
+    private static final int BY_PROPERTY_TYPE = 0b0111;
+    private static final int BY_CHAMBRES = 0b1011;
+    private static final int BY_BUDGET = 0b1101;
+    private static final int BY_DPE = 0b1110;
+    private static final int TOTAL = 0b1111;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    @Cacheable(cacheNames = LISTING_FACETS_CACHE)
+    public ListingFacetsDTO findFacets(ListingKind kind, ListingSearchCriteria criteria, List<BigDecimal> budgetEdges) {
+        String location = locationCondition(criteria.type());
+        if (location == null) {
+            return new ListingFacetsDTO(0, List.of(), List.of(), emptyBudgets(budgetEdges), List.of());
+        }
+
+        String typeOk = criteria.propertyType() != null ? "COALESCE(LOWER(l.property_type) LIKE :propertyType, FALSE)" : "TRUE";
+        List<String> budget = new ArrayList<>();
+        if (criteria.minBudget() != null) {
+            budget.add("l.price >= :minBudget");
+        }
+        if (criteria.maxBudget() != null) {
+            budget.add("l.price <= :maxBudget");
+        }
+        String budgetOk = budget.isEmpty() ? "TRUE" : "COALESCE(" + String.join(" AND ", budget) + ", FALSE)";
+        String chambresOk = "TRUE";
+        if (criteria.chambresMin() != null) {
+            chambresOk = "COALESCE(d.chambre >= :chambresMin, FALSE)";
+        } else if (criteria.hasChambresFilter()) {
+            chambresOk = "COALESCE(d.chambre IN (:chambres), FALSE)";
+        }
+        String edges = budgetEdges.stream().map(BigDecimal::toPlainString).collect(Collectors.joining(", "));
+        String count = criteria.expandDuplicates() ? "COUNT(*)" : "COUNT(DISTINCT listing_key)";
+
+        String sql =
+            "WITH base AS (SELECT LOWER(l.property_type) AS property_type," +
+            " CASE WHEN d.chambre >= 5 THEN '5+' ELSE d.chambre::text END AS chambres," +
+            " width_bucket(l.price, ARRAY[" +
+            edges +
+            "]::numeric[]) AS budget, UPPER(d.dpe) AS dpe, " +
+            typeOk +
+            " AS type_ok, " +
+            budgetOk +
+            " AS budget_ok, " +
+            chambresOk +
+            " AS chambres_ok, COALESCE(l.cluster_id, l.id) AS listing_key FROM " +
+            SCHEMA +
+            kind.getTableName() +
+            " l LEFT JOIN " +
+            SCHEMA +
+            kind.getDetailTableName() +
+            " d ON d.publication_id = l.id WHERE " +
+            location +
+            ")" +
+            " SELECT GROUPING(property_type, chambres, budget, dpe), property_type, chambres, budget, dpe, " +
+            count +
+            " FILTER (WHERE budget_ok AND chambres_ok), " +
+            count +
+            " FILTER (WHERE type_ok AND budget_ok), " +
+            count +
+            " FILTER (WHERE type_ok AND chambres_ok), " +
+            count +
+            " FILTER (WHERE type_ok AND budget_ok AND chambres_ok)" +
+            " FROM base GROUP BY GROUPING SETS ((property_type), (chambres), (budget), (dpe), ())";
+
+        Query query = em.createNativeQuery(sql).setParameter("value", criteria.value());
+        if (criteria.propertyType() != null) {
+            query.setParameter("propertyType", "%" + criteria.propertyType() + "%");
+        }
+        if (criteria.minBudget() != null) {
+            query.setParameter("minBudget", criteria.minBudget());
+        }
+        if (criteria.maxBudget() != null) {
+            query.setParameter("maxBudget", criteria.maxBudget());
+        }
+        if (criteria.chambresMin() != null) {
+            query.setParameter("chambresMin", criteria.chambresMin());
+        } else if (criteria.hasChambresFilter()) {
+            List<Integer> chambres = new ArrayList<>(4);
+            for (Integer c : new Integer[] { criteria.chambre1(), criteria.chambre2(), criteria.chambre3(), criteria.chambre4() }) {
+                if (c != null) {
+                    chambres.add(c);
+                }
+            }
+            query.setParameter("chambres", chambres);
+        }
+        List<Object[]> rows = query.getResultList();
+        return toFacets(rows, budgetEdges);
+    }
+
+    /** Same location semantics as the search-with-filters page and count; {@code :value} is already lower-cased. */
+    private static String locationCondition(String type) {
+        return switch (type) {
+            case "commune" -> "LOWER(l.commune) = :value";
+            case "postal_code", "search_postal_code" -> "LOWER(l.search_postal_code) = :value";
+            case "department" -> "(LOWER(l.department) = :value OR LOWER(l.code_department) = :value)";
+            case "adresse" -> "LOWER(l.address) LIKE CONCAT('%', :value, '%')";
+            default -> null;
+        };
+    }
+
+    private static ListingFacetsDTO toFacets(List<Object[]> rows, List<BigDecimal> budgetEdges) {
+        long total = 0;
+        List<FacetCount> propertyTypes = new ArrayList<>();
+        List<FacetCount> chambres = new ArrayList<>();
+        List<FacetCount> dpe = new ArrayList<>();
+        Map<Integer, Long> budgetCounts = new HashMap<>();
+        for (Object[] r : rows) {
+            int grouping = ((Number) r[0]).intValue();
+            switch (grouping) {
+                case BY_PROPERTY_TYPE -> addCount(propertyTypes, r[1], r[5]);
+                case BY_CHAMBRES -> addCount(chambres, r[2], r[6]);
+                case BY_BUDGET -> {
+                    if (r[3] != null) {
+                        budgetCounts.put(((Number) r[3]).intValue(), ((Number) r[7]).longValue());
+                    }
+                }
+                case BY_DPE -> addCount(dpe, r[4], r[8]);
+                case TOTAL -> total = ((Number) r[8]).longValue();
+                default -> {}
+            }
+        }
+        propertyTypes.sort(Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value));
+        chambres.sort(Comparator.comparing(FacetCount::value));
+        dpe.sort(Comparator.comparing(FacetCount::value));
+
+        List<BudgetCount> budgets = new ArrayList<>(budgetEdges.size() + 1);
+        for (int i = 0; i <= budgetEdges.size(); i++) {
+            budgets.add(
+                new BudgetCount(
+                    i == 0 ? null : budgetEdges.get(i - 1),
+                    i == budgetEdges.size() ? null : budgetEdges.get(i),
+                    budgetCounts.getOrDefault(i, 0L)
+                )
+            );
+        }
+        return new ListingFacetsDTO(
+            total,
+            List.copyOf(propertyTypes.subList(0, Math.min(propertyTypes.size(), MAX_PROPERTY_TYPES))),
+            chambres,
+            budgets,
+            dpe
+        );
+    }
+
+    private static void addCount(List<FacetCount> facet, Object value, Object count) {
+        long n = ((Number) count).longValue();
+        if (value != null && n > 0) {
+            facet.add(new FacetCount(value.toString(), n));
+        }
+    }
+
+    private static List<BudgetCount> emptyBudgets(List<BigDecimal> budgetEdges) {
+        return toFacets(List.of(), budgetEdges).budgets();
+    }
+}
@@ -0,0 +1,21 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.service.dto.ListingImportRecord;
+import java.util.List;
+
+/**
+ * Write side of the listing ingestion: bulk load through COPY into a staging table, then upsert keyed by
+ * property_url_hash.
+ */
+public interface ListingIngestionRepository {
+    /** A listing row the upsert inserted or changed; unchanged rows are not reported. */
+    record UpsertedListing(long id, long propertyUrlHash, boolean inserted) {}
+
+    /**
+     * Load one batch in its own transaction: COPY into a temporary staging table, upsert into the listing table (the
+     * last occurrence of a URL in the batch wins, identical rows are left untouched) and store the parsed details of the
+     * inserted or changed rows.
+     */
+    List<UpsertedListing> upsertBatch(ListingKind kind, List<ListingImportRecord> batch);
+}
@@ -0,0 +1,192 @@
+package com.apeiron.immoxperts.repository;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.repository.ListingDetailRepository.ParsedDetails;
+import com.apeiron.immoxperts.service.dto.ListingImportRecord;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class ListingIngestionRepositoryImpl implements ListingIngestionRepository {
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    private static final String STAGING_TABLE = "listing_import_staging";
+
+    /** Listing columns loaded from the import, in COPY order after seq and property_url_hash. */
+    private static final String COLUMNS =
+        "source, search_postal_code, department, department_name, commune, code_department, property_type, price_text, price," +
+        " address, details, description, property_url, images";
+
+    private static final String CREATE_STAGING =
+        "CREATE TEMP TABLE " +
+        STAGING_TABLE +
+        " (seq INTEGER, property_url_hash BIGINT, source VARCHAR(50), search_postal_code VARCHAR(10), department VARCHAR(100)," +
+        " department_name VARCHAR(100), commune VARCHAR(100), code_department VARCHAR(10), property_type VARCHAR(100)," +
+        " price_text VARCHAR(50), price NUMERIC(12, 2), address TEXT, details TEXT, description TEXT, property_url TEXT," +
+        " images JSONB, created_at TIMESTAMP) ON COMMIT DROP";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    private final ListingDetailRepository listingDetailRepository;
+    private final ObjectMapper objectMapper;
+
+    public ListingIngestionRepositoryImpl(ListingDetailRepository listingDetailRepository, ObjectMapper objectMapper) {
+        this.listingDetailRepository = listingDetailRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    @Transactional
+    public List<UpsertedListing> upsertBatch(ListingKind kind, List<ListingImportRecord> batch) {
+        if (batch.isEmpty()) {
+            return List.of();
+        }
+        String copyData = toCsv(batch);
+        List<UpsertedListing> upserted = new ArrayList<>();
+        em
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGING);
+                }
+                connection
+                    .unwrap(PGConnection.class)
+                    .getCopyAPI()
+                    .copyIn(
+                        "COPY " + STAGING_TABLE + " (seq, property_url_hash, " + COLUMNS + ", created_at) FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(copyData)
+                    );
+                try (PreparedStatement ps = connection.prepareStatement(upsertSql(kind)); ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        upserted.add(new UpsertedListing(rs.getLong(1), rs.getLong(2), rs.getBoolean(3)));
+                    }
+                }
+            });
+
+        if (!upserted.isEmpty()) {
+            Map<Long, ParsedDetails> parsedByHash = new HashMap<>(batch.size() * 2);
+            for (ListingImportRecord record : batch) {
+                // later duplicates overwrite earlier ones, like the upsert
+                parsedByHash.put(record.getPropertyUrlHash(), new ParsedDetails(record.getDetails(), record.getParsedDetails()));
+            }
+            Map<Long, ParsedDetails> details = new LinkedHashMap<>(upserted.size() * 2);
+            for (UpsertedListing listing : upserted) {
+                details.put(listing.id(), parsedByHash.get(listing.propertyUrlHash()));
+            }
+            listingDetailRepository.saveDetails(kind, details, null);
+        }
+        return upserted;
+    }
+
+    private static String upsertSql(ListingKind kind) {
+        StringBuilder set = new StringBuilder();
+        StringBuilder current = new StringBuilder();
+        StringBuilder incoming = new StringBuilder();
+        for (String column : COLUMNS.split(",")) {
+            String c = column.trim();
+            if (!set.isEmpty()) {
+                set.append(", ");
+                current.append(", ");
+                incoming.append(", ");
+            }
+            set.append(c).append(" = EXCLUDED.").append(c);
+            current.append("t.").append(c);
+            incoming.append("EXCLUDED.").append(c);
+        }
+        return (
+            "INSERT INTO " +
+            SCHEMA +
+            kind.getTableName() +
+            " AS t (" +
+            COLUMNS +
+            ", created_at, property_url_hash)" +
+            " SELECT DISTINCT ON (property_url_hash) " +
+            COLUMNS +
+            ", COALESCE(created_at, now()), property_url_hash FROM " +
+            STAGING_TABLE +
+            " ORDER BY property_url_hash, seq DESC" +
+            " ON CONFLICT (property_url_hash) DO UPDATE SET " +
+            set +
+            " WHERE (" +
+            current +
+            ") IS DISTINCT FROM (" +
+            incoming +
+            ")" +
+            " RETURNING t.id, t.property_url_hash, (t.xmax = 0) AS inserted"
+        );
+    }
+
+    /** COPY csv payload: every non-null value quoted, null as an empty unquoted field. */
+    private String toCsv(List<ListingImportRecord> batch) {
+        StringBuilder sb = new StringBuilder(batch.size() * 1024);
+        int seq = 0;
+        for (ListingImportRecord r : batch) {
+            sb.append(seq++).append(',').append(r.getPropertyUrlHash());
+            appendField(sb, r.getSource());
+            appendField(sb, r.getSearchPostalCode());
+            appendField(sb, r.getDepartment());
+            appendField(sb, r.getDepartmentName());
+            appendField(sb, r.getCommune());
+            appendField(sb, r.getCodeDepartment());
+            appendField(sb, r.getPropertyType());
+            appendField(sb, r.getPriceText());
+            appendField(sb, r.getPrice() != null ? r.getPrice().toPlainString() : null);
+            appendField(sb, r.getAddress());
+            appendField(sb, r.getDetails());
+            appendField(sb, r.getDescription());
+            appendField(sb, r.getPropertyUrl());
+            appendField(sb, toJson(r.getImages()));
+            appendField(sb, r.getCreatedAt() != null ? r.getCreatedAt().toString() : null);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    private String toJson(List<String> images) {
+        if (images == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(images);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void appendField(StringBuilder sb, String value) {
+        sb.append(',');
+        if (value == null) {
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\u0000') {
+                // not allowed in Postgres text
+                continue;
+            }
+            if (c == '"') {
+                sb.append('"');
+            }
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,33 @@
+package com.apeiron.immoxperts.repository;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Refreshes the materialized views of the dvf_plus_2025_2 schema, one transaction per view, and reads how they depend
+ * on each other from the catalog.
+ */
+public interface MaterializedViewRepository {
+    enum RefreshOutcome {
+        REFRESHED,
+        /** Rebuilt under a shadow name and renamed into place. */
+        SWAPPED,
+        /** Another session holds the advisory lock of the view: it is being refreshed elsewhere. */
+        LOCKED,
+        /** No materialized view of that name in the schema. */
+        MISSING,
+    }
+
+    /**
+     * Refreshes {@code viewName} under a transaction-scoped advisory lock, without blocking readers when the view is
+     * populated and has a unique index (CONCURRENTLY), with a plain refresh otherwise.
+     * <p>
+     * With {@code swap}, the next version is built and analyzed under a shadow name while queries keep reading the
+     * current one, then swapped in by renames in the same transaction; readers only wait for the swap itself. Indexes
+     * are recreated, privileges granted on the view are not. Views read by other views are refreshed in place.
+     */
+    RefreshOutcome refresh(String viewName, boolean swap);
+
+    /** View name -> names of the materialized views its query reads, for the materialized views of the schema. */
+    Map<String, Set<String>> findDependencies();
+}
@@ -0,0 +1,164 @@
+package com.apeiron.immoxperts.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class MaterializedViewRepositoryImpl implements MaterializedViewRepository {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MaterializedViewRepositoryImpl.class);
+
+    private static final String SCHEMA_NAME = "dvf_plus_2025_2";
+
+    /** First key of the two-key advisory locks taken on view refreshes, the second being the hash of the view name. */
+    private static final int LOCK_CLASS = 0x4D56;
+
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(" + LOCK_CLASS + ", hashtext(:view))";
+
+    /**
+     * Whether the view can be refreshed CONCURRENTLY (populated, with a valid unique index on plain columns), whether
+     * other views or rules read it, and its query.
+     */
+    private static final String VIEW_STATE_SQL = """
+        SELECT
+            c.relispopulated AND EXISTS (
+                SELECT 1 FROM pg_index i
+                WHERE i.indrelid = c.oid AND i.indisunique AND i.indisvalid AND i.indpred IS NULL AND i.indexprs IS NULL
+            ),
+            EXISTS (
+                SELECT 1 FROM pg_depend d
+                JOIN pg_rewrite r ON r.oid = d.objid
+                WHERE d.classid = 'pg_rewrite'::regclass AND d.refobjid = c.oid AND r.ev_class <> c.oid
+            ),
+            pg_get_viewdef(c.oid)
+        FROM pg_class c
+        JOIN pg_namespace n ON n.oid = c.relnamespace
+        WHERE n.nspname = :schema AND c.relname = :view AND c.relkind = 'm'
+        """;
+
+    /** Quoted name, uniqueness and method and columns ({@code USING btree (commune)}) of each index of the view. */
+    private static final String INDEXES_SQL = """
+        SELECT quote_ident(i.relname), x.indisunique, substring(pg_get_indexdef(x.indexrelid) FROM ' USING .*$')
+        FROM pg_index x
+        JOIN pg_class i ON i.oid = x.indexrelid
+        JOIN pg_class c ON c.oid = x.indrelid
+        JOIN pg_namespace n ON n.oid = c.relnamespace
+        WHERE n.nspname = :schema AND c.relname = :view
+        ORDER BY i.relname
+        """;
+
+    private static final String SHADOW_SUFFIX = "__next";
+
+    /** How long the swap waits for queries still reading the previous version before giving up. */
+    private static final String SWAP_LOCK_TIMEOUT = "10s";
+
+    /** Materialized views read by the rewrite rule (the query) of each materialized view of the schema. */
+    private static final String DEPENDENCIES_SQL = """
+        SELECT DISTINCT v.relname, s.relname
+        FROM pg_depend d
+        JOIN pg_rewrite r ON r.oid = d.objid
+        JOIN pg_class v ON v.oid = r.ev_class
+        JOIN pg_class s ON s.oid = d.refobjid
+        JOIN pg_namespace n ON n.oid = v.relnamespace
+        WHERE d.classid = 'pg_rewrite'::regclass
+          AND d.refclassid = 'pg_class'::regclass
+          AND n.nspname = :schema
+          AND v.relkind = 'm'
+          AND s.relkind = 'm'
+          AND s.oid <> v.oid
+        """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    @Transactional
+    public RefreshOutcome refresh(String viewName, boolean swap) {
+        if (!Boolean.TRUE.equals(em.createNativeQuery(TRY_LOCK_SQL).setParameter("view", viewName).getSingleResult())) {
+            return RefreshOutcome.LOCKED;
+        }
+        List<?> state = em
+            .createNativeQuery(VIEW_STATE_SQL)
+            .setParameter("schema", SCHEMA_NAME)
+            .setParameter("view", viewName)
+            .getResultList();
+        if (state.isEmpty()) {
+            return RefreshOutcome.MISSING;
+        }
+        Object[] row = (Object[]) state.get(0);
+        if (swap) {
+            if (!Boolean.TRUE.equals(row[1])) {
+                swap(viewName, (String) row[2]);
+                return RefreshOutcome.SWAPPED;
+            }
+            LOG.warn("Other views read {}, refreshing it in place instead of swapping it", viewName);
+        }
+        boolean concurrently = Boolean.TRUE.equals(row[0]);
+        // viewName is the name of an existing materialized view of the schema, checked above
+        em
+            .createNativeQuery(
+                "REFRESH MATERIALIZED VIEW " + (concurrently ? "CONCURRENTLY " : "") + SCHEMA_NAME + ".\"" + viewName + "\""
+            )
+            .executeUpdate();
+        return RefreshOutcome.REFRESHED;
+    }
+
+    /**
+     * Builds the next version of the view under a shadow name with the same indexes and statistics, then drops the
+     * view and renames the shadow and its indexes into place. Everything happens in the caller's transaction: queries
+     * read the previous version until the commit, and a failure leaves the view as it was.
+     */
+    private void swap(String viewName, String definition) {
+        String view = SCHEMA_NAME + ".\"" + viewName + "\"";
+        String shadowName = viewName + SHADOW_SUFFIX;
+        String shadow = SCHEMA_NAME + ".\"" + shadowName + "\"";
+        String query = definition.strip();
+        if (query.endsWith(";")) {
+            query = query.substring(0, query.length() - 1);
+        }
+
+        List<Object[]> indexes = em
+            .createNativeQuery(INDEXES_SQL)
+            .setParameter("schema", SCHEMA_NAME)
+            .setParameter("view", viewName)
+            .getResultList();
+        em.createNativeQuery("DROP MATERIALIZED VIEW IF EXISTS " + shadow).executeUpdate();
+        em.createNativeQuery("CREATE MATERIALIZED VIEW " + shadow + " AS " + query + " WITH DATA").executeUpdate();
+        for (int i = 0; i < indexes.size(); i++) {
+            Object[] index = indexes.get(i);
+            String unique = Boolean.TRUE.equals(index[1]) ? "UNIQUE " : "";
+            em.createNativeQuery("CREATE " + unique + "INDEX \"" + shadowName + "_" + i + "\" ON " + shadow + index[2]).executeUpdate();
+        }
+        em.createNativeQuery("ANALYZE " + shadow).executeUpdate();
+
+        // From here on the view is locked exclusively, until the commit that follows
+        em.createNativeQuery("SET LOCAL lock_timeout = '" + SWAP_LOCK_TIMEOUT + "'").executeUpdate();
+        em.createNativeQuery("DROP MATERIALIZED VIEW " + view).executeUpdate();
+        em.createNativeQuery("ALTER MATERIALIZED VIEW " + shadow + " RENAME TO \"" + viewName + "\"").executeUpdate();
+        for (int i = 0; i < indexes.size(); i++) {
+            em
+                .createNativeQuery("ALTER INDEX " + SCHEMA_NAME + ".\"" + shadowName + "_" + i + "\" RENAME TO " + indexes.get(i)[0])
+                .executeUpdate();
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Set<String>> findDependencies() {
+        List<Object[]> rows = em.createNativeQuery(DEPENDENCIES_SQL).setParameter("schema", SCHEMA_NAME).getResultList();
+        Map<String, Set<String>> dependencies = new HashMap<>();
+        for (Object[] row : rows) {
+            dependencies.computeIfAbsent((String) row[0], v -> new LinkedHashSet<>()).add((String) row[1]);
+        }
+        return dependencies;
+    }
+}
@@ -3,5 +3,7 @@ package com.apeiron.immoxperts.repository;
 import com.apeiron.immoxperts.service.dto.CommuneStatsDTO;
 
 public interface MutationCustomRepository {
+    String COMMUNE_STATS_CACHE = "communeStatsCache";
+
     CommuneStatsDTO getStatsByCommune(String commune);
 }
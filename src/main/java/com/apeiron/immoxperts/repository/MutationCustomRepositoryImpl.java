@@ -1,105 +1,118 @@
 package com.apeiron.immoxperts.repository;
 
-import com.apeiron.immoxperts.repository.MutationCustomRepository;
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+import com.apeiron.immoxperts.service.MaterializedViewRefreshedEvent;
 import com.apeiron.immoxperts.service.dto.CommuneStatsDTO;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
-import java.util.*;
+import jakarta.persistence.PersistenceException;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Commune statistics read from commune_mutation_stats_mv (see commune_mutation_stats_mv.sql), one row per commune.
+ * Until the view is created the same aggregation runs for the requested commune only, still in one query.
+ */
 @Repository
 public class MutationCustomRepositoryImpl implements MutationCustomRepository {
 
+    private static final Logger LOG = LoggerFactory.getLogger(MutationCustomRepositoryImpl.class);
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    private static final String STATS_COLUMNS =
+        "total_mutations, prix_moyen, prix_m2_moyen, maisons, appartements, locaux_commerciaux, biens_multiples, terrains";
+
+    private static final String STATS_FROM_VIEW_SQL =
+        "SELECT " + STATS_COLUMNS + " FROM " + SCHEMA + "commune_mutation_stats_mv WHERE commune = :commune";
+
+    /** The query of the view, restricted to one commune. */
+    private static final String STATS_SQL = """
+        WITH commune_mutations AS (
+            SELECT al.idmutation
+            FROM dvf_plus_2025_2.dvf_plus_adresse_local al
+            JOIN dvf_plus_2025_2.dvf_plus_adresse a ON a.idadresse = al.idadresse
+            WHERE UPPER(a.commune) = :commune
+            UNION
+            SELECT ad.idmutation
+            FROM dvf_plus_2025_2.dvf_plus_adresse_dispoparc ad
+            JOIN dvf_plus_2025_2.dvf_plus_adresse a ON a.idadresse = ad.idadresse
+            WHERE UPPER(a.commune) = :commune
+        ),
+        mutation_classes AS (
+            SELECT
+                m.idmutation,
+                m.valeurfonc,
+                COUNT(l.iddispoloc) AS locaux,
+                MAX(UPPER(l.libtyploc)) AS type_local,
+                SUM(l.sbati) AS surface,
+                EXISTS (SELECT 1 FROM dvf_plus_2025_2.dvf_plus_disposition_parcelle dp WHERE dp.idmutation = m.idmutation) AS parcelles
+            FROM commune_mutations cm
+            JOIN dvf_plus_2025_2.dvf_plus_mutation m ON m.idmutation = cm.idmutation
+            LEFT JOIN dvf_plus_2025_2.dvf_plus_local l ON l.idmutation = m.idmutation
+            GROUP BY m.idmutation, m.valeurfonc
+        )
+        SELECT
+            COUNT(*) AS total_mutations,
+            ROUND(AVG(valeurfonc) FILTER (WHERE valeurfonc > 0)) AS prix_moyen,
+            ROUND(AVG(valeurfonc / surface) FILTER (WHERE valeurfonc > 0 AND surface > 0)) AS prix_m2_moyen,
+            COUNT(*) FILTER (WHERE locaux = 1 AND type_local = 'MAISON') AS maisons,
+            COUNT(*) FILTER (WHERE locaux = 1 AND type_local = 'APPARTEMENT') AS appartements,
+            COUNT(*) FILTER (WHERE locaux = 1 AND type_local LIKE 'LOCAL%') AS locaux_commerciaux,
+            COUNT(*) FILTER (WHERE locaux > 1) AS biens_multiples,
+            COUNT(*) FILTER (WHERE locaux = 0 AND parcelles) AS terrains
+        FROM mutation_classes
+        """;
+
     @PersistenceContext
     private EntityManager em;
 
+    /** Set when the view does not exist, until the next successful refresh. */
+    private volatile boolean viewMissing;
+
     @Override
+    @Cacheable(value = COMMUNE_STATS_CACHE, key = "#commune.trim().toUpperCase()")
     public CommuneStatsDTO getStatsByCommune(String commune) {
-        CommuneStatsDTO stats = new CommuneStatsDTO();
-        stats.setCommune(commune.toUpperCase());
-
-        // 1. Get all idadresse for the commune
-        List<Integer> adresseIds = em
-            .createQuery("SELECT a.id FROM Adresse a WHERE UPPER(a.commune) = UPPER(:commune)", Integer.class)
-            .setParameter("commune", commune)
-            .getResultList();
-
-        // 2. Collect all mutations from adresse_local and adresse_dispoparc
-        Map<Integer, Set<String>> mutationCategories = new HashMap<>();
-
-        // Process adresse_local
-        List<Object[]> localResults = em
-            .createNativeQuery(
-                "SELECT al.idmutation, l.libtyploc " +
-                "FROM adresse_local al " +
-                "JOIN local l ON al.iddispoloc = l.iddispoloc " +
-                "WHERE al.idadresse IN :adresseIds"
-            )
-            .setParameter("adresseIds", adresseIds)
-            .getResultList();
-
-        // Group by mutation and count locals
-        Map<Integer, List<String>> mutationTypes = new HashMap<>();
-        for (Object[] result : localResults) {
-            Integer idMutation = (Integer) result[0];
-            String type = ((String) result[1]).toUpperCase();
-            mutationTypes.computeIfAbsent(idMutation, k -> new ArrayList<>()).add(type);
-        }
-
-        // Process adresse_dispoparc
-        List<Integer> dispoparcMutations = em
-            .createNativeQuery("SELECT DISTINCT ad.idmutation " + "FROM adresse_dispoparc ad " + "WHERE ad.idadresse IN :adresseIds")
-            .setParameter("adresseIds", adresseIds)
-            .getResultList();
-
-        // 3. Categorize mutations
-        Set<Integer> bienMultiples = new HashSet<>();
-        Set<Integer> terrains = new HashSet<>();
-
-        // Check adresse_dispoparc first
-        bienMultiples.addAll(dispoparcMutations);
-
-        // Check multiple locals
-        for (Map.Entry<Integer, List<String>> entry : mutationTypes.entrySet()) {
-            Integer idMutation = entry.getKey();
-            List<String> types = entry.getValue();
-
-            if (types.size() > 1) {
-                bienMultiples.add(idMutation);
-            } else if (!bienMultiples.contains(idMutation)) {
-                String mainType = types.get(0);
-                switch (mainType) {
-                    case "MAISON" -> stats.setMaisons(stats.getMaisons() + 1);
-                    case "APPARTEMENT" -> stats.setAppartements(stats.getAppartements() + 1);
-                    case "LOCAL COMMERCIAL" -> stats.setLocauxCommerciaux(stats.getLocauxCommerciaux() + 1);
-                }
+        String name = commune.trim().toUpperCase(Locale.ROOT);
+        List<Object[]> rows = null;
+        if (!viewMissing) {
+            try {
+                rows = em.createNativeQuery(STATS_FROM_VIEW_SQL).setParameter("commune", name).getResultList();
+            } catch (PersistenceException e) {
+                viewMissing = true;
+                LOG.warn("commune_mutation_stats_mv is not available, computing commune statistics on demand: {}", e.getMessage());
             }
         }
+        if (rows == null) {
+            rows = em.createNativeQuery(STATS_SQL).setParameter("commune", name).getResultList();
+        }
 
-        // 4. Process terrains (disposition_parcelle)
-        List<Integer> terrainMutations = em
-            .createNativeQuery(
-                "SELECT DISTINCT dp.idmutation " +
-                "FROM disposition_parcelle dp " +
-                "WHERE dp.idmutation IN (" +
-                "  SELECT m.idmutation FROM mutation m " +
-                "  JOIN adresse a ON m.coddep = a.coddep " +
-                "  WHERE UPPER(a.commune) = UPPER(:commune)" +
-                ")"
-            )
-            .setParameter("commune", commune)
-            .getResultList();
-
-        for (Integer idMutation : terrainMutations) {
-            if (!bienMultiples.contains(idMutation)) {
-                terrains.add(idMutation);
-            }
+        if (rows.isEmpty()) {
+            return new CommuneStatsDTO(name, 0, null, null);
         }
+        Object[] row = rows.get(0);
+        CommuneStatsDTO stats = new CommuneStatsDTO(name, (Number) row[0], (Number) row[1], (Number) row[2]);
+        stats.setMaisons(intValue(row[3]));
+        stats.setAppartements(intValue(row[4]));
+        stats.setLocauxCommerciaux(intValue(row[5]));
+        stats.setBiensMultiples(intValue(row[6]));
+        stats.setTerrains(intValue(row[7]));
+        return stats;
+    }
 
-        // Set final counts
-        stats.setBiensMultiples(bienMultiples.size());
-        stats.setTerrains(terrains.size());
+    @EventListener
+    public void onViewRefreshed(MaterializedViewRefreshedEvent event) {
+        if (event.view() == MaterializedView.COMMUNE_MUTATION_STATS) {
+            viewMissing = false;
+        }
+    }
 
-        return stats;
+    private static int intValue(Object value) {
+        return value != null ? ((Number) value).intValue() : 0;
     }
 }
@@ -5,7 +5,6 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -34,7 +33,4 @@ public interface MutationSearchMaterializedViewRepository extends JpaRepository<
         Pageable pageable
     );
 
-    @Modifying
-    @Query(value = "REFRESH MATERIALIZED VIEW CONCURRENTLY mutation_search_mv", nativeQuery = true)
-    void refreshMaterializedView();
 }
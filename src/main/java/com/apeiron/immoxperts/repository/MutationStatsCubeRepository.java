@@ -0,0 +1,35 @@
+package com.apeiron.immoxperts.repository;
+
+import java.util.function.Consumer;
+
+/**
+ * Sales aggregated by commune, property type and month: the input of the in-memory statistics cube.
+ */
+public interface MutationStatsCubeRepository {
+    /**
+     * Sums over the sales of one commune, type and month. Price per m² sums only cover sales with a built surface;
+     * {@code pricesPerSqm} lists the price per m² of each of those sales.
+     *
+     * @param typeBien {@code maison}, {@code appartement}, {@code local_commercial}, {@code dependance},
+     * {@code biens_multiples} or {@code terrain}, classified like commune_mutation_stats_mv.
+     * @param month 1 to 12.
+     */
+    record MonthlyAggregate(
+        String codeInsee,
+        String typeBien,
+        int year,
+        int month,
+        int count,
+        double sumPrice,
+        double sumPriceSquares,
+        int pricePerSqmCount,
+        double sumPricePerSqm,
+        double sumPricePerSqmSquares,
+        double[] pricesPerSqm
+    ) {}
+
+    /**
+     * Streams every aggregate, ordered by commune, type and month, without holding them in memory.
+     */
+    void forEachMonthlyAggregate(Consumer<MonthlyAggregate> consumer);
+}
@@ -0,0 +1,124 @@
+package com.apeiron.immoxperts.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class MutationStatsCubeRepositoryImpl implements MutationStatsCubeRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    /**
+     * Sales with a price in a single commune, classified per mutation as in commune_mutation_stats_mv, then summed by
+     * commune, type and month.
+     */
+    private static final String MONTHLY_AGGREGATES_SQL = """
+        WITH mutation_classes AS (
+            SELECT
+                m.idmutation,
+                m.l_codinsee[1] AS code_insee,
+                m.datemut,
+                m.valeurfonc,
+                COUNT(l.iddispoloc) AS locaux,
+                MAX(UPPER(l.libtyploc)) AS type_local,
+                SUM(l.sbati) AS surface,
+                EXISTS (SELECT 1 FROM dvf_plus_2025_2.dvf_plus_disposition_parcelle dp WHERE dp.idmutation = m.idmutation) AS parcelles
+            FROM dvf_plus_2025_2.dvf_plus_mutation m
+            LEFT JOIN dvf_plus_2025_2.dvf_plus_local l ON l.idmutation = m.idmutation
+            WHERE UPPER(m.libnatmut) = 'VENTE'
+              AND m.valeurfonc > 0
+              AND m.datemut IS NOT NULL
+              AND cardinality(m.l_codinsee) = 1
+            GROUP BY m.idmutation, m.l_codinsee, m.datemut, m.valeurfonc
+        ),
+        typed AS (
+            SELECT
+                code_insee,
+                EXTRACT(YEAR FROM datemut)::int AS annee,
+                EXTRACT(MONTH FROM datemut)::int AS mois,
+                valeurfonc::float8 AS prix,
+                CASE WHEN surface > 0 THEN (valeurfonc / surface)::float8 END AS prix_m2,
+                CASE
+                    WHEN locaux > 1 THEN 'biens_multiples'
+                    WHEN locaux = 0 THEN CASE WHEN parcelles THEN 'terrain' END
+                    WHEN type_local = 'MAISON' THEN 'maison'
+                    WHEN type_local = 'APPARTEMENT' THEN 'appartement'
+                    WHEN type_local LIKE 'LOCAL%' THEN 'local_commercial'
+                    WHEN type_local LIKE 'D_PENDANCE' THEN 'dependance'
+                END AS type_bien
+            FROM mutation_classes
+        )
+        SELECT
+            code_insee,
+            type_bien,
+            annee,
+            mois,
+            COUNT(*),
+            SUM(prix),
+            SUM(prix * prix),
+            COUNT(prix_m2),
+            COALESCE(SUM(prix_m2), 0),
+            COALESCE(SUM(prix_m2 * prix_m2), 0),
+            COALESCE(array_agg(prix_m2) FILTER (WHERE prix_m2 IS NOT NULL), '{}')
+        FROM typed
+        WHERE type_bien IS NOT NULL AND length(code_insee) = 5
+        GROUP BY code_insee, type_bien, annee, mois
+        ORDER BY code_insee, type_bien, annee, mois
+        """;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachMonthlyAggregate(Consumer<MonthlyAggregate> consumer) {
+        // A fetch size inside a transaction makes the PostgreSQL driver read through a cursor instead of all at once
+        em
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(MONTHLY_AGGREGATES_SQL)) {
+                    ps.setFetchSize(FETCH_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            consumer.accept(
+                                new MonthlyAggregate(
+                                    rs.getString(1),
+                                    rs.getString(2),
+                                    rs.getInt(3),
+                                    rs.getInt(4),
+                                    rs.getInt(5),
+                                    rs.getDouble(6),
+                                    rs.getDouble(7),
+                                    rs.getInt(8),
+                                    rs.getDouble(9),
+                                    rs.getDouble(10),
+                                    doubles(rs.getArray(11))
+                                )
+                            );
+                        }
+                    }
+                }
+            });
+    }
+
+    private static double[] doubles(Array array) throws SQLException {
+        try {
+            Object[] values = (Object[]) array.getArray();
+            double[] result = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = ((Number) values[i]).doubleValue();
+            }
+            return result;
+        } finally {
+            array.free();
+        }
+    }
+}
@@ -4,7 +4,6 @@ import com.apeiron.immoxperts.domain.Mutation;
 import com.apeiron.immoxperts.service.dto.PropertyStatisticsDTO;
 import java.util.List;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -62,7 +61,4 @@ public interface PropertyStatisticsRepository extends JpaRepository<Mutation, Lo
     )
     List<PropertyStatisticsDTO> findStatsByCommune(@Param("commune") String commune);
 
-    @Modifying
-    @Query(value = "REFRESH MATERIALIZED VIEW CONCURRENTLY property_statistics_mv", nativeQuery = true)
-    void refreshMaterializedView();
 }
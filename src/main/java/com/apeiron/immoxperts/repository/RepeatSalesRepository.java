@@ -0,0 +1,38 @@
+package com.apeiron.immoxperts.repository;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads the pairs of sales of the same property the repeat-sales index is fitted on, and stores the index
+ * (repeat_sales_index, see repeat_sales_index.sql).
+ */
+public interface RepeatSalesRepository {
+    /** Two consecutive sales of one property. */
+    record SalePair(YearMonth firstMonth, double firstPrice, YearMonth secondMonth, double secondPrice) {}
+
+    /** One stored quarter of the index of a département. */
+    record IndexRow(String departement, LocalDate periode, double indice, int paires) {}
+
+    record Sale(int idmutation, String departement, LocalDate date, double valeurFonciere) {}
+
+    /** Département codes of the sales. */
+    List<String> findDepartements();
+
+    /**
+     * Consecutive sales of the same house or flat in {@code departement}: single-dwelling sales matched on parcel,
+     * address, type and built surface, at least six months apart, without VEFA sales or price ratios beyond 4.
+     */
+    List<SalePair> findSalePairs(String departement);
+
+    /** The rows of every département, by département and quarter. */
+    List<IndexRow> findIndexRows();
+
+    /** Replace the rows of {@code departement} by {@code rows}, in one transaction. */
+    void replaceIndexRows(String departement, List<IndexRow> rows);
+
+    /** Latest sale including parcel {@code idpar}. */
+    Optional<Sale> findLatestSaleOfParcel(String idpar);
+}
@@ -0,0 +1,162 @@
+package com.apeiron.immoxperts.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+public class RepeatSalesRepositoryImpl implements RepeatSalesRepository {
+
+    private static final String SCHEMA = "dvf_plus_2025_2.";
+
+    /**
+     * Sales of exactly one dwelling at one address, then each sale paired with the previous sale of the same parcel,
+     * address, type and surface (rounded to the m²).
+     */
+    private static final String SALE_PAIRS_SQL = """
+        WITH single_sales AS (
+            SELECT
+                m.idmutation,
+                m.datemut,
+                m.valeurfonc::float8 AS prix,
+                MAX(l.idpar) AS idpar,
+                MAX(al.idadresse) AS idadresse,
+                MAX(UPPER(l.libtyploc)) AS type_local,
+                MAX(ROUND(l.sbati)) AS surface
+            FROM dvf_plus_2025_2.dvf_plus_mutation m
+            JOIN dvf_plus_2025_2.dvf_plus_local l ON l.idmutation = m.idmutation
+            JOIN dvf_plus_2025_2.dvf_plus_adresse_local al ON al.idmutation = m.idmutation
+            WHERE m.coddep = :departement
+              AND UPPER(m.libnatmut) = 'VENTE'
+              AND m.valeurfonc > 0
+              AND m.datemut IS NOT NULL
+              AND NOT COALESCE(m.vefa, false)
+            GROUP BY m.idmutation, m.datemut, m.valeurfonc
+            HAVING COUNT(DISTINCT l.iddispoloc) = 1 AND COUNT(DISTINCT al.idadresse) = 1
+        ),
+        pairs AS (
+            SELECT
+                LAG(datemut) OVER w AS datemut_1,
+                LAG(prix) OVER w AS prix_1,
+                datemut AS datemut_2,
+                prix AS prix_2
+            FROM single_sales
+            WHERE type_local IN ('MAISON', 'APPARTEMENT') AND surface > 0 AND idpar IS NOT NULL
+            WINDOW w AS (PARTITION BY idpar, idadresse, type_local, surface ORDER BY datemut, idmutation)
+        )
+        SELECT
+            EXTRACT(YEAR FROM datemut_1)::int,
+            EXTRACT(MONTH FROM datemut_1)::int,
+            prix_1,
+            EXTRACT(YEAR FROM datemut_2)::int,
+            EXTRACT(MONTH FROM datemut_2)::int,
+            prix_2
+        FROM pairs
+        WHERE datemut_1 IS NOT NULL
+          AND datemut_2 >= datemut_1 + INTERVAL '6 months'
+          AND prix_2 BETWEEN prix_1 / 4 AND prix_1 * 4
+        """;
+
+    private static final String LATEST_SALE_SQL = """
+        SELECT m.idmutation, m.coddep, to_char(m.datemut, 'YYYY-MM-DD'), m.valeurfonc::float8
+        FROM dvf_plus_2025_2.dvf_plus_disposition_parcelle dp
+        JOIN dvf_plus_2025_2.dvf_plus_mutation m ON m.idmutation = dp.idmutation
+        WHERE dp.idpar = :idpar AND UPPER(m.libnatmut) = 'VENTE' AND m.valeurfonc > 0 AND m.datemut IS NOT NULL
+        ORDER BY m.datemut DESC, m.idmutation DESC
+        LIMIT 1
+        """;
+
+    private static final String INDEX_ROWS_SQL =
+        "SELECT coddep, to_char(periode, 'YYYY-MM-DD'), indice, paires FROM " + SCHEMA + "repeat_sales_index ORDER BY coddep, periode";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public List<String> findDepartements() {
+        return em
+            .createNativeQuery("SELECT DISTINCT coddep FROM " + SCHEMA + "dvf_plus_mutation WHERE coddep IS NOT NULL ORDER BY coddep")
+            .getResultList();
+    }
+
+    @Override
+    public List<SalePair> findSalePairs(String departement) {
+        List<Object[]> rows = em.createNativeQuery(SALE_PAIRS_SQL).setParameter("departement", departement).getResultList();
+        return rows
+            .stream()
+            .map(r ->
+                new SalePair(
+                    YearMonth.of(((Number) r[0]).intValue(), ((Number) r[1]).intValue()),
+                    ((Number) r[2]).doubleValue(),
+                    YearMonth.of(((Number) r[3]).intValue(), ((Number) r[4]).intValue()),
+                    ((Number) r[5]).doubleValue()
+                )
+            )
+            .toList();
+    }
+
+    @Override
+    public List<IndexRow> findIndexRows() {
+        List<Object[]> rows = em.createNativeQuery(INDEX_ROWS_SQL).getResultList();
+        return rows
+            .stream()
+            .map(r ->
+                new IndexRow((String) r[0], LocalDate.parse((String) r[1]), ((Number) r[2]).doubleValue(), ((Number) r[3]).intValue())
+            )
+            .toList();
+    }
+
+    @Override
+    @Transactional
+    public void replaceIndexRows(String departement, List<IndexRow> rows) {
+        em
+            .createNativeQuery("DELETE FROM " + SCHEMA + "repeat_sales_index WHERE coddep = :departement")
+            .setParameter("departement", departement)
+            .executeUpdate();
+        if (rows.isEmpty()) {
+            return;
+        }
+        // One statement: the columns are sent as arrays and joined back with unnest
+        String sql =
+            "INSERT INTO " +
+            SCHEMA +
+            "repeat_sales_index (coddep, periode, indice, paires)" +
+            " SELECT ?, v.periode, v.indice, v.paires FROM unnest(?::date[], ?::float8[], ?::int[]) AS v(periode, indice, paires)";
+        Date[] periodes = new Date[rows.size()];
+        Double[] indices = new Double[rows.size()];
+        Integer[] paires = new Integer[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            periodes[i] = Date.valueOf(rows.get(i).periode());
+            indices[i] = rows.get(i).indice();
+            paires[i] = rows.get(i).paires();
+        }
+        em
+            .unwrap(Session.class)
+            .doWork(connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    ps.setString(1, departement);
+                    ps.setArray(2, connection.createArrayOf("date", periodes));
+                    ps.setArray(3, connection.createArrayOf("float8", indices));
+                    ps.setArray(4, connection.createArrayOf("int4", paires));
+                    ps.executeUpdate();
+                }
+            });
+    }
+
+    @Override
+    public Optional<Sale> findLatestSaleOfParcel(String idpar) {
+        List<Object[]> rows = em.createNativeQuery(LATEST_SALE_SQL).setParameter("idpar", idpar).getResultList();
+        return rows
+            .stream()
+            .findFirst()
+            .map(r -> new Sale(((Number) r[0]).intValue(), (String) r[1], LocalDate.parse((String) r[2]), ((Number) r[3]).doubleValue()));
+    }
+}
@@ -0,0 +1,453 @@
+package com.apeiron.immoxperts.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory spatial index of located single-property sales, answering "the k sales most similar to this one" by a
+ * weighted nearest-neighbour search: the score of a sale is its distance, plus its surface difference, its age and its
+ * difference in rooms, each divided by the amount worth one unit of distance ({@link Weights}). Lower is better; only
+ * sales of the requested type are considered.
+ * <p>
+ * Sales are bucketed in square cells of {@value #CELL_KM} km and stored sorted by cell in parallel primitive arrays
+ * (about 45 bytes per sale). A search scans rings of cells around the query and stops once the nearest ring left is
+ * farther than the worst score kept: since the other terms are never negative, no sale beyond it could make the list.
+ */
+public final class ComparableSalesIndex {
+
+    /** Property types indexed, as in {@link MutationStatsCube#TYPES}. */
+    public static final List<String> TYPES = List.of("maison", "appartement", "local_commercial");
+
+    static final double CELL_KM = 0.5;
+
+    private static final double KM_PER_DEGREE_LAT = 110.574;
+    private static final double KM_PER_DEGREE_LON = 111.320;
+    /**
+     * Cells are laid on longitudes scaled at the latitude of the north of France, where a degree of longitude is the
+     * shortest: cell distances never exceed real distances anywhere in France, so the ring bound stays valid.
+     */
+    private static final double CELL_LON_SCALE = Math.cos(Math.toRadians(51.5));
+
+    /**
+     * @param distanceKm distance worth one unit of score.
+     * @param surfaceLogRatio surface difference worth one unit, as {@code |ln(surface / reference)|} (0.25 ≈ 28%).
+     * @param ageDays age worth one unit.
+     * @param rooms difference in main rooms worth one unit.
+     */
+    public record Weights(double distanceKm, double surfaceLogRatio, double ageDays, double rooms) {}
+
+    /**
+     * What the comparables should look like; {@code type} {@code null} for any type, {@code surface} 0 and
+     * {@code rooms} negative when unknown.
+     *
+     * @param excludedId sale left out of the results (the subject sale), 0 for none.
+     */
+    public record Query(double latitude, double longitude, String type, double surface, int rooms, int excludedId) {}
+
+    /** One result: position of the sale in the index, its distance and its score. */
+    public record Match(int position, double distanceKm, double score) {}
+
+    private final long[] cellKeys;
+    private final int[] cellStarts;
+    private final float[] latitudes;
+    private final float[] longitudes;
+    private final byte[] types;
+    private final float[] surfaces;
+    private final byte[] rooms;
+    private final int[] epochDays;
+    private final float[] prices;
+    private final int[] mutationIds;
+    private final int[] addressIds;
+    private final short[] departements;
+    private final String[] departementCodes;
+    /** Sale ids in ascending order, and the position of each. */
+    private final int[] sortedMutationIds;
+    private final int[] mutationPositions;
+    /** Address ids in ascending order, and the position of their latest sale. */
+    private final int[] sortedAddressIds;
+    private final int[] addressPositions;
+
+    private ComparableSalesIndex(Builder b, int[] order) {
+        int n = order.length;
+        latitudes = new float[n];
+        longitudes = new float[n];
+        types = new byte[n];
+        surfaces = new float[n];
+        rooms = new byte[n];
+        epochDays = new int[n];
+        prices = new float[n];
+        mutationIds = new int[n];
+        addressIds = new int[n];
+        departements = new short[n];
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            int j = order[i];
+            latitudes[i] = b.latitudes[j];
+            longitudes[i] = b.longitudes[j];
+            types[i] = b.types[j];
+            surfaces[i] = b.surfaces[j];
+            rooms[i] = b.rooms[j];
+            epochDays[i] = b.epochDays[j];
+            prices[i] = b.prices[j];
+            mutationIds[i] = b.mutationIds[j];
+            addressIds[i] = b.addressIds[j];
+            departements[i] = b.departements[j];
+            keys[i] = b.cellKeys[j];
+        }
+        departementCodes = b.departementCodes.toArray(new String[0]);
+
+        int cells = 0;
+        for (int i = 0; i < n; i++) {
+            cells += i == 0 || keys[i] != keys[i - 1] ? 1 : 0;
+        }
+        cellKeys = new long[cells];
+        cellStarts = new int[cells + 1];
+        for (int i = 0, c = 0; i < n; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                cellKeys[c] = keys[i];
+                cellStarts[c++] = i;
+            }
+        }
+        cellStarts[cells] = n;
+
+        long[] byId = new long[n];
+        for (int i = 0; i < n; i++) {
+            byId[i] = ((long) mutationIds[i] << 32) | i;
+        }
+        Arrays.sort(byId);
+        sortedMutationIds = new int[n];
+        mutationPositions = new int[n];
+        for (int i = 0; i < n; i++) {
+            sortedMutationIds[i] = (int) (byId[i] >> 32);
+            mutationPositions[i] = (int) byId[i];
+        }
+
+        // By address: the latest sale of each address is kept
+        long[] byAddress = new long[n];
+        for (int i = 0; i < n; i++) {
+            byAddress[i] = ((long) addressIds[i] << 32) | i;
+        }
+        Arrays.sort(byAddress);
+        int addresses = 0;
+        for (int i = 0; i < n; i++) {
+            addresses += i == 0 || (byAddress[i] >> 32) != (byAddress[i - 1] >> 32) ? 1 : 0;
+        }
+        sortedAddressIds = new int[addresses];
+        addressPositions = new int[addresses];
+        for (int i = 0, a = -1; i < n; i++) {
+            int position = (int) byAddress[i];
+            if (i == 0 || (byAddress[i] >> 32) != (byAddress[i - 1] >> 32)) {
+                sortedAddressIds[++a] = addressIds[position];
+                addressPositions[a] = position;
+            } else if (epochDays[position] > epochDays[addressPositions[a]]) {
+                addressPositions[a] = position;
+            }
+        }
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+
+    /** Position of sale {@code idmutation}, -1 when it is not indexed. */
+    public int positionOfMutation(int idmutation) {
+        int i = Arrays.binarySearch(sortedMutationIds, idmutation);
+        return i >= 0 ? mutationPositions[i] : -1;
+    }
+
+    /** Position of the latest sale at address {@code idadresse}, -1 when none is indexed. */
+    public int positionOfAddress(int idadresse) {
+        int i = Arrays.binarySearch(sortedAddressIds, idadresse);
+        return i >= 0 ? addressPositions[i] : -1;
+    }
+
+    /** Query for sales like the one at {@code position}, excluding it. */
+    public Query queryLike(int position) {
+        return new Query(
+            latitudes[position],
+            longitudes[position],
+            TYPES.get(types[position]),
+            surfaces[position],
+            rooms[position],
+            mutationIds[position]
+        );
+    }
+
+    /**
+     * @param k number of sales wanted.
+     * @param maxDistanceKm sales farther than this are not considered.
+     * @param today epoch day ages are counted from.
+     * @return at most {@code k} sales, best first.
+     * @throws IllegalArgumentException for an unknown type.
+     */
+    public List<Match> search(Query query, int k, double maxDistanceKm, Weights weights, int today) {
+        int type = query.type() != null ? TYPES.indexOf(query.type()) : -1;
+        if (query.type() != null && type < 0) {
+            throw new IllegalArgumentException("Unknown property type " + query.type());
+        }
+        Search search = new Search(query, type, k, maxDistanceKm, weights, today);
+        int cx = cellX(query.longitude());
+        int cy = cellY(query.latitude());
+        int maxRing = (int) Math.ceil(maxDistanceKm / CELL_KM) + 1;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Cells of this ring and beyond are at least (ring - 1) cells away
+            double nearest = Math.max(0, ring - 1) * CELL_KM;
+            if (nearest > maxDistanceKm || (search.found == k && nearest / weights.distanceKm() >= search.scores[k - 1])) {
+                break;
+            }
+            if (ring == 0) {
+                scan(search, cx, cy);
+                continue;
+            }
+            for (int d = -ring; d <= ring; d++) {
+                scan(search, cx + d, cy - ring);
+                scan(search, cx + d, cy + ring);
+            }
+            for (int d = -ring + 1; d < ring; d++) {
+                scan(search, cx - ring, cy + d);
+                scan(search, cx + ring, cy + d);
+            }
+        }
+        Match[] matches = new Match[search.found];
+        for (int i = 0; i < search.found; i++) {
+            matches[i] = new Match(search.positions[i], search.distances[i], search.scores[i]);
+        }
+        return List.of(matches);
+    }
+
+    private void scan(Search search, int x, int y) {
+        int cell = Arrays.binarySearch(cellKeys, cellKey(x, y));
+        if (cell < 0) {
+            return;
+        }
+        Query query = search.query;
+        Weights weights = search.weights;
+        for (int i = cellStarts[cell]; i < cellStarts[cell + 1]; i++) {
+            if ((search.type >= 0 && types[i] != search.type) || mutationIds[i] == query.excludedId()) {
+                continue;
+            }
+            double northKm = (latitudes[i] - query.latitude()) * KM_PER_DEGREE_LAT;
+            double eastKm = (longitudes[i] - query.longitude()) * search.kmPerDegreeLon;
+            double distance = Math.sqrt(northKm * northKm + eastKm * eastKm);
+            if (distance > search.maxDistanceKm) {
+                continue;
+            }
+            double score = distance / weights.distanceKm() + Math.max(0, search.today - epochDays[i]) / weights.ageDays();
+            if (search.logSurface > 0 && surfaces[i] > 0) {
+                score += Math.abs(Math.log(surfaces[i]) - search.logSurface) / weights.surfaceLogRatio();
+            }
+            if (query.rooms() >= 0 && rooms[i] >= 0) {
+                score += Math.abs(rooms[i] - query.rooms()) / weights.rooms();
+            }
+            search.offer(i, distance, score);
+        }
+    }
+
+    /** State of one search: the best {@code k} sales so far, sorted by score. */
+    private static final class Search {
+
+        final Query query;
+        final int type;
+        final double maxDistanceKm;
+        final Weights weights;
+        final int today;
+        final double kmPerDegreeLon;
+        /** Log of the reference surface, 0 when unknown (surfaces under 1 m² are not meaningful). */
+        final double logSurface;
+        final int[] positions;
+        final double[] distances;
+        final double[] scores;
+        int found;
+
+        Search(Query query, int type, int k, double maxDistanceKm, Weights weights, int today) {
+            this.query = query;
+            this.type = type;
+            this.maxDistanceKm = maxDistanceKm;
+            this.weights = weights;
+            this.today = today;
+            this.kmPerDegreeLon = KM_PER_DEGREE_LON * Math.cos(Math.toRadians(query.latitude()));
+            this.logSurface = query.surface() > 1 ? Math.log(query.surface()) : 0;
+            this.positions = new int[k];
+            this.distances = new double[k];
+            this.scores = new double[k];
+        }
+
+        void offer(int position, double distance, double score) {
+            int k = positions.length;
+            if (found == k && score >= scores[k - 1]) {
+                return;
+            }
+            int at = found < k ? found++ : k - 1;
+            while (at > 0 && scores[at - 1] > score) {
+                positions[at] = positions[at - 1];
+                distances[at] = distances[at - 1];
+                scores[at] = scores[at - 1];
+                at--;
+            }
+            positions[at] = position;
+            distances[at] = distance;
+            scores[at] = score;
+        }
+    }
+
+    public double latitude(int position) {
+        return latitudes[position];
+    }
+
+    public double longitude(int position) {
+        return longitudes[position];
+    }
+
+    public String type(int position) {
+        return TYPES.get(types[position]);
+    }
+
+    /** Built surface in m², 0 when unknown. */
+    public double surface(int position) {
+        return surfaces[position];
+    }
+
+    /** Main rooms, -1 when unknown. */
+    public int rooms(int position) {
+        return rooms[position];
+    }
+
+    public int epochDay(int position) {
+        return epochDays[position];
+    }
+
+    public double price(int position) {
+        return prices[position];
+    }
+
+    public int mutationId(int position) {
+        return mutationIds[position];
+    }
+
+    public int addressId(int position) {
+        return addressIds[position];
+    }
+
+    public String departement(int position) {
+        return departementCodes[departements[position]];
+    }
+
+    private static int cellX(double longitude) {
+        return (int) Math.floor((longitude * KM_PER_DEGREE_LON * CELL_LON_SCALE) / CELL_KM);
+    }
+
+    private static int cellY(double latitude) {
+        return (int) Math.floor((latitude * KM_PER_DEGREE_LAT) / CELL_KM);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /** Collects sales, then sorts them by cell into an index. Not thread-safe. */
+    public static final class Builder {
+
+        private int size;
+        private float[] latitudes = new float[1024];
+        private float[] longitudes = new float[1024];
+        private byte[] types = new byte[1024];
+        private float[] surfaces = new float[1024];
+        private byte[] rooms = new byte[1024];
+        private int[] epochDays = new int[1024];
+        private float[] prices = new float[1024];
+        private int[] mutationIds = new int[1024];
+        private int[] addressIds = new int[1024];
+        private short[] departements = new short[1024];
+        private long[] cellKeys = new long[1024];
+        private final List<String> departementCodes = new ArrayList<>();
+        private final Map<String, Short> departementIds = new HashMap<>();
+
+        /**
+         * @param type one of {@link #TYPES}; other sales are ignored.
+         * @param surface built surface in m², 0 when unknown.
+         * @param rooms main rooms, negative when unknown.
+         * @return whether the sale was added.
+         */
+        public boolean add(
+            int idmutation,
+            int idadresse,
+            String departement,
+            double latitude,
+            double longitude,
+            String type,
+            double surface,
+            int rooms,
+            int epochDay,
+            double price
+        ) {
+            int typeId = TYPES.indexOf(type);
+            if (typeId < 0 || !Double.isFinite(latitude) || !Double.isFinite(longitude) || departementIds.size() >= Short.MAX_VALUE) {
+                return false;
+            }
+            if (size == mutationIds.length) {
+                grow();
+            }
+            latitudes[size] = (float) latitude;
+            longitudes[size] = (float) longitude;
+            types[size] = (byte) typeId;
+            surfaces[size] = surface > 0 ? (float) surface : 0;
+            this.rooms[size] = (byte) (rooms >= 0 ? Math.min(rooms, Byte.MAX_VALUE) : -1);
+            epochDays[size] = epochDay;
+            prices[size] = (float) price;
+            mutationIds[size] = idmutation;
+            addressIds[size] = idadresse;
+            departements[size] = departementIds.computeIfAbsent(departement, d -> {
+                departementCodes.add(d);
+                return (short) (departementCodes.size() - 1);
+            });
+            cellKeys[size] = cellKey(cellX(longitude), cellY(latitude));
+            size++;
+            return true;
+        }
+
+        public ComparableSalesIndex build() {
+            // Counting sort by cell
+            long[] cells = Arrays.copyOf(cellKeys, size);
+            Arrays.sort(cells);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || cells[i] != cells[distinct - 1]) {
+                    cells[distinct++] = cells[i];
+                }
+            }
+            cells = Arrays.copyOf(cells, distinct);
+            int[] cellOfSale = new int[size];
+            int[] starts = new int[distinct + 1];
+            for (int i = 0; i < size; i++) {
+                cellOfSale[i] = Arrays.binarySearch(cells, cellKeys[i]);
+                starts[cellOfSale[i] + 1]++;
+            }
+            for (int c = 0; c < distinct; c++) {
+                starts[c + 1] += starts[c];
+            }
+            int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[starts[cellOfSale[i]]++] = i;
+            }
+            return new ComparableSalesIndex(this, order);
+        }
+
+        private void grow() {
+            int capacity = mutationIds.length * 2;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            types = Arrays.copyOf(types, capacity);
+            surfaces = Arrays.copyOf(surfaces, capacity);
+            rooms = Arrays.copyOf(rooms, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            mutationIds = Arrays.copyOf(mutationIds, capacity);
+            addressIds = Arrays.copyOf(addressIds, capacity);
+            departements = Arrays.copyOf(departements, capacity);
+            cellKeys = Arrays.copyOf(cellKeys, capacity);
+        }
+    }
+}
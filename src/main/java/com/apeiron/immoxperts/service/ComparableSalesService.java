@@ -0,0 +1,214 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.config.AsyncConfiguration;
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+import com.apeiron.immoxperts.management.ComparableSalesMetersService;
+import com.apeiron.immoxperts.repository.ComparableSaleRepository;
+import com.apeiron.immoxperts.repository.ComparableSaleRepository.Location;
+import com.apeiron.immoxperts.service.dto.ComparableSaleDTO;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Comparable sales of a sale or an address, found in the in-memory {@link ComparableSalesIndex} without touching the
+ * database, and carried to today by the repeat-sales index of their département.
+ * <p>
+ * The index holds the sales of the last {@code mutation.comparables.history-years} years. It is built in the background
+ * once the application is ready, then rebuilt every {@code mutation.comparables.refresh-interval} and after each refresh
+ * of parcelle_adresse_mutation_mv_2025 or adresse_complete_geom_mv; the previous one keeps answering meanwhile. Builds
+ * run on the {@link AsyncConfiguration#BUILD_EXECUTOR} threads.
+ */
+@Service
+public class ComparableSalesService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ComparableSalesService.class);
+
+    private final ComparableSaleRepository comparableSaleRepository;
+    private final RepeatSalesIndexService repeatSalesIndexService;
+    private final ComparableSalesMetersService comparableSalesMetersService;
+    private final int historyYears;
+    private final double maxDistanceKm;
+    private final ComparableSalesIndex.Weights weights;
+    private volatile ComparableSalesIndex index;
+
+    public ComparableSalesService(
+        ComparableSaleRepository comparableSaleRepository,
+        RepeatSalesIndexService repeatSalesIndexService,
+        ComparableSalesMetersService comparableSalesMetersService,
+        @Value("${mutation.comparables.history-years:5}") int historyYears,
+        @Value("${mutation.comparables.max-distance-km:10}") double maxDistanceKm,
+        @Value("${mutation.comparables.weights.distance-km:1}") double distanceKm,
+        @Value("${mutation.comparables.weights.surface-log-ratio:0.25}") double surfaceLogRatio,
+        @Value("${mutation.comparables.weights.age-days:730}") double ageDays,
+        @Value("${mutation.comparables.weights.rooms:2}") double rooms
+    ) {
+        this.comparableSaleRepository = comparableSaleRepository;
+        this.repeatSalesIndexService = repeatSalesIndexService;
+        this.comparableSalesMetersService = comparableSalesMetersService;
+        this.historyYears = historyYears;
+        this.maxDistanceKm = maxDistanceKm;
+        this.weights = new ComparableSalesIndex.Weights(distanceKm, surfaceLogRatio, ageDays, rooms);
+    }
+
+    /** Whether the first build is done. */
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * @param type property type from {@link ComparableSalesIndex#TYPES}; the type of the sale when {@code null}.
+     * @param surface built surface in m²; the surface of the sale when {@code null}.
+     * @param rooms main rooms; the rooms of the sale when {@code null}.
+     * @return at most {@code k} sales like sale {@code idmutation}, best first, excluding it; empty when the index is
+     * not built yet or does not hold the sale (older, of several properties, or without coordinates).
+     * @throws IllegalArgumentException for an unknown type.
+     */
+    public Optional<List<ComparableSaleDTO>> findForMutation(int idmutation, int k, String type, Double surface, Integer rooms) {
+        ComparableSalesIndex current = index;
+        int position = current != null ? current.positionOfMutation(idmutation) : -1;
+        if (position < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(search(current, override(current.queryLike(position), type, surface, rooms), k));
+    }
+
+    /**
+     * Without a sale indexed at the address, only the given criteria and the distance count.
+     *
+     * @param type property type from {@link ComparableSalesIndex#TYPES}; the type of the latest sale at the address
+     * when {@code null}.
+     * @param surface built surface in m²; the surface of the latest sale at the address when {@code null}.
+     * @param rooms main rooms; the rooms of the latest sale at the address when {@code null}.
+     * @return at most {@code k} sales like a property at address {@code idadresse}, best first; empty when the index is
+     * not built yet or the address has no coordinates.
+     * @throws IllegalArgumentException for an unknown type.
+     */
+    public Optional<List<ComparableSaleDTO>> findForAddress(int idadresse, int k, String type, Double surface, Integer rooms) {
+        ComparableSalesIndex current = index;
+        if (current == null) {
+            return Optional.empty();
+        }
+        int position = current.positionOfAddress(idadresse);
+        ComparableSalesIndex.Query query;
+        if (position >= 0) {
+            // The latest sale at the address is a comparable too
+            ComparableSalesIndex.Query latest = current.queryLike(position);
+            query = new ComparableSalesIndex.Query(
+                latest.latitude(),
+                latest.longitude(),
+                latest.type(),
+                latest.surface(),
+                latest.rooms(),
+                0
+            );
+        } else {
+            Optional<Location> location = comparableSaleRepository.findLocation(idadresse);
+            if (location.isEmpty()) {
+                return Optional.empty();
+            }
+            query = new ComparableSalesIndex.Query(location.get().latitude(), location.get().longitude(), null, 0, -1, 0);
+        }
+        return Optional.of(search(current, override(query, type, surface, rooms), k));
+    }
+
+    private static ComparableSalesIndex.Query override(ComparableSalesIndex.Query query, String type, Double surface, Integer rooms) {
+        return new ComparableSalesIndex.Query(
+            query.latitude(),
+            query.longitude(),
+            type != null ? type : query.type(),
+            surface != null ? surface : query.surface(),
+            rooms != null ? rooms : query.rooms(),
+            query.excludedId()
+        );
+    }
+
+    private List<ComparableSaleDTO> search(ComparableSalesIndex current, ComparableSalesIndex.Query query, int k) {
+        long start = System.nanoTime();
+        List<ComparableSalesIndex.Match> matches = current.search(query, k, maxDistanceKm, weights, (int) LocalDate.now().toEpochDay());
+        comparableSalesMetersService.trackSearch(System.nanoTime() - start);
+        List<ComparableSaleDTO> comparables = new ArrayList<>(matches.size());
+        for (ComparableSalesIndex.Match match : matches) {
+            int i = match.position();
+            LocalDate date = LocalDate.ofEpochDay(current.epochDay(i));
+            double surface = current.surface(i);
+            OptionalDouble today = repeatSalesIndexService.estimate(current.departement(i), YearMonth.from(date), current.price(i));
+            comparables.add(
+                new ComparableSaleDTO(
+                    current.mutationId(i),
+                    current.addressId(i),
+                    date,
+                    current.type(i),
+                    surface > 0 ? surface : null,
+                    current.rooms(i) >= 0 ? current.rooms(i) : null,
+                    Math.round(current.price(i)),
+                    surface > 0 ? Math.round(current.price(i) / surface) : null,
+                    today.isPresent() ? Math.round(today.getAsDouble()) : null,
+                    current.latitude(i),
+                    current.longitude(i),
+                    Math.round(match.distanceKm() * 1000),
+                    Math.round(match.score() * 100) / 100.0
+                )
+            );
+        }
+        return comparables;
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /** New sales land with a refresh of the view built on them; new coordinates with a refresh of the address view. */
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener
+    public void onViewRefreshed(MaterializedViewRefreshedEvent event) {
+        if (event.view() == MaterializedView.PARCELLE_ADRESSE_MUTATION || event.view() == MaterializedView.ADRESSE_COMPLETE_GEOM) {
+            rebuild();
+        }
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @Scheduled(
+        initialDelayString = "${mutation.comparables.refresh-interval:PT24H}",
+        fixedDelayString = "${mutation.comparables.refresh-interval:PT24H}"
+    )
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        ComparableSalesIndex.Builder builder = new ComparableSalesIndex.Builder();
+        try {
+            comparableSaleRepository.forEachSale(LocalDate.now().minusYears(historyYears), s ->
+                builder.add(
+                    s.idmutation(),
+                    s.idadresse(),
+                    s.departement(),
+                    s.latitude(),
+                    s.longitude(),
+                    s.typeBien(),
+                    s.surface(),
+                    s.pieces(),
+                    (int) s.date().toEpochDay(),
+                    s.valeurFonciere()
+                )
+            );
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot build the comparable sales index, keeping the current one: {}", e.getMessage());
+            return;
+        }
+        ComparableSalesIndex built = builder.build();
+        index = built;
+        LOG.info("Built the comparable sales index: {} sales in {} ms", built.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
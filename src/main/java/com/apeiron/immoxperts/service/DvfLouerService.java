@@ -1,8 +1,10 @@
 package com.apeiron.immoxperts.service;
 
 import com.apeiron.immoxperts.service.dto.DvfLouerDto;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO;
 import com.apeiron.immoxperts.service.dto.SuggestionDto;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -17,6 +19,31 @@ public interface DvfLouerService {
         BigDecimal maxBudget,
         String propertyType,
         String chambres,
+        boolean expandDuplicates,
         Pageable pageable
     );
+
+    /**
+     * Facet counts (property type, bedrooms, budget range, DPE) for the same parameters as the paginated search, or
+     * {@code null} when {@code value} or {@code type} is blank.
+     */
+    ListingFacetsDTO getFacets(
+        String value,
+        String type,
+        BigDecimal minBudget,
+        BigDecimal maxBudget,
+        String propertyType,
+        String chambres,
+        boolean expandDuplicates
+    );
+
+    /**
+     * Complete listings (full description, every image) for the given ids, in the order given; unknown ids are skipped.
+     */
+    List<DvfLouerDto> getDetails(Collection<Long> ids);
+
+    /**
+     * The listings detected as the same property as {@code id}, the listing itself included; empty when it has none.
+     */
+    List<DvfLouerDto> getDuplicates(Long id);
 }
@@ -0,0 +1,203 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.config.AsyncConfiguration;
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+import com.apeiron.immoxperts.repository.GeatMapStatsRepository;
+import com.apeiron.immoxperts.repository.GeatMapStatsRepository.CommuneStats;
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory copy of mutation_stats_by_city, rolled up to départements and régions, in the shape of vector tile feature
+ * properties: {@code nb_mutations}, then {@code nb_<type>} and {@code prix_m2_<type>} for each property type
+ * ({@code prix_m2_maison}, {@code nb_appartement}...). Prices are averages weighted by the number of sales.
+ * <p>
+ * The table is reloaded every {@code geatmap.stats.refresh-interval} and after each refresh of the view; the snapshot
+ * is only replaced when its content changed, and its {@link #getVersion() version} (a hash of the rows) is what the
+ * statistics tiles are cached by. The loads at startup and after a view refresh run on the
+ * {@link AsyncConfiguration#BUILD_EXECUTOR} threads.
+ */
+@Service
+public class GeatMapStatsService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GeatMapStatsService.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    /** Layer -> feature code -> properties. */
+    private record Snapshot(String version, Map<String, Map<String, Map<String, Long>>> properties) {}
+
+    private final GeatMapStatsRepository geatMapStatsRepository;
+    private volatile Snapshot snapshot = new Snapshot("empty", Map.of());
+
+    public GeatMapStatsService(GeatMapStatsRepository geatMapStatsRepository) {
+        this.geatMapStatsRepository = geatMapStatsRepository;
+    }
+
+    /** Changes whenever the statistics do. */
+    public String getVersion() {
+        return snapshot.version();
+    }
+
+    /**
+     * @param layer {@code communes}, {@code departements} or {@code regions}.
+     * @param code INSEE code of the commune, département or région.
+     * @return the properties of that area; empty when there were no sales.
+     */
+    public Map<String, Long> getProperties(String layer, String code) {
+        return snapshot.properties().getOrDefault(layer, Map.of()).getOrDefault(code, Map.of());
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        refresh();
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener
+    public void onViewRefreshed(MaterializedViewRefreshedEvent event) {
+        if (event.view() == MaterializedView.MUTATION_STATS_BY_CITY) {
+            refresh();
+        }
+    }
+
+    @Scheduled(initialDelayString = "${geatmap.stats.refresh-interval:PT15M}", fixedDelayString = "${geatmap.stats.refresh-interval:PT15M}")
+    public void refresh() {
+        long start = System.nanoTime();
+        List<CommuneStats> rows;
+        try {
+            rows = geatMapStatsRepository.findAllCommuneStats();
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot load the GeatMap statistics, keeping version {}: {}", snapshot.version(), e.getMessage());
+            return;
+        }
+        StringBuilder content = new StringBuilder(rows.size() * 48);
+        rows.forEach(r ->
+            content
+                .append(r.codeInsee())
+                .append('|')
+                .append(r.typeBien())
+                .append('|')
+                .append(r.nombreMutations())
+                .append('|')
+                .append(r.prixMoyen())
+                .append('|')
+                .append(r.prixM2Moyen())
+                .append('\n')
+        );
+        String version = TileDTO.contentHash(content.toString().getBytes(StandardCharsets.UTF_8));
+        if (version.equals(snapshot.version())) {
+            return;
+        }
+
+        Map<String, Map<String, Totals>> communes = new HashMap<>();
+        Map<String, Map<String, Totals>> arrondissementCities = new HashMap<>();
+        Map<String, Map<String, Totals>> departements = new HashMap<>();
+        Map<String, Map<String, Totals>> regions = new HashMap<>();
+        for (CommuneStats row : rows) {
+            String code = row.codeInsee().trim();
+            String type = slug(row.typeBien());
+            if (code.length() < 5 || type.isEmpty()) {
+                continue;
+            }
+            add(communes, code, type, row);
+            String city = InseeCodes.cityOfArrondissement(code);
+            if (city != null) {
+                add(arrondissementCities, city, type, row);
+            }
+            String departement = InseeCodes.departementOf(code);
+            add(departements, departement, type, row);
+            String region = InseeCodes.regionOf(departement);
+            if (region != null) {
+                add(regions, region, type, row);
+            }
+        }
+        // Paris, Lyon and Marseille are drawn as one commune but DVF counts their sales by arrondissement
+        arrondissementCities.forEach(communes::putIfAbsent);
+
+        snapshot = new Snapshot(
+            version,
+            Map.of(
+                "communes",
+                properties(communes),
+                "departements",
+                properties(departements),
+                "regions",
+                properties(regions)
+            )
+        );
+        LOG.info(
+            "Loaded GeatMap statistics version {}: {} rows, {} communes in {} ms",
+            version,
+            rows.size(),
+            communes.size(),
+            (System.nanoTime() - start) / 1_000_000
+        );
+    }
+
+    private static void add(Map<String, Map<String, Totals>> areas, String code, String type, CommuneStats row) {
+        areas.computeIfAbsent(code, k -> new HashMap<>()).computeIfAbsent(type, k -> new Totals()).add(row);
+    }
+
+    private static Map<String, Map<String, Long>> properties(Map<String, Map<String, Totals>> areas) {
+        Map<String, Map<String, Long>> result = new HashMap<>(areas.size() * 2);
+        areas.forEach((code, types) -> {
+            Map<String, Long> properties = new LinkedHashMap<>();
+            properties.put("nb_mutations", types.values().stream().mapToLong(t -> t.count).sum());
+            types.forEach((type, totals) -> {
+                properties.put("nb_" + type, totals.count);
+                if (totals.priceWeight > 0) {
+                    properties.put("prix_m2_" + type, Math.round(totals.weightedPricePerSqm / totals.priceWeight));
+                }
+            });
+            result.put(code, Map.copyOf(properties));
+        });
+        return result;
+    }
+
+    /** "Local industriel. commercial ou assimilé" -> "local_industriel_commercial_ou_assimile". */
+    static String slug(String value) {
+        String s = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+        s = NON_ALNUM.matcher(s).replaceAll("_");
+        int from = 0;
+        int to = s.length();
+        while (from < to && s.charAt(from) == '_') {
+            from++;
+        }
+        while (to > from && s.charAt(to - 1) == '_') {
+            to--;
+        }
+        return s.substring(from, to);
+    }
+
+    private static final class Totals {
+
+        long count;
+        double weightedPricePerSqm;
+        long priceWeight;
+
+        void add(CommuneStats row) {
+            count += row.nombreMutations();
+            if (row.prixM2Moyen() != null && row.nombreMutations() > 0) {
+                weightedPricePerSqm += row.prixM2Moyen() * row.nombreMutations();
+                priceWeight += row.nombreMutations();
+            }
+        }
+    }
+}
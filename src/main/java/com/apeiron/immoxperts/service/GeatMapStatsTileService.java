@@ -0,0 +1,70 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.io.IOException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * GeatMap choropleth tiles: the geometry tiles of {@link GeatMapTileService} with the sale statistics of
+ * {@link GeatMapStatsService} added to the properties of each feature, matched on its INSEE {@code code}. One request
+ * returns both the shape and the values.
+ * <p>
+ * Tiles are encoded in process and cached (bounded by {@code geatmap.stats.cache.max-bytes}) by layer, coordinates,
+ * geometry tile hash and statistics version, so a new tile file or new statistics are picked up on the next request.
+ */
+@Service
+public class GeatMapStatsTileService {
+
+    /** Feature property holding the INSEE code in the communes, departements and regions layers. */
+    private static final String CODE_PROPERTY = "code";
+
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private final GeatMapTileService tileService;
+    private final GeatMapStatsService statsService;
+    private final Cache<StatsTileKey, TileDTO> cache;
+
+    public GeatMapStatsTileService(
+        GeatMapTileService tileService,
+        GeatMapStatsService statsService,
+        @Value("${geatmap.stats.cache.max-bytes:67108864}") long cacheMaxBytes
+    ) {
+        this.tileService = tileService;
+        this.statsService = statsService;
+        this.cache = Caffeine.newBuilder()
+            .maximumWeight(cacheMaxBytes)
+            .weigher((StatsTileKey key, TileDTO tile) -> tile.length() + ENTRY_OVERHEAD_BYTES)
+            .build();
+    }
+
+    /**
+     * @param y XYZ row (0 at the top).
+     * @return the geometry tile with statistics, or {@code null} when there is no geometry tile there.
+     */
+    public TileDTO getTile(String layer, int z, int x, int y) throws IOException {
+        TileDTO base = tileService.getTile(layer, z, x, y);
+        if (base == null) {
+            return null;
+        }
+        StatsTileKey key = new StatsTileKey(layer, z, x, y, base.hash(), statsService.getVersion());
+        TileDTO tile = cache.getIfPresent(key);
+        if (tile == null) {
+            byte[] merged;
+            try {
+                merged = VectorTilePropertyMerger.merge(base.uncompressed(), CODE_PROPERTY, code ->
+                    statsService.getProperties(layer, code)
+                );
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Cannot add statistics to " + layer + "/" + z + "/" + x + "/" + y, e);
+            }
+            tile = base.gzipped() ? TileDTO.gzip(merged) : TileDTO.of(merged);
+            cache.put(key, tile);
+        }
+        return tile;
+    }
+
+    private record StatsTileKey(String layer, int z, int x, int y, String baseHash, String statsVersion) {}
+}
@@ -0,0 +1,506 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.config.AsyncConfiguration;
+import com.apeiron.immoxperts.management.TileMetersService;
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reads the GeatMap vector tiles (regions, departements, communes) through one {@link TileSource} per layer, opened on
+ * first use. A {@code {layer}.gmtiles} archive (see {@link TileArchive}) is preferred over {@code {layer}.mbtiles};
+ * {@link #convert(String)} builds it from the latter.
+ * <p>
+ * Archives are memory-mapped and serve slices of the page cache, so they bypass the tile cache. For .mbtiles the stored
+ * bytes (usually gzip, as written by tippecanoe) are kept as-is in a Caffeine cache bounded by
+ * {@code geatmap.tiles.cache.max-bytes}; absent tiles are cached too. Inflating is left to the few clients that cannot
+ * take gzip, see {@link TileDTO#uncompressed()}. Once the application is ready every .mbtiles tile up to
+ * {@code geatmap.tiles.cache.prewarm-max-zoom} is loaded in the background, lowest zooms first, until the budget is used.
+ * <p>
+ * Beyond the {@code maxzoom} of a layer file, up to {@code geatmap.tiles.overzoom-max-zoom}, tiles are cut from their
+ * ancestor at {@code maxzoom} by {@link VectorTileClipper} and cached like stored tiles, whatever the source.
+ * <p>
+ * Tiles and metadata carry a strong ETag computed from their content when they are loaded. Cached entries are keyed by
+ * the source they were read from, so {@link #reload(String)} (triggered by {@link GeatMapTileWatcher}) can open,
+ * validate and warm a new file, then swap it in for new requests in one step without serving a mix of old and new tiles.
+ */
+@Service
+public class GeatMapTileService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GeatMapTileService.class);
+
+    public static final Set<String> LAYERS = Set.of("regions", "departements", "communes");
+
+    static final String ARCHIVE_EXTENSION = ".gmtiles";
+    static final String MBTILES_EXTENSION = ".mbtiles";
+
+    /** Approximate per-entry overhead (key, node, array header) counted against the byte budget. */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private static final TileDTO MISSING = TileDTO.of(new byte[0]);
+
+    /** A metadata value with its strong ETag. */
+    public record Metadata(String value, String etag) {}
+
+    private final Path tilesPath;
+    private final int poolSize;
+    private final long mmapSize;
+    private final long acquireTimeoutMillis;
+    private final long cacheMaxBytes;
+    private final int prewarmMaxZoom;
+    private final int overzoomMaxZoom;
+    private final TileMetersService metersService;
+    private final ConcurrentMap<String, TileSource> sources = new ConcurrentHashMap<>();
+    private final Cache<TileKey, TileDTO> tileCache;
+    private final ConcurrentMap<MetadataKey, Metadata> metadataCache = new ConcurrentHashMap<>();
+
+    public GeatMapTileService(
+        @Value("${geatmap.tiles.path:./tiles}") String tilesPath,
+        @Value("${geatmap.tiles.pool-size:4}") int poolSize,
+        @Value("${geatmap.tiles.mmap-size:268435456}") long mmapSize,
+        @Value("${geatmap.tiles.acquire-timeout-ms:2000}") long acquireTimeoutMillis,
+        @Value("${geatmap.tiles.cache.max-bytes:268435456}") long cacheMaxBytes,
+        @Value("${geatmap.tiles.cache.prewarm-max-zoom:8}") int prewarmMaxZoom,
+        @Value("${geatmap.tiles.overzoom-max-zoom:16}") int overzoomMaxZoom,
+        TileMetersService metersService
+    ) {
+        this.tilesPath = Path.of(tilesPath).toAbsolutePath().normalize();
+        this.poolSize = poolSize;
+        this.mmapSize = mmapSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.prewarmMaxZoom = prewarmMaxZoom;
+        this.overzoomMaxZoom = overzoomMaxZoom;
+        this.metersService = metersService;
+        this.tileCache = Caffeine.newBuilder()
+            .maximumWeight(cacheMaxBytes)
+            .weigher((TileKey key, TileDTO tile) -> tile.length() + ENTRY_OVERHEAD_BYTES)
+            .recordStats()
+            .build();
+        metersService.monitorTileCache(tileCache);
+    }
+
+    public boolean isLayer(String layer) {
+        return LAYERS.contains(layer);
+    }
+
+    public Path getTilesPath() {
+        return tilesPath;
+    }
+
+    /** The file the layer is served from: its archive when there is one, its .mbtiles otherwise. */
+    public Path getFile(String layer) {
+        Path archive = getArchiveFile(layer);
+        return Files.isRegularFile(archive) ? archive : getMbtilesFile(layer);
+    }
+
+    public Path getMbtilesFile(String layer) {
+        return tilesPath.resolve(layer + MBTILES_EXTENSION);
+    }
+
+    public Path getArchiveFile(String layer) {
+        return tilesPath.resolve(layer + ARCHIVE_EXTENSION);
+    }
+
+    /**
+     * @param y XYZ row (0 at the top).
+     * @return the stored tile, or the tile cut from its ancestor beyond the layer maxzoom; {@code null} when the file or
+     * the tile does not exist.
+     */
+    public TileDTO getTile(String layer, int z, int x, int y) throws IOException {
+        if (!isValid(z, x, y)) {
+            return null;
+        }
+        TileSource source = source(layer);
+        if (source == null) {
+            return null;
+        }
+        try {
+            return getTile(layer, source, z, x, y);
+        } catch (IOException e) {
+            // The source may have been swapped and closed while this request was reading from it
+            TileSource current = source(layer);
+            if (current == null || current == source) {
+                throw e;
+            }
+            return getTile(layer, current, z, x, y);
+        }
+    }
+
+    /**
+     * Several tiles of one layer, as {@link #getTile(String, int, int, int)} would return them. The stored tiles they
+     * need that are not cached yet (overzoomed tiles need their ancestor) are read from an .mbtiles file with one query.
+     *
+     * @return the tiles in the order of {@code coordinates}, {@code null} where there is none.
+     */
+    public List<TileDTO> getTiles(String layer, List<TileSource.Coordinates> coordinates) throws IOException {
+        TileSource source = source(layer);
+        if (source != null && !source.isMemoryMapped()) {
+            try {
+                load(source, coordinates);
+            } catch (IOException e) {
+                // Read them one by one below, which retries on the new source if this one was swapped meanwhile
+                LOG.debug("Batch read of {} tiles of {} failed: {}", coordinates.size(), layer, e.getMessage());
+            }
+        }
+        List<TileDTO> tiles = new ArrayList<>(coordinates.size());
+        for (TileSource.Coordinates c : coordinates) {
+            tiles.add(getTile(layer, c.z(), c.x(), c.y()));
+        }
+        return tiles;
+    }
+
+    /** Cache the stored tiles behind {@code coordinates} that are not cached yet, read in one batch. */
+    private void load(TileSource source, List<TileSource.Coordinates> coordinates) throws IOException {
+        int maxZoom = getMaxZoom(source);
+        Set<TileSource.Coordinates> missing = new LinkedHashSet<>();
+        for (TileSource.Coordinates c : coordinates) {
+            if (!isValid(c.z(), c.x(), c.y()) || tileCache.getIfPresent(new TileKey(source, c.z(), c.x(), c.y())) != null) {
+                continue;
+            }
+            if (c.z() <= maxZoom) {
+                missing.add(c);
+            } else if (c.z() <= overzoomMaxZoom) {
+                int dz = c.z() - maxZoom;
+                TileSource.Coordinates parent = new TileSource.Coordinates(maxZoom, c.x() >> dz, c.y() >> dz);
+                if (tileCache.getIfPresent(new TileKey(source, parent.z(), parent.x(), parent.y())) == null) {
+                    missing.add(parent);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        List<TileSource.Coordinates> keys = new ArrayList<>(missing);
+        List<TileDTO> tiles = source.getTiles(keys);
+        for (int i = 0; i < keys.size(); i++) {
+            TileSource.Coordinates c = keys.get(i);
+            tileCache.put(new TileKey(source, c.z(), c.x(), c.y()), tiles.get(i) != null ? tiles.get(i) : MISSING);
+        }
+    }
+
+    private static boolean isValid(int z, int x, int y) {
+        return z >= 0 && z <= 30 && x >= 0 && y >= 0 && x < 1 << z && y < 1 << z;
+    }
+
+    /**
+     * @return the metadata value {@code name} of the layer, or {@code null} when the file or the row does not exist.
+     */
+    public Metadata getMetadata(String layer, String name) throws IOException {
+        TileSource source = source(layer);
+        if (source == null) {
+            return null;
+        }
+        try {
+            return getMetadata(source, name);
+        } catch (IOException e) {
+            TileSource current = source(layer);
+            if (current == null || current == source) {
+                throw e;
+            }
+            return getMetadata(current, name);
+        }
+    }
+
+    private TileDTO getTile(String layer, TileSource source, int z, int x, int y) throws IOException {
+        int maxZoom = getMaxZoom(source);
+        if (z > maxZoom) {
+            return z <= overzoomMaxZoom ? getOverzoomedTile(layer, source, maxZoom, z, x, y) : null;
+        }
+        return getStoredTile(source, z, x, y);
+    }
+
+    private TileDTO getStoredTile(TileSource source, int z, int x, int y) throws IOException {
+        if (source.isMemoryMapped()) {
+            return source.getTile(z, x, y);
+        }
+        TileKey key = new TileKey(source, z, x, y);
+        TileDTO tile = tileCache.getIfPresent(key);
+        if (tile == null) {
+            tile = source.getTile(z, x, y);
+            tile = tile != null ? tile : MISSING;
+            tileCache.put(key, tile);
+        }
+        return tile != MISSING ? tile : null;
+    }
+
+    /**
+     * The part of the ancestor at {@code maxZoom} covering the tile, scaled up and clipped; gzipped again when the
+     * ancestor was stored gzipped. Empty (but present) when the ancestor has nothing there.
+     */
+    private TileDTO getOverzoomedTile(String layer, TileSource source, int maxZoom, int z, int x, int y) throws IOException {
+        TileKey key = new TileKey(source, z, x, y);
+        TileDTO tile = tileCache.getIfPresent(key);
+        if (tile == null) {
+            int dz = z - maxZoom;
+            TileDTO parent = getStoredTile(source, maxZoom, x >> dz, y >> dz);
+            if (parent == null) {
+                tile = MISSING;
+            } else {
+                byte[] clipped;
+                try {
+                    clipped = VectorTileClipper.clip(parent.uncompressed(), dz, x & ((1 << dz) - 1), y & ((1 << dz) - 1));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Cannot overzoom " + layer + "/" + maxZoom + "/" + (x >> dz) + "/" + (y >> dz), e);
+                }
+                tile = parent.gzipped() ? TileDTO.gzip(clipped) : TileDTO.of(clipped);
+            }
+            tileCache.put(key, tile);
+        }
+        return tile != MISSING ? tile : null;
+    }
+
+    private Metadata getMetadata(TileSource source, String name) throws IOException {
+        MetadataKey key = new MetadataKey(source, name);
+        Metadata metadata = metadataCache.get(key);
+        if (metadata == null) {
+            String value = source.getMetadata(name);
+            if (value == null) {
+                return null;
+            }
+            metadata = new Metadata(value, "\"" + TileDTO.contentHash(value.getBytes(StandardCharsets.UTF_8)) + "\"");
+            metadataCache.put(key, metadata);
+        }
+        return metadata;
+    }
+
+    /** The {@code maxzoom} metadata of the source; no limit when it is absent or not a number. */
+    private int getMaxZoom(TileSource source) throws IOException {
+        Metadata maxZoom = getMetadata(source, "maxzoom");
+        try {
+            return maxZoom != null ? Integer.parseInt(maxZoom.value().trim()) : Integer.MAX_VALUE;
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Switch {@code layer} to the current content of its file: the new file is opened, validated and warmed while the
+     * old source keeps serving, then swapped in. The old source is closed afterwards; pooled connections still in use
+     * are closed as they are returned. If the new file cannot be opened or is invalid the old source stays in place.
+     * Nothing happens when the layer already serves an unchanged copy of its file.
+     */
+    public synchronized void reload(String layer) {
+        long start = System.nanoTime();
+        Path file = getFile(layer);
+        TileSource previous = sources.get(layer);
+        if (previous != null && previous.getFile().equals(file) && !previous.isStale()) {
+            return;
+        }
+        if (!Files.isRegularFile(file)) {
+            if (previous != null && sources.remove(layer, previous)) {
+                retire(previous);
+                LOG.warn("{} was removed, layer {} is no longer served", previous.getFile(), layer);
+                metersService.trackReload(layer, TileMetersService.RELOAD_REMOVED, System.nanoTime() - start);
+            }
+            return;
+        }
+
+        TileSource fresh = null;
+        try {
+            fresh = open(layer, file);
+            validate(fresh);
+        } catch (IOException e) {
+            if (fresh != null) {
+                fresh.close();
+            }
+            LOG.warn("Cannot reload {} from {}, keeping the current file: {}", layer, file, e.getMessage());
+            metersService.trackReload(layer, TileMetersService.RELOAD_FAILURE, System.nanoTime() - start);
+            return;
+        }
+        AtomicLong bytes = new AtomicLong();
+        long warmed = warm(layer, fresh, bytes, cacheMaxBytes * 3 / 4 / LAYERS.size());
+
+        synchronized (sources) {
+            previous = sources.put(layer, fresh);
+        }
+        if (previous != null && previous != fresh) {
+            retire(previous);
+        }
+        long nanos = System.nanoTime() - start;
+        metersService.trackReload(layer, TileMetersService.RELOAD_SUCCESS, nanos);
+        LOG.info("Reloaded {} from {} in {} ms ({} tiles warmed)", layer, file, nanos / 1_000_000, warmed);
+    }
+
+    /** Checks that {@code source} holds vector tiles with usable zoom bounds. */
+    private void validate(TileSource source) throws IOException {
+        String format = source.getMetadata("format");
+        if (format != null && !format.equals("pbf")) {
+            throw new IOException("unexpected tile format " + format);
+        }
+        String minZoom = source.getMetadata("minzoom");
+        String maxZoom = source.getMetadata("maxzoom");
+        try {
+            if (minZoom != null && maxZoom != null && Integer.parseInt(minZoom.trim()) > Integer.parseInt(maxZoom.trim())) {
+                throw new IOException("minzoom " + minZoom + " is above maxzoom " + maxZoom);
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("invalid zoom bounds " + minZoom + "-" + maxZoom, e);
+        }
+    }
+
+    /** Close {@code source} and drop everything read from it. */
+    private void retire(TileSource source) {
+        source.close();
+        tileCache.asMap().keySet().removeIf(key -> key.source() == source);
+        metadataCache.keySet().removeIf(key -> key.source() == source);
+    }
+
+    /**
+     * Load the low-zoom tiles of every layer into the cache, in the background so startup is not delayed, on the
+     * {@link AsyncConfiguration#BUILD_EXECUTOR} threads so the shared async executor stays free.
+     */
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void prewarm() {
+        if (prewarmMaxZoom < 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        AtomicLong bytes = new AtomicLong();
+        long tiles = 0;
+        for (String layer : LAYERS) {
+            try {
+                TileSource source = source(layer);
+                if (source != null) {
+                    tiles += warm(layer, source, bytes, cacheMaxBytes * 3 / 4);
+                }
+            } catch (IOException e) {
+                LOG.warn("Tile prewarm of {} failed: {}", layer, e.getMessage());
+            }
+        }
+        LOG.info(
+            "Prewarmed {} tiles up to zoom {} ({} KB) in {} ms",
+            tiles,
+            prewarmMaxZoom,
+            bytes.get() / 1024,
+            (System.nanoTime() - start) / 1_000_000
+        );
+    }
+
+    /**
+     * Cache the tiles of an .mbtiles source up to {@code prewarm-max-zoom} until {@code bytes} reaches {@code budget}.
+     * Archives need no warming.
+     *
+     * @return the number of tiles cached.
+     */
+    private long warm(String layer, TileSource source, AtomicLong bytes, long budget) {
+        if (prewarmMaxZoom < 0 || !(source instanceof MbtilesConnectionPool pool)) {
+            return 0;
+        }
+        AtomicLong tiles = new AtomicLong();
+        try {
+            pool.forEachTile(prewarmMaxZoom, (z, x, tmsRow, data) -> {
+                if (data == null || data.length == 0) {
+                    return true;
+                }
+                // Leave room for the tiles requested at runtime rather than evicting prewarmed ones
+                if (bytes.addAndGet(data.length + ENTRY_OVERHEAD_BYTES) > budget) {
+                    return false;
+                }
+                tileCache.put(new TileKey(pool, z, x, (1 << z) - 1 - tmsRow), TileDTO.of(data));
+                tiles.incrementAndGet();
+                return true;
+            });
+        } catch (SQLException e) {
+            LOG.warn("Tile prewarm of {} failed: {}", layer, e.getMessage());
+        }
+        return tiles.get();
+    }
+
+    /**
+     * Build {@code {layer}.gmtiles} from {@code {layer}.mbtiles} and switch the layer over to it.
+     *
+     * @return what was written, or {@code null} when the layer has no .mbtiles file.
+     */
+    public TileArchiveWriter.Summary convert(String layer) throws IOException {
+        Path mbtiles = getMbtilesFile(layer);
+        if (!Files.isRegularFile(mbtiles)) {
+            return null;
+        }
+        long start = System.nanoTime();
+        TileArchiveWriter.Summary summary;
+        try {
+            summary = TileArchiveWriter.convert(mbtiles, getArchiveFile(layer));
+        } catch (SQLException e) {
+            throw new IOException("Cannot read " + mbtiles + ": " + e.getMessage(), e);
+        }
+        LOG.info(
+            "Converted {} to {}: {} tiles, {} unique, {} KB in {} ms",
+            mbtiles,
+            getArchiveFile(layer),
+            summary.tiles(),
+            summary.uniqueTiles(),
+            summary.bytes() / 1024,
+            (System.nanoTime() - start) / 1_000_000
+        );
+        reload(layer);
+        return summary;
+    }
+
+    @PreDestroy
+    public void close() {
+        sources.values().forEach(TileSource::close);
+        sources.clear();
+    }
+
+    private TileSource source(String layer) throws IOException {
+        TileSource source = sources.get(layer);
+        if (source != null) {
+            return source;
+        }
+        Path file = getFile(layer);
+        if (!Files.isRegularFile(file)) {
+            LOG.debug("Tile file not found: {}", file);
+            return null;
+        }
+        synchronized (sources) {
+            source = sources.get(layer);
+            if (source == null) {
+                source = open(layer, file);
+                sources.put(layer, source);
+            }
+            return source;
+        }
+    }
+
+    private TileSource open(String layer, Path file) throws IOException {
+        if (file.getFileName().toString().endsWith(ARCHIVE_EXTENSION)) {
+            TileArchive archive = TileArchive.open(file);
+            LOG.info("Mapped {} ({} tiles)", file, archive.getEntryCount());
+            return archive;
+        }
+        try {
+            MbtilesConnectionPool pool = new MbtilesConnectionPool(layer, file, poolSize, mmapSize, acquireTimeoutMillis, metersService);
+            LOG.info("Opened {} ({} connections)", file, poolSize);
+            return pool;
+        } catch (SQLException e) {
+            throw new IOException("Cannot open " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Sources compare by identity, so the entries of a replaced file can never be served for its successor. */
+    private record TileKey(TileSource source, int z, int x, int y) {}
+
+    private record MetadataKey(TileSource source, String name) {}
+}
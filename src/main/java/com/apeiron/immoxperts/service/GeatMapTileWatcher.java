@@ -0,0 +1,144 @@
+package com.apeiron.immoxperts.service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Watches {@code geatmap.tiles.path} and hands changed layer files to {@link GeatMapTileService#reload(String)}, so new
+ * tiles are served without a restart.
+ * <p>
+ * Copying a large file produces a stream of modification events; a layer is only reloaded once its file has been quiet
+ * for {@code geatmap.tiles.reload.quiet-period}. Replacing the file by an atomic move avoids serving a half-copied file
+ * altogether; a file that fails validation is skipped and retried on its next change.
+ */
+@Service
+public class GeatMapTileWatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GeatMapTileWatcher.class);
+
+    private final GeatMapTileService tileService;
+    private final Duration quietPeriod;
+    private WatchService watchService;
+    private Thread thread;
+
+    public GeatMapTileWatcher(
+        GeatMapTileService tileService,
+        @Value("${geatmap.tiles.reload.quiet-period:PT2S}") Duration quietPeriod
+    ) {
+        this.tileService = tileService;
+        this.quietPeriod = quietPeriod;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        Path directory = tileService.getTilesPath();
+        if (thread != null) {
+            return;
+        }
+        if (!Files.isDirectory(directory)) {
+            LOG.warn("Tile folder {} not found, tile files will not be reloaded on change", directory);
+            return;
+        }
+        try {
+            watchService = directory.getFileSystem().newWatchService();
+            directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE
+            );
+        } catch (IOException e) {
+            LOG.warn("Cannot watch tile folder {}, tile files will not be reloaded on change: {}", directory, e.getMessage());
+            return;
+        }
+        thread = new Thread(this::watch, "geatmap-tile-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOG.info("Watching {} for tile file changes", directory);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            LOG.debug("Error closing the tile watch service: {}", e.getMessage());
+        }
+        thread = null;
+    }
+
+    private void watch() {
+        // Layer -> time of its last event (System.nanoTime)
+        Map<String, Long> pending = new HashMap<>();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = pending.isEmpty() ? watchService.take() : watchService.poll(quietPeriod.toMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            GeatMapTileService.LAYERS.forEach(layer -> pending.put(layer, System.nanoTime()));
+                        } else if (event.context() instanceof Path file && layerOf(file) != null) {
+                            pending.put(layerOf(file), System.nanoTime());
+                        }
+                    }
+                    key.reset();
+                }
+                long now = System.nanoTime();
+                Iterator<Map.Entry<String, Long>> it = pending.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<String, Long> entry = it.next();
+                    if (now - entry.getValue() >= quietPeriod.toNanos()) {
+                        it.remove();
+                        reload(entry.getKey());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void reload(String layer) {
+        try {
+            tileService.reload(layer);
+        } catch (RuntimeException e) {
+            LOG.error("Reload of tile layer {} failed", layer, e);
+        }
+    }
+
+    /** The layer served from {@code file} ({@code regions.mbtiles}, {@code communes.gmtiles}...), or {@code null}. */
+    private static String layerOf(Path file) {
+        String name = file.getFileName().toString();
+        for (String extension : new String[] { GeatMapTileService.ARCHIVE_EXTENSION, GeatMapTileService.MBTILES_EXTENSION }) {
+            if (name.endsWith(extension)) {
+                String layer = name.substring(0, name.length() - extension.length());
+                return GeatMapTileService.LAYERS.contains(layer) ? layer : null;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,71 @@
+package com.apeiron.immoxperts.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Administrative rollup of INSEE commune codes: commune → département → région, and the arrondissements of Paris, Lyon
+ * and Marseille → their city.
+ */
+public final class InseeCodes {
+
+    /** Région (INSEE code) of each département. */
+    private static final Map<String, String> REGION_BY_DEPARTEMENT = regions(
+        Map.ofEntries(
+            Map.entry("84", "01 03 07 15 26 38 42 43 63 69 73 74"),
+            Map.entry("27", "21 25 39 58 70 71 89 90"),
+            Map.entry("53", "22 29 35 56"),
+            Map.entry("24", "18 28 36 37 41 45"),
+            Map.entry("94", "2A 2B"),
+            Map.entry("44", "08 10 51 52 54 55 57 67 68 88"),
+            Map.entry("32", "02 59 60 62 80"),
+            Map.entry("11", "75 77 78 91 92 93 94 95"),
+            Map.entry("28", "14 27 50 61 76"),
+            Map.entry("75", "16 17 19 23 24 33 40 47 64 79 86 87"),
+            Map.entry("76", "09 11 12 30 31 32 34 46 48 65 66 81 82"),
+            Map.entry("52", "44 49 53 72 85"),
+            Map.entry("93", "04 05 06 13 83 84"),
+            Map.entry("01", "971"),
+            Map.entry("02", "972"),
+            Map.entry("03", "973"),
+            Map.entry("04", "974"),
+            Map.entry("06", "976")
+        )
+    );
+
+    private InseeCodes() {}
+
+    /** 75 for 75056, 2A for 2A004, 971 for 97105. Expects a five-character commune code. */
+    public static String departementOf(String commune) {
+        return commune.startsWith("97") ? commune.substring(0, 3) : commune.substring(0, 2);
+    }
+
+    /** @return the région of the département, or {@code null} for an unknown code. */
+    public static String regionOf(String departement) {
+        return REGION_BY_DEPARTEMENT.get(departement);
+    }
+
+    /** 75056 for 75101-75120, 69123 for 69381-69389, 13055 for 13201-13216; {@code null} for other communes. */
+    public static String cityOfArrondissement(String commune) {
+        if (commune.startsWith("751") && !commune.equals("75100")) {
+            return "75056";
+        }
+        if (commune.startsWith("6938")) {
+            return "69123";
+        }
+        if (commune.startsWith("132")) {
+            return "13055";
+        }
+        return null;
+    }
+
+    private static Map<String, String> regions(Map<String, String> departementsByRegion) {
+        Map<String, String> regions = new HashMap<>();
+        departementsByRegion.forEach((region, departements) -> {
+            for (String departement : departements.split(" ")) {
+                regions.put(departement, region);
+            }
+        });
+        return Map.copyOf(regions);
+    }
+}
@@ -0,0 +1,274 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.repository.ListingDetailRepository;
+import com.apeiron.immoxperts.repository.ListingDetailRepository.ParsedDetails;
+import com.apeiron.immoxperts.repository.ListingDetailRepository.Watermark;
+import com.apeiron.immoxperts.service.dto.ListingDetailSourceRow;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps dvf_achat_detail / dvf_louer_detail in step with the listing tables using {@link ListingDetailParser}.
+ * <p>
+ * The scheduled sync only parses listings past the stored (created_at, id) watermark, which keeps it cheap. The less
+ * frequent {@link #reconcile} catches everything else: listings whose details were edited in place, and listings that
+ * landed behind the watermark (no or an older created_at) without being parsed. Both are found by comparing the MD5
+ * stored with each detail row to that of the current text. {@link #backfill} re-parses a whole table in parallel
+ * id-range batches and is also what the first sync runs when no watermark exists yet.
+ * <p>
+ * The sync and the reconciliation run on a scheduler thread of their own, off the shared scheduling pool. Backfills
+ * requested through {@link #submitBackfill} run as jobs on another thread (see {@link MaintenanceJobQueue}); syncs
+ * and reconciliations of the table are skipped meanwhile.
+ */
+@Service
+public class ListingDetailIndexer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingDetailIndexer.class);
+
+    private final ListingDetailRepository repository;
+    private final int batchSize;
+    private final int backfillParallelism;
+    private final Duration syncInterval;
+    private final Duration reconcileInterval;
+    private final Map<ListingKind, ReentrantLock> locks = new EnumMap<>(ListingKind.class);
+    private final MaintenanceJobQueue jobs = new MaintenanceJobQueue("listing-detail-backfill");
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "listing-detail-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ListingDetailIndexer(
+        ListingDetailRepository repository,
+        @Value("${listing.details.batch-size:1000}") int batchSize,
+        @Value("${listing.details.backfill-parallelism:4}") int backfillParallelism,
+        @Value("${listing.details.sync-interval:PT5M}") Duration syncInterval,
+        @Value("${listing.details.reconcile-interval:PT1H}") Duration reconcileInterval
+    ) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.backfillParallelism = backfillParallelism;
+        this.syncInterval = syncInterval;
+        this.reconcileInterval = reconcileInterval;
+        for (ListingKind kind : ListingKind.values()) {
+            locks.put(kind, new ReentrantLock());
+        }
+    }
+
+    /**
+     * Start the sync every {@code listing.details.sync-interval} and the reconciliation every
+     * {@code listing.details.reconcile-interval}, each first run one interval after startup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedule() {
+        long sync = syncInterval.toMillis();
+        long reconcile = reconcileInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::syncAll, sync, sync, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::reconcileAll, reconcile, reconcile, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        jobs.shutdown();
+    }
+
+    public void syncAll() {
+        for (ListingKind kind : ListingKind.values()) {
+            try {
+                sync(kind);
+            } catch (RuntimeException e) {
+                LOG.warn("Listing detail sync failed for {}: {}", kind, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parse the listings added since the last run. Skipped while a backfill of the same table is running.
+     *
+     * @return the number of listings parsed.
+     */
+    public long sync(ListingKind kind) {
+        ReentrantLock lock = locks.get(kind);
+        if (!lock.tryLock()) {
+            LOG.debug("Listing detail sync of {} skipped, backfill in progress", kind);
+            return 0;
+        }
+        try {
+            Watermark watermark = repository.findWatermark(kind).orElse(null);
+            if (watermark == null) {
+                return runBackfill(kind);
+            }
+            long parsed = 0;
+            List<ListingDetailSourceRow> rows;
+            do {
+                rows = repository.findSourcesAfter(kind, watermark, batchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                ListingDetailSourceRow last = rows.get(rows.size() - 1);
+                watermark = new Watermark(last.createdAt(), last.id());
+                repository.saveDetails(kind, parse(rows), watermark);
+                parsed += rows.size();
+            } while (rows.size() == batchSize);
+            if (parsed > 0) {
+                LOG.info("Parsed details of {} new {} listings", parsed, kind);
+            }
+            return parsed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void reconcileAll() {
+        for (ListingKind kind : ListingKind.values()) {
+            try {
+                reconcile(kind);
+            } catch (RuntimeException e) {
+                LOG.warn("Listing detail reconciliation failed for {}: {}", kind, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Parse the listings without details, or whose details changed since they were parsed. Skipped while a sync or a
+     * backfill of the same table is running.
+     *
+     * @return the number of listings parsed.
+     */
+    public long reconcile(ListingKind kind) {
+        ReentrantLock lock = locks.get(kind);
+        if (!lock.tryLock()) {
+            LOG.debug("Listing detail reconciliation of {} skipped, sync or backfill in progress", kind);
+            return 0;
+        }
+        try {
+            long parsed = 0;
+            long afterId = Long.MIN_VALUE;
+            List<ListingDetailSourceRow> rows;
+            do {
+                rows = repository.findStaleSources(kind, afterId, batchSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                afterId = rows.get(rows.size() - 1).id();
+                repository.saveDetails(kind, parse(rows), null);
+                parsed += rows.size();
+            } while (rows.size() == batchSize);
+            if (parsed > 0) {
+                LOG.info("Re-parsed details of {} new or changed {} listings", parsed, kind);
+            }
+            return parsed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue the {@link #backfill} of {@code kind}; when one is already queued, that job is returned instead.
+     */
+    public MaintenanceJobDTO submitBackfill(ListingKind kind) {
+        return jobs.submit("backfill " + kind.name().toLowerCase(Locale.ROOT), () -> backfill(kind));
+    }
+
+    public Optional<MaintenanceJobDTO> getJob(String id) {
+        return jobs.getJob(id);
+    }
+
+    /** Most recent jobs first. */
+    public List<MaintenanceJobDTO> getJobs() {
+        return jobs.getJobs();
+    }
+
+    /**
+     * Re-parse every listing of the table and reset the watermark to the newest one.
+     *
+     * @return the number of listings parsed.
+     */
+    public long backfill(ListingKind kind) {
+        ReentrantLock lock = locks.get(kind);
+        lock.lock();
+        try {
+            return runBackfill(kind);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long runBackfill(ListingKind kind) {
+        long start = System.nanoTime();
+        // Taken first: anything inserted while the backfill runs sorts after it and is left to the next sync
+        Watermark latest = repository.findLatest(kind).orElse(null);
+        long[] bounds = repository.findIdBounds(kind).orElse(null);
+        if (latest == null || bounds == null) {
+            return 0;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, backfillParallelism));
+        try {
+            List<Future<Integer>> batches = new ArrayList<>();
+            for (long from = bounds[0]; from <= bounds[1]; from += batchSize) {
+                long fromId = from;
+                long toId = Math.min(from + batchSize, bounds[1] + 1);
+                batches.add(
+                    executor.submit(() -> {
+                        List<ListingDetailSourceRow> rows = repository.findSourcesByIdRange(kind, fromId, toId);
+                        repository.saveDetails(kind, parse(rows), null);
+                        return rows.size();
+                    })
+                );
+            }
+            long parsed = 0;
+            for (Future<Integer> batch : batches) {
+                parsed += batch.get();
+            }
+            int orphans = repository.deleteOrphans(kind);
+            repository.saveWatermark(kind, latest);
+            LOG.info(
+                "Backfilled details of {} {} listings in {} ms ({} stale rows removed)",
+                parsed,
+                kind,
+                (System.nanoTime() - start) / 1_000_000,
+                orphans
+            );
+            return parsed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Listing detail backfill of " + kind + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Listing detail backfill of " + kind + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Map<Long, ParsedDetails> parse(List<ListingDetailSourceRow> rows) {
+        Map<Long, ParsedDetails> details = new LinkedHashMap<>(rows.size() * 2);
+        for (ListingDetailSourceRow row : rows) {
+            details.put(row.id(), new ParsedDetails(row.details(), ListingDetailParser.parse(row.details())));
+        }
+        return details;
+    }
+}
@@ -0,0 +1,191 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.ListingDetailsDTO;
+import java.math.BigDecimal;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Java port of the characteristics extraction of dvf_achat_detail_mv.sql / dvf_louer_detail_mv.sql.
+ * <p>
+ * The SQL version evaluates every regex of every field on every row. Here a single keyword pass over {@code details}
+ * decides the amenity flags directly and tells which fields have anything to extract; only those run their
+ * (precompiled) patterns, in the same priority order as the SQL {@code COALESCE}. Stateless and thread-safe.
+ * <p>
+ * One deliberate difference: in a Postgres regex {@code \b} is a backspace, not a word boundary, so the SQL patterns
+ * {@code \bT(\d+)\b}, {@code \bF(\d+)\b} and {@code \bRDC\b} never matched. Here they do: {@code pieces} also
+ * comes from a T3 / F3 mention and {@code etage} is RDC for a standalone "RDC".
+ */
+public final class ListingDetailParser {
+
+    private static final String OUI = "Oui";
+    private static final String NON = "Non";
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+    private static final String NUMBER = "(\\d+(?:[.,]\\d+)?)";
+
+    private static final Pattern KEYWORDS = Pattern.compile(
+        "(piscine)|(non\\s+meubl)|(meubl[eé])|(balcon)|(cave)|(jardin)|(parking|garage|stationnement)|(terrasse)" +
+        "|(surface|m[²2])|(chambre|ch\\.)|(pi[eè]ce|\\b[tf]\\d)|(dpe)|(terrain)|([eé]tage|rez|\\brdc\\b)",
+        FLAGS
+    );
+
+    private static final int KW_PISCINE = 1;
+    private static final int KW_NON_MEUBLE = 2;
+    private static final int KW_MEUBLE = 3;
+    private static final int KW_BALCON = 4;
+    private static final int KW_CAVE = 5;
+    private static final int KW_JARDIN = 6;
+    private static final int KW_PARKING = 7;
+    private static final int KW_TERRASSE = 8;
+    private static final int KW_SURFACE = 9;
+    private static final int KW_CHAMBRE = 10;
+    private static final int KW_PIECES = 11;
+    private static final int KW_DPE = 12;
+    private static final int KW_TERRAIN = 13;
+    private static final int KW_ETAGE = 14;
+
+    private static final Pattern[] SURFACE = {
+        Pattern.compile("Surface\\s+(?:totale|habitable)?\\s*:\\s*" + NUMBER, FLAGS),
+        Pattern.compile("Surface\\s+" + NUMBER + "\\s*m[²2]", FLAGS),
+        Pattern.compile("Surface\\s*:\\s*" + NUMBER, FLAGS),
+        Pattern.compile(NUMBER + "\\s*m[²2]\\s*de\\s+surface", FLAGS),
+        Pattern.compile(NUMBER + "\\s*m2\\s*environ", FLAGS),
+        Pattern.compile(NUMBER + "\\s*m[²2]", FLAGS),
+    };
+
+    private static final Pattern[] CHAMBRE = {
+        Pattern.compile("Chambres?\\s*:\\s*(\\d+)", FLAGS),
+        Pattern.compile("(\\d+)\\s*ch\\.", FLAGS),
+        Pattern.compile("(\\d+)\\s*chambres?", FLAGS),
+    };
+
+    private static final Pattern[] PIECES = {
+        Pattern.compile("Pi[eè]ces?\\s*:\\s*(\\d+)", FLAGS),
+        Pattern.compile("(\\d+)\\s*pi[eè]ces?", FLAGS),
+        Pattern.compile("\\bT(\\d+)\\b", FLAGS),
+        Pattern.compile("\\bF(\\d+)\\b", FLAGS),
+    };
+
+    private static final Pattern DPE = Pattern.compile("DPE\\s*[:\\s]*([A-G])", FLAGS);
+
+    private static final Pattern[] TERRAIN = {
+        Pattern.compile("Surface\\s+terrain\\s*:\\s*" + NUMBER, FLAGS),
+        Pattern.compile("Terrain\\s+" + NUMBER + "\\s*m[²2]", FLAGS),
+        Pattern.compile("Terrain\\s*:\\s*" + NUMBER, FLAGS),
+    };
+
+    private static final Pattern ETAGE_LABEL = Pattern.compile("[EÉ]tage\\s*:\\s*([^|~\\n\\-]+)", FLAGS);
+    private static final Pattern ETAGE_FRACTION = Pattern.compile("[EÉ]tage\\s+(\\d+/\\d+)", FLAGS);
+    private static final Pattern ETAGE_ORDINAL = Pattern.compile("(\\d+(?:er|e|ème|eme)\\s*[eé]tage)", FLAGS);
+    private static final Pattern ETAGE_RDC = Pattern.compile("rez[-\\s]*de[-\\s]*chauss[eé]e|\\bRDC\\b", FLAGS);
+
+    private static final int ETAGE_MAX_LENGTH = 50;
+
+    private ListingDetailParser() {}
+
+    public static ListingDetailsDTO parse(String details) {
+        String text = details != null ? details : "";
+        boolean[] seen = new boolean[KW_ETAGE + 1];
+        Matcher keywords = KEYWORDS.matcher(text);
+        while (keywords.find()) {
+            for (int g = 1; g <= KW_ETAGE; g++) {
+                if (keywords.start(g) >= 0) {
+                    seen[g] = true;
+                    break;
+                }
+            }
+        }
+
+        return new ListingDetailsDTO(
+            seen[KW_SURFACE] ? firstDecimal(SURFACE, text) : null,
+            seen[KW_CHAMBRE] ? firstInteger(CHAMBRE, text) : null,
+            seen[KW_PIECES] ? firstInteger(PIECES, text) : null,
+            seen[KW_DPE] ? dpe(text) : null,
+            seen[KW_TERRAIN] ? firstDecimal(TERRAIN, text) : null,
+            flag(seen[KW_PISCINE]),
+            flag(seen[KW_MEUBLE] && !seen[KW_NON_MEUBLE]),
+            flag(seen[KW_BALCON]),
+            flag(seen[KW_CAVE]),
+            flag(seen[KW_JARDIN]),
+            flag(seen[KW_PARKING]),
+            seen[KW_ETAGE] ? etage(text) : null,
+            flag(seen[KW_TERRASSE])
+        );
+    }
+
+    private static String flag(boolean present) {
+        return present ? OUI : NON;
+    }
+
+    private static BigDecimal firstDecimal(Pattern[] patterns, String text) {
+        for (Pattern pattern : patterns) {
+            Matcher m = pattern.matcher(text);
+            if (m.find()) {
+                return new BigDecimal(m.group(1).replace(',', '.'));
+            }
+        }
+        return null;
+    }
+
+    private static Integer firstInteger(Pattern[] patterns, String text) {
+        for (Pattern pattern : patterns) {
+            Matcher m = pattern.matcher(text);
+            if (m.find()) {
+                Integer value = toInteger(m.group(1));
+                if (value != null) {
+                    return value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Digit runs that do not fit an int are skipped (the SQL cast would fail the whole refresh). */
+    private static Integer toInteger(String digits) {
+        if (digits.length() > 10) {
+            return null;
+        }
+        long value = Long.parseLong(digits);
+        return value <= Integer.MAX_VALUE ? (int) value : null;
+    }
+
+    private static String dpe(String text) {
+        Matcher m = DPE.matcher(text);
+        return m.find() ? m.group(1).toUpperCase() : null;
+    }
+
+    private static String etage(String text) {
+        Matcher m = ETAGE_LABEL.matcher(text);
+        if (m.find()) {
+            return truncate(trimSpaces(m.group(1)));
+        }
+        m = ETAGE_FRACTION.matcher(text);
+        if (m.find()) {
+            return truncate(m.group(1));
+        }
+        m = ETAGE_ORDINAL.matcher(text);
+        if (m.find()) {
+            return truncate(trimSpaces(m.group(1)));
+        }
+        return ETAGE_RDC.matcher(text).find() ? "RDC" : null;
+    }
+
+    /** Same as SQL TRIM(): spaces only. */
+    private static String trimSpaces(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return s.substring(start, end);
+    }
+
+    private static String truncate(String s) {
+        return s.length() > ETAGE_MAX_LENGTH ? s.substring(0, ETAGE_MAX_LENGTH) : s;
+    }
+}
@@ -0,0 +1,308 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.repository.ListingDetailRepository;
+import com.apeiron.immoxperts.repository.ListingDuplicateRepository;
+import com.apeiron.immoxperts.repository.ListingDuplicateRepository.FingerprintSource;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Groups listings of the same property scraped from several sources into clusters (cluster_id of dvf_achat /
+ * dvf_louer, the smallest id of the cluster, null for listings without duplicate).
+ * <p>
+ * Every listing is fingerprinted with {@link ListingMinHasher}; listings sharing a band hash are candidate pairs, kept
+ * when their prices are within {@code listing.duplicates.price-tolerance} of each other, and the kept pairs are merged
+ * with a union-find. Candidates are found with one hash table per band, so the cost is linear in the number of
+ * listings instead of quadratic. Band hashes are held in memory for the whole table (about 130 bytes per listing).
+ * Listings inserted after a rebuild get their cluster at the next one.
+ * <p>
+ * Rebuilds run as jobs on a thread of their own (see {@link MaintenanceJobQueue}), whether requested through
+ * {@link #submitRebuild} or queued on {@code listing.duplicates.cron}.
+ */
+@Service
+public class ListingDuplicateClusterer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingDuplicateClusterer.class);
+
+    /** Rows per cluster_id UPDATE statement. */
+    private static final int WRITE_CHUNK = 10_000;
+
+    private final ListingDuplicateRepository repository;
+    private final ListingDetailRepository detailRepository;
+    private final int batchSize;
+    private final int parallelism;
+    private final double priceTolerance;
+    private final Map<ListingKind, ReentrantLock> locks = new EnumMap<>(ListingKind.class);
+    private final MaintenanceJobQueue jobs = new MaintenanceJobQueue("listing-duplicates");
+
+    public ListingDuplicateClusterer(
+        ListingDuplicateRepository repository,
+        ListingDetailRepository detailRepository,
+        @Value("${listing.duplicates.batch-size:5000}") int batchSize,
+        @Value("${listing.duplicates.parallelism:4}") int parallelism,
+        @Value("${listing.duplicates.price-tolerance:0.05}") double priceTolerance
+    ) {
+        this.repository = repository;
+        this.detailRepository = detailRepository;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.priceTolerance = priceTolerance;
+        for (ListingKind kind : ListingKind.values()) {
+            locks.put(kind, new ReentrantLock());
+        }
+    }
+
+    @Scheduled(cron = "${listing.duplicates.cron:0 30 3 * * *}")
+    public void rebuildAll() {
+        for (ListingKind kind : ListingKind.values()) {
+            submitRebuild(kind);
+        }
+    }
+
+    /**
+     * Queue the {@link #rebuild} of {@code kind}; when one is already queued, that job is returned instead.
+     */
+    public MaintenanceJobDTO submitRebuild(ListingKind kind) {
+        return jobs.submit("rebuild " + kind.name().toLowerCase(Locale.ROOT), () -> rebuild(kind));
+    }
+
+    public Optional<MaintenanceJobDTO> getJob(String id) {
+        return jobs.getJob(id);
+    }
+
+    /** Most recent jobs first. */
+    public List<MaintenanceJobDTO> getJobs() {
+        return jobs.getJobs();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdown();
+    }
+
+    /**
+     * Recompute the duplicate clusters of the whole table.
+     *
+     * @return the number of listings that belong to a cluster.
+     */
+    public long rebuild(ListingKind kind) {
+        ReentrantLock lock = locks.get(kind);
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            Fingerprints fingerprints = fingerprint(kind);
+            if (fingerprints == null) {
+                return 0;
+            }
+            Long[] clusterIds = cluster(fingerprints);
+            long clustered = Arrays.stream(clusterIds).filter(c -> c != null).count();
+            int changed = 0;
+            for (int from = 0; from < fingerprints.size; from += WRITE_CHUNK) {
+                int to = Math.min(from + WRITE_CHUNK, fingerprints.size);
+                changed += repository.updateClusterIds(
+                    kind,
+                    Arrays.copyOfRange(fingerprints.ids, from, to),
+                    Arrays.copyOfRange(clusterIds, from, to)
+                );
+            }
+            LOG.info(
+                "Clustered {} of {} {} listings as duplicates in {} ms ({} rows changed)",
+                clustered,
+                fingerprints.size,
+                kind,
+                (System.nanoTime() - start) / 1_000_000,
+                changed
+            );
+            return clustered;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Band hashes of every listing, computed in parallel id-range batches. Null when the table is empty. */
+    private Fingerprints fingerprint(ListingKind kind) {
+        long[] bounds = detailRepository.findIdBounds(kind).orElse(null);
+        if (bounds == null) {
+            return null;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            List<Future<Fingerprints>> batches = new ArrayList<>();
+            for (long from = bounds[0]; from <= bounds[1]; from += batchSize) {
+                long fromId = from;
+                long toId = Math.min(from + batchSize, bounds[1] + 1);
+                batches.add(executor.submit(() -> Fingerprints.of(repository.findFingerprintSourcesByIdRange(kind, fromId, toId))));
+            }
+            List<Fingerprints> parts = new ArrayList<>(batches.size());
+            for (Future<Fingerprints> batch : batches) {
+                parts.add(batch.get());
+            }
+            return Fingerprints.concat(parts);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Listing fingerprinting of " + kind + " interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Listing fingerprinting of " + kind + " failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Cluster id (smallest listing id of the cluster) of each listing, null when it has no duplicate. */
+    private Long[] cluster(Fingerprints f) {
+        int[] parent = new int[f.size];
+        for (int i = 0; i < f.size; i++) {
+            parent[i] = i;
+        }
+        BandTable table = new BandTable(f.size);
+        for (int band = 0; band < ListingMinHasher.BANDS; band++) {
+            table.clear();
+            for (int i = 0; i < f.size; i++) {
+                if (!f.fingerprinted[i]) {
+                    continue;
+                }
+                int first = table.putIfAbsent(f.bands[i * ListingMinHasher.BANDS + band], i);
+                if (first >= 0 && similarPrice(f.prices[first], f.prices[i])) {
+                    union(parent, f.ids, first, i);
+                }
+            }
+        }
+
+        int[] sizes = new int[f.size];
+        for (int i = 0; i < f.size; i++) {
+            sizes[find(parent, i)]++;
+        }
+        Long[] clusterIds = new Long[f.size];
+        for (int i = 0; i < f.size; i++) {
+            int root = find(parent, i);
+            clusterIds[i] = sizes[root] > 1 ? f.ids[root] : null;
+        }
+        return clusterIds;
+    }
+
+    /** A missing price does not rule a pair out: the text already matched. */
+    private boolean similarPrice(double a, double b) {
+        if (Double.isNaN(a) || Double.isNaN(b)) {
+            return true;
+        }
+        return Math.abs(a - b) <= priceTolerance * Math.max(a, b);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /** The root is always the listing with the smallest id, so it can serve as the cluster id. */
+    private static void union(int[] parent, long[] ids, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra == rb) {
+            return;
+        }
+        if (ids[ra] < ids[rb]) {
+            parent[rb] = ra;
+        } else {
+            parent[ra] = rb;
+        }
+    }
+
+    private static final class Fingerprints {
+
+        final int size;
+        final long[] ids;
+        final long[] bands;
+        final double[] prices;
+        final boolean[] fingerprinted;
+
+        private Fingerprints(int size) {
+            this.size = size;
+            this.ids = new long[size];
+            this.bands = new long[size * ListingMinHasher.BANDS];
+            this.prices = new double[size];
+            this.fingerprinted = new boolean[size];
+        }
+
+        static Fingerprints of(List<FingerprintSource> sources) {
+            Fingerprints f = new Fingerprints(sources.size());
+            for (int i = 0; i < f.size; i++) {
+                FingerprintSource source = sources.get(i);
+                f.ids[i] = source.id();
+                f.prices[i] = source.price() != null && source.price().signum() > 0 ? source.price().doubleValue() : Double.NaN;
+                long[] bands = ListingMinHasher.bandHashes(source.description(), source.address(), source.price());
+                if (bands != null) {
+                    System.arraycopy(bands, 0, f.bands, i * ListingMinHasher.BANDS, ListingMinHasher.BANDS);
+                    f.fingerprinted[i] = true;
+                }
+            }
+            return f;
+        }
+
+        static Fingerprints concat(List<Fingerprints> parts) {
+            Fingerprints all = new Fingerprints(parts.stream().mapToInt(p -> p.size).sum());
+            int offset = 0;
+            for (Fingerprints part : parts) {
+                System.arraycopy(part.ids, 0, all.ids, offset, part.size);
+                System.arraycopy(part.bands, 0, all.bands, offset * ListingMinHasher.BANDS, part.bands.length);
+                System.arraycopy(part.prices, 0, all.prices, offset, part.size);
+                System.arraycopy(part.fingerprinted, 0, all.fingerprinted, offset, part.size);
+                offset += part.size;
+            }
+            return all;
+        }
+    }
+
+    /** Open-addressing band hash → first listing index table, reused across bands. */
+    private static final class BandTable {
+
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        BandTable(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected) * 2 - 1) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        void clear() {
+            Arrays.fill(values, -1);
+        }
+
+        /** @return the index already stored for {@code key}, or -1 after storing {@code value}. */
+        int putIfAbsent(long key, int value) {
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (values[slot] >= 0) {
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            return -1;
+        }
+    }
+}
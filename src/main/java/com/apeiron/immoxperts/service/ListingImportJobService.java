@@ -0,0 +1,170 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.service.dto.ListingImportJobDTO;
+import com.apeiron.immoxperts.service.dto.ListingImportJobDTO.Status;
+import com.apeiron.immoxperts.service.dto.ListingImportResultDTO;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs listing imports ({@link ListingIngestionService}) in the background, as jobs whose progress can be polled.
+ * <p>
+ * The uploaded body is spooled to a temporary file, as received (still gzipped if it was), so the request returns as
+ * soon as the upload is done. Jobs run one at a time on a single thread, in submission order; the file is deleted once
+ * its job is over.
+ */
+@Service
+public class ListingImportJobService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingImportJobService.class);
+
+    private static final int MAX_JOBS = 100;
+
+    private final ListingIngestionService listingIngestionService;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "listing-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Most recent jobs by id, oldest first; guarded by {@code this}. */
+    private final Map<String, Job> jobs = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+
+    public ListingImportJobService(ListingIngestionService listingIngestionService) {
+        this.listingIngestionService = listingIngestionService;
+    }
+
+    /**
+     * Spool {@code body} to a temporary file and queue its import.
+     *
+     * @param gzip whether {@code body} is gzip-compressed.
+     * @throws IOException when the body cannot be read or stored.
+     */
+    public ListingImportJobDTO submit(ListingKind kind, ListingImportReader.Format format, InputStream body, boolean gzip)
+        throws IOException {
+        Path file = Files.createTempFile("listing-import-", gzip ? ".gz" : ".tmp");
+        try {
+            Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        Job job = new Job(UUID.randomUUID().toString(), kind, format, file, gzip);
+        synchronized (this) {
+            jobs.put(job.id, job);
+            executor.execute(() -> run(job));
+            LOG.info("Queued {} listing import {} ({} bytes)", kind, job.id, Files.size(file));
+            return job.toDTO();
+        }
+    }
+
+    public synchronized Optional<ListingImportJobDTO> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toDTO);
+    }
+
+    /** Most recent jobs first. */
+    public synchronized List<ListingImportJobDTO> getJobs() {
+        List<ListingImportJobDTO> result = new ArrayList<>(jobs.size());
+        jobs.values().forEach(job -> result.add(0, job.toDTO()));
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Job job) {
+        synchronized (this) {
+            job.status = Status.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        ListingImportResultDTO result = null;
+        String error = null;
+        try (InputStream input = open(job)) {
+            result = listingIngestionService.ingest(job.kind, job.format, input);
+        } catch (IOException | RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            LOG.error("Listing import {} failed", job.id, e);
+        } finally {
+            try {
+                Files.deleteIfExists(job.file);
+            } catch (IOException e) {
+                LOG.warn("Cannot delete listing import file {}: {}", job.file, e.getMessage());
+            }
+        }
+        synchronized (this) {
+            job.status = error == null ? Status.SUCCEEDED : Status.FAILED;
+            job.result = result;
+            job.error = error;
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private static InputStream open(Job job) throws IOException {
+        InputStream input = Files.newInputStream(job.file);
+        return job.gzip ? new GZIPInputStream(input, 1 << 16) : input;
+    }
+
+    private static final class Job {
+
+        final String id;
+        final ListingKind kind;
+        final ListingImportReader.Format format;
+        final Path file;
+        final boolean gzip;
+        final Instant submittedAt = Instant.now();
+        Status status = Status.QUEUED;
+        Instant startedAt;
+        Instant finishedAt;
+        ListingImportResultDTO result;
+        String error;
+
+        Job(String id, ListingKind kind, ListingImportReader.Format format, Path file, boolean gzip) {
+            this.id = id;
+            this.kind = kind;
+            this.format = format;
+            this.file = file;
+            this.gzip = gzip;
+        }
+
+        ListingImportJobDTO toDTO() {
+            return new ListingImportJobDTO(
+                id,
+                kind.name().toLowerCase(Locale.ROOT),
+                format.name().toLowerCase(Locale.ROOT),
+                status,
+                submittedAt,
+                startedAt,
+                finishedAt,
+                result,
+                error
+            );
+        }
+    }
+}
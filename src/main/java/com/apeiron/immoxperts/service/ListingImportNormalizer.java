@@ -0,0 +1,133 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.ListingImportRecord;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Transform stage of the listing ingestion: cleans a {@link ListingImportRecord} in place and computes what the
+ * write stage needs (URL hash, parsed details). Stateless and thread-safe.
+ */
+public final class ListingImportNormalizer {
+
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+    private static final Pattern NOT_DIGIT = Pattern.compile("\\D");
+
+    /** price is NUMERIC(12, 2). */
+    private static final BigDecimal MAX_PRICE = BigDecimal.TEN.pow(10);
+
+    private ListingImportNormalizer() {}
+
+    /**
+     * @return {@code false} when the record cannot be stored (no property URL to key it on).
+     */
+    public static boolean normalize(ListingImportRecord record) {
+        String url = clean(record.getPropertyUrl());
+        if (url == null) {
+            return false;
+        }
+        record.setPropertyUrl(url);
+        record.setPropertyUrlHash(urlHash(url));
+
+        // Truncated to the dvf_achat / dvf_louer column sizes so one oversized value cannot fail a whole COPY batch
+        record.setSource(clean(record.getSource(), 50));
+        record.setDepartment(clean(record.getDepartment(), 100));
+        record.setDepartmentName(clean(record.getDepartmentName(), 100));
+        record.setCommune(clean(record.getCommune(), 100));
+        record.setPropertyType(clean(record.getPropertyType(), 100));
+        record.setPriceText(clean(record.getPriceText(), 50));
+        record.setAddress(clean(record.getAddress()));
+
+        String postalCode = postalCode(record.getSearchPostalCode());
+        record.setSearchPostalCode(postalCode);
+        String codeDepartment = clean(record.getCodeDepartment(), 10);
+        record.setCodeDepartment(codeDepartment != null ? codeDepartment : departmentCode(postalCode));
+
+        BigDecimal price = record.getPrice() != null ? record.getPrice() : ListingImportReader.parsePrice(record.getPriceText());
+        record.setPrice(price != null && price.compareTo(MAX_PRICE) < 0 ? price.setScale(2, RoundingMode.HALF_UP) : null);
+        record.setImages(compactImages(record.getImages()));
+        record.setParsedDetails(ListingDetailParser.parse(record.getDetails()));
+        return true;
+    }
+
+    /**
+     * First 8 bytes of the SHA-256 of the URL, big-endian. Same value as
+     * {@code ('x' || substr(encode(sha256(convert_to(property_url, 'UTF8')), 'hex'), 1, 16))::bit(64)::bigint}.
+     */
+    public static long urlHash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String clean(String value, int maxLength) {
+        String s = clean(value);
+        return s != null && s.length() > maxLength ? s.substring(0, maxLength) : s;
+    }
+
+    /** Trimmed, inner whitespace runs collapsed to one space; blank is null. */
+    private static String clean(String value) {
+        if (value == null) {
+            return null;
+        }
+        String s = SPACES.matcher(value).replaceAll(" ").trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    /** Five digits; a leading zero lost by a spreadsheet ("1000") is restored. Anything else is kept trimmed. */
+    private static String postalCode(String value) {
+        String s = clean(value);
+        if (s == null) {
+            return null;
+        }
+        String digits = NOT_DIGIT.matcher(s).replaceAll("");
+        if (digits.length() == 4) {
+            return "0" + digits;
+        }
+        return digits.length() == 5 ? digits : s.length() > 10 ? s.substring(0, 10) : s;
+    }
+
+    private static String departmentCode(String postalCode) {
+        if (postalCode == null || postalCode.length() != 5 || !NOT_DIGIT.matcher(postalCode).replaceAll("").equals(postalCode)) {
+            return null;
+        }
+        if (postalCode.startsWith("97") || postalCode.startsWith("98")) {
+            return postalCode.substring(0, 3);
+        }
+        if (postalCode.startsWith("20")) {
+            return postalCode.compareTo("20200") < 0 ? "2A" : "2B";
+        }
+        return postalCode.substring(0, 2);
+    }
+
+    /** Trimmed, blanks dropped, duplicates removed keeping the first occurrence, protocol-relative URLs made https. */
+    private static List<String> compactImages(List<String> images) {
+        if (images == null || images.isEmpty()) {
+            return null;
+        }
+        Set<String> compact = new LinkedHashSet<>();
+        for (String image : images) {
+            if (image == null) {
+                continue;
+            }
+            String s = image.trim();
+            if (s.isEmpty()) {
+                continue;
+            }
+            compact.add(s.startsWith("//") ? "https:" + s : s);
+        }
+        return compact.isEmpty() ? null : new ArrayList<>(compact);
+    }
+}
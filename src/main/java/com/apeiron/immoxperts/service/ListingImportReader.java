@@ -0,0 +1,265 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.ListingImportRecord;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Streams {@link ListingImportRecord}s out of a JSON Lines or CSV (header row, RFC 4180 quoting) input.
+ * <p>
+ * Field names are matched loosely: case, {@code _} and {@code -} are ignored, so {@code property_url},
+ * {@code propertyUrl} and {@code PROPERTY-URL} all fill the same field. Unknown fields are ignored. {@code images} may be
+ * a JSON array, a JSON array in a string, or a {@code |}-separated list.
+ */
+public final class ListingImportReader implements Closeable {
+
+    public enum Format {
+        JSONL,
+        CSV,
+    }
+
+    private static final Map<String, String> ALIASES = Map.ofEntries(
+        Map.entry("url", "propertyurl"),
+        Map.entry("postalcode", "searchpostalcode"),
+        Map.entry("codepostal", "searchpostalcode"),
+        Map.entry("adresse", "address"),
+        Map.entry("city", "commune"),
+        Map.entry("image", "images")
+    );
+
+    private static final Pattern NOT_NUMERIC = Pattern.compile("[^0-9.,]");
+
+    private final Format format;
+    private final BufferedReader reader;
+    private final ObjectMapper objectMapper;
+    private List<String> header;
+    private long line;
+
+    public ListingImportReader(Format format, InputStream input, ObjectMapper objectMapper) {
+        this.format = format;
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @return the next record, or {@code null} at the end of the input.
+     * @throws IOException on read errors or a line that cannot be parsed.
+     */
+    public ListingImportRecord next() throws IOException {
+        return format == Format.JSONL ? nextJson() : nextCsv();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private ListingImportRecord nextJson() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (IOException e) {
+            throw new IOException("Invalid JSON on line " + line + ": " + e.getMessage(), e);
+        }
+        ListingImportRecord record = new ListingImportRecord();
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isNull()) {
+                continue;
+            }
+            if (value.isArray()) {
+                List<String> items = new ArrayList<>(value.size());
+                value.forEach(item -> items.add(item.asText()));
+                assign(record, field.getKey(), null, items);
+            } else {
+                assign(record, field.getKey(), value.asText(), null);
+            }
+        }
+        return record;
+    }
+
+    private ListingImportRecord nextCsv() throws IOException {
+        if (header == null) {
+            header = readCsvRow();
+            if (header == null) {
+                return null;
+            }
+        }
+        List<String> row;
+        do {
+            row = readCsvRow();
+            if (row == null) {
+                return null;
+            }
+        } while (row.size() == 1 && row.get(0) == null);
+        ListingImportRecord record = new ListingImportRecord();
+        for (int i = 0; i < header.size() && i < row.size(); i++) {
+            if (header.get(i) != null && row.get(i) != null) {
+                assign(record, header.get(i), row.get(i), null);
+            }
+        }
+        return record;
+    }
+
+    /** One CSV record; empty unquoted fields are null. Quoted fields may span lines. */
+    private List<String> readCsvRow() throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        line++;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field on line " + line);
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    int n = reader.read();
+                    if (n == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (n != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',' || c == '\n' || c == -1) {
+                fields.add(field.isEmpty() && !wasQuoted ? null : field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+                if (c != ',') {
+                    return fields;
+                }
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    private void assign(ListingImportRecord record, String name, String text, List<String> items) throws IOException {
+        String key = name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT).replace("_", "").replace("-", "");
+        key = ALIASES.getOrDefault(key, key);
+        switch (key) {
+            case "source" -> record.setSource(text);
+            case "searchpostalcode" -> record.setSearchPostalCode(text);
+            case "department" -> record.setDepartment(text);
+            case "departmentname" -> record.setDepartmentName(text);
+            case "commune" -> record.setCommune(text);
+            case "codedepartment" -> record.setCodeDepartment(text);
+            case "propertytype" -> record.setPropertyType(text);
+            case "pricetext" -> record.setPriceText(text);
+            case "price" -> record.setPrice(parsePrice(text));
+            case "address" -> record.setAddress(text);
+            case "details" -> record.setDetails(text);
+            case "description" -> record.setDescription(text);
+            case "propertyurl" -> record.setPropertyUrl(text);
+            case "images" -> record.setImages(items != null ? items : parseImages(text));
+            case "createdat" -> record.setCreatedAt(parseDateTime(text));
+            default -> {}
+        }
+    }
+
+    private List<String> parseImages(String text) throws IOException {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String trimmed = text.trim();
+        if (trimmed.startsWith("[")) {
+            List<String> items = new ArrayList<>();
+            objectMapper.readTree(trimmed).forEach(item -> items.add(item.asText()));
+            return items;
+        }
+        return List.of(trimmed.split("\\|"));
+    }
+
+    /**
+     * Plain numbers as well as "350 000 €", "1.200.000 €" or "1 200,50" style prices: a final separator followed by one
+     * or two digits is the decimal point, other separators group thousands. Null when there are no digits.
+     */
+    static BigDecimal parsePrice(String text) {
+        if (text == null) {
+            return null;
+        }
+        String s = NOT_NUMERIC.matcher(text).replaceAll("");
+        if (s.chars().noneMatch(Character::isDigit)) {
+            return null;
+        }
+        int last = Math.max(s.lastIndexOf(','), s.lastIndexOf('.'));
+        int decimals = s.length() - last - 1;
+        String integerPart = s;
+        String fraction = "";
+        if (last >= 0 && decimals >= 1 && decimals <= 2) {
+            integerPart = s.substring(0, last);
+            fraction = s.substring(last + 1);
+        }
+        integerPart = integerPart.replace(",", "").replace(".", "");
+        if (integerPart.isEmpty()) {
+            integerPart = "0";
+        }
+        return new BigDecimal(fraction.isEmpty() ? integerPart : integerPart + "." + fraction);
+    }
+
+    private static LocalDateTime parseDateTime(String text) {
+        if (text == null || text.isBlank()) {
+            return null;
+        }
+        String s = text.trim();
+        try {
+            return LocalDateTime.parse(s.replace(' ', 'T'));
+        } catch (DateTimeParseException e) {
+            // try the other supported shapes
+        }
+        try {
+            return OffsetDateTime.parse(s.replace(' ', 'T')).toLocalDateTime();
+        } catch (DateTimeParseException e) {
+            // try the other supported shapes
+        }
+        try {
+            return LocalDate.parse(s).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
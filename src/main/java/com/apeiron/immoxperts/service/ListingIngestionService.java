@@ -0,0 +1,191 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.management.ListingIngestionMetersService;
+import com.apeiron.immoxperts.repository.ListingIngestionRepository;
+import com.apeiron.immoxperts.repository.ListingIngestionRepository.UpsertedListing;
+import com.apeiron.immoxperts.service.dto.ListingImportRecord;
+import com.apeiron.immoxperts.service.dto.ListingImportResultDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Bulk loading of scraped listings into dvf_achat / dvf_louer.
+ * <p>
+ * The input is streamed in batches through three stages: read (parse JSONL/CSV) on the calling thread, transform
+ * ({@link ListingImportNormalizer}: normalization, image compaction, detail parsing) on a pool of workers, and write
+ * (COPY + upsert, see {@link ListingIngestionRepository}) on a single writer so batches are applied in input order.
+ * At most two batches per worker are in flight, which bounds memory whatever the input size. Each batch commits on its
+ * own, so readers only ever wait on the rows of the batch being written.
+ */
+@Service
+public class ListingIngestionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingIngestionService.class);
+
+    private final ListingIngestionRepository listingIngestionRepository;
+    private final ListingSuggestionDictionary suggestionDictionary;
+    private final ListingIngestionMetersService metersService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int workers;
+
+    public ListingIngestionService(
+        ListingIngestionRepository listingIngestionRepository,
+        ListingSuggestionDictionary suggestionDictionary,
+        ListingIngestionMetersService metersService,
+        ObjectMapper objectMapper,
+        @Value("${listing.ingestion.batch-size:5000}") int batchSize,
+        @Value("${listing.ingestion.workers:4}") int workers
+    ) {
+        this.listingIngestionRepository = listingIngestionRepository;
+        this.suggestionDictionary = suggestionDictionary;
+        this.metersService = metersService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Load every listing of {@code input}. Batches written before a failure stay committed; re-running the same input is
+     * safe since rows are keyed by their property URL.
+     *
+     * @throws IOException when the input cannot be read or parsed.
+     */
+    public ListingImportResultDTO ingest(ListingKind kind, ListingImportReader.Format format, InputStream input) throws IOException {
+        long start = System.nanoTime();
+        Totals totals = new Totals();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Semaphore inFlight = new Semaphore(workers * 2);
+        ExecutorService transformers = Executors.newFixedThreadPool(workers);
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        List<Future<?>> writes = new ArrayList<>();
+        try (ListingImportReader reader = new ListingImportReader(format, input, objectMapper)) {
+            boolean more = true;
+            while (more && failure.get() == null) {
+                long readStart = System.nanoTime();
+                List<ListingImportRecord> batch = new ArrayList<>(batchSize);
+                ListingImportRecord record;
+                while (batch.size() < batchSize && (record = reader.next()) != null) {
+                    batch.add(record);
+                }
+                more = batch.size() == batchSize;
+                if (batch.isEmpty()) {
+                    break;
+                }
+                metersService.trackStage(kind, ListingIngestionMetersService.STAGE_READ, batch.size(), System.nanoTime() - readStart);
+                totals.read.addAndGet(batch.size());
+
+                inFlight.acquire();
+                Future<List<ListingImportRecord>> transformed = transformers.submit(() -> transform(kind, batch, totals));
+                writes.add(
+                    writer.submit(() -> {
+                        try {
+                            if (failure.get() == null) {
+                                write(kind, transformed.get(), totals);
+                            }
+                        } catch (Throwable e) {
+                            failure.compareAndSet(null, e instanceof ExecutionException ? e.getCause() : e);
+                        } finally {
+                            inFlight.release();
+                        }
+                    })
+                );
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Listing import interrupted", e);
+        } catch (ExecutionException e) {
+            failure.compareAndSet(null, e.getCause());
+        } finally {
+            transformers.shutdownNow();
+            writer.shutdownNow();
+        }
+
+        long durationMs = (System.nanoTime() - start) / 1_000_000;
+        if (failure.get() != null) {
+            LOG.error("Listing import of {} failed after {} records: {}", kind, totals.read.get(), failure.get().getMessage());
+            throw new IllegalStateException("Listing import of " + kind + " failed", failure.get());
+        }
+        ListingImportResultDTO result = new ListingImportResultDTO(
+            totals.read.get(),
+            totals.inserted.get(),
+            totals.updated.get(),
+            totals.unchanged.get(),
+            totals.rejected.get(),
+            durationMs
+        );
+        LOG.info("Imported {} listings: {}", kind, result);
+        return result;
+    }
+
+    private List<ListingImportRecord> transform(ListingKind kind, List<ListingImportRecord> batch, Totals totals) {
+        long start = System.nanoTime();
+        List<ListingImportRecord> accepted = new ArrayList<>(batch.size());
+        for (ListingImportRecord record : batch) {
+            if (ListingImportNormalizer.normalize(record)) {
+                accepted.add(record);
+            }
+        }
+        int rejected = batch.size() - accepted.size();
+        totals.rejected.addAndGet(rejected);
+        metersService.trackResult(kind, ListingIngestionMetersService.RESULT_REJECTED, rejected);
+        metersService.trackStage(kind, ListingIngestionMetersService.STAGE_TRANSFORM, batch.size(), System.nanoTime() - start);
+        return accepted;
+    }
+
+    private void write(ListingKind kind, List<ListingImportRecord> batch, Totals totals) {
+        long start = System.nanoTime();
+        List<UpsertedListing> upserted = listingIngestionRepository.upsertBatch(kind, batch);
+        metersService.trackStage(kind, ListingIngestionMetersService.STAGE_WRITE, batch.size(), System.nanoTime() - start);
+
+        Map<Long, ListingImportRecord> byHash = new HashMap<>(batch.size() * 2);
+        for (ListingImportRecord record : batch) {
+            byHash.put(record.getPropertyUrlHash(), record);
+        }
+        long inserted = 0;
+        for (UpsertedListing listing : upserted) {
+            if (listing.inserted()) {
+                inserted++;
+                ListingImportRecord r = byHash.get(listing.propertyUrlHash());
+                suggestionDictionary.record(kind, r.getDepartment(), r.getCommune(), r.getSearchPostalCode(), r.getAddress());
+            }
+        }
+        long updated = upserted.size() - inserted;
+        long unchanged = byHash.size() - upserted.size();
+        totals.inserted.addAndGet(inserted);
+        totals.updated.addAndGet(updated);
+        totals.unchanged.addAndGet(unchanged);
+        metersService.trackResult(kind, ListingIngestionMetersService.RESULT_INSERTED, inserted);
+        metersService.trackResult(kind, ListingIngestionMetersService.RESULT_UPDATED, updated);
+        metersService.trackResult(kind, ListingIngestionMetersService.RESULT_UNCHANGED, unchanged);
+    }
+
+    private static final class Totals {
+
+        final AtomicLong read = new AtomicLong();
+        final AtomicLong inserted = new AtomicLong();
+        final AtomicLong updated = new AtomicLong();
+        final AtomicLong unchanged = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+    }
+}
@@ -0,0 +1,293 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.SuggestionDto;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory dictionary of listing locations (departments, communes, postal codes, addresses) with listing counts,
+ * answering the same "contains" lookups as the {@code findSuggestions} SQL of the listing repositories.
+ * <p>
+ * Entries are stored once, sorted in suggestion order (type, count desc, value), with a trigram inverted index over
+ * the lower-cased searched field. A lookup walks the shortest posting list of the query trigrams and verifies each
+ * candidate, so it only touches entries that can match. Instances are immutable snapshots apart from the counts,
+ * which {@link #record} bumps as listings arrive; locations unseen at build time go to a small overflow map until the
+ * next rebuild.
+ */
+public final class ListingLocationIndex {
+
+    public static final String TYPE_DEPARTMENT = "department";
+    public static final String TYPE_COMMUNE = "commune";
+    public static final String TYPE_POSTAL_CODE = "search_postal_code";
+    public static final String TYPE_ADRESSE = "adresse";
+
+    /** Verified matches collected before ranking; bounds the work for very common substrings. */
+    static final int MAX_CANDIDATES = 200;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final String[] values;
+    private final String[] labels;
+    private final String[] types;
+    private final String[] keys;
+    private final AtomicLongArray counts;
+    private final Map<String, Integer> positions;
+    private final Map<Long, int[]> trigrams;
+    private final Map<String, OverflowEntry> overflow = new ConcurrentHashMap<>();
+
+    private ListingLocationIndex(List<Builder.Entry> sorted) {
+        int n = sorted.size();
+        values = new String[n];
+        labels = new String[n];
+        types = new String[n];
+        keys = new String[n];
+        counts = new AtomicLongArray(n);
+        positions = new HashMap<>(n * 2);
+        Map<Long, IntList> postings = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Builder.Entry e = sorted.get(i);
+            values[i] = e.value;
+            labels[i] = e.label;
+            types[i] = e.type;
+            keys[i] = e.key;
+            counts.set(i, e.count);
+            positions.put(e.identity, i);
+            String k = e.key;
+            for (int j = 0; j + 3 <= k.length(); j++) {
+                postings.computeIfAbsent(trigram(k, j), t -> new IntList()).addIfLast(i);
+            }
+        }
+        trigrams = new HashMap<>(postings.size() * 2);
+        postings.forEach((t, list) -> trigrams.put(t, list.toArray()));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Suggestions whose searched field contains {@code query} (case-insensitive), ordered like the SQL version:
+     * departments, communes, postal codes, addresses, then by listing count descending and value.
+     */
+    public List<SuggestionDto> suggest(String query, int limit) {
+        if (query == null || query.isBlank() || limit <= 0) {
+            return List.of();
+        }
+        String q = normalize(query);
+        List<Candidate> candidates = new ArrayList<>();
+        if (q.length() < 3) {
+            for (int i = 0; i < keys.length && candidates.size() < MAX_CANDIDATES; i++) {
+                if (keys[i].contains(q)) {
+                    candidates.add(new Candidate(values[i], labels[i], types[i], counts.get(i)));
+                }
+            }
+        } else {
+            int[] shortest = null;
+            for (int j = 0; j + 3 <= q.length(); j++) {
+                int[] posting = trigrams.getOrDefault(trigram(q, j), EMPTY);
+                if (shortest == null || posting.length < shortest.length) {
+                    shortest = posting;
+                }
+                if (posting.length == 0) {
+                    break;
+                }
+            }
+            for (int i = 0; i < shortest.length && candidates.size() < MAX_CANDIDATES; i++) {
+                int id = shortest[i];
+                if (keys[id].contains(q)) {
+                    candidates.add(new Candidate(values[id], labels[id], types[id], counts.get(id)));
+                }
+            }
+        }
+        for (OverflowEntry e : overflow.values()) {
+            if (e.key.contains(q)) {
+                candidates.add(new Candidate(e.value, e.label, e.type, e.count.get()));
+            }
+        }
+        candidates.sort(Candidate.ORDER);
+        return candidates.stream().limit(limit).map(c -> new SuggestionDto(c.value, c.label, c.type, c.count)).toList();
+    }
+
+    /**
+     * Count one new listing against every location entry it contributes to.
+     */
+    public void record(String department, String commune, String postalCode, String address) {
+        forEachEntry(department, commune, postalCode, address, (type, value, label, key) -> {
+            String identity = identity(type, value, label);
+            Integer pos = positions.get(identity);
+            if (pos != null) {
+                counts.incrementAndGet(pos);
+            } else {
+                overflow.computeIfAbsent(identity, id -> new OverflowEntry(type, value, label, key)).count.incrementAndGet();
+            }
+        });
+    }
+
+    static String normalize(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String s, int from) {
+        return ((long) s.charAt(from) << 32) | ((long) s.charAt(from + 1) << 16) | s.charAt(from + 2);
+    }
+
+    private static String identity(String type, String value, String label) {
+        return type + '\u0000' + normalize(value) + '\u0000' + normalize(label);
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+
+    /** Entries a single listing belongs to; mirrors the branches of the SQL suggestion query. */
+    private static void forEachEntry(String department, String commune, String postalCode, String address, EntryConsumer consumer) {
+        if (hasText(department)) {
+            consumer.accept(TYPE_DEPARTMENT, department, department, normalize(department));
+        }
+        if (hasText(postalCode)) {
+            if (hasText(commune)) {
+                String label = commune + " (" + postalCode + ")";
+                consumer.accept(TYPE_COMMUNE, commune, label, normalize(commune));
+                consumer.accept(TYPE_POSTAL_CODE, postalCode, label, normalize(postalCode));
+            } else {
+                consumer.accept(TYPE_POSTAL_CODE, postalCode, postalCode, normalize(postalCode));
+            }
+        }
+        if (hasText(address)) {
+            consumer.accept(TYPE_ADRESSE, address, address, normalize(address));
+        }
+    }
+
+    private static int typeRank(String type) {
+        return switch (type) {
+            case TYPE_DEPARTMENT -> 1;
+            case TYPE_COMMUNE -> 2;
+            case TYPE_POSTAL_CODE -> 3;
+            default -> 4;
+        };
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(String type, String value, String label, String key);
+    }
+
+    private record Candidate(String value, String label, String type, long count) {
+        static final Comparator<Candidate> ORDER = Comparator.comparingInt((Candidate c) -> typeRank(c.type))
+            .thenComparing(Comparator.comparingLong(Candidate::count).reversed())
+            .thenComparing(Candidate::value);
+    }
+
+    private static final class OverflowEntry {
+
+        final String type;
+        final String value;
+        final String label;
+        final String key;
+        final AtomicLong count = new AtomicLong();
+
+        OverflowEntry(String type, String value, String label, String key) {
+            this.type = type;
+            this.value = value;
+            this.label = label;
+            this.key = key;
+        }
+    }
+
+    private static final class IntList {
+
+        private int[] items = new int[4];
+        private int size;
+
+        void addIfLast(int value) {
+            if (size > 0 && items[size - 1] == value) {
+                return;
+            }
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+
+    /**
+     * Accumulates aggregated location rows; entries with the same identity are merged.
+     */
+    public static final class Builder {
+
+        private final Map<String, Entry> entries = new HashMap<>();
+
+        private Builder() {}
+
+        public Builder department(String department, long count) {
+            if (hasText(department)) {
+                add(TYPE_DEPARTMENT, department, department, count);
+            }
+            return this;
+        }
+
+        /** A commune / postal code pair; a null commune gives a bare postal code entry. */
+        public Builder communePostalCode(String commune, String postalCode, long count) {
+            forEachEntry(null, commune, postalCode, null, (type, value, label, key) -> add(type, value, label, count));
+            return this;
+        }
+
+        public Builder address(String address, long count) {
+            if (hasText(address)) {
+                add(TYPE_ADRESSE, address, address, count);
+            }
+            return this;
+        }
+
+        private void add(String type, String value, String label, long count) {
+            entries.merge(identity(type, value, label), new Entry(type, value, label, count), (a, b) ->
+                new Entry(a.type, a.value, a.label, a.count + b.count)
+            );
+        }
+
+        public ListingLocationIndex build() {
+            List<Entry> sorted = new ArrayList<>(entries.values());
+            sorted.sort(
+                Comparator.comparingInt((Entry e) -> typeRank(e.type))
+                    .thenComparing(Comparator.comparingLong((Entry e) -> e.count).reversed())
+                    .thenComparing(e -> e.value)
+            );
+            return new ListingLocationIndex(sorted);
+        }
+
+        private static final class Entry {
+
+            final String type;
+            final String value;
+            final String label;
+            final String key;
+            final String identity;
+            final long count;
+
+            Entry(String type, String value, String label, long count) {
+                this.type = type;
+                this.value = value;
+                this.label = label;
+                this.count = count;
+                this.identity = identity(type, value, label);
+                this.key = normalize(value);
+            }
+        }
+    }
+}
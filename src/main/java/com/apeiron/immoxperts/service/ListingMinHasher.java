@@ -0,0 +1,117 @@
+package com.apeiron.immoxperts.service;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * MinHash fingerprint of a listing (normalized address + description, plus a price bucket) cut into LSH bands.
+ * <p>
+ * Uses one-permutation hashing: each 5-character shingle is hashed once and kept as the minimum of one of
+ * {@link #SIGNATURE_SIZE} bins, empty bins borrowing from the next filled one. That is one hash per shingle instead of
+ * one per shingle and permutation, which is what keeps millions of listings tractable on one machine. With
+ * {@link #BANDS} bands of {@link #ROWS} rows, two listings share at least one band with probability 1 - (1 - s^8)^16:
+ * about 0.25 at Jaccard similarity 0.6, 0.75 at 0.75 and 0.99 at 0.85.
+ */
+public final class ListingMinHasher {
+
+    public static final int BANDS = 16;
+    public static final int ROWS = 8;
+    public static final int SIGNATURE_SIZE = BANDS * ROWS;
+
+    private static final int SHINGLE = 5;
+
+    /** Descriptions are cut here; the head of a text is enough to recognise a re-post. */
+    private static final int MAX_TEXT_LENGTH = 2000;
+
+    /** Prices within about 5% of each other fall in the same or a neighbouring bucket. */
+    private static final double PRICE_BUCKET_RATIO = Math.log(1.05);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALNUM = Pattern.compile("[^a-z0-9]+");
+
+    private ListingMinHasher() {}
+
+    /**
+     * @return the {@link #BANDS} band hashes, or {@code null} when there is too little text to fingerprint.
+     */
+    public static long[] bandHashes(String description, String address, BigDecimal price) {
+        String text = normalize(address) + " " + normalize(description);
+        if (text.length() > MAX_TEXT_LENGTH) {
+            text = text.substring(0, MAX_TEXT_LENGTH);
+        }
+        if (text.isBlank() || text.length() < SHINGLE * 4) {
+            return null;
+        }
+
+        long[] bins = new long[SIGNATURE_SIZE];
+        Arrays.fill(bins, Long.MAX_VALUE);
+        for (int i = 0; i + SHINGLE <= text.length(); i++) {
+            long h = 0;
+            for (int j = i; j < i + SHINGLE; j++) {
+                h = h * 31 + text.charAt(j);
+            }
+            add(bins, mix(h));
+        }
+        if (price != null && price.signum() > 0) {
+            long bucket = Math.round(Math.log(price.doubleValue()) / PRICE_BUCKET_RATIO);
+            add(bins, mix(0x5052494345L ^ bucket));
+        }
+        densify(bins);
+
+        long[] bands = new long[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            long h = mix(b + 1L);
+            for (int r = 0; r < ROWS; r++) {
+                h = mix(h ^ bins[b * ROWS + r]);
+            }
+            bands[b] = h;
+        }
+        return bands;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String s = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return NON_ALNUM.matcher(s.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static void add(long[] bins, long hash) {
+        int bin = (int) Long.remainderUnsigned(hash, SIGNATURE_SIZE);
+        long value = hash >>> 7;
+        if (value < bins[bin]) {
+            bins[bin] = value;
+        }
+    }
+
+    /** Empty bins take the value of the next filled bin (circularly), salted by the distance so they stay distinct. */
+    private static void densify(long[] bins) {
+        long[] filled = bins.clone();
+        for (int i = 0; i < bins.length; i++) {
+            if (filled[i] != Long.MAX_VALUE) {
+                continue;
+            }
+            for (int d = 1; d < bins.length; d++) {
+                long borrowed = filled[(i + d) % bins.length];
+                if (borrowed != Long.MAX_VALUE) {
+                    bins[i] = mix(borrowed + d);
+                    break;
+                }
+            }
+        }
+    }
+
+    /** MurmurHash3 64-bit finalizer. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb53fe63ec34dL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,92 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.repository.DvfAchatRepository;
+import com.apeiron.immoxperts.repository.DvfLouerRepository;
+import com.apeiron.immoxperts.service.dto.SuggestionDto;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps a {@link ListingLocationIndex} per listing table so location suggestions are answered from memory instead of
+ * a five-branch {@code LIKE '%q%'} scan per keystroke.
+ * <p>
+ * The dictionary is rebuilt from one {@code GROUPING SETS} query per table on a fixed delay, and counts are bumped in
+ * between through {@link #record}. Until the first build finishes {@link #suggest} returns empty and callers fall back
+ * to SQL.
+ */
+@Service
+public class ListingSuggestionDictionary {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingSuggestionDictionary.class);
+
+    private final DvfAchatRepository achatRepository;
+    private final DvfLouerRepository louerRepository;
+    private final Map<ListingKind, ListingLocationIndex> indexes = new EnumMap<>(ListingKind.class);
+
+    public ListingSuggestionDictionary(DvfAchatRepository achatRepository, DvfLouerRepository louerRepository) {
+        this.achatRepository = achatRepository;
+        this.louerRepository = louerRepository;
+    }
+
+    public Optional<List<SuggestionDto>> suggest(ListingKind kind, String query, int limit) {
+        ListingLocationIndex index = get(kind);
+        return index == null ? Optional.empty() : Optional.of(index.suggest(query, limit));
+    }
+
+    /**
+     * Count a newly stored listing in the live dictionary; no-op before the first build.
+     */
+    public void record(ListingKind kind, String department, String commune, String postalCode, String address) {
+        ListingLocationIndex index = get(kind);
+        if (index != null) {
+            index.record(department, commune, postalCode, address);
+        }
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${listing.suggestions.refresh-interval:PT15M}")
+    public void refresh() {
+        for (ListingKind kind : ListingKind.values()) {
+            try {
+                rebuild(kind);
+            } catch (RuntimeException e) {
+                LOG.warn("Could not rebuild {} suggestion dictionary, keeping the previous one: {}", kind, e.getMessage());
+            }
+        }
+    }
+
+    public void rebuild(ListingKind kind) {
+        long start = System.nanoTime();
+        List<Object[]> rows = kind == ListingKind.ACHAT
+            ? achatRepository.findLocationDictionaryRows()
+            : louerRepository.findLocationDictionaryRows();
+        ListingLocationIndex.Builder builder = ListingLocationIndex.builder();
+        for (Object[] row : rows) {
+            long count = ((Number) row[6]).longValue();
+            if (((Number) row[0]).intValue() == 0) {
+                builder.department((String) row[2], count);
+            } else if (((Number) row[1]).intValue() == 0) {
+                builder.address((String) row[5], count);
+            } else {
+                builder.communePostalCode((String) row[3], (String) row[4], count);
+            }
+        }
+        ListingLocationIndex index = builder.build();
+        synchronized (indexes) {
+            indexes.put(kind, index);
+        }
+        LOG.info("Built {} suggestion dictionary: {} entries in {} ms", kind, index.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private ListingLocationIndex get(ListingKind kind) {
+        synchronized (indexes) {
+            return indexes.get(kind);
+        }
+    }
+}
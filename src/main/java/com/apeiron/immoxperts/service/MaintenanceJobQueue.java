@@ -0,0 +1,124 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO.Status;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Maintenance tasks producing a count, run in the background as jobs whose state can be polled.
+ * <p>
+ * Jobs run one at a time on a thread of their own, in submission order, so a long task neither holds a request thread
+ * nor one of the shared async or scheduling pools. A task submitted while the same task is still queued returns the
+ * queued job instead of running twice. The owner calls {@link #shutdown()} when it is destroyed.
+ */
+public class MaintenanceJobQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MaintenanceJobQueue.class);
+
+    private static final int MAX_JOBS = 100;
+
+    private final ExecutorService executor;
+
+    /** Most recent jobs by id, oldest first; guarded by {@code this}. */
+    private final Map<String, Job> jobs = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+
+    public MaintenanceJobQueue(String threadName) {
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue {@code work}, unless the same {@code task} is already queued.
+     *
+     * @param task what the job does, e.g. {@code backfill achat}.
+     */
+    public synchronized MaintenanceJobDTO submit(String task, LongSupplier work) {
+        for (Job queued : jobs.values()) {
+            if (queued.status == Status.QUEUED && queued.task.equals(task)) {
+                return queued.toDTO();
+            }
+        }
+        Job job = new Job(UUID.randomUUID().toString(), task);
+        jobs.put(job.id, job);
+        executor.execute(() -> run(job, work));
+        LOG.info("Queued {} as job {}", task, job.id);
+        return job.toDTO();
+    }
+
+    public synchronized Optional<MaintenanceJobDTO> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toDTO);
+    }
+
+    /** Most recent jobs first. */
+    public synchronized List<MaintenanceJobDTO> getJobs() {
+        List<MaintenanceJobDTO> result = new ArrayList<>(jobs.size());
+        jobs.values().forEach(job -> result.add(0, job.toDTO()));
+        return result;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(Job job, LongSupplier work) {
+        synchronized (this) {
+            job.status = Status.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        Long result = null;
+        String error = null;
+        try {
+            result = work.getAsLong();
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            error = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+            LOG.error("Job {} ({}) failed", job.id, job.task, e);
+        }
+        synchronized (this) {
+            job.status = error == null ? Status.SUCCEEDED : Status.FAILED;
+            job.result = result;
+            job.error = error;
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private static final class Job {
+
+        final String id;
+        final String task;
+        final Instant submittedAt = Instant.now();
+        Status status = Status.QUEUED;
+        Instant startedAt;
+        Instant finishedAt;
+        Long result;
+        String error;
+
+        Job(String id, String task) {
+            this.id = id;
+            this.task = task;
+        }
+
+        MaintenanceJobDTO toDTO() {
+            return new MaintenanceJobDTO(id, task, status, submittedAt, startedAt, finishedAt, result, error);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+import com.apeiron.immoxperts.management.MaterializedViewMetersService;
+import com.apeiron.immoxperts.repository.MaterializedViewRepository;
+import com.apeiron.immoxperts.repository.MaterializedViewRepository.RefreshOutcome;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO.Status;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO.Step;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO.StepStatus;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+/**
+ * Refreshes materialized views in the background, as jobs whose progress can be polled.
+ * <p>
+ * A job refreshes the requested views and every registered view built on them, views read by others first (the
+ * {@link MaterializedView} order plus the dependencies found in the catalog). Jobs run one at a time on a single
+ * thread; each view is refreshed (or rebuilt and swapped in, see {@link MaterializedView#isSwapped()}) in its own
+ * transaction under a Postgres advisory lock, so a view being refreshed by another instance is skipped rather than
+ * refreshed twice. Once a view is refreshed its caches are cleared and a {@link MaterializedViewRefreshedEvent} is
+ * published. Views reading a view that failed are skipped.
+ */
+@Service
+public class MaterializedViewRefreshService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MaterializedViewRefreshService.class);
+
+    private static final int MAX_JOBS = 100;
+
+    private final MaterializedViewRepository materializedViewRepository;
+    private final MaterializedViewMetersService metersService;
+    private final CacheManager cacheManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "materialized-view-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Most recent jobs by id, oldest first; guarded by {@code this}. */
+    private final Map<String, Job> jobs = new LinkedHashMap<>(16, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+
+    public MaterializedViewRefreshService(
+        MaterializedViewRepository materializedViewRepository,
+        MaterializedViewMetersService metersService,
+        CacheManager cacheManager,
+        ApplicationEventPublisher eventPublisher
+    ) {
+        this.materializedViewRepository = materializedViewRepository;
+        this.metersService = metersService;
+        this.cacheManager = cacheManager;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Queues the refresh of {@code views} (all registered views when empty) and of the views built on them. When a job
+     * for the same views is already queued, that job is returned instead.
+     */
+    public RefreshJobDTO submit(Collection<MaterializedView> views) {
+        Plan plan = plan(views.isEmpty() ? EnumSet.allOf(MaterializedView.class) : EnumSet.copyOf(views));
+        synchronized (this) {
+            for (Job queued : jobs.values()) {
+                if (queued.status == Status.QUEUED && queued.plan.order().equals(plan.order())) {
+                    return queued.toDTO();
+                }
+            }
+            Job job = new Job(UUID.randomUUID().toString(), plan);
+            jobs.put(job.id, job);
+            executor.execute(() -> run(job));
+            LOG.info("Queued materialized view refresh {}: {}", job.id, plan.order());
+            return job.toDTO();
+        }
+    }
+
+    public synchronized Optional<RefreshJobDTO> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id)).map(Job::toDTO);
+    }
+
+    /** Most recent jobs first. */
+    public synchronized List<RefreshJobDTO> getJobs() {
+        List<RefreshJobDTO> result = new ArrayList<>(jobs.size());
+        jobs.values().forEach(job -> result.add(0, job.toDTO()));
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** The requested views plus those built on them, each after the views it reads. */
+    private Plan plan(Set<MaterializedView> requested) {
+        Map<MaterializedView, Set<MaterializedView>> reads = new EnumMap<>(MaterializedView.class);
+        for (MaterializedView view : MaterializedView.values()) {
+            reads.put(view, EnumSet.noneOf(MaterializedView.class));
+        }
+        try {
+            materializedViewRepository
+                .findDependencies()
+                .forEach((view, sources) ->
+                    MaterializedView.fromViewName(view).ifPresent(v ->
+                        sources.forEach(source -> MaterializedView.fromViewName(source).ifPresent(reads.get(v)::add))
+                    )
+                );
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot read materialized view dependencies, refreshing in declaration order: {}", e.getMessage());
+        }
+
+        Set<MaterializedView> selected = EnumSet.copyOf(requested);
+        boolean grown = true;
+        while (grown) {
+            grown = false;
+            for (MaterializedView view : MaterializedView.values()) {
+                if (!selected.contains(view) && reads.get(view).stream().anyMatch(selected::contains)) {
+                    grown = selected.add(view);
+                }
+            }
+        }
+
+        // Declaration order, except that a view waits for the selected views it reads (a cycle falls back to the order)
+        List<MaterializedView> order = new ArrayList<>(selected.size());
+        Set<MaterializedView> remaining = EnumSet.copyOf(selected);
+        while (!remaining.isEmpty()) {
+            MaterializedView next = remaining
+                .stream()
+                .filter(view -> reads.get(view).stream().noneMatch(source -> source != view && remaining.contains(source)))
+                .findFirst()
+                .orElse(remaining.iterator().next());
+            order.add(next);
+            remaining.remove(next);
+        }
+        return new Plan(List.copyOf(order), reads);
+    }
+
+    private void run(Job job) {
+        synchronized (this) {
+            job.status = Status.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        Set<MaterializedView> failed = EnumSet.noneOf(MaterializedView.class);
+        for (JobStep step : job.steps) {
+            // Views are refreshed after the views they read, so a failure propagates to every view built on it
+            Optional<MaterializedView> failedSource = job.plan.reads().get(step.view).stream().filter(failed::contains).findFirst();
+            if (failedSource.isPresent()) {
+                failed.add(step.view);
+                update(step, StepStatus.SKIPPED, null, "Reads " + failedSource.get().getViewName() + ", which failed");
+                continue;
+            }
+            update(step, StepStatus.RUNNING, null, null);
+            long start = System.nanoTime();
+            try {
+                RefreshOutcome outcome = materializedViewRepository.refresh(step.view.getViewName(), step.view.isSwapped());
+                long nanos = System.nanoTime() - start;
+                metersService.trackRefresh(step.view.getViewName(), outcome.name().toLowerCase(Locale.ROOT), nanos);
+                switch (outcome) {
+                    case REFRESHED, SWAPPED -> {
+                        evictCaches(step.view);
+                        update(step, StepStatus.REFRESHED, nanos, null);
+                        publishRefreshed(step.view);
+                    }
+                    case LOCKED -> update(step, StepStatus.SKIPPED, nanos, "Being refreshed by another session");
+                    case MISSING -> update(step, StepStatus.SKIPPED, nanos, "Not a materialized view of the schema");
+                }
+                LOG.info("Materialized view {} {} in {} ms", step.view.getViewName(), outcome, nanos / 1_000_000);
+            } catch (RuntimeException e) {
+                long nanos = System.nanoTime() - start;
+                metersService.trackRefresh(step.view.getViewName(), "failed", nanos);
+                failed.add(step.view);
+                update(step, StepStatus.FAILED, nanos, e.getMessage());
+                LOG.error("Cannot refresh materialized view {}", step.view.getViewName(), e);
+            }
+        }
+        synchronized (this) {
+            job.status = failed.isEmpty() ? Status.SUCCEEDED : Status.FAILED;
+            job.finishedAt = Instant.now();
+        }
+    }
+
+    private void publishRefreshed(MaterializedView view) {
+        try {
+            eventPublisher.publishEvent(new MaterializedViewRefreshedEvent(view));
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot reload the data read from materialized view {}", view.getViewName(), e);
+        }
+    }
+
+    private void evictCaches(MaterializedView view) {
+        for (String name : view.getCaches()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private synchronized void update(JobStep step, StepStatus status, Long nanos, String message) {
+        step.status = status;
+        step.durationMs = nanos != null ? nanos / 1_000_000 : null;
+        step.message = message;
+    }
+
+    /** Views in refresh order, and the registered views each registered view reads. */
+    private record Plan(List<MaterializedView> order, Map<MaterializedView, Set<MaterializedView>> reads) {}
+
+    private static final class Job {
+
+        final String id;
+        final Plan plan;
+        final List<JobStep> steps;
+        final Instant submittedAt = Instant.now();
+        Status status = Status.QUEUED;
+        Instant startedAt;
+        Instant finishedAt;
+
+        Job(String id, Plan plan) {
+            this.id = id;
+            this.plan = plan;
+            this.steps = plan.order().stream().map(JobStep::new).toList();
+        }
+
+        RefreshJobDTO toDTO() {
+            List<Step> stepDTOs = steps.stream().map(s -> new Step(s.view.getViewName(), s.status, s.durationMs, s.message)).toList();
+            return new RefreshJobDTO(id, status, submittedAt, startedAt, finishedAt, stepDTOs);
+        }
+    }
+
+    private static final class JobStep {
+
+        final MaterializedView view;
+        StepStatus status = StepStatus.PENDING;
+        Long durationMs;
+        String message;
+
+        JobStep(MaterializedView view) {
+            this.view = view;
+        }
+    }
+}
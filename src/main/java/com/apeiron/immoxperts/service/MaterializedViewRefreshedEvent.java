@@ -0,0 +1,9 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+
+/**
+ * Published by {@link MaterializedViewRefreshService} once {@code view} has been refreshed and its caches cleared, for
+ * in-memory copies of the view to reload.
+ */
+public record MaterializedViewRefreshedEvent(MaterializedView view) {}
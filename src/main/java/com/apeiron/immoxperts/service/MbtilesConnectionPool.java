@@ -0,0 +1,304 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.management.TileMetersService;
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Fixed pool of read-only connections to one .mbtiles file, each with its tile and metadata statements prepared once.
+ * <p>
+ * The file is opened with {@code immutable=1} (no locking, no change detection) and memory-mapped, so a tile read is
+ * an index lookup in already mapped pages. Replacing the file therefore needs a new pool; {@link #close()} closes idle
+ * connections at once and the others as they are returned.
+ */
+public class MbtilesConnectionPool implements TileSource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MbtilesConnectionPool.class);
+
+    private static final String TILE_SQL = "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
+    private static final String METADATA_SQL = "SELECT value FROM metadata WHERE name = ?";
+
+    private final String layer;
+    private final Path file;
+    private final String fileStamp;
+    private final long acquireTimeoutMillis;
+    private final TileMetersService metersService;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all;
+    private volatile boolean closed;
+
+    /**
+     * Opens {@code size} connections up front.
+     *
+     * @throws SQLException when the file cannot be opened; nothing is left open then.
+     */
+    public MbtilesConnectionPool(
+        String layer,
+        Path file,
+        int size,
+        long mmapSize,
+        long acquireTimeoutMillis,
+        TileMetersService metersService
+    ) throws SQLException {
+        this.layer = layer;
+        this.file = file;
+        this.fileStamp = TileSource.stamp(file);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.metersService = metersService;
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.all = new ArrayList<>(Math.max(1, size));
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        String url = "jdbc:sqlite:" + file.toAbsolutePath().toUri() + "?immutable=1";
+        try {
+            for (int i = 0; i < Math.max(1, size); i++) {
+                Connection connection = config.createConnection(url);
+                PooledConnection pooled;
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("PRAGMA mmap_size = " + mmapSize);
+                    pooled = new PooledConnection(
+                        connection,
+                        connection.prepareStatement(TILE_SQL),
+                        connection.prepareStatement(METADATA_SQL)
+                    );
+                } catch (SQLException e) {
+                    connection.close();
+                    throw e;
+                }
+                all.add(pooled);
+                idle.add(pooled);
+            }
+        } catch (SQLException e) {
+            all.forEach(PooledConnection::closeQuietly);
+            throw e;
+        }
+        LOG.debug("Opened {} read-only connections to {}", all.size(), file);
+    }
+
+    @Override
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public boolean isStale() {
+        return !fileStamp.equals(TileSource.stamp(file));
+    }
+
+    @Override
+    public boolean isMemoryMapped() {
+        return false;
+    }
+
+    @Override
+    public TileDTO getTile(int z, int x, int y) throws IOException {
+        try {
+            // mbtiles spec: tile_row is TMS (0 at bottom). XYZ y=0 is top, so TMS row = (1<<z)-1-y
+            byte[] data = readTile(z, x, (1 << z) - 1 - y);
+            return data != null && data.length > 0 ? TileDTO.of(data) : null;
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /** One query on one pooled connection, whatever the number of tiles. */
+    @Override
+    public List<TileDTO> getTiles(List<Coordinates> coordinates) throws IOException {
+        if (coordinates.isEmpty()) {
+            return List.of();
+        }
+        try {
+            Map<Coordinates, byte[]> found = readTiles(coordinates);
+            List<TileDTO> tiles = new ArrayList<>(coordinates.size());
+            for (Coordinates c : coordinates) {
+                byte[] data = found.get(c);
+                tiles.add(data != null && data.length > 0 ? TileDTO.of(data) : null);
+            }
+            return tiles;
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String getMetadata(String name) throws IOException {
+        try {
+            return readMetadata(name);
+        } catch (SQLException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @param tmsRow mbtiles row, counted from the bottom (TMS).
+     * @return the stored tile_data, or {@code null} when the tile does not exist.
+     */
+    public byte[] readTile(int z, int x, int tmsRow) throws SQLException {
+        PooledConnection pooled = acquire();
+        long start = System.nanoTime();
+        try {
+            PreparedStatement ps = pooled.tileStatement;
+            ps.setInt(1, z);
+            ps.setInt(2, x);
+            ps.setInt(3, tmsRow);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getBytes(1) : null;
+            }
+        } finally {
+            metersService.trackQuery(layer, System.nanoTime() - start);
+            release(pooled);
+        }
+    }
+
+    /**
+     * Look up all {@code coordinates} in a single statement. The conditions are OR-ed rather than written as a row-value
+     * {@code IN}, which SQLite would answer with a scan of the map table; this way each one is an index search.
+     *
+     * @return the stored tile_data by XYZ coordinates; tiles that do not exist are absent.
+     */
+    public Map<Coordinates, byte[]> readTiles(List<Coordinates> coordinates) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT zoom_level, tile_column, tile_row, tile_data FROM tiles WHERE ");
+        for (int i = 0; i < coordinates.size(); i++) {
+            sql.append(i == 0 ? "" : " OR ").append("(zoom_level = ? AND tile_column = ? AND tile_row = ?)");
+        }
+        Map<Coordinates, byte[]> tiles = new HashMap<>(coordinates.size() * 2);
+        PooledConnection pooled = acquire();
+        long start = System.nanoTime();
+        try (PreparedStatement ps = pooled.connection.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Coordinates c : coordinates) {
+                ps.setInt(index++, c.z());
+                ps.setInt(index++, c.x());
+                ps.setInt(index++, (1 << c.z()) - 1 - c.y());
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int z = rs.getInt(1);
+                    tiles.put(new Coordinates(z, rs.getInt(2), (1 << z) - 1 - rs.getInt(3)), rs.getBytes(4));
+                }
+            }
+        } finally {
+            metersService.trackQuery(layer, System.nanoTime() - start);
+            release(pooled);
+        }
+        return tiles;
+    }
+
+    /**
+     * @return the value of the metadata row {@code name}, or {@code null} when absent.
+     */
+    public String readMetadata(String name) throws SQLException {
+        PooledConnection pooled = acquire();
+        long start = System.nanoTime();
+        try {
+            PreparedStatement ps = pooled.metadataStatement;
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        } finally {
+            metersService.trackQuery(layer, System.nanoTime() - start);
+            release(pooled);
+        }
+    }
+
+    /** Receives the tiles streamed by {@link #forEachTile}. Returning {@code false} stops the scan. */
+    @FunctionalInterface
+    public interface TileVisitor {
+        boolean visit(int z, int x, int tmsRow, byte[] tileData);
+    }
+
+    /**
+     * Stream every tile with {@code zoom_level <= maxZoom}, lowest zooms first, on one pooled connection.
+     */
+    public void forEachTile(int maxZoom, TileVisitor visitor) throws SQLException {
+        PooledConnection pooled = acquire();
+        long start = System.nanoTime();
+        try (
+            PreparedStatement ps = pooled.connection.prepareStatement(
+                "SELECT zoom_level, tile_column, tile_row, tile_data FROM tiles WHERE zoom_level <= ? ORDER BY zoom_level"
+            )
+        ) {
+            ps.setInt(1, maxZoom);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (!visitor.visit(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getBytes(4))) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            metersService.trackQuery(layer, System.nanoTime() - start);
+            release(pooled);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.poll()) != null) {
+            pooled.closeQuietly();
+        }
+    }
+
+    private PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool of " + file + " is closed");
+        }
+        long start = System.nanoTime();
+        PooledConnection pooled;
+        try {
+            pooled = idle.poll(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection to " + file, e);
+        } finally {
+            metersService.trackConnectionWait(layer, System.nanoTime() - start);
+        }
+        if (pooled == null) {
+            throw new SQLTimeoutException("No connection to " + file + " available after " + acquireTimeoutMillis + " ms");
+        }
+        return pooled;
+    }
+
+    private void release(PooledConnection pooled) {
+        if (closed) {
+            pooled.closeQuietly();
+        } else {
+            idle.add(pooled);
+            // close() may have drained the queue between the check and the add
+            if (closed && idle.remove(pooled)) {
+                pooled.closeQuietly();
+            }
+        }
+    }
+
+    private record PooledConnection(Connection connection, PreparedStatement tileStatement, PreparedStatement metadataStatement) {
+        void closeQuietly() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                LOG.debug("Error closing mbtiles connection: {}", e.getMessage());
+            }
+        }
+    }
+}
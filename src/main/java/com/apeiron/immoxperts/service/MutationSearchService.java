@@ -1,6 +1,7 @@
 package com.apeiron.immoxperts.service;
 
 import com.apeiron.immoxperts.service.dto.MutationDTO;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -28,7 +29,7 @@ public interface MutationSearchService {
     );
 
     /**
-     * Refresh the materialized view.
+     * Queue the refresh of the materialized view.
      */
-    void refreshMaterializedView();
+    RefreshJobDTO refreshMaterializedView();
 }
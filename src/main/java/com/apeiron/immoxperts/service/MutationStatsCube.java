@@ -0,0 +1,428 @@
+package com.apeiron.immoxperts.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sale statistics by area, property type and month, in primitive arrays: the count, sum and sum of squares of the price
+ * and of the price per m², and a {@link QuantileSketch} of the price per m², for communes and rolled up to départements
+ * and régions.
+ * <p>
+ * Area codes are dictionary-encoded; each (area, type) series is a run of months with data, stored as running totals.
+ * The sums over any window are the difference of two running totals, found by binary search within the series (at most
+ * one cell per month), so a query costs the same for a village or Paris, one month or ten years. Months without sales
+ * are not stored: most communes sell only a few properties a year, and dense arrays would cost gigabytes. Quantiles
+ * merge the encoded sketches of the cells of the window, a few bytes per distinct price bucket each.
+ * <p>
+ * Months are counted as {@code year * 12 + month - 1}. Instances are immutable; see {@link Builder}.
+ */
+public final class MutationStatsCube {
+
+    public enum Level {
+        COMMUNE,
+        DEPARTEMENT,
+        REGION,
+    }
+
+    /** Property types, as classified by the repository. */
+    public static final List<String> TYPES = List.of(
+        "maison",
+        "appartement",
+        "local_commercial",
+        "dependance",
+        "biens_multiples",
+        "terrain"
+    );
+
+    private static final Map<String, Integer> TYPE_IDS = typeIds();
+
+    /** Sums over the sales of a window. */
+    public record Totals(
+        long count,
+        double sumPrice,
+        double sumPriceSquares,
+        long pricePerSqmCount,
+        double sumPricePerSqm,
+        double sumPricePerSqmSquares
+    ) {
+        public static final Totals EMPTY = new Totals(0, 0, 0, 0, 0, 0);
+
+        public Totals plus(Totals other) {
+            return new Totals(
+                count + other.count,
+                sumPrice + other.sumPrice,
+                sumPriceSquares + other.sumPriceSquares,
+                pricePerSqmCount + other.pricePerSqmCount,
+                sumPricePerSqm + other.sumPricePerSqm,
+                sumPricePerSqmSquares + other.sumPricePerSqmSquares
+            );
+        }
+
+        /** {@code null} without sales. */
+        public Double averagePrice() {
+            return count > 0 ? sumPrice / count : null;
+        }
+
+        /** Population standard deviation; {@code null} without sales. */
+        public Double priceStdDev() {
+            return stdDev(count, sumPrice, sumPriceSquares);
+        }
+
+        public Double averagePricePerSqm() {
+            return pricePerSqmCount > 0 ? sumPricePerSqm / pricePerSqmCount : null;
+        }
+
+        public Double pricePerSqmStdDev() {
+            return stdDev(pricePerSqmCount, sumPricePerSqm, sumPricePerSqmSquares);
+        }
+
+        private static Double stdDev(long n, double sum, double sumSquares) {
+            if (n == 0) {
+                return null;
+            }
+            double mean = sum / n;
+            // Rounding can take the difference slightly below zero when all values are equal
+            return Math.sqrt(Math.max(0, sumSquares / n - mean * mean));
+        }
+    }
+
+    private final Map<Level, Slice> slices;
+    private final int firstMonth;
+    private final int lastMonth;
+
+    private MutationStatsCube(Map<Level, Slice> slices, int firstMonth, int lastMonth) {
+        this.slices = slices;
+        this.firstMonth = firstMonth;
+        this.lastMonth = lastMonth;
+    }
+
+    public static int month(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /** First month with sales; {@code Integer.MAX_VALUE} for an empty cube. */
+    public int getFirstMonth() {
+        return firstMonth;
+    }
+
+    /** Last month with sales; {@code Integer.MIN_VALUE} for an empty cube. */
+    public int getLastMonth() {
+        return lastMonth;
+    }
+
+    public boolean contains(Level level, String code) {
+        return slices.get(level).areaIds.containsKey(code);
+    }
+
+    /** Number of stored (area, type, month) cells over all levels. */
+    public long getCellCount() {
+        return slices.values().stream().mapToLong(slice -> slice.months.length).sum();
+    }
+
+    /**
+     * @param types property types from {@link #TYPES}; all of them when empty.
+     * @param fromMonth first month of the window, inclusive.
+     * @param toMonth last month of the window, inclusive.
+     * @return the sums over the window; {@link Totals#EMPTY} for an unknown area.
+     * @throws IllegalArgumentException for an unknown type.
+     */
+    public Totals totals(Level level, String code, Collection<String> types, int fromMonth, int toMonth) {
+        Slice slice = slices.get(level);
+        Integer area = slice.areaIds.get(code);
+        if (area == null || fromMonth > toMonth) {
+            return Totals.EMPTY;
+        }
+        Totals totals = Totals.EMPTY;
+        for (String type : types.isEmpty() ? TYPES : types) {
+            Integer typeId = TYPE_IDS.get(type);
+            if (typeId == null) {
+                throw new IllegalArgumentException("Unknown property type " + type);
+            }
+            totals = totals.plus(slice.totals(area * TYPES.size() + typeId, fromMonth, toMonth));
+        }
+        return totals;
+    }
+
+    /**
+     * Sketch of the price per m² over a window, for medians and percentiles.
+     *
+     * @see #totals(Level, String, Collection, int, int)
+     */
+    public QuantileSketch pricePerSqmSketch(Level level, String code, Collection<String> types, int fromMonth, int toMonth) {
+        Slice slice = slices.get(level);
+        Integer area = slice.areaIds.get(code);
+        QuantileSketch.Merger merger = new QuantileSketch.Merger();
+        if (area == null || fromMonth > toMonth) {
+            return merger.toSketch();
+        }
+        for (String type : types.isEmpty() ? TYPES : types) {
+            Integer typeId = TYPE_IDS.get(type);
+            if (typeId == null) {
+                throw new IllegalArgumentException("Unknown property type " + type);
+            }
+            slice.mergeSketches(area * TYPES.size() + typeId, fromMonth, toMonth, merger);
+        }
+        return merger.toSketch();
+    }
+
+    private static Map<String, Integer> typeIds() {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < TYPES.size(); i++) {
+            ids.put(TYPES.get(i), i);
+        }
+        return Map.copyOf(ids);
+    }
+
+    /** The series of one level; series {@code s} holds cells {@code from[s]} (inclusive) to {@code to[s]} (exclusive). */
+    private static final class Slice {
+
+        private final Map<String, Integer> areaIds;
+        private final int[] from;
+        private final int[] to;
+        private final int[] months;
+        // Running totals, restarting at the first cell of each series
+        private final int[] count;
+        private final double[] price;
+        private final double[] priceSquares;
+        private final int[] pricePerSqmCount;
+        private final double[] pricePerSqm;
+        private final double[] pricePerSqmSquares;
+        // Encoded sketches, cell i in [sketchEnd[i - 1], sketchEnd[i])
+        private final byte[] sketches;
+        private final int[] sketchEnd;
+
+        private Slice(SliceBuilder builder) {
+            int series = builder.areaIds.size() * TYPES.size();
+            int size = builder.size;
+            this.areaIds = Map.copyOf(builder.areaIds);
+            this.from = Arrays.copyOf(builder.from, series);
+            this.to = Arrays.copyOf(builder.to, series);
+            this.months = Arrays.copyOf(builder.months, size);
+            this.count = Arrays.copyOf(builder.count, size);
+            this.price = Arrays.copyOf(builder.price, size);
+            this.priceSquares = Arrays.copyOf(builder.priceSquares, size);
+            this.pricePerSqmCount = Arrays.copyOf(builder.pricePerSqmCount, size);
+            this.pricePerSqm = Arrays.copyOf(builder.pricePerSqm, size);
+            this.pricePerSqmSquares = Arrays.copyOf(builder.pricePerSqmSquares, size);
+            this.sketches = builder.sketches.toByteArray();
+            this.sketchEnd = Arrays.copyOf(builder.sketchEnd, size);
+        }
+
+        Totals totals(int series, int fromMonth, int toMonth) {
+            int first = from[series];
+            // Last cell of the window, and last cell before it
+            int last = lastAtOrBefore(first, to[series], toMonth);
+            int before = lastAtOrBefore(first, to[series], fromMonth - 1);
+            if (last < first || last == before) {
+                return Totals.EMPTY;
+            }
+            if (before < first) {
+                return new Totals(
+                    count[last],
+                    price[last],
+                    priceSquares[last],
+                    pricePerSqmCount[last],
+                    pricePerSqm[last],
+                    pricePerSqmSquares[last]
+                );
+            }
+            return new Totals(
+                count[last] - count[before],
+                price[last] - price[before],
+                priceSquares[last] - priceSquares[before],
+                pricePerSqmCount[last] - pricePerSqmCount[before],
+                pricePerSqm[last] - pricePerSqm[before],
+                pricePerSqmSquares[last] - pricePerSqmSquares[before]
+            );
+        }
+
+        void mergeSketches(int series, int fromMonth, int toMonth, QuantileSketch.Merger merger) {
+            int first = from[series];
+            int last = lastAtOrBefore(first, to[series], toMonth);
+            for (int i = Math.max(first, lastAtOrBefore(first, to[series], fromMonth - 1) + 1); i <= last; i++) {
+                merger.add(sketches, i == 0 ? 0 : sketchEnd[i - 1], sketchEnd[i]);
+            }
+        }
+
+        /** Index of the last cell in [first, end) with a month not after {@code month}; {@code first - 1} if none. */
+        private int lastAtOrBefore(int first, int end, int month) {
+            int low = first;
+            int high = end;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (months[mid] <= month) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low - 1;
+        }
+    }
+
+    /**
+     * Builds a cube from commune aggregates, which must arrive grouped by commune and type, in ascending month order
+     * within each group (the order of the repository query). Départements, régions and the cities split into
+     * arrondissements (Paris, Lyon, Marseille) are summed on the way.
+     */
+    public static final class Builder {
+
+        private final Map<Level, SliceBuilder> slices = new EnumMap<>(Level.class);
+        private final Map<Level, Map<String, TreeMap<Integer, RollupCell>>> rollups = new EnumMap<>(Level.class);
+        private int firstMonth = Integer.MAX_VALUE;
+        private int lastMonth = Integer.MIN_VALUE;
+
+        public Builder() {
+            for (Level level : Level.values()) {
+                slices.put(level, new SliceBuilder());
+                rollups.put(level, new HashMap<>());
+            }
+        }
+
+        /**
+         * @throws IllegalArgumentException for an unknown type or out of order input.
+         */
+        public Builder add(
+            String commune,
+            String type,
+            int month,
+            int count,
+            double sumPrice,
+            double sumPriceSquares,
+            int pricePerSqmCount,
+            double sumPricePerSqm,
+            double sumPricePerSqmSquares,
+            double[] pricesPerSqm
+        ) {
+            Integer typeId = TYPE_IDS.get(type);
+            if (typeId == null) {
+                throw new IllegalArgumentException("Unknown property type " + type);
+            }
+            double[] values = { count, sumPrice, sumPriceSquares, pricePerSqmCount, sumPricePerSqm, sumPricePerSqmSquares };
+            QuantileSketch sketch = QuantileSketch.of(pricesPerSqm);
+            slices.get(Level.COMMUNE).append(commune, typeId, month, values, sketch);
+            String city = InseeCodes.cityOfArrondissement(commune);
+            if (city != null) {
+                rollUp(Level.COMMUNE, city, typeId, month, values, sketch);
+            }
+            String departement = InseeCodes.departementOf(commune);
+            rollUp(Level.DEPARTEMENT, departement, typeId, month, values, sketch);
+            String region = InseeCodes.regionOf(departement);
+            if (region != null) {
+                rollUp(Level.REGION, region, typeId, month, values, sketch);
+            }
+            firstMonth = Math.min(firstMonth, month);
+            lastMonth = Math.max(lastMonth, month);
+            return this;
+        }
+
+        public MutationStatsCube build() {
+            Map<Level, Slice> built = new EnumMap<>(Level.class);
+            for (Level level : Level.values()) {
+                SliceBuilder slice = slices.get(level);
+                rollups
+                    .get(level)
+                    .forEach((key, cells) -> {
+                        int separator = key.lastIndexOf('|');
+                        String code = key.substring(0, separator);
+                        int typeId = Integer.parseInt(key.substring(separator + 1));
+                        // A city reported as a whole keeps its own figures rather than the sum of its arrondissements
+                        if (!slice.hasSeries(code, typeId)) {
+                            cells.forEach((month, cell) -> slice.append(code, typeId, month, cell.sums, cell.sketch.toSketch()));
+                        }
+                    });
+                built.put(level, new Slice(slice));
+            }
+            return new MutationStatsCube(built, firstMonth, lastMonth);
+        }
+
+        private void rollUp(Level level, String code, int typeId, int month, double[] values, QuantileSketch sketch) {
+            RollupCell cell = rollups
+                .get(level)
+                .computeIfAbsent(code + "|" + typeId, k -> new TreeMap<>())
+                .computeIfAbsent(month, k -> new RollupCell(new double[values.length], new QuantileSketch.Merger()));
+            for (int i = 0; i < values.length; i++) {
+                cell.sums[i] += values[i];
+            }
+            cell.sketch.add(sketch);
+        }
+
+        private record RollupCell(double[] sums, QuantileSketch.Merger sketch) {}
+    }
+
+    /** Growable arrays of one level; series are appended one after the other, months ascending. */
+    private static final class SliceBuilder {
+
+        private final Map<String, Integer> areaIds = new HashMap<>();
+        private int[] from = new int[TYPES.size() * 64];
+        private int[] to = new int[TYPES.size() * 64];
+        private int currentSeries = -1;
+        private int size;
+        private int[] months = new int[1024];
+        private int[] count = new int[1024];
+        private double[] price = new double[1024];
+        private double[] priceSquares = new double[1024];
+        private int[] pricePerSqmCount = new int[1024];
+        private double[] pricePerSqm = new double[1024];
+        private double[] pricePerSqmSquares = new double[1024];
+        private final ByteArrayOutputStream sketches = new ByteArrayOutputStream();
+        private int[] sketchEnd = new int[1024];
+
+        boolean hasSeries(String code, int typeId) {
+            Integer area = areaIds.get(code);
+            return area != null && to[area * TYPES.size() + typeId] != 0;
+        }
+
+        void append(String code, int typeId, int month, double[] values, QuantileSketch sketch) {
+            int area = areaIds.computeIfAbsent(code, k -> areaIds.size());
+            int series = area * TYPES.size() + typeId;
+            if (series >= from.length) {
+                int length = Math.max(series + 1, from.length * 2);
+                from = Arrays.copyOf(from, length);
+                to = Arrays.copyOf(to, length);
+            }
+            boolean first = series != currentSeries;
+            if (first) {
+                if (to[series] != 0) {
+                    throw new IllegalArgumentException("Aggregates of " + code + "/" + TYPES.get(typeId) + " are not contiguous");
+                }
+                from[series] = size;
+                currentSeries = series;
+            } else if (month <= months[size - 1]) {
+                throw new IllegalArgumentException("Months of " + code + "/" + TYPES.get(typeId) + " are not ascending");
+            }
+            if (size == months.length) {
+                grow();
+            }
+            months[size] = month;
+            count[size] = (first ? 0 : count[size - 1]) + (int) values[0];
+            price[size] = (first ? 0 : price[size - 1]) + values[1];
+            priceSquares[size] = (first ? 0 : priceSquares[size - 1]) + values[2];
+            pricePerSqmCount[size] = (first ? 0 : pricePerSqmCount[size - 1]) + (int) values[3];
+            pricePerSqm[size] = (first ? 0 : pricePerSqm[size - 1]) + values[4];
+            pricePerSqmSquares[size] = (first ? 0 : pricePerSqmSquares[size - 1]) + values[5];
+            sketch.writeTo(sketches);
+            sketchEnd[size] = sketches.size();
+            size++;
+            to[series] = size;
+        }
+
+        private void grow() {
+            int length = months.length * 2;
+            months = Arrays.copyOf(months, length);
+            count = Arrays.copyOf(count, length);
+            price = Arrays.copyOf(price, length);
+            priceSquares = Arrays.copyOf(priceSquares, length);
+            pricePerSqmCount = Arrays.copyOf(pricePerSqmCount, length);
+            pricePerSqm = Arrays.copyOf(pricePerSqm, length);
+            pricePerSqmSquares = Arrays.copyOf(pricePerSqmSquares, length);
+            sketchEnd = Arrays.copyOf(sketchEnd, length);
+        }
+    }
+}
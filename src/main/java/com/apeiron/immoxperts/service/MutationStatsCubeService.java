@@ -0,0 +1,234 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.config.AsyncConfiguration;
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+import com.apeiron.immoxperts.repository.MutationStatsCubeRepository;
+import com.apeiron.immoxperts.service.dto.PriceIndexDTO;
+import com.apeiron.immoxperts.service.dto.PriceQuantilesDTO;
+import com.apeiron.immoxperts.service.dto.StatsWindowDTO;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Holds the {@link MutationStatsCube} built from the DVF sales, and answers statistics over arbitrary windows of months,
+ * property types and areas from it without touching the database.
+ * <p>
+ * The cube is built in the background once the application is ready, then rebuilt every
+ * {@code mutation.stats.cube.refresh-interval} and after each refresh of parcelle_adresse_mutation_mv_2025; the previous
+ * one keeps answering meanwhile. Builds run on the {@link AsyncConfiguration#BUILD_EXECUTOR} threads.
+ */
+@Service
+public class MutationStatsCubeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MutationStatsCubeService.class);
+
+    private final MutationStatsCubeRepository mutationStatsCubeRepository;
+    private volatile MutationStatsCube cube;
+
+    public MutationStatsCubeService(MutationStatsCubeRepository mutationStatsCubeRepository) {
+        this.mutationStatsCubeRepository = mutationStatsCubeRepository;
+    }
+
+    /** Whether the first build is done. */
+    public boolean isReady() {
+        return cube != null;
+    }
+
+    /** The current cube, {@code null} until the first build is done. */
+    public MutationStatsCube getCube() {
+        return cube;
+    }
+
+    /**
+     * @param types property types from {@link MutationStatsCube#TYPES}; all of them when empty.
+     * @param from first month, inclusive; the first month with sales when {@code null}.
+     * @param to last month, inclusive; the last month with sales when {@code null}.
+     * @return the statistics, empty when the cube is not built yet or does not know the area.
+     * @throws IllegalArgumentException for an unknown type.
+     */
+    public Optional<StatsWindowDTO> getStats(
+        MutationStatsCube.Level level,
+        String code,
+        Collection<String> types,
+        YearMonth from,
+        YearMonth to
+    ) {
+        MutationStatsCube current = cube;
+        if (current == null || !current.contains(level, code)) {
+            return Optional.empty();
+        }
+        int fromMonth = from != null ? MutationStatsCube.month(from.getYear(), from.getMonthValue()) : current.getFirstMonth();
+        int toMonth = to != null ? MutationStatsCube.month(to.getYear(), to.getMonthValue()) : current.getLastMonth();
+        MutationStatsCube.Totals totals = current.totals(level, code, types, fromMonth, toMonth);
+        QuantileSketch pricesPerSqm = current.pricePerSqmSketch(level, code, types, fromMonth, toMonth);
+        return Optional.of(
+            new StatsWindowDTO(
+                level.name().toLowerCase(Locale.ROOT),
+                code,
+                yearMonth(fromMonth),
+                yearMonth(toMonth),
+                types.isEmpty() ? MutationStatsCube.TYPES : List.copyOf(types),
+                totals.count(),
+                round(totals.averagePrice()),
+                round(totals.priceStdDev()),
+                totals.pricePerSqmCount(),
+                round(totals.averagePricePerSqm()),
+                round(totals.pricePerSqmStdDev()),
+                quantiles(pricesPerSqm)
+            )
+        );
+    }
+
+    /**
+     * Monthly sales and median price per m² of an area, each month also over the {@code smoothing} months ending with
+     * it (reaching before {@code from} for the first months). Months before the first or after the last sale in the
+     * cube are left out.
+     *
+     * @param smoothing length of the rolling window in months, at least 1.
+     * @return the series, empty when the cube is not built yet or does not know the area.
+     * @throws IllegalArgumentException for an unknown type.
+     * @see #getStats(MutationStatsCube.Level, String, Collection, YearMonth, YearMonth)
+     */
+    public Optional<PriceIndexDTO> getPriceIndex(
+        MutationStatsCube.Level level,
+        String code,
+        Collection<String> types,
+        YearMonth from,
+        YearMonth to,
+        int smoothing
+    ) {
+        MutationStatsCube current = cube;
+        if (current == null || !current.contains(level, code)) {
+            return Optional.empty();
+        }
+        int fromMonth = from != null ? MutationStatsCube.month(from.getYear(), from.getMonthValue()) : current.getFirstMonth();
+        int toMonth = to != null ? MutationStatsCube.month(to.getYear(), to.getMonthValue()) : current.getLastMonth();
+        // Within the months with sales; each month once, then the rolling windows from the monthly counts and sketches
+        fromMonth = Math.max(fromMonth, current.getFirstMonth());
+        toMonth = Math.min(toMonth, current.getLastMonth());
+        int first = fromMonth - smoothing + 1;
+        int months = Math.max(0, toMonth - first + 1);
+        long[] counts = new long[months];
+        QuantileSketch[] sketches = new QuantileSketch[months];
+        for (int i = 0; i < months; i++) {
+            counts[i] = current.totals(level, code, types, first + i, first + i).count();
+            sketches[i] = current.pricePerSqmSketch(level, code, types, first + i, first + i);
+        }
+        List<PriceIndexDTO.Point> points = new ArrayList<>(Math.max(0, toMonth - fromMonth + 1));
+        Double base = null;
+        for (int i = smoothing - 1; i < months; i++) {
+            long smoothedCount = 0;
+            QuantileSketch.Merger window = new QuantileSketch.Merger();
+            for (int j = i - smoothing + 1; j <= i; j++) {
+                smoothedCount += counts[j];
+                window.add(sketches[j]);
+            }
+            Long smoothedMedian = median(window.toSketch());
+            if (base == null && smoothedMedian != null) {
+                base = smoothedMedian.doubleValue();
+            }
+            Double index = smoothedMedian != null ? Math.round(smoothedMedian * 1000 / base) / 10.0 : null;
+            points.add(
+                new PriceIndexDTO.Point(yearMonth(first + i), counts[i], median(sketches[i]), smoothedCount, smoothedMedian, index)
+            );
+        }
+        return Optional.of(
+            new PriceIndexDTO(
+                level.name().toLowerCase(Locale.ROOT),
+                code,
+                types.isEmpty() ? MutationStatsCube.TYPES : List.copyOf(types),
+                smoothing,
+                points
+            )
+        );
+    }
+
+    private static Long median(QuantileSketch sketch) {
+        return sketch.getCount() > 0 ? Math.round(sketch.quantile(0.5)) : null;
+    }
+
+    static PriceQuantilesDTO quantiles(QuantileSketch sketch) {
+        if (sketch.getCount() == 0) {
+            return new PriceQuantilesDTO(null, null, null, null, null);
+        }
+        return new PriceQuantilesDTO(
+            Math.round(sketch.quantile(0.10)),
+            Math.round(sketch.quantile(0.25)),
+            Math.round(sketch.quantile(0.50)),
+            Math.round(sketch.quantile(0.75)),
+            Math.round(sketch.quantile(0.90))
+        );
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /** New DVF sales land in the base tables together with a refresh of the view built on them. */
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener
+    public void onViewRefreshed(MaterializedViewRefreshedEvent event) {
+        if (event.view() == MaterializedView.PARCELLE_ADRESSE_MUTATION) {
+            rebuild();
+        }
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @Scheduled(
+        initialDelayString = "${mutation.stats.cube.refresh-interval:PT24H}",
+        fixedDelayString = "${mutation.stats.cube.refresh-interval:PT24H}"
+    )
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        MutationStatsCube.Builder builder = new MutationStatsCube.Builder();
+        try {
+            mutationStatsCubeRepository.forEachMonthlyAggregate(a ->
+                builder.add(
+                    a.codeInsee(),
+                    a.typeBien(),
+                    MutationStatsCube.month(a.year(), a.month()),
+                    a.count(),
+                    a.sumPrice(),
+                    a.sumPriceSquares(),
+                    a.pricePerSqmCount(),
+                    a.sumPricePerSqm(),
+                    a.sumPricePerSqmSquares(),
+                    a.pricesPerSqm()
+                )
+            );
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot build the mutation statistics cube, keeping the current one: {}", e.getMessage());
+            return;
+        }
+        MutationStatsCube built = builder.build();
+        cube = built;
+        LOG.info(
+            "Built the mutation statistics cube: {} cells from {} to {} in {} ms",
+            built.getCellCount(),
+            yearMonth(built.getFirstMonth()),
+            yearMonth(built.getLastMonth()),
+            (System.nanoTime() - start) / 1_000_000
+        );
+    }
+
+    private static YearMonth yearMonth(int month) {
+        return month == Integer.MAX_VALUE || month == Integer.MIN_VALUE ? null : YearMonth.of(month / 12, month % 12 + 1);
+    }
+
+    private static Long round(Double value) {
+        return value != null ? Math.round(value) : null;
+    }
+}
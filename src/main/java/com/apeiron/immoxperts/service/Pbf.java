@@ -0,0 +1,103 @@
+package com.apeiron.immoxperts.service;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Just enough protobuf to rewrite vector tiles in place: a bounds-checked reader over a byte range and the few writers
+ * {@link VectorTileClipper} and {@link VectorTilePropertyMerger} need. Unknown fields can be copied through untouched.
+ * {@link QuantileSketch} encodes its buckets with the same varints.
+ */
+final class Pbf {
+
+    static final int WIRE_VARINT = 0;
+    static final int WIRE_FIXED64 = 1;
+    static final int WIRE_LENGTH_DELIMITED = 2;
+    static final int WIRE_FIXED32 = 5;
+
+    private Pbf() {}
+
+    static int field(long key) {
+        return (int) (key >>> 3);
+    }
+
+    static int wireType(long key) {
+        return (int) (key & 7);
+    }
+
+    static void writeKey(ByteArrayOutputStream out, int field, int wireType) {
+        writeVarint(out, ((long) field << 3) | wireType);
+    }
+
+    static void writeBytesField(ByteArrayOutputStream out, int field, byte[] bytes) {
+        writeKey(out, field, WIRE_LENGTH_DELIMITED);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /** Reads the fields of one message, {@code buffer[from, to)}; throws IllegalArgumentException on malformed input. */
+    static final class Reader {
+
+        final byte[] buffer;
+        final int limit;
+        int pos;
+
+        Reader(byte[] buffer, int from, int to) {
+            this.buffer = buffer;
+            this.pos = from;
+            this.limit = to;
+        }
+
+        boolean hasMore() {
+            return pos < limit;
+        }
+
+        long varint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= limit) {
+                    throw new IllegalArgumentException("Truncated varint");
+                }
+                byte b = buffer[pos++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /** Length prefix of a length-delimited field, checked against the bytes left. */
+        int length() {
+            long length = varint();
+            if (length < 0 || length > limit - pos) {
+                throw new IllegalArgumentException("Truncated field");
+            }
+            return (int) length;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case WIRE_VARINT -> varint();
+                case WIRE_FIXED64 -> advance(8);
+                case WIRE_LENGTH_DELIMITED -> advance(length());
+                case WIRE_FIXED32 -> advance(4);
+                default -> throw new IllegalArgumentException("Unsupported wire type " + wireType);
+            }
+        }
+
+        void advance(int n) {
+            if (n > limit - pos) {
+                throw new IllegalArgumentException("Truncated field");
+            }
+            pos += n;
+        }
+    }
+}
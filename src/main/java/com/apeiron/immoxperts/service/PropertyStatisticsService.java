@@ -1,10 +1,13 @@
 package com.apeiron.immoxperts.service;
 
 import com.apeiron.immoxperts.service.dto.PropertyStatisticsDTO;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
 import java.util.List;
 
 public interface PropertyStatisticsService {
     List<PropertyStatisticsDTO> getPropertyStatisticsByCommune(String commune);
     List<PropertyStatisticsDTO> getAllPropertyStatisticsByCommune(String commune);
-    void refreshPropertyStatistics();
+
+    /** Queue the refresh of property_statistics_mv and commune_mutation_stats_mv. */
+    RefreshJobDTO refreshPropertyStatistics();
 }
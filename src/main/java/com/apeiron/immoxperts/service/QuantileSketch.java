@@ -0,0 +1,192 @@
+package com.apeiron.immoxperts.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch of positive values (prices, prices per m²) with a relative error guarantee, after the
+ * DDSketch scheme: values are counted in logarithmic buckets of ratio {@code (1 + a) / (1 - a)}, so any quantile is
+ * returned within {@value #RELATIVE_ACCURACY} (1%) of the value of that rank, however skewed the data.
+ * <p>
+ * Merging adds bucket counts: it is exact, in any order, which lets sketches kept per commune, type and month be
+ * combined on demand for any window or area. Non-positive values are ignored.
+ * <p>
+ * The encoded form ({@link #toBytes()}) is a varint count of buckets followed by, for each bucket in ascending order,
+ * its zigzag-encoded index delta and its count: a few bytes per distinct bucket. {@link Merger} reads it in place.
+ */
+public final class QuantileSketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private static final QuantileSketch EMPTY = new QuantileSketch(new int[0], new int[0], 0);
+
+    private final int[] indexes;
+    private final int[] counts;
+    private final long count;
+
+    private QuantileSketch(int[] indexes, int[] counts, long count) {
+        this.indexes = indexes;
+        this.counts = counts;
+        this.count = count;
+    }
+
+    public static QuantileSketch of(double... values) {
+        Merger merger = new Merger();
+        for (double value : values) {
+            merger.add(value);
+        }
+        return merger.toSketch();
+    }
+
+    /**
+     * @throws IllegalArgumentException when {@code data[from, to)} is not an encoded sketch.
+     */
+    public static QuantileSketch fromBytes(byte[] data, int from, int to) {
+        return new Merger().add(data, from, to).toSketch();
+    }
+
+    public static QuantileSketch fromBytes(byte[] data) {
+        return fromBytes(data, 0, data.length);
+    }
+
+    /** Number of values counted. */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param q rank between 0 (minimum) and 1 (maximum), e.g. 0.5 for the median.
+     * @return the value at that rank, within the relative accuracy; {@code NaN} for an empty sketch.
+     */
+    public double quantile(double q) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double rank = Math.max(0, Math.min(1, q)) * (count - 1);
+        long seen = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            seen += counts[i];
+            if (seen > rank) {
+                return value(indexes[i]);
+            }
+        }
+        return value(indexes[indexes.length - 1]);
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1 + indexes.length * 3);
+        writeTo(out);
+        return out.toByteArray();
+    }
+
+    public void writeTo(ByteArrayOutputStream out) {
+        Pbf.writeVarint(out, indexes.length);
+        int previous = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            int delta = indexes[i] - previous;
+            Pbf.writeVarint(out, (delta << 1) ^ (delta >> 31));
+            Pbf.writeVarint(out, counts[i]);
+            previous = indexes[i];
+        }
+    }
+
+    /** Bucket of {@code value}: the values in {@code (gamma^(i-1), gamma^i]}. */
+    static int index(double value) {
+        return (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    }
+
+    /** The value reported for bucket {@code i}, equally far (relatively) from both bounds. */
+    static double value(int index) {
+        return (2 * Math.pow(GAMMA, index)) / (GAMMA + 1);
+    }
+
+    /** Adds values and sketches into dense bucket counts, grown to the range of buckets seen. */
+    public static final class Merger {
+
+        private int[] counts = new int[0];
+        private int offset;
+        private long count;
+
+        public Merger add(double value) {
+            if (value > 0 && Double.isFinite(value)) {
+                increment(index(value), 1);
+            }
+            return this;
+        }
+
+        public Merger add(QuantileSketch sketch) {
+            for (int i = 0; i < sketch.indexes.length; i++) {
+                increment(sketch.indexes[i], sketch.counts[i]);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the sketch encoded in {@code data[from, to)} without decoding it first.
+         *
+         * @throws IllegalArgumentException when the bytes are not an encoded sketch.
+         */
+        public Merger add(byte[] data, int from, int to) {
+            Pbf.Reader reader = new Pbf.Reader(data, from, to);
+            long buckets = reader.varint();
+            int index = 0;
+            for (long i = 0; i < buckets; i++) {
+                long zigzag = reader.varint();
+                index += (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+                long bucketCount = reader.varint();
+                if (bucketCount > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Invalid bucket count " + bucketCount);
+                }
+                increment(index, (int) bucketCount);
+            }
+            return this;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public QuantileSketch toSketch() {
+            if (count == 0) {
+                return EMPTY;
+            }
+            int buckets = 0;
+            for (int c : counts) {
+                buckets += c > 0 ? 1 : 0;
+            }
+            int[] indexes = new int[buckets];
+            int[] bucketCounts = new int[buckets];
+            int j = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    indexes[j] = offset + i;
+                    bucketCounts[j++] = counts[i];
+                }
+            }
+            return new QuantileSketch(indexes, bucketCounts, count);
+        }
+
+        private void increment(int index, int n) {
+            if (n <= 0) {
+                return;
+            }
+            if (counts.length == 0) {
+                counts = new int[16];
+                offset = index - 8;
+            } else if (index < offset) {
+                int grow = Math.max(offset - index, counts.length / 2);
+                int[] grown = new int[counts.length + grow];
+                System.arraycopy(counts, 0, grown, grow, counts.length);
+                counts = grown;
+                offset -= grow;
+            } else if (index >= offset + counts.length) {
+                counts = Arrays.copyOf(counts, Math.max(index - offset + 1, counts.length + counts.length / 2));
+            }
+            counts[index - offset] += n;
+            count += n;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.apeiron.immoxperts.service;
+
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Quarterly repeat-sales price index: how the price of the same property moved between quarters, 100 at the first
+ * quarter. Unlike averages per period, it is not moved by which properties happened to sell in each period.
+ * <p>
+ * Fitted as in Case–Shiller: the log price ratio of each pair of sales of one property is regressed on quarter
+ * dummies (−1 at the first sale, +1 at the second), then refitted with each pair weighted by the inverse of the
+ * variance expected for its holding period, longer holds being noisier. A light penalty on the change between
+ * consecutive quarters keeps quarters without pairs at the level of their neighbours.
+ */
+public final class RepeatSalesIndex {
+
+    private final int firstQuarter;
+    private final double[] values;
+    private final int[] pairs;
+
+    private RepeatSalesIndex(int firstQuarter, double[] values, int[] pairs) {
+        this.firstQuarter = firstQuarter;
+        this.values = values;
+        this.pairs = pairs;
+    }
+
+    /**
+     * @param firstQuarter quarter of {@code values[0]}, see {@link #quarter(YearMonth)}.
+     * @param pairs number of sales of pairs falling in each quarter.
+     */
+    public static RepeatSalesIndex of(int firstQuarter, double[] values, int[] pairs) {
+        if (values.length == 0 || values.length != pairs.length) {
+            throw new IllegalArgumentException("Expected as many pair counts as index values");
+        }
+        return new RepeatSalesIndex(firstQuarter, values.clone(), pairs.clone());
+    }
+
+    /**
+     * Quarters are numbered from year 0: {@code year * 4 + (month - 1) / 3}.
+     */
+    public static int quarter(YearMonth month) {
+        return month.getYear() * 4 + (month.getMonthValue() - 1) / 3;
+    }
+
+    /** First month of {@code quarter}. */
+    public static YearMonth firstMonth(int quarter) {
+        return YearMonth.of(Math.floorDiv(quarter, 4), Math.floorMod(quarter, 4) * 3 + 1);
+    }
+
+    /**
+     * Fits the index of pairs of sales of the same properties, the first sale of each pair in month
+     * {@code firstMonths[i]} (a {@link YearMonth}) at {@code firstPrices[i]}, the second at {@code secondMonths[i]},
+     * {@code secondPrices[i]}. Pairs within one quarter or without a positive price carry no information and are left out.
+     *
+     * @param smoothing weight of the penalty on quarter-to-quarter changes, in pairs.
+     * @return the index, or {@code null} without pairs spanning two quarters.
+     */
+    public static RepeatSalesIndex fit(
+        YearMonth[] firstMonths,
+        double[] firstPrices,
+        YearMonth[] secondMonths,
+        double[] secondPrices,
+        double smoothing
+    ) {
+        int n = firstMonths.length;
+        int[] from = new int[n];
+        int[] to = new int[n];
+        double[] logRatios = new double[n];
+        int m = 0;
+        int minQuarter = Integer.MAX_VALUE;
+        int maxQuarter = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int q1 = quarter(firstMonths[i]);
+            int q2 = quarter(secondMonths[i]);
+            if (q1 >= q2 || !(firstPrices[i] > 0) || !(secondPrices[i] > 0)) {
+                continue;
+            }
+            from[m] = q1;
+            to[m] = q2;
+            logRatios[m++] = Math.log(secondPrices[i] / firstPrices[i]);
+            minQuarter = Math.min(minQuarter, q1);
+            maxQuarter = Math.max(maxQuarter, q2);
+        }
+        if (m == 0) {
+            return null;
+        }
+        int periods = maxQuarter - minQuarter + 1;
+        for (int i = 0; i < m; i++) {
+            from[i] -= minQuarter;
+            to[i] -= minQuarter;
+        }
+
+        double[] logIndex = solve(periods, from, to, logRatios, null, m, smoothing);
+
+        // Second stage: squared residuals against the holding period give the variance of each pair
+        double[] weights = holdingPeriodWeights(from, to, logRatios, logIndex, m);
+        if (weights != null) {
+            logIndex = solve(periods, from, to, logRatios, weights, m, smoothing);
+        }
+
+        double[] values = new double[periods];
+        int[] pairs = new int[periods];
+        for (int k = 0; k < periods; k++) {
+            values[k] = 100 * Math.exp(logIndex[k]);
+        }
+        for (int i = 0; i < m; i++) {
+            pairs[from[i]]++;
+            pairs[to[i]]++;
+        }
+        return new RepeatSalesIndex(minQuarter, values, pairs);
+    }
+
+    /**
+     * Weighted least squares of {@code logRatios[i] ≈ β[to[i]] − β[from[i]]} with β[0] = 0, plus {@code smoothing}
+     * (scaled to the mean weight) times the sum of squared consecutive differences, by Cholesky on the normal
+     * equations. The penalty ties every quarter to the first one, so the system is always positive definite.
+     */
+    private static double[] solve(int periods, int[] from, int[] to, double[] logRatios, double[] weights, int m, double smoothing) {
+        int size = periods - 1;
+        double[][] a = new double[size][size];
+        double[] b = new double[size];
+        double totalWeight = 0;
+        for (int i = 0; i < m; i++) {
+            double w = weights != null ? weights[i] : 1;
+            totalWeight += w;
+            int s = from[i] - 1;
+            int t = to[i] - 1;
+            a[t][t] += w;
+            b[t] += w * logRatios[i];
+            if (s >= 0) {
+                a[s][s] += w;
+                a[s][t] -= w;
+                a[t][s] -= w;
+                b[s] -= w * logRatios[i];
+            }
+        }
+        double lambda = Math.max(smoothing, 1e-6) * (totalWeight / m);
+        for (int k = 0; k < size; k++) {
+            a[k][k] += lambda;
+            if (k > 0) {
+                a[k - 1][k - 1] += lambda;
+                a[k][k - 1] -= lambda;
+                a[k - 1][k] -= lambda;
+            }
+        }
+
+        // a = L L^T, in place in the lower triangle
+        for (int j = 0; j < size; j++) {
+            double d = a[j][j];
+            for (int k = 0; k < j; k++) {
+                d -= a[j][k] * a[j][k];
+            }
+            a[j][j] = Math.sqrt(d);
+            for (int i = j + 1; i < size; i++) {
+                double v = a[i][j];
+                for (int k = 0; k < j; k++) {
+                    v -= a[i][k] * a[j][k];
+                }
+                a[i][j] = v / a[j][j];
+            }
+        }
+        double[] z = new double[size];
+        for (int i = 0; i < size; i++) {
+            double v = b[i];
+            for (int k = 0; k < i; k++) {
+                v -= a[i][k] * z[k];
+            }
+            z[i] = v / a[i][i];
+        }
+        double[] beta = new double[periods];
+        for (int i = size - 1; i >= 0; i--) {
+            double v = z[i];
+            for (int k = i + 1; k < size; k++) {
+                v -= a[k][i] * beta[k + 1];
+            }
+            beta[i + 1] = v / a[i][i];
+        }
+        return beta;
+    }
+
+    /** Inverse of the variance fitted as {@code α + β × quarters held}; {@code null} when it does not grow with the hold. */
+    private static double[] holdingPeriodWeights(int[] from, int[] to, double[] logRatios, double[] logIndex, int m) {
+        if (m < 10) {
+            return null;
+        }
+        double sumGap = 0;
+        double sumGap2 = 0;
+        double sumE2 = 0;
+        double sumGapE2 = 0;
+        double[] e2 = new double[m];
+        for (int i = 0; i < m; i++) {
+            double residual = logRatios[i] - (logIndex[to[i]] - logIndex[from[i]]);
+            int gap = to[i] - from[i];
+            e2[i] = residual * residual;
+            sumGap += gap;
+            sumGap2 += (double) gap * gap;
+            sumE2 += e2[i];
+            sumGapE2 += gap * e2[i];
+        }
+        double denominator = m * sumGap2 - sumGap * sumGap;
+        if (denominator <= 0) {
+            return null;
+        }
+        double slope = (m * sumGapE2 - sumGap * sumE2) / denominator;
+        double intercept = (sumE2 - slope * sumGap) / m;
+        if (!(slope > 0)) {
+            return null;
+        }
+        double floor = Math.max(sumE2 / m * 0.05, 1e-9);
+        double[] weights = new double[m];
+        for (int i = 0; i < m; i++) {
+            weights[i] = 1 / Math.max(intercept + slope * (to[i] - from[i]), floor);
+        }
+        return weights;
+    }
+
+    public int getFirstQuarter() {
+        return firstQuarter;
+    }
+
+    public int getLastQuarter() {
+        return firstQuarter + values.length - 1;
+    }
+
+    /** Index of {@code quarter}, {@code NaN} outside the quarters fitted. */
+    public double value(int quarter) {
+        int k = quarter - firstQuarter;
+        return k >= 0 && k < values.length ? values[k] : Double.NaN;
+    }
+
+    /** Number of sales of pairs falling in {@code quarter}. */
+    public int pairs(int quarter) {
+        int k = quarter - firstQuarter;
+        return k >= 0 && k < pairs.length ? pairs[k] : 0;
+    }
+
+    /**
+     * @return {@code price} paid in {@code month} carried to the last quarter of the index; {@code NaN} for a month
+     * before the first quarter. Sales after the last quarter are returned as is.
+     */
+    public double estimate(double price, YearMonth month) {
+        int quarter = Math.min(quarter(month), getLastQuarter());
+        return price * values[values.length - 1] / value(quarter);
+    }
+
+    @Override
+    public String toString() {
+        return "RepeatSalesIndex[" + firstMonth(firstQuarter) + ", " + Arrays.toString(values) + "]";
+    }
+}
@@ -0,0 +1,255 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.config.AsyncConfiguration;
+import com.apeiron.immoxperts.repository.RepeatSalesRepository;
+import com.apeiron.immoxperts.repository.RepeatSalesRepository.IndexRow;
+import com.apeiron.immoxperts.repository.RepeatSalesRepository.Sale;
+import com.apeiron.immoxperts.repository.RepeatSalesRepository.SalePair;
+import com.apeiron.immoxperts.service.dto.EstimatedValueDTO;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import com.apeiron.immoxperts.service.dto.RepeatSalesIndexDTO;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Repeat-sales price index per département ({@link RepeatSalesIndex}), and the value today of past sales.
+ * <p>
+ * A batch job extracts the pairs of sales of the same dwelling and fits the index of each département, several
+ * départements at a time ({@code mutation.repeat-sales.parallelism}). Départements with fewer than
+ * {@code mutation.repeat-sales.min-pairs} pairs get no index. The indexes are stored in repeat_sales_index and held in
+ * memory, so a lookup or an estimate is a map access and a multiplication. They are loaded from the table at startup
+ * on the {@link AsyncConfiguration#BUILD_EXECUTOR} threads. Fitting runs as a job on a thread of its own (see
+ * {@link MaintenanceJobQueue}): at startup when the table is empty, on {@code mutation.repeat-sales.cron}, and on
+ * demand through {@link #submitRebuild()}.
+ */
+@Service
+public class RepeatSalesIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RepeatSalesIndexService.class);
+
+    private final RepeatSalesRepository repository;
+    private final int parallelism;
+    private final int minPairs;
+    private final double smoothing;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final MaintenanceJobQueue jobs = new MaintenanceJobQueue("repeat-sales-index");
+    private volatile Map<String, RepeatSalesIndex> indexes = Map.of();
+
+    public RepeatSalesIndexService(
+        RepeatSalesRepository repository,
+        @Value("${mutation.repeat-sales.parallelism:4}") int parallelism,
+        @Value("${mutation.repeat-sales.min-pairs:200}") int minPairs,
+        @Value("${mutation.repeat-sales.smoothing:2}") double smoothing
+    ) {
+        this.repository = repository;
+        this.parallelism = parallelism;
+        this.minPairs = minPairs;
+        this.smoothing = smoothing;
+    }
+
+    public Optional<RepeatSalesIndexDTO> getIndex(String departement) {
+        RepeatSalesIndex index = indexes.get(departement);
+        if (index == null) {
+            return Optional.empty();
+        }
+        List<RepeatSalesIndexDTO.Point> points = new ArrayList<>();
+        for (int quarter = index.getFirstQuarter(); quarter <= index.getLastQuarter(); quarter++) {
+            points.add(
+                new RepeatSalesIndexDTO.Point(
+                    RepeatSalesIndex.firstMonth(quarter),
+                    Math.round(index.value(quarter) * 10) / 10.0,
+                    index.pairs(quarter)
+                )
+            );
+        }
+        return Optional.of(new RepeatSalesIndexDTO(departement, points));
+    }
+
+    /**
+     * @return {@code price} paid in {@code month} in {@code departement}, carried to the last quarter of its index;
+     * empty without an index or for a month before it.
+     */
+    public OptionalDouble estimate(String departement, YearMonth month, double price) {
+        RepeatSalesIndex index = indexes.get(departement);
+        if (index == null) {
+            return OptionalDouble.empty();
+        }
+        double estimate = index.estimate(price, month);
+        return Double.isNaN(estimate) ? OptionalDouble.empty() : OptionalDouble.of(estimate);
+    }
+
+    /**
+     * @return the latest sale of parcel {@code idpar} carried to today; empty when it never sold or its département
+     * has no index covering the sale.
+     */
+    public Optional<EstimatedValueDTO> estimateParcel(String idpar) {
+        Optional<Sale> found = repository.findLatestSaleOfParcel(idpar);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        Sale sale = found.get();
+        RepeatSalesIndex index = indexes.get(sale.departement());
+        YearMonth month = YearMonth.from(sale.date());
+        if (index == null || month.isBefore(RepeatSalesIndex.firstMonth(index.getFirstQuarter()))) {
+            return Optional.empty();
+        }
+        int quarter = Math.min(RepeatSalesIndex.quarter(month), index.getLastQuarter());
+        return Optional.of(
+            new EstimatedValueDTO(
+                idpar,
+                sale.idmutation(),
+                sale.date(),
+                Math.round(sale.valeurFonciere()),
+                sale.departement(),
+                Math.round(index.value(quarter) * 10) / 10.0,
+                RepeatSalesIndex.firstMonth(index.getLastQuarter()),
+                Math.round(index.value(index.getLastQuarter()) * 10) / 10.0,
+                Math.round(index.estimate(sale.valeurFonciere(), month))
+            )
+        );
+    }
+
+    @Async(AsyncConfiguration.BUILD_EXECUTOR)
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<String, List<IndexRow>> rows = new LinkedHashMap<>();
+        try {
+            repository.findIndexRows().forEach(row -> rows.computeIfAbsent(row.departement(), d -> new ArrayList<>()).add(row));
+        } catch (RuntimeException e) {
+            LOG.warn("Cannot read the repeat-sales indexes: {}", e.getMessage());
+            return;
+        }
+        if (rows.isEmpty()) {
+            submitRebuild();
+            return;
+        }
+        Map<String, RepeatSalesIndex> loaded = new HashMap<>();
+        rows.forEach((departement, quarters) -> {
+            double[] values = quarters.stream().mapToDouble(IndexRow::indice).toArray();
+            int[] pairs = quarters.stream().mapToInt(IndexRow::paires).toArray();
+            int firstQuarter = RepeatSalesIndex.quarter(YearMonth.from(quarters.get(0).periode()));
+            loaded.put(departement, RepeatSalesIndex.of(firstQuarter, values, pairs));
+        });
+        indexes = loaded;
+        LOG.info("Loaded the repeat-sales indexes of {} départements", loaded.size());
+    }
+
+    @Scheduled(cron = "${mutation.repeat-sales.cron:0 0 4 * * SUN}")
+    public void rebuildAll() {
+        submitRebuild();
+    }
+
+    /** Queue the refit of every département; when one is already queued, that job is returned instead. */
+    public MaintenanceJobDTO submitRebuild() {
+        return jobs.submit("rebuild", this::rebuild);
+    }
+
+    public Optional<MaintenanceJobDTO> getJob(String id) {
+        return jobs.getJob(id);
+    }
+
+    /** Most recent jobs first. */
+    public List<MaintenanceJobDTO> getJobs() {
+        return jobs.getJobs();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.shutdown();
+    }
+
+    /**
+     * Refit and store the index of every département.
+     *
+     * @return the number of départements with an index.
+     */
+    public int rebuild() {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            List<String> departements = repository.findDepartements();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+            Map<String, RepeatSalesIndex> fitted = new HashMap<>();
+            try {
+                Map<String, Future<RepeatSalesIndex>> tasks = new LinkedHashMap<>();
+                for (String departement : departements) {
+                    tasks.put(departement, executor.submit(() -> fit(departement)));
+                }
+                for (Map.Entry<String, Future<RepeatSalesIndex>> task : tasks.entrySet()) {
+                    RepeatSalesIndex index = task.getValue().get();
+                    if (index != null) {
+                        fitted.put(task.getKey(), index);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Repeat-sales index fitting interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Repeat-sales index fitting failed", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            indexes = fitted;
+            LOG.info(
+                "Fitted the repeat-sales indexes of {} of {} départements in {} ms",
+                fitted.size(),
+                departements.size(),
+                (System.nanoTime() - start) / 1_000_000
+            );
+            return fitted.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Fits and stores the index of {@code departement}; without enough pairs, removes the stored one. */
+    private RepeatSalesIndex fit(String departement) {
+        List<SalePair> pairs = repository.findSalePairs(departement);
+        RepeatSalesIndex index = null;
+        if (pairs.size() >= minPairs) {
+            int n = pairs.size();
+            YearMonth[] firstMonths = new YearMonth[n];
+            double[] firstPrices = new double[n];
+            YearMonth[] secondMonths = new YearMonth[n];
+            double[] secondPrices = new double[n];
+            for (int i = 0; i < n; i++) {
+                SalePair pair = pairs.get(i);
+                firstMonths[i] = pair.firstMonth();
+                firstPrices[i] = pair.firstPrice();
+                secondMonths[i] = pair.secondMonth();
+                secondPrices[i] = pair.secondPrice();
+            }
+            index = RepeatSalesIndex.fit(firstMonths, firstPrices, secondMonths, secondPrices, smoothing);
+        }
+        List<IndexRow> rows = new ArrayList<>();
+        if (index != null) {
+            for (int quarter = index.getFirstQuarter(); quarter <= index.getLastQuarter(); quarter++) {
+                LocalDate periode = RepeatSalesIndex.firstMonth(quarter).atDay(1);
+                rows.add(new IndexRow(departement, periode, index.value(quarter), index.pairs(quarter)));
+            }
+        }
+        repository.replaceIndexRows(departement, rows);
+        return index;
+    }
+}
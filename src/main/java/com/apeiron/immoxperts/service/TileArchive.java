@@ -0,0 +1,201 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Read-only, memory-mapped single-file tile archive (.gmtiles), in the spirit of PMTiles: a directory sorted by
+ * Hilbert tile id followed by the tile blobs, stored contiguously in the same order. Written by
+ * {@link TileArchiveWriter}.
+ * <p>
+ * Layout (big-endian):
+ * <pre>
+ * header (64 bytes)   magic "GMTILES1", int version, int reserved, long entryCount, long metadataOffset,
+ *                     long metadataLength, long directoryOffset, long dataOffset, int maxTileLength, byte minZoom,
+ *                     byte maxZoom
+ * metadata            int count, then count x (int length, UTF-8 name, int length, UTF-8 value)
+ * directory           entryCount x (long tileId, long offset from dataOffset, int length, long content hash)
+ * data                tile blobs; identical tiles are stored once and shared by several entries
+ * </pre>
+ * A lookup is a binary search over the mapped directory and returns a slice of the mapped data, so tiles are never
+ * copied onto the heap. The data is mapped in 1 GiB segments that overlap by the largest tile, so every tile lies
+ * within one segment. The archive must be replaced by moving a new file over it, never rewritten in place.
+ */
+public final class TileArchive implements TileSource {
+
+    static final byte[] MAGIC = "GMTILES1".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int ENTRY_SIZE = 28;
+
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final Path file;
+    private final String fileStamp;
+    private final long entryCount;
+    private final ByteBuffer directory;
+    private final ByteBuffer[] segments;
+    private final Map<String, String> metadata;
+    private final int minZoom;
+    private final int maxZoom;
+
+    private TileArchive(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        this.fileStamp = TileSource.stamp(file);
+        long size = channel.size();
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(HEADER_SIZE, size));
+        byte[] magic = new byte[MAGIC.length];
+        if (size < HEADER_SIZE || !Arrays.equals(magic(header, magic), MAGIC) || header.getInt(8) != VERSION) {
+            throw new IOException(file + " is not a version " + VERSION + " tile archive");
+        }
+        entryCount = header.getLong(16);
+        long metadataOffset = header.getLong(24);
+        long metadataLength = header.getLong(32);
+        long directoryOffset = header.getLong(40);
+        long dataOffset = header.getLong(48);
+        int maxTileLength = header.getInt(56);
+        minZoom = header.get(60);
+        maxZoom = header.get(61);
+        if (entryCount * ENTRY_SIZE > Integer.MAX_VALUE || metadataLength > Integer.MAX_VALUE || dataOffset > size) {
+            throw new IOException(file + " has a corrupt header");
+        }
+
+        metadata = readMetadata(channel.map(FileChannel.MapMode.READ_ONLY, metadataOffset, metadataLength));
+        directory = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset, entryCount * ENTRY_SIZE);
+        long dataLength = size - dataOffset;
+        int segmentCount = (int) Math.max(1, (dataLength + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long start = i * SEGMENT_SIZE;
+            long length = Math.max(0, Math.min(SEGMENT_SIZE + maxTileLength, dataLength - start));
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + start, length);
+        }
+    }
+
+    /**
+     * Map {@code file}. The channel is closed right away: mappings stay valid until garbage collected.
+     */
+    public static TileArchive open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new TileArchive(file, channel);
+        }
+    }
+
+    @Override
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public TileDTO getTile(int z, int x, int y) {
+        if (z < minZoom || z > maxZoom) {
+            return null;
+        }
+        long id = tileId(z, x, y);
+        long lo = 0;
+        long hi = entryCount - 1;
+        while (lo <= hi) {
+            long mid = (lo + hi) >>> 1;
+            int at = (int) (mid * ENTRY_SIZE);
+            long midId = directory.getLong(at);
+            if (midId < id) {
+                lo = mid + 1;
+            } else if (midId > id) {
+                hi = mid - 1;
+            } else {
+                long offset = directory.getLong(at + 8);
+                int length = directory.getInt(at + 16);
+                long hash = directory.getLong(at + 20);
+                int segment = (int) (offset / SEGMENT_SIZE);
+                ByteBuffer data = segments[segment].slice((int) (offset - segment * SEGMENT_SIZE), length);
+                return TileDTO.of(data, HexFormat.of().toHexDigits(hash));
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String getMetadata(String name) {
+        return metadata.get(name);
+    }
+
+    @Override
+    public boolean isStale() {
+        return !fileStamp.equals(TileSource.stamp(file));
+    }
+
+    @Override
+    public boolean isMemoryMapped() {
+        return true;
+    }
+
+    /** Nothing to release: the mappings go with the object. */
+    @Override
+    public void close() {}
+
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Position of a tile on the Hilbert curves of all zoom levels: the tiles of lower zooms first, then the Hilbert
+     * index of (x, y) within zoom {@code z}. Neighbouring tiles get close ids, so they sit close in the archive.
+     */
+    public static long tileId(int z, int x, int y) {
+        long base = ((1L << (2 * z)) - 1) / 3; // 4^0 + ... + 4^(z-1)
+        long n = 1L << z;
+        long rx;
+        long ry;
+        long d = 0;
+        long px = x;
+        long py = y;
+        for (long s = n / 2; s > 0; s /= 2) {
+            rx = (px & s) > 0 ? 1 : 0;
+            ry = (py & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    px = n - 1 - px;
+                    py = n - 1 - py;
+                }
+                long t = px;
+                px = py;
+                py = t;
+            }
+        }
+        return base + d;
+    }
+
+    private static byte[] magic(ByteBuffer header, byte[] magic) {
+        header.get(0, magic);
+        return magic;
+    }
+
+    private static Map<String, String> readMetadata(ByteBuffer buffer) {
+        Map<String, String> values = new HashMap<>();
+        if (buffer.remaining() < Integer.BYTES) {
+            return values;
+        }
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            String name = readString(buffer);
+            values.put(name, readString(buffer));
+        }
+        return values;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,187 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.sqlite.SQLiteConfig;
+
+/**
+ * Converts an .mbtiles file into a {@link TileArchive}. Tiles are copied as stored (gzip stays gzip) in Hilbert tile
+ * id order; identical tiles (sea, plain land at high zoom) are written once. The archive is assembled in a temporary
+ * file next to the target and moved over it atomically, so readers never see a partial file.
+ */
+public final class TileArchiveWriter {
+
+    public record Summary(long tiles, long uniqueTiles, long bytes) {}
+
+    private record Key(long tileId, int z, int x, int row) {}
+
+    private TileArchiveWriter() {}
+
+    public static Summary convert(Path mbtiles, Path target) throws IOException, SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        Path dataFile = target.resolveSibling(target.getFileName() + ".data.tmp");
+        Path archiveFile = target.resolveSibling(target.getFileName() + ".tmp");
+        try (Connection connection = config.createConnection("jdbc:sqlite:" + mbtiles.toAbsolutePath().toUri())) {
+            Map<String, String> metadata = readMetadata(connection);
+            List<Key> keys = readKeys(connection);
+
+            long[] offsets = new long[keys.size()];
+            int[] lengths = new int[keys.size()];
+            long[] hashes = new long[keys.size()];
+            int maxTileLength = 0;
+            long dataLength = 0;
+            Map<Long, Integer> firstByHash = new HashMap<>();
+            try (
+                FileChannel data = openForWrite(dataFile);
+                PreparedStatement ps = connection.prepareStatement(
+                    "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?"
+                )
+            ) {
+                for (int i = 0; i < keys.size(); i++) {
+                    Key key = keys.get(i);
+                    ps.setInt(1, key.z());
+                    ps.setInt(2, key.x());
+                    ps.setInt(3, key.row());
+                    byte[] tile;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        tile = rs.next() ? rs.getBytes(1) : null;
+                    }
+                    tile = tile != null ? tile : new byte[0];
+                    hashes[i] = ByteBuffer.wrap(TileDTO.sha256(tile)).getLong();
+                    lengths[i] = tile.length;
+                    Integer same = firstByHash.get(hashes[i]);
+                    if (same != null && lengths[same] == tile.length) {
+                        offsets[i] = offsets[same];
+                        continue;
+                    }
+                    firstByHash.put(hashes[i], i);
+                    offsets[i] = dataLength;
+                    writeFully(data, ByteBuffer.wrap(tile));
+                    dataLength += tile.length;
+                    maxTileLength = Math.max(maxTileLength, tile.length);
+                }
+            }
+
+            ByteBuffer metadataBytes = encodeMetadata(metadata);
+            long metadataOffset = TileArchive.HEADER_SIZE;
+            long directoryOffset = metadataOffset + metadataBytes.remaining();
+            long dataOffset = directoryOffset + (long) keys.size() * TileArchive.ENTRY_SIZE;
+
+            ByteBuffer header = ByteBuffer.allocate(TileArchive.HEADER_SIZE);
+            header.put(TileArchive.MAGIC);
+            header.putInt(TileArchive.VERSION);
+            header.putInt(0);
+            header.putLong(keys.size());
+            header.putLong(metadataOffset);
+            header.putLong(metadataBytes.remaining());
+            header.putLong(directoryOffset);
+            header.putLong(dataOffset);
+            header.putInt(maxTileLength);
+            header.put((byte) keys.stream().mapToInt(Key::z).min().orElse(0));
+            header.put((byte) keys.stream().mapToInt(Key::z).max().orElse(0));
+            header.clear();
+
+            ByteBuffer directory = ByteBuffer.allocate(keys.size() * TileArchive.ENTRY_SIZE);
+            for (int i = 0; i < keys.size(); i++) {
+                directory.putLong(keys.get(i).tileId()).putLong(offsets[i]).putInt(lengths[i]).putLong(hashes[i]);
+            }
+            directory.flip();
+
+            try (
+                FileChannel out = openForWrite(archiveFile);
+                FileChannel data = FileChannel.open(dataFile, StandardOpenOption.READ)
+            ) {
+                writeFully(out, header);
+                writeFully(out, metadataBytes);
+                writeFully(out, directory);
+                long copied = 0;
+                while (copied < dataLength) {
+                    copied += data.transferTo(copied, dataLength - copied, out.position(dataOffset + copied));
+                }
+                out.force(true);
+            }
+            Files.move(archiveFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return new Summary(keys.size(), firstByHash.size(), dataOffset + dataLength);
+        } finally {
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(archiveFile);
+        }
+    }
+
+    private static Map<String, String> readMetadata(Connection connection) throws SQLException {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery("SELECT name, value FROM metadata")) {
+            while (rs.next()) {
+                if (rs.getString(1) != null && rs.getString(2) != null) {
+                    metadata.put(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+        return metadata;
+    }
+
+    /** Every tile position, sorted by Hilbert tile id. mbtiles rows are TMS; the archive is addressed in XYZ. */
+    private static List<Key> readKeys(Connection connection) throws SQLException {
+        List<Key> keys = new ArrayList<>();
+        try (
+            Statement st = connection.createStatement();
+            ResultSet rs = st.executeQuery("SELECT zoom_level, tile_column, tile_row FROM tiles")
+        ) {
+            while (rs.next()) {
+                int z = rs.getInt(1);
+                int x = rs.getInt(2);
+                int row = rs.getInt(3);
+                keys.add(new Key(TileArchive.tileId(z, x, (1 << z) - 1 - row), z, x, row));
+            }
+        }
+        keys.sort(Comparator.comparingLong(Key::tileId));
+        return keys;
+    }
+
+    private static ByteBuffer encodeMetadata(Map<String, String> metadata) {
+        List<byte[]> parts = new ArrayList<>();
+        int size = Integer.BYTES;
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            parts.add(name);
+            parts.add(value);
+            size += 2 * Integer.BYTES + name.length + value.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(metadata.size());
+        for (byte[] part : parts) {
+            buffer.putInt(part.length).put(part);
+        }
+        return buffer.flip();
+    }
+
+    private static FileChannel openForWrite(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.dto.TileDTO;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read access to the tiles and metadata of one GeatMap layer file: {@link MbtilesConnectionPool} for .mbtiles,
+ * {@link TileArchive} for the memory-mapped archive.
+ */
+public interface TileSource extends AutoCloseable {
+    /** XYZ tile coordinates (row 0 at the top). */
+    record Coordinates(int z, int x, int y) {}
+
+    Path getFile();
+
+    /**
+     * @param y XYZ row (0 at the top).
+     * @return the stored tile, or {@code null} when the source has none at these coordinates.
+     */
+    TileDTO getTile(int z, int x, int y) throws IOException;
+
+    /**
+     * Read several tiles at once; sources that pay a cost per read (a pooled connection, a query) override this to do
+     * it in one go.
+     *
+     * @return the tiles in the order of {@code coordinates}, {@code null} where the source has none.
+     */
+    default List<TileDTO> getTiles(List<Coordinates> coordinates) throws IOException {
+        List<TileDTO> tiles = new ArrayList<>(coordinates.size());
+        for (Coordinates c : coordinates) {
+            tiles.add(getTile(c.z(), c.x(), c.y()));
+        }
+        return tiles;
+    }
+
+    /**
+     * @return the metadata value {@code name}, or {@code null} when absent.
+     */
+    String getMetadata(String name) throws IOException;
+
+    /** Whether the file was replaced, modified or removed since the source was opened. */
+    boolean isStale();
+
+    /** Memory-mapped sources serve tiles straight from the page cache, so they gain nothing from the tile cache. */
+    boolean isMemoryMapped();
+
+    @Override
+    void close();
+
+    /** Size and modification time of {@code file}, used to detect changes. */
+    static String stamp(Path file) {
+        try {
+            return Files.size(file) + "@" + Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return "missing";
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.Pbf.Reader;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Derives an overzoomed Mapbox Vector Tile from one of its ancestors: the geometries of the part of the ancestor that
+ * covers the child are scaled up to the full tile extent and clipped to it, plus a buffer of 1/64 of the extent so fills
+ * and strokes join across tile edges.
+ * <p>
+ * Only geometries are rewritten. Ids, tags, keys, values and unknown fields are copied byte for byte, so feature
+ * properties are unchanged; features and layers left without geometry are dropped. Works on uncompressed PBF.
+ */
+public final class VectorTileClipper {
+
+    private static final int DEFAULT_EXTENT = 4096;
+
+    private static final int TILE_LAYERS = 3;
+    private static final int LAYER_FEATURES = 2;
+    private static final int LAYER_EXTENT = 5;
+    private static final int FEATURE_TYPE = 3;
+    private static final int FEATURE_GEOMETRY = 4;
+
+    private static final int POINT = 1;
+    private static final int LINESTRING = 2;
+    private static final int POLYGON = 3;
+
+    private static final int MOVE_TO = 1;
+    private static final int LINE_TO = 2;
+    private static final int CLOSE_PATH = 7;
+
+    private VectorTileClipper() {}
+
+    /**
+     * @param tile uncompressed PBF of the ancestor tile.
+     * @param dz zoom difference between the child and the ancestor (at least 1).
+     * @param dx column of the child within the ancestor, from 0 to {@code 2^dz - 1}.
+     * @param dy row of the child within the ancestor (XYZ, 0 at the top), from 0 to {@code 2^dz - 1}.
+     * @return uncompressed PBF of the child tile; empty when nothing of the ancestor falls within it.
+     * @throws IllegalArgumentException when {@code tile} is not a valid vector tile.
+     */
+    public static byte[] clip(byte[] tile, int dz, int dx, int dy) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(tile.length);
+        Reader reader = new Reader(tile, 0, tile.length);
+        while (reader.hasMore()) {
+            int start = reader.pos;
+            long key = reader.varint();
+            if (Pbf.field(key) == TILE_LAYERS && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                byte[] layer = clipLayer(tile, reader.pos, reader.pos + length, dz, dx, dy);
+                reader.pos += length;
+                if (layer != null) {
+                    Pbf.writeBytesField(out, TILE_LAYERS, layer);
+                }
+            } else {
+                reader.skip(Pbf.wireType(key));
+                out.write(tile, start, reader.pos - start);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] clipLayer(byte[] tile, int from, int to, int dz, int dx, int dy) {
+        long extent = DEFAULT_EXTENT;
+        Reader reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            long key = reader.varint();
+            if (Pbf.field(key) == LAYER_EXTENT && Pbf.wireType(key) == Pbf.WIRE_VARINT) {
+                extent = reader.varint();
+            } else {
+                reader.skip(Pbf.wireType(key));
+            }
+        }
+        if (extent <= 0) {
+            throw new IllegalArgumentException("Invalid layer extent " + extent);
+        }
+        Transform transform = new Transform(1L << dz, dx * extent, dy * extent, -extent / 64, extent + extent / 64);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(to - from);
+        int features = 0;
+        reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            int start = reader.pos;
+            long key = reader.varint();
+            if (Pbf.field(key) == LAYER_FEATURES && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                byte[] feature = clipFeature(tile, reader.pos, reader.pos + length, transform);
+                reader.pos += length;
+                if (feature != null) {
+                    Pbf.writeBytesField(out, LAYER_FEATURES, feature);
+                    features++;
+                }
+            } else {
+                reader.skip(Pbf.wireType(key));
+                out.write(tile, start, reader.pos - start);
+            }
+        }
+        return features > 0 ? out.toByteArray() : null;
+    }
+
+    private static byte[] clipFeature(byte[] tile, int from, int to, Transform transform) {
+        long type = 0;
+        byte[] geometry = null;
+        Reader reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            long key = reader.varint();
+            if (Pbf.field(key) == FEATURE_TYPE && Pbf.wireType(key) == Pbf.WIRE_VARINT) {
+                type = reader.varint();
+            } else {
+                reader.skip(Pbf.wireType(key));
+            }
+        }
+        reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            long key = reader.varint();
+            if (Pbf.field(key) == FEATURE_GEOMETRY && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                geometry = clipGeometry((int) type, decode(tile, reader.pos, reader.pos + length, transform), transform);
+                reader.pos += length;
+            } else {
+                reader.skip(Pbf.wireType(key));
+            }
+        }
+        if (geometry == null) {
+            return null;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(to - from);
+        reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            int start = reader.pos;
+            long key = reader.varint();
+            reader.skip(Pbf.wireType(key));
+            if (Pbf.field(key) == FEATURE_GEOMETRY && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                Pbf.writeBytesField(out, FEATURE_GEOMETRY, geometry);
+            } else {
+                out.write(tile, start, reader.pos - start);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** Geometry commands to parts (points, lines or rings) in child tile coordinates. */
+    private static List<Line> decode(byte[] tile, int from, int to, Transform transform) {
+        List<Line> parts = new ArrayList<>();
+        Reader reader = new Reader(tile, from, to);
+        Line current = null;
+        long x = 0;
+        long y = 0;
+        while (reader.hasMore()) {
+            long command = reader.varint();
+            int id = (int) (command & 7);
+            long count = command >>> 3;
+            if (id == CLOSE_PATH) {
+                continue;
+            }
+            if (id != MOVE_TO && id != LINE_TO) {
+                throw new IllegalArgumentException("Unknown geometry command " + id);
+            }
+            for (long i = 0; i < count; i++) {
+                x += zigzagDecode(reader.varint());
+                y += zigzagDecode(reader.varint());
+                if (id == MOVE_TO || current == null) {
+                    current = new Line();
+                    parts.add(current);
+                }
+                current.add(x * transform.scale() - transform.offsetX(), y * transform.scale() - transform.offsetY());
+            }
+        }
+        return parts;
+    }
+
+    /** @return the encoded geometry, or {@code null} when nothing is left after clipping. */
+    private static byte[] clipGeometry(int type, List<Line> parts, Transform transform) {
+        long min = transform.min();
+        long max = transform.max();
+        List<Line> clipped = new ArrayList<>();
+        switch (type) {
+            case POINT -> {
+                Line points = new Line();
+                for (Line part : parts) {
+                    if (part.x(0) >= min && part.x(0) <= max && part.y(0) >= min && part.y(0) <= max) {
+                        points.add(part.x(0), part.y(0));
+                    }
+                }
+                if (points.size > 0) {
+                    clipped.add(points);
+                }
+            }
+            case LINESTRING -> {
+                for (Line part : parts) {
+                    for (Line line : clipLine(part, min, max)) {
+                        line.dedupe(false);
+                        if (line.size >= 2) {
+                            clipped.add(line);
+                        }
+                    }
+                }
+            }
+            case POLYGON -> {
+                // Exterior rings have a positive area and are followed by their holes; holes of a dropped exterior go too
+                boolean keepHoles = false;
+                for (Line ring : parts) {
+                    boolean exterior = ring.area() > 0;
+                    if (!exterior && !keepHoles) {
+                        continue;
+                    }
+                    Line result = clipRing(ring, min, max);
+                    result.dedupe(true);
+                    boolean valid = result.size >= 3 && result.area() != 0;
+                    if (exterior) {
+                        keepHoles = valid;
+                    }
+                    if (valid) {
+                        clipped.add(result);
+                    }
+                }
+            }
+            default -> {
+                return null;
+            }
+        }
+        return clipped.isEmpty() ? null : encode(type, clipped);
+    }
+
+    private static byte[] encode(int type, List<Line> parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long x = 0;
+        long y = 0;
+        for (Line part : parts) {
+            Pbf.writeVarint(out, command(MOVE_TO, type == POINT ? part.size : 1));
+            for (int i = 0; i < part.size; i++) {
+                if (i == 1 && type != POINT) {
+                    Pbf.writeVarint(out, command(LINE_TO, part.size - 1));
+                }
+                Pbf.writeVarint(out, zigzagEncode(part.x(i) - x));
+                Pbf.writeVarint(out, zigzagEncode(part.y(i) - y));
+                x = part.x(i);
+                y = part.y(i);
+            }
+            if (type == POLYGON) {
+                Pbf.writeVarint(out, command(CLOSE_PATH, 1));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /** Liang-Barsky clipping of each segment; runs of visible segments are joined into lines. */
+    private static List<Line> clipLine(Line part, long min, long max) {
+        List<Line> lines = new ArrayList<>();
+        Line current = null;
+        for (int i = 0; i + 1 < part.size; i++) {
+            long ax = part.x(i);
+            long ay = part.y(i);
+            double dx = part.x(i + 1) - ax;
+            double dy = part.y(i + 1) - ay;
+            double t0 = 0;
+            double t1 = 1;
+            double[] p = { -dx, dx, -dy, dy };
+            double[] q = { ax - min, max - ax, ay - min, max - ay };
+            boolean visible = true;
+            for (int k = 0; k < 4 && visible; k++) {
+                if (p[k] == 0) {
+                    visible = q[k] >= 0;
+                } else {
+                    double r = q[k] / p[k];
+                    if (p[k] < 0) {
+                        visible = r <= t1;
+                        t0 = Math.max(t0, r);
+                    } else {
+                        visible = r >= t0;
+                        t1 = Math.min(t1, r);
+                    }
+                }
+            }
+            if (!visible || t0 > t1) {
+                current = null;
+                continue;
+            }
+            if (current == null || t0 > 0) {
+                current = new Line();
+                lines.add(current);
+                current.add(ax + Math.round(t0 * dx), ay + Math.round(t0 * dy));
+            }
+            current.add(ax + Math.round(t1 * dx), ay + Math.round(t1 * dy));
+            if (t1 < 1) {
+                current = null;
+            }
+        }
+        return lines;
+    }
+
+    /** Sutherland-Hodgman clipping against the four edges of the square; keeps the winding of the ring. */
+    private static Line clipRing(Line ring, long min, long max) {
+        Line result = ring;
+        for (int edge = 0; edge < 4 && result.size > 0; edge++) {
+            Line in = result;
+            result = new Line();
+            boolean vertical = edge < 2;
+            long bound = edge % 2 == 0 ? min : max;
+            for (int i = 0; i < in.size; i++) {
+                int prev = i == 0 ? in.size - 1 : i - 1;
+                boolean currentInside = inside(in, i, vertical, edge % 2 == 0, bound);
+                boolean previousInside = inside(in, prev, vertical, edge % 2 == 0, bound);
+                if (currentInside != previousInside) {
+                    long ax = in.x(prev);
+                    long ay = in.y(prev);
+                    double t = vertical ? (double) (bound - ax) / (in.x(i) - ax) : (double) (bound - ay) / (in.y(i) - ay);
+                    if (vertical) {
+                        result.add(bound, ay + Math.round(t * (in.y(i) - ay)));
+                    } else {
+                        result.add(ax + Math.round(t * (in.x(i) - ax)), bound);
+                    }
+                }
+                if (currentInside) {
+                    result.add(in.x(i), in.y(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean inside(Line line, int i, boolean vertical, boolean lower, long bound) {
+        long value = vertical ? line.x(i) : line.y(i);
+        return lower ? value >= bound : value <= bound;
+    }
+
+    private static long command(int id, int count) {
+        return ((long) count << 3) | id;
+    }
+
+    private static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Child tile coordinate = ancestor coordinate * scale - offset; geometries are kept within [min, max].
+     */
+    private record Transform(long scale, long offsetX, long offsetY, long min, long max) {}
+
+    /** Points of one part, x and y interleaved. */
+    private static final class Line {
+
+        private long[] xy = new long[16];
+        private int size;
+
+        void add(long x, long y) {
+            if (2 * size + 2 > xy.length) {
+                xy = Arrays.copyOf(xy, xy.length * 2);
+            }
+            xy[2 * size] = x;
+            xy[2 * size + 1] = y;
+            size++;
+        }
+
+        long x(int i) {
+            return xy[2 * i];
+        }
+
+        long y(int i) {
+            return xy[2 * i + 1];
+        }
+
+        /** Drop consecutive repeated points, and for rings the last point when it repeats the first. */
+        void dedupe(boolean ring) {
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (n == 0 || x(i) != xy[2 * n - 2] || y(i) != xy[2 * n - 1]) {
+                    xy[2 * n] = x(i);
+                    xy[2 * n + 1] = y(i);
+                    n++;
+                }
+            }
+            if (ring && n > 1 && xy[0] == xy[2 * n - 2] && xy[1] == xy[2 * n - 1]) {
+                n--;
+            }
+            size = n;
+        }
+
+        /** Twice the signed area (shoelace); positive for exterior rings in tile coordinates. */
+        double area() {
+            double sum = 0;
+            for (int i = 0; i < size; i++) {
+                int j = i + 1 == size ? 0 : i + 1;
+                sum += (double) x(i) * y(j) - (double) x(j) * y(i);
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.apeiron.immoxperts.service;
+
+import com.apeiron.immoxperts.service.Pbf.Reader;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Adds properties to the features of a Mapbox Vector Tile, looked up by the value of one of their existing string
+ * properties (the INSEE {@code code} of the GeatMap layers). Geometries and existing properties are copied byte for
+ * byte; the new keys and values are appended to the key and value tables of each layer. Works on uncompressed PBF.
+ */
+public final class VectorTilePropertyMerger {
+
+    private static final int TILE_LAYERS = 3;
+    private static final int LAYER_FEATURES = 2;
+    private static final int LAYER_KEYS = 3;
+    private static final int LAYER_VALUES = 4;
+    private static final int FEATURE_TAGS = 2;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_UINT = 5;
+
+    private VectorTilePropertyMerger() {}
+
+    /**
+     * @param keyProperty property identifying a feature, e.g. {@code code}.
+     * @param properties properties to add for a given value of {@code keyProperty}; empty or {@code null} for none.
+     * @throws IllegalArgumentException when {@code tile} is not a valid vector tile.
+     */
+    public static byte[] merge(byte[] tile, String keyProperty, Function<String, Map<String, Long>> properties) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(tile.length + tile.length / 4);
+        Reader reader = new Reader(tile, 0, tile.length);
+        while (reader.hasMore()) {
+            int start = reader.pos;
+            long key = reader.varint();
+            if (Pbf.field(key) == TILE_LAYERS && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                Pbf.writeBytesField(out, TILE_LAYERS, mergeLayer(tile, reader.pos, reader.pos + length, keyProperty, properties));
+                reader.pos += length;
+            } else {
+                reader.skip(Pbf.wireType(key));
+                out.write(tile, start, reader.pos - start);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] mergeLayer(byte[] tile, int from, int to, String keyProperty, Function<String, Map<String, Long>> properties) {
+        List<String> keys = new ArrayList<>();
+        List<String> strings = new ArrayList<>();
+        Reader reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            long key = reader.varint();
+            if (Pbf.field(key) == LAYER_KEYS && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                keys.add(new String(tile, reader.pos, length, StandardCharsets.UTF_8));
+                reader.pos += length;
+            } else if (Pbf.field(key) == LAYER_VALUES && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                strings.add(stringValue(tile, reader.pos, reader.pos + length));
+                reader.pos += length;
+            } else {
+                reader.skip(Pbf.wireType(key));
+            }
+        }
+        int codeKey = keys.indexOf(keyProperty);
+        if (codeKey < 0) {
+            return Arrays.copyOfRange(tile, from, to);
+        }
+
+        Tables tables = new Tables(keys, strings.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(to - from + (to - from) / 4);
+        reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            int start = reader.pos;
+            long key = reader.varint();
+            if (Pbf.field(key) == LAYER_FEATURES && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                byte[] feature = mergeFeature(tile, reader.pos, reader.pos + length, codeKey, strings, properties, tables);
+                reader.pos += length;
+                if (feature != null) {
+                    Pbf.writeBytesField(out, LAYER_FEATURES, feature);
+                } else {
+                    out.write(tile, start, reader.pos - start);
+                }
+            } else {
+                reader.skip(Pbf.wireType(key));
+                out.write(tile, start, reader.pos - start);
+            }
+        }
+        // Repeated fields keep their order across the message, so appended entries get the next indices
+        for (String key : tables.newKeys) {
+            Pbf.writeBytesField(out, LAYER_KEYS, key.getBytes(StandardCharsets.UTF_8));
+        }
+        for (long value : tables.newValues) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(11);
+            Pbf.writeKey(encoded, VALUE_UINT, Pbf.WIRE_VARINT);
+            Pbf.writeVarint(encoded, value);
+            Pbf.writeBytesField(out, LAYER_VALUES, encoded.toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    /** @return the feature with its extra tags, or {@code null} when it gets none and can be copied as is. */
+    private static byte[] mergeFeature(
+        byte[] tile,
+        int from,
+        int to,
+        int codeKey,
+        List<String> strings,
+        Function<String, Map<String, Long>> properties,
+        Tables tables
+    ) {
+        List<Long> tags = new ArrayList<>();
+        Reader reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            long key = reader.varint();
+            if (Pbf.field(key) == FEATURE_TAGS && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                Reader packed = new Reader(tile, reader.pos, reader.pos + length);
+                while (packed.hasMore()) {
+                    tags.add(packed.varint());
+                }
+                reader.pos = packed.limit;
+            } else if (Pbf.field(key) == FEATURE_TAGS && Pbf.wireType(key) == Pbf.WIRE_VARINT) {
+                tags.add(reader.varint());
+            } else {
+                reader.skip(Pbf.wireType(key));
+            }
+        }
+        String code = null;
+        for (int i = 0; i + 1 < tags.size(); i += 2) {
+            long value = tags.get(i + 1);
+            if (tags.get(i) == codeKey && value >= 0 && value < strings.size()) {
+                code = strings.get((int) value);
+            }
+        }
+        Map<String, Long> extra = code != null ? properties.apply(code) : null;
+        if (extra == null || extra.isEmpty()) {
+            return null;
+        }
+
+        ByteArrayOutputStream packedTags = new ByteArrayOutputStream(tags.size() + extra.size() * 4);
+        tags.forEach(tag -> Pbf.writeVarint(packedTags, tag));
+        for (Map.Entry<String, Long> entry : extra.entrySet()) {
+            if (entry.getValue() != null && entry.getValue() >= 0) {
+                Pbf.writeVarint(packedTags, tables.keyIndex(entry.getKey()));
+                Pbf.writeVarint(packedTags, tables.valueIndex(entry.getValue()));
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(to - from + packedTags.size() + 4);
+        boolean tagsWritten = false;
+        reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            int start = reader.pos;
+            long key = reader.varint();
+            reader.skip(Pbf.wireType(key));
+            if (Pbf.field(key) != FEATURE_TAGS) {
+                out.write(tile, start, reader.pos - start);
+            } else if (!tagsWritten) {
+                Pbf.writeBytesField(out, FEATURE_TAGS, packedTags.toByteArray());
+                tagsWritten = true;
+            }
+        }
+        if (!tagsWritten) {
+            Pbf.writeBytesField(out, FEATURE_TAGS, packedTags.toByteArray());
+        }
+        return out.toByteArray();
+    }
+
+    /** The string_value of a Value message, or {@code null} for other kinds of values. */
+    private static String stringValue(byte[] tile, int from, int to) {
+        String value = null;
+        Reader reader = new Reader(tile, from, to);
+        while (reader.hasMore()) {
+            long key = reader.varint();
+            if (Pbf.field(key) == VALUE_STRING && Pbf.wireType(key) == Pbf.WIRE_LENGTH_DELIMITED) {
+                int length = reader.length();
+                value = new String(tile, reader.pos, length, StandardCharsets.UTF_8);
+                reader.pos += length;
+            } else {
+                reader.skip(Pbf.wireType(key));
+            }
+        }
+        return value;
+    }
+
+    /** Key and value indices of one layer: existing keys are reused, new keys and values appended once each. */
+    private static final class Tables {
+
+        private final Map<String, Integer> keys = new HashMap<>();
+        private final int existingKeys;
+        private final int existingValues;
+        private final List<String> newKeys = new ArrayList<>();
+        private final Map<Long, Integer> values = new HashMap<>();
+        private final List<Long> newValues = new ArrayList<>();
+
+        Tables(List<String> existingKeys, int existingValues) {
+            for (int i = existingKeys.size() - 1; i >= 0; i--) {
+                keys.put(existingKeys.get(i), i);
+            }
+            this.existingKeys = existingKeys.size();
+            this.existingValues = existingValues;
+        }
+
+        int keyIndex(String key) {
+            return keys.computeIfAbsent(key, k -> {
+                newKeys.add(k);
+                return existingKeys + newKeys.size() - 1;
+            });
+        }
+
+        int valueIndex(long value) {
+            return values.computeIfAbsent(value, v -> {
+                newValues.add(v);
+                return existingValues + newValues.size() - 1;
+            });
+        }
+    }
+}
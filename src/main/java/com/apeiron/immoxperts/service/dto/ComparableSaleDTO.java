@@ -0,0 +1,31 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.LocalDate;
+
+/**
+ * A past sale comparable to a property, with what made it comparable. Prices are rounded to the euro.
+ *
+ * @param typeBien {@code maison}, {@code appartement} or {@code local_commercial}.
+ * @param surface built surface in m², {@code null} when unknown.
+ * @param pieces main rooms, {@code null} when unknown.
+ * @param valeurActualisee price carried to the last quarter of the repeat-sales index of the département, {@code null}
+ * without an index covering the sale.
+ * @param distance distance to the property, in metres.
+ * @param score similarity score, lower is closer: the distance in km plus the differences in surface, age and rooms
+ * weighted as configured in {@code mutation.comparables.weights}.
+ */
+public record ComparableSaleDTO(
+    int idmutation,
+    int idadresse,
+    LocalDate dateMutation,
+    String typeBien,
+    Double surface,
+    Integer pieces,
+    long valeurFonciere,
+    Long prixM2,
+    Long valeurActualisee,
+    double latitude,
+    double longitude,
+    long distance,
+    double score
+) {}
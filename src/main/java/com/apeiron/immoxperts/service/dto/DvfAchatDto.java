@@ -21,7 +21,7 @@ public class DvfAchatDto {
     private String propertyUrl;
     private List<String> images;
 
-    /** From detail MV: surface (m²), chambre, pieces, DPE, terrain_sqm - for display and search */
+    /** From the parsed detail table: surface (m²), chambre, pieces, DPE, terrain_sqm - for display and search */
     private java.math.BigDecimal surface;
     private Integer chambre;
     private Integer pieces;
@@ -35,6 +35,9 @@ public class DvfAchatDto {
     private String jardin;
     private String parking;
     private String etage;
+    private Long clusterId;
+    private String firstImage;
+    private Integer imageCount;
 
     public DvfAchatDto() {}
 
@@ -261,4 +264,36 @@ public class DvfAchatDto {
     public void setEtage(String etage) {
         this.etage = etage;
     }
+
+    /**
+     * Id of the listing representing this listing's duplicate cluster (same property posted on several sources), or
+     * null when no duplicate is known.
+     */
+    public Long getClusterId() {
+        return clusterId;
+    }
+
+    public void setClusterId(Long clusterId) {
+        this.clusterId = clusterId;
+    }
+
+    /**
+     * First image URL, always set when the listing has images; {@link #getImages()} is only filled by the detail
+     * endpoint.
+     */
+    public String getFirstImage() {
+        return firstImage;
+    }
+
+    public void setFirstImage(String firstImage) {
+        this.firstImage = firstImage;
+    }
+
+    public Integer getImageCount() {
+        return imageCount;
+    }
+
+    public void setImageCount(Integer imageCount) {
+        this.imageCount = imageCount;
+    }
 }
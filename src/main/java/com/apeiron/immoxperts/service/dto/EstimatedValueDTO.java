@@ -0,0 +1,23 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+/**
+ * Value today of the latest sale of a parcel: its price carried forward by the repeat-sales index of its département,
+ * from the quarter of the sale to the last quarter of the index. Prices are rounded to the euro.
+ *
+ * @param valeurFonciere price of the sale; it covers everything sold together with the parcel.
+ * @param trimestreReference first month of the last quarter of the index.
+ */
+public record EstimatedValueDTO(
+    String idparcelle,
+    int idmutation,
+    LocalDate dateMutation,
+    long valeurFonciere,
+    String departement,
+    double indiceVente,
+    YearMonth trimestreReference,
+    double indiceReference,
+    long valeurEstimee
+) {}
@@ -0,0 +1,9 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns of a listing the detail parser reads. {@code createdAt} is never null: missing dates read as 1970-01-01,
+ * the same key the sync watermark is ordered by.
+ */
+public record ListingDetailSourceRow(Long id, LocalDateTime createdAt, String details) {}
@@ -0,0 +1,23 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Characteristics parsed from the free-text {@code details} column of a listing, as stored in dvf_achat_detail /
+ * dvf_louer_detail. Amenity flags are {@code "Oui"} / {@code "Non"}.
+ */
+public record ListingDetailsDTO(
+    BigDecimal surface,
+    Integer chambre,
+    Integer pieces,
+    String dpe,
+    BigDecimal terrainSqm,
+    String piscine,
+    String meuble,
+    String balcon,
+    String cave,
+    String jardin,
+    String parking,
+    String etage,
+    String terrasse
+) {}
@@ -0,0 +1,21 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Facet counts of a listing search (achat / louer). Each facet is counted with every filter applied except its own,
+ * so the counts tell how many results picking that value instead would give; {@code total} matches the search itself.
+ */
+public record ListingFacetsDTO(
+    long total,
+    List<FacetCount> propertyTypes,
+    List<FacetCount> chambres,
+    List<BudgetCount> budgets,
+    List<FacetCount> dpe
+) {
+    public record FacetCount(String value, long count) {}
+
+    /** Listings with {@code min <= price < max}; a null bound is open. */
+    public record BudgetCount(BigDecimal min, BigDecimal max, long count) {}
+}
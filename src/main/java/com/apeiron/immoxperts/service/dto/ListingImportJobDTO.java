@@ -0,0 +1,30 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.Instant;
+
+/**
+ * State of a listing import job.
+ *
+ * @param kind {@code achat} or {@code louer}.
+ * @param format {@code jsonl} or {@code csv}.
+ * @param result counts of the import, once it succeeded.
+ * @param error why the import failed; batches written before the failure stay committed.
+ */
+public record ListingImportJobDTO(
+    String id,
+    String kind,
+    String format,
+    Status status,
+    Instant submittedAt,
+    Instant startedAt,
+    Instant finishedAt,
+    ListingImportResultDTO result,
+    String error
+) {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+    }
+}
@@ -0,0 +1,166 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One scraped listing read from an import file (JSONL or CSV), filled in by the ingestion stages:
+ * {@code propertyUrlHash} and {@code parsedDetails} are computed, not read.
+ */
+public class ListingImportRecord {
+
+    private String source;
+    private String searchPostalCode;
+    private String department;
+    private String departmentName;
+    private String commune;
+    private String codeDepartment;
+    private String propertyType;
+    private String priceText;
+    private BigDecimal price;
+    private String address;
+    private String details;
+    private String description;
+    private String propertyUrl;
+    private List<String> images;
+    private LocalDateTime createdAt;
+    private long propertyUrlHash;
+    private ListingDetailsDTO parsedDetails;
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public String getSearchPostalCode() {
+        return searchPostalCode;
+    }
+
+    public void setSearchPostalCode(String searchPostalCode) {
+        this.searchPostalCode = searchPostalCode;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public void setDepartment(String department) {
+        this.department = department;
+    }
+
+    public String getDepartmentName() {
+        return departmentName;
+    }
+
+    public void setDepartmentName(String departmentName) {
+        this.departmentName = departmentName;
+    }
+
+    public String getCommune() {
+        return commune;
+    }
+
+    public void setCommune(String commune) {
+        this.commune = commune;
+    }
+
+    public String getCodeDepartment() {
+        return codeDepartment;
+    }
+
+    public void setCodeDepartment(String codeDepartment) {
+        this.codeDepartment = codeDepartment;
+    }
+
+    public String getPropertyType() {
+        return propertyType;
+    }
+
+    public void setPropertyType(String propertyType) {
+        this.propertyType = propertyType;
+    }
+
+    public String getPriceText() {
+        return priceText;
+    }
+
+    public void setPriceText(String priceText) {
+        this.priceText = priceText;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public void setAddress(String address) {
+        this.address = address;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public void setDetails(String details) {
+        this.details = details;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getPropertyUrl() {
+        return propertyUrl;
+    }
+
+    public void setPropertyUrl(String propertyUrl) {
+        this.propertyUrl = propertyUrl;
+    }
+
+    public List<String> getImages() {
+        return images;
+    }
+
+    public void setImages(List<String> images) {
+        this.images = images;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public long getPropertyUrlHash() {
+        return propertyUrlHash;
+    }
+
+    public void setPropertyUrlHash(long propertyUrlHash) {
+        this.propertyUrlHash = propertyUrlHash;
+    }
+
+    public ListingDetailsDTO getParsedDetails() {
+        return parsedDetails;
+    }
+
+    public void setParsedDetails(ListingDetailsDTO parsedDetails) {
+        this.parsedDetails = parsedDetails;
+    }
+}
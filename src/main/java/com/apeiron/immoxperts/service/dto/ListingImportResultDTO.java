@@ -0,0 +1,7 @@
+package com.apeiron.immoxperts.service.dto;
+
+/**
+ * Outcome of one listing import: records read, and how each was stored. {@code unchanged} listings matched an existing
+ * row exactly; {@code rejected} ones had no property URL.
+ */
+public record ListingImportResultDTO(long read, long inserted, long updated, long unchanged, long rejected, long durationMs) {}
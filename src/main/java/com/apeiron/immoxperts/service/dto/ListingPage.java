@@ -0,0 +1,25 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.util.List;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Page of listings (achat / louer) whose total is either an exact COUNT or a sampled estimate.
+ * {@code totalExact} is serialized next to {@code totalElements} so the client can display "~N" for estimates.
+ */
+public class ListingPage<T> extends PageImpl<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean totalExact;
+
+    public ListingPage(List<T> content, Pageable pageable, long total, boolean totalExact) {
+        super(content, pageable, total);
+        this.totalExact = totalExact;
+    }
+
+    public boolean isTotalExact() {
+        return totalExact;
+    }
+}
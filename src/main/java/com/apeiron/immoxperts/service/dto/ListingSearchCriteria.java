@@ -0,0 +1,85 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Normalized search-with-filters parameters of the listing endpoints (achat / louer). Equivalent requests ("3,2" and
+ * "2,3" bedrooms, "Paris" and " paris ") produce equal criteria, so they share cached totals and facets.
+ * <p>
+ * Bedrooms are either up to four exact values ({@code chambre1..4}, ascending) or a minimum ({@code chambresMin}, for
+ * "5+"); all null means no bedroom filter.
+ */
+public record ListingSearchCriteria(
+    String value,
+    String type,
+    BigDecimal minBudget,
+    BigDecimal maxBudget,
+    String propertyType,
+    Integer chambre1,
+    Integer chambre2,
+    Integer chambre3,
+    Integer chambre4,
+    Integer chambresMin,
+    boolean expandDuplicates
+) {
+    /**
+     * @return the normalized criteria, or {@code null} when {@code value} or {@code type} is blank (nothing to search).
+     */
+    public static ListingSearchCriteria of(
+        String value,
+        String type,
+        BigDecimal minBudget,
+        BigDecimal maxBudget,
+        String propertyType,
+        String chambres,
+        boolean expandDuplicates
+    ) {
+        if (value == null || value.trim().isEmpty() || type == null || type.trim().isEmpty()) {
+            return null;
+        }
+        String normPropertyType = propertyType != null && !propertyType.trim().isEmpty()
+            ? propertyType.trim().toLowerCase(Locale.ROOT)
+            : null;
+
+        Integer[] exact = new Integer[4];
+        Integer chambresMin = null;
+        if (chambres != null && !chambres.trim().isEmpty()) {
+            String s = chambres.trim();
+            if (s.equals("5+") || s.equals("5")) {
+                chambresMin = 5;
+            } else {
+                // Sorted and de-duplicated: "3,2" and "2,3" are the same filter
+                TreeSet<Integer> values = new TreeSet<>();
+                for (String p : s.split("[,;]")) {
+                    try {
+                        int n = Integer.parseInt(p.trim());
+                        if (n >= 1 && n <= 99 && values.size() < 4) {
+                            values.add(n);
+                        }
+                    } catch (NumberFormatException ignored) {}
+                }
+                exact = values.toArray(exact);
+            }
+        }
+
+        return new ListingSearchCriteria(
+            value.trim().toLowerCase(Locale.ROOT),
+            type.trim(),
+            minBudget != null ? minBudget.stripTrailingZeros() : null,
+            maxBudget != null ? maxBudget.stripTrailingZeros() : null,
+            normPropertyType,
+            exact[0],
+            exact[1],
+            exact[2],
+            exact[3],
+            chambresMin,
+            expandDuplicates
+        );
+    }
+
+    public boolean hasChambresFilter() {
+        return chambre1 != null || chambre2 != null || chambre3 != null || chambre4 != null || chambresMin != null;
+    }
+}
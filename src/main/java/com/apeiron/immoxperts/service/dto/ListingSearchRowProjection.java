@@ -0,0 +1,41 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One search-with-filters row: listing columns joined with its parsed detail row.
+ * Shared by dvf_achat and dvf_louer, which have the same shape. {@code images} is the jsonb array as text.
+ */
+public interface ListingSearchRowProjection {
+    Long getId();
+    String getSource();
+    String getSearchPostalCode();
+    String getDepartment();
+    String getDepartmentName();
+    String getCommune();
+    String getCodeDepartment();
+    String getPropertyType();
+    String getPriceText();
+    BigDecimal getPrice();
+    String getAddress();
+    String getDetails();
+    String getDescription();
+    String getPropertyUrl();
+    String getImages();
+    String getFirstImage();
+    Integer getImageCount();
+    BigDecimal getSurface();
+    Integer getChambre();
+    Integer getPieces();
+    String getDpe();
+    BigDecimal getTerrainSqm();
+    String getPiscine();
+    String getMeuble();
+    String getTerrasse();
+    String getBalcon();
+    String getCave();
+    String getJardin();
+    String getParking();
+    String getEtage();
+    Long getClusterId();
+}
@@ -0,0 +1,28 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.Instant;
+
+/**
+ * State of a maintenance job (index refit, listing detail backfill, duplicate clustering).
+ *
+ * @param task what the job does, e.g. {@code backfill achat}.
+ * @param result the count the task produced (départements fitted, listings parsed or clustered), once it succeeded.
+ * @param error why the task failed.
+ */
+public record MaintenanceJobDTO(
+    String id,
+    String task,
+    Status status,
+    Instant submittedAt,
+    Instant startedAt,
+    Instant finishedAt,
+    Long result,
+    String error
+) {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+    }
+}
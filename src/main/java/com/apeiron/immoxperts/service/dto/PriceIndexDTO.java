@@ -0,0 +1,25 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Monthly price series of one area: the sales of each month and the median price per m², raw and over a rolling window
+ * of {@code lissage} months ending with that month, plus that smoothed median as an index (100 at the first month that
+ * has one). Medians are rounded to the euro, accurate to 1%, and {@code null} without sales to compute them from.
+ *
+ * @param level {@code commune}, {@code departement} or {@code region}.
+ * @param code INSEE code of the area.
+ * @param types property types included.
+ * @param lissage length of the rolling window, in months.
+ */
+public record PriceIndexDTO(String level, String code, List<String> types, int lissage, List<Point> points) {
+    public record Point(
+        YearMonth month,
+        long nombreMutations,
+        Long prixM2Median,
+        long nombreMutationsLissees,
+        Long prixM2MedianLisse,
+        Double indice
+    ) {}
+}
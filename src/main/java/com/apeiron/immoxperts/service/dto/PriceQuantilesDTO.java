@@ -0,0 +1,6 @@
+package com.apeiron.immoxperts.service.dto;
+
+/**
+ * Percentiles of a price distribution, rounded to the euro and accurate to 1%; all {@code null} without sales.
+ */
+public record PriceQuantilesDTO(Long p10, Long p25, Long p50, Long p75, Long p90) {}
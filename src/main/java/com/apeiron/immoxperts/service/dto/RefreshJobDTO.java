@@ -0,0 +1,35 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * State of a materialized view refresh job: its views in refresh order, each with its own status and duration.
+ */
+public record RefreshJobDTO(
+    String id,
+    Status status,
+    Instant submittedAt,
+    Instant startedAt,
+    Instant finishedAt,
+    List<Step> steps
+) {
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        /** At least one view failed to refresh; the views not depending on it were still refreshed. */
+        FAILED,
+    }
+
+    public enum StepStatus {
+        PENDING,
+        RUNNING,
+        REFRESHED,
+        /** Not refreshed: refreshed by another session at the same time, missing, or a view it reads failed. */
+        SKIPPED,
+        FAILED,
+    }
+
+    public record Step(String view, StepStatus status, Long durationMs, String message) {}
+}
@@ -0,0 +1,18 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Quarterly repeat-sales price index of a département, 100 at its first quarter, rounded to 0.1.
+ *
+ * @param departement département code, e.g. {@code 75} or {@code 2A}.
+ */
+public record RepeatSalesIndexDTO(String departement, List<Point> points) {
+    /**
+     * @param trimestre first month of the quarter.
+     * @param paires number of sales of pairs falling in the quarter; quarters with few pairs mostly follow their
+     * neighbours.
+     */
+    public record Point(YearMonth trimestre, double indice, int paires) {}
+}
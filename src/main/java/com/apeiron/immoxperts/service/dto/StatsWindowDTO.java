@@ -0,0 +1,28 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Sale statistics of one area over a window of months. Prices are rounded to the euro; averages, standard deviations
+ * and percentiles are {@code null} when there is no sale to compute them from. Outliers pull the averages, not the
+ * median ({@code prixM2Quantiles.p50}).
+ *
+ * @param level {@code commune}, {@code departement} or {@code region}.
+ * @param code INSEE code of the area.
+ * @param types property types included.
+ */
+public record StatsWindowDTO(
+    String level,
+    String code,
+    YearMonth from,
+    YearMonth to,
+    List<String> types,
+    long nombreMutations,
+    Long prixMoyen,
+    Long prixEcartType,
+    long nombreMutationsAvecSurface,
+    Long prixM2Moyen,
+    Long prixM2EcartType,
+    PriceQuantilesDTO prixM2Quantiles
+) {}
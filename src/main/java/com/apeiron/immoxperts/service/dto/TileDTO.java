@@ -0,0 +1,77 @@
+package com.apeiron.immoxperts.service.dto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A vector tile as stored in its .mbtiles file or tile archive.
+ *
+ * @param data read-only view of the stored bytes, possibly a slice of a memory-mapped archive.
+ * @param gzipped whether {@code data} is gzip-compressed.
+ * @param hash content hash of {@code data} (first 8 bytes of its SHA-256, hex), the base of the ETags.
+ */
+public record TileDTO(ByteBuffer data, boolean gzipped, String hash) {
+    public static TileDTO of(byte[] data) {
+        return of(ByteBuffer.wrap(data), contentHash(data));
+    }
+
+    public static TileDTO of(ByteBuffer data, String hash) {
+        ByteBuffer view = data.asReadOnlyBuffer();
+        int p = view.position();
+        boolean gzipped = view.remaining() >= 2 && view.get(p) == (byte) 0x1f && view.get(p + 1) == (byte) 0x8b;
+        return new TileDTO(view, gzipped, hash);
+    }
+
+    /** A tile generated in process, gzipped like the stored tiles it derives from. */
+    public static TileDTO gzip(byte[] pbf) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pbf.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(pbf);
+        }
+        return of(out.toByteArray());
+    }
+
+    public int length() {
+        return data.remaining();
+    }
+
+    /** Raw PBF, inflated when stored compressed. Returns the stored bytes if they cannot be inflated. */
+    public byte[] uncompressed() {
+        byte[] stored = new byte[data.remaining()];
+        data.duplicate().get(stored);
+        if (!gzipped) {
+            return stored;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(stored))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            return stored;
+        }
+    }
+
+    /** Strong ETag of the representation sent: the stored bytes, or the inflated ones when {@code inflated}. */
+    public String etag(boolean inflated) {
+        return "\"" + hash + (inflated && gzipped ? "-identity" : "") + "\"";
+    }
+
+    /** First 8 bytes of the SHA-256 of {@code data}, hex-encoded. */
+    public static String contentHash(byte[] data) {
+        return HexFormat.of().formatHex(sha256(data), 0, 8);
+    }
+
+    public static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,30 +1,68 @@
 package com.apeiron.immoxperts.service.impl;
 
-import com.apeiron.immoxperts.domain.DvfLouer;
-import com.apeiron.immoxperts.domain.DvfLouerDetailView;
-import com.apeiron.immoxperts.repository.DvfLouerDetailViewRepository;
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
 import com.apeiron.immoxperts.repository.DvfLouerRepository;
+import com.apeiron.immoxperts.repository.ListingFacetRepository;
 import com.apeiron.immoxperts.service.DvfLouerService;
+import com.apeiron.immoxperts.service.ListingSuggestionDictionary;
 import com.apeiron.immoxperts.service.dto.DvfLouerDto;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO;
+import com.apeiron.immoxperts.service.dto.ListingPage;
+import com.apeiron.immoxperts.service.dto.ListingSearchCriteria;
+import com.apeiron.immoxperts.service.dto.ListingSearchRowProjection;
 import com.apeiron.immoxperts.service.dto.SuggestionDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 @Service
 public class DvfLouerServiceImpl implements DvfLouerService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DvfLouerServiceImpl.class);
+
+    private static final TypeReference<List<String>> IMAGES_TYPE = new TypeReference<>() {};
+
+    /** Bounds of the budget facet ranges. */
+    private static final List<BigDecimal> BUDGET_EDGES = List.of(
+        BigDecimal.valueOf(500),
+        BigDecimal.valueOf(750),
+        BigDecimal.valueOf(1000),
+        BigDecimal.valueOf(1500),
+        BigDecimal.valueOf(2000),
+        BigDecimal.valueOf(3000)
+    );
+
     private final DvfLouerRepository repository;
-    private final DvfLouerDetailViewRepository detailViewRepository;
+    private final ObjectMapper objectMapper;
+    private final ListingSuggestionDictionary suggestionDictionary;
+    private final ListingFacetRepository facetRepository;
+    private final long countEstimateThreshold;
 
-    public DvfLouerServiceImpl(DvfLouerRepository repository, DvfLouerDetailViewRepository detailViewRepository) {
+    public DvfLouerServiceImpl(
+        DvfLouerRepository repository,
+        ObjectMapper objectMapper,
+        ListingSuggestionDictionary suggestionDictionary,
+        ListingFacetRepository facetRepository,
+        @Value("${listing.count.estimate-threshold:0}") long countEstimateThreshold
+    ) {
         this.repository = repository;
-        this.detailViewRepository = detailViewRepository;
+        this.objectMapper = objectMapper;
+        this.suggestionDictionary = suggestionDictionary;
+        this.facetRepository = facetRepository;
+        this.countEstimateThreshold = countEstimateThreshold;
     }
 
     @Override
@@ -35,111 +73,178 @@ public class DvfLouerServiceImpl implements DvfLouerService {
         BigDecimal maxBudget,
         String propertyType,
         String chambres,
+        boolean expandDuplicates,
         Pageable pageable
     ) {
-        if (value == null || value.trim().isEmpty() || type == null || type.trim().isEmpty()) {
+        ListingSearchCriteria c = ListingSearchCriteria.of(value, type, minBudget, maxBudget, propertyType, chambres, expandDuplicates);
+        if (c == null) {
             return Page.empty(pageable);
         }
 
-        Integer chambre1 = null, chambre2 = null, chambre3 = null, chambre4 = null, chambresMin = null;
-        if (chambres != null && !chambres.trim().isEmpty()) {
-            String s = chambres.trim();
-            if (s.equals("5+") || s.equals("5")) {
-                chambresMin = 5;
-            } else {
-                String[] parts = s.split("[,;]");
-                int i = 0;
-                for (String p : parts) {
-                    try {
-                        int n = Integer.parseInt(p.trim());
-                        if (n >= 1 && n <= 99 && i < 4) {
-                            if (i == 0) chambre1 = n;
-                            else if (i == 1) chambre2 = n;
-                            else if (i == 2) chambre3 = n;
-                            else chambre4 = n;
-                            i++;
-                        }
-                    } catch (NumberFormatException ignored) {}
-                }
-            }
-        }
-
-        boolean hasChambresFilter = chambre1 != null || chambre2 != null || chambre3 != null || chambre4 != null || chambresMin != null;
-        Page<DvfLouer> page = hasChambresFilter
+        List<ListingSearchRowProjection> rows = c.hasChambresFilter()
             ? repository.findByLocationAndFiltersPaginatedWithChambres(
-                value.trim(),
-                type.trim(),
-                minBudget,
-                maxBudget,
-                propertyType != null ? propertyType.trim() : null,
-                chambre1,
-                chambre2,
-                chambre3,
-                chambre4,
-                chambresMin,
+                c.value(),
+                c.type(),
+                c.minBudget(),
+                c.maxBudget(),
+                c.propertyType(),
+                c.expandDuplicates(),
+                c.chambre1(),
+                c.chambre2(),
+                c.chambre3(),
+                c.chambre4(),
+                c.chambresMin(),
                 pageable
             )
             : repository.findByLocationAndFiltersPaginated(
-                value.trim(),
-                type.trim(),
-                minBudget,
-                maxBudget,
-                propertyType != null ? propertyType.trim() : null,
+                c.value(),
+                c.type(),
+                c.minBudget(),
+                c.maxBudget(),
+                c.propertyType(),
+                c.expandDuplicates(),
                 pageable
             );
-        List<DvfLouerDto> content = page.getContent().stream().map(this::toDto).toList();
-        List<Long> ids = content.stream().map(DvfLouerDto::getId).toList();
-        if (!ids.isEmpty()) {
-            List<DvfLouerDetailView> detailList = detailViewRepository.findByPublicationIdIn(ids);
-            Map<Long, DvfLouerDetailView> detailMap = detailList.stream().collect(Collectors.toMap(DvfLouerDetailView::getPublicationId, d -> d));
-            for (DvfLouerDto dto : content) {
-                DvfLouerDetailView d = detailMap.get(dto.getId());
-                if (d != null) {
-                    dto.setSurface(d.getSurface());
-                    dto.setChambre(d.getChambre());
-                    dto.setPieces(d.getPieces());
-                    dto.setDpe(d.getDpe());
-                    dto.setTerrainSqm(d.getTerrainSqm());
-                    dto.setPiscine(d.getPiscine());
-                    dto.setMeuble(d.getMeuble());
-                    dto.setTerrasse(d.getTerrasse());
-                    dto.setBalcon(d.getBalcon());
-                    dto.setCave(d.getCave());
-                    dto.setJardin(d.getJardin());
-                    dto.setParking(d.getParking());
-                    dto.setEtage(d.getEtage());
-                }
+
+        long total;
+        boolean totalExact = true;
+        if (pageable.getOffset() == 0 && rows.size() < pageable.getPageSize()) {
+            // First page is not full: the total is known without counting
+            total = rows.size();
+        } else {
+            long estimate = countEstimateThreshold > 0
+                ? repository.estimateCountByLocationAndFilters(
+                    c.value(),
+                    c.type(),
+                    c.minBudget(),
+                    c.maxBudget(),
+                    c.propertyType(),
+                    c.expandDuplicates(),
+                    c.chambre1(),
+                    c.chambre2(),
+                    c.chambre3(),
+                    c.chambre4(),
+                    c.chambresMin()
+                )
+                : 0L;
+            if (countEstimateThreshold > 0 && estimate >= countEstimateThreshold) {
+                total = estimate;
+                totalExact = false;
+            } else {
+                total = repository.countByLocationAndFilters(
+                    c.value(),
+                    c.type(),
+                    c.minBudget(),
+                    c.maxBudget(),
+                    c.propertyType(),
+                    c.expandDuplicates(),
+                    c.chambre1(),
+                    c.chambre2(),
+                    c.chambre3(),
+                    c.chambre4(),
+                    c.chambresMin()
+                );
             }
         }
-        return new PageImpl<>(content, page.getPageable(), page.getTotalElements());
+
+        List<DvfLouerDto> content = rows.stream().map(this::toDto).toList();
+        return new ListingPage<>(content, pageable, total, totalExact);
     }
 
-    private DvfLouerDto toDto(DvfLouer entity) {
+    private DvfLouerDto toDto(ListingSearchRowProjection row) {
         DvfLouerDto dto = new DvfLouerDto();
-        dto.setId(entity.getId());
-        dto.setSource(entity.getSource());
-        dto.setSearchPostalCode(entity.getSearchPostalCode());
-        dto.setDepartment(entity.getDepartment());
-        dto.setDepartmentName(entity.getDepartmentName());
-        dto.setCommune(entity.getCommune());
-        dto.setCodeDepartment(entity.getCodeDepartment());
-        dto.setPropertyType(entity.getPropertyType());
-        dto.setPriceText(entity.getPriceText());
-        dto.setPrice(entity.getPrice());
-        dto.setAddress(entity.getAddress());
-        dto.setDetails(entity.getDetails());
-        dto.setDescription(entity.getDescription());
-        dto.setPropertyUrl(entity.getPropertyUrl());
-        dto.setImages(entity.getImages());
+        dto.setId(row.getId());
+        dto.setSource(row.getSource());
+        dto.setSearchPostalCode(row.getSearchPostalCode());
+        dto.setDepartment(row.getDepartment());
+        dto.setDepartmentName(row.getDepartmentName());
+        dto.setCommune(row.getCommune());
+        dto.setCodeDepartment(row.getCodeDepartment());
+        dto.setPropertyType(row.getPropertyType());
+        dto.setPriceText(row.getPriceText());
+        dto.setPrice(row.getPrice());
+        dto.setAddress(row.getAddress());
+        dto.setDetails(row.getDetails());
+        dto.setDescription(row.getDescription());
+        dto.setPropertyUrl(row.getPropertyUrl());
+        dto.setImages(parseImages(row.getId(), row.getImages()));
+        dto.setFirstImage(row.getFirstImage());
+        dto.setImageCount(row.getImageCount());
+        dto.setSurface(row.getSurface());
+        dto.setChambre(row.getChambre());
+        dto.setPieces(row.getPieces());
+        dto.setDpe(row.getDpe());
+        dto.setTerrainSqm(row.getTerrainSqm());
+        dto.setPiscine(row.getPiscine());
+        dto.setMeuble(row.getMeuble());
+        dto.setTerrasse(row.getTerrasse());
+        dto.setBalcon(row.getBalcon());
+        dto.setCave(row.getCave());
+        dto.setJardin(row.getJardin());
+        dto.setParking(row.getParking());
+        dto.setEtage(row.getEtage());
+        dto.setClusterId(row.getClusterId());
         return dto;
     }
 
+    @Override
+    public ListingFacetsDTO getFacets(
+        String value,
+        String type,
+        BigDecimal minBudget,
+        BigDecimal maxBudget,
+        String propertyType,
+        String chambres,
+        boolean expandDuplicates
+    ) {
+        ListingSearchCriteria c = ListingSearchCriteria.of(value, type, minBudget, maxBudget, propertyType, chambres, expandDuplicates);
+        if (c == null) {
+            return null;
+        }
+        return facetRepository.findFacets(ListingKind.LOUER, c, BUDGET_EDGES);
+    }
+
+    @Override
+    public List<DvfLouerDto> getDetails(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, DvfLouerDto> byId = repository
+            .findDetailsByIdIn(ids)
+            .stream()
+            .collect(Collectors.toMap(ListingSearchRowProjection::getId, this::toDto));
+        // In the requested order, unknown ids skipped
+        return ids.stream().distinct().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    @Override
+    public List<DvfLouerDto> getDuplicates(Long id) {
+        return repository.findDuplicateCluster(id).stream().map(this::toDto).toList();
+    }
+
+    private List<String> parseImages(Long id, String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, IMAGES_TYPE);
+        } catch (JsonProcessingException e) {
+            LOG.warn("Ignoring malformed images of listing {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
     @Override
     public List<SuggestionDto> getSuggestions(String query, int limit) {
         if (query == null || query.trim().isEmpty()) {
             return List.of();
         }
 
+        Optional<List<SuggestionDto>> fromDictionary = suggestionDictionary.suggest(ListingKind.LOUER, query, limit);
+        if (fromDictionary.isPresent()) {
+            return fromDictionary.get();
+        }
+
         List<Object[]> results = repository.findSuggestions(query.trim(), limit);
 
         return results
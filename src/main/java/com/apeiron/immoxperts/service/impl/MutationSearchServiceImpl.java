@@ -1,15 +1,20 @@
 package com.apeiron.immoxperts.service.impl;
 
 import com.apeiron.immoxperts.domain.Mutation;
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
 import com.apeiron.immoxperts.repository.MutationSearchMaterializedViewRepository;
+import com.apeiron.immoxperts.service.MaterializedViewRefreshService;
 import com.apeiron.immoxperts.service.MutationSearchService;
 import com.apeiron.immoxperts.service.dto.MutationDTO;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
 import com.apeiron.immoxperts.service.mapper.MutationMapper;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Service
@@ -20,13 +25,16 @@ public class MutationSearchServiceImpl implements MutationSearchService {
 
     private final MutationSearchMaterializedViewRepository mutationSearchMaterializedViewRepository;
     private final MutationMapper mutationMapper;
+    private final MaterializedViewRefreshService materializedViewRefreshService;
 
     public MutationSearchServiceImpl(
         MutationSearchMaterializedViewRepository mutationSearchMaterializedViewRepository,
-        MutationMapper mutationMapper
+        MutationMapper mutationMapper,
+        MaterializedViewRefreshService materializedViewRefreshService
     ) {
         this.mutationSearchMaterializedViewRepository = mutationSearchMaterializedViewRepository;
         this.mutationMapper = mutationMapper;
+        this.materializedViewRefreshService = materializedViewRefreshService;
     }
 
     @Override
@@ -64,8 +72,9 @@ public class MutationSearchServiceImpl implements MutationSearchService {
     }
 
     @Override
-    public void refreshMaterializedView() {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RefreshJobDTO refreshMaterializedView() {
         LOG.debug("Request to refresh mutation search materialized view");
-        mutationSearchMaterializedViewRepository.refreshMaterializedView();
+        return materializedViewRefreshService.submit(List.of(MaterializedView.MUTATION_SEARCH));
     }
 }
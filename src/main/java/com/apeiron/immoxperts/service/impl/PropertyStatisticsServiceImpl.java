@@ -1,10 +1,14 @@
 package com.apeiron.immoxperts.service.impl;
 
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
 import com.apeiron.immoxperts.repository.PropertyStatisticsRepository;
+import com.apeiron.immoxperts.service.MaterializedViewRefreshService;
 import com.apeiron.immoxperts.service.PropertyStatisticsService;
 import com.apeiron.immoxperts.service.dto.PropertyStatisticsDTO;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
 import java.util.List;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
@@ -13,9 +17,14 @@ import org.springframework.util.StringUtils;
 public class PropertyStatisticsServiceImpl implements PropertyStatisticsService {
 
     private final PropertyStatisticsRepository propertyStatisticsRepository;
+    private final MaterializedViewRefreshService materializedViewRefreshService;
 
-    public PropertyStatisticsServiceImpl(PropertyStatisticsRepository propertyStatisticsRepository) {
+    public PropertyStatisticsServiceImpl(
+        PropertyStatisticsRepository propertyStatisticsRepository,
+        MaterializedViewRefreshService materializedViewRefreshService
+    ) {
         this.propertyStatisticsRepository = propertyStatisticsRepository;
+        this.materializedViewRefreshService = materializedViewRefreshService;
     }
 
     @Override
@@ -37,8 +46,10 @@ public class PropertyStatisticsServiceImpl implements PropertyStatisticsService
     }
 
     @Override
-    @Transactional
-    public void refreshPropertyStatistics() {
-        propertyStatisticsRepository.refreshMaterializedView();
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public RefreshJobDTO refreshPropertyStatistics() {
+        return materializedViewRefreshService.submit(
+            List.of(MaterializedView.PROPERTY_STATISTICS, MaterializedView.COMMUNE_MUTATION_STATS)
+        );
     }
 }
@@ -0,0 +1,104 @@
+package com.apeiron.immoxperts.web.rest;
+
+import com.apeiron.immoxperts.service.ComparableSalesService;
+import com.apeiron.immoxperts.service.dto.ComparableSaleDTO;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Comparable sales of a sale or an address, answered from the in-memory index of {@link ComparableSalesService}.
+ */
+@RestController
+@RequestMapping("/api")
+public class ComparableSalesResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ComparableSalesResource.class);
+
+    static final int MAX_COMPARABLES = 50;
+
+    private final ComparableSalesService comparableSalesService;
+
+    public ComparableSalesResource(ComparableSalesService comparableSalesService) {
+        this.comparableSalesService = comparableSalesService;
+    }
+
+    /**
+     * GET /api/mutations/{id}/comparables?k=10 — the sales most like sale {@code id}: near it, of the same type, of a
+     * similar surface and number of rooms, and recent.
+     *
+     * @param k number of sales, 1 to {@value #MAX_COMPARABLES} (default 10).
+     * @param type {@code maison}, {@code appartement} or {@code local_commercial}, instead of the type of the sale.
+     * @param surface built surface in m², instead of the surface of the sale.
+     * @param pieces main rooms, instead of the rooms of the sale.
+     * @return best first; 404 when the sale is not indexed (older than the history kept, of several properties, or
+     * without coordinates), 503 while the index is loading.
+     */
+    @GetMapping("/mutations/{id}/comparables")
+    public ResponseEntity<List<ComparableSaleDTO>> getMutationComparables(
+        @PathVariable Integer id,
+        @RequestParam(defaultValue = "10") int k,
+        @RequestParam(required = false) String type,
+        @RequestParam(required = false) Double surface,
+        @RequestParam(required = false) Integer pieces
+    ) {
+        LOG.debug("REST request to get {} comparables of Mutation {}", k, id);
+        if (k < 1 || k > MAX_COMPARABLES) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!comparableSalesService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return found(comparableSalesService.findForMutation(id, k, normalize(type), surface, pieces));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET /api/adresses/{id}/comparables?k=10&type=appartement&surface=65&pieces=3 — the sales most like a property at
+     * address {@code id}, described by the latest sale there unless given.
+     *
+     * @return best first; 404 when the address has no coordinates, 503 while the index is loading.
+     * @see #getMutationComparables(Integer, int, String, Double, Integer)
+     */
+    @GetMapping("/adresses/{id}/comparables")
+    public ResponseEntity<List<ComparableSaleDTO>> getAdresseComparables(
+        @PathVariable Integer id,
+        @RequestParam(defaultValue = "10") int k,
+        @RequestParam(required = false) String type,
+        @RequestParam(required = false) Double surface,
+        @RequestParam(required = false) Integer pieces
+    ) {
+        LOG.debug("REST request to get {} comparables of Adresse {}", k, id);
+        if (k < 1 || k > MAX_COMPARABLES) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!comparableSalesService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            return found(comparableSalesService.findForAddress(id, k, normalize(type), surface, pieces));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static ResponseEntity<List<ComparableSaleDTO>> found(Optional<List<ComparableSaleDTO>> comparables) {
+        return comparables.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static String normalize(String type) {
+        return type != null && !type.isBlank() ? type.trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -2,6 +2,7 @@ package com.apeiron.immoxperts.web.rest;
 
 import com.apeiron.immoxperts.service.DvfAchatService;
 import com.apeiron.immoxperts.service.dto.DvfAchatDto;
+import com.apeiron.immoxperts.service.dto.ListingFacetsDTO;
 import com.apeiron.immoxperts.service.dto.SuggestionDto;
 import java.math.BigDecimal;
 import java.util.List;
@@ -10,6 +11,7 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -20,6 +22,8 @@ public class DvfAchatController {
 
     private static final int DEFAULT_PAGE_SIZE = 30;
 
+    private static final int MAX_DETAIL_IDS = 100;
+
     private final DvfAchatService service;
 
     public DvfAchatController(DvfAchatService service) {
@@ -43,14 +47,53 @@ public class DvfAchatController {
         @RequestParam(value = "maxBudget", required = false) BigDecimal maxBudget,
         @RequestParam(value = "propertyType", required = false) String propertyType,
         @RequestParam(value = "chambres", required = false) String chambres,
+        @RequestParam(value = "expandDuplicates", defaultValue = "false") boolean expandDuplicates,
         @RequestParam(value = "page", defaultValue = "0") int page,
         @RequestParam(value = "size", defaultValue = "30") int size
     ) {
         int pageSize = Math.min(Math.max(size, 1), 100);
         Pageable pageable = PageRequest.of(Math.max(page, 0), pageSize);
         Page<DvfAchatDto> achats = service.getAchatsByLocationAndFiltersPaginated(
-            value, type, minBudget, maxBudget, propertyType, chambres, pageable
+            value, type, minBudget, maxBudget, propertyType, chambres, expandDuplicates, pageable
         );
         return ResponseEntity.ok(achats);
     }
+
+    /**
+     * {@code GET /facets} : counts per property type, bedrooms, budget range and DPE class for the search-with-filters
+     * parameters, each facet ignoring its own filter.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<ListingFacetsDTO> getFacets(
+        @RequestParam("value") String value,
+        @RequestParam("type") String type,
+        @RequestParam(value = "minBudget", required = false) BigDecimal minBudget,
+        @RequestParam(value = "maxBudget", required = false) BigDecimal maxBudget,
+        @RequestParam(value = "propertyType", required = false) String propertyType,
+        @RequestParam(value = "chambres", required = false) String chambres,
+        @RequestParam(value = "expandDuplicates", defaultValue = "false") boolean expandDuplicates
+    ) {
+        ListingFacetsDTO facets = service.getFacets(value, type, minBudget, maxBudget, propertyType, chambres, expandDuplicates);
+        return facets != null ? ResponseEntity.ok(facets) : ResponseEntity.badRequest().build();
+    }
+
+    /**
+     * {@code GET /details?ids=1,2,3} : full details, description and images of listings shown in search results, which
+     * only carry them truncated, with the first image alone. At most {@value #MAX_DETAIL_IDS} ids per request.
+     */
+    @GetMapping("/details")
+    public ResponseEntity<List<DvfAchatDto>> getDetails(@RequestParam("ids") List<Long> ids) {
+        if (ids.size() > MAX_DETAIL_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(service.getDetails(ids));
+    }
+
+    /**
+     * {@code GET /{id}/duplicates} : the same property as listed on other sources.
+     */
+    @GetMapping("/{id}/duplicates")
+    public ResponseEntity<List<DvfAchatDto>> getDuplicates(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(service.getDuplicates(id));
+    }
 }
@@ -1,93 +1,225 @@
 package com.apeiron.immoxperts.web.rest;
 
-import java.io.ByteArrayInputStream;
+import com.apeiron.immoxperts.security.AuthoritiesConstants;
+import com.apeiron.immoxperts.service.GeatMapStatsTileService;
+import com.apeiron.immoxperts.service.GeatMapTileService;
+import com.apeiron.immoxperts.service.TileArchiveWriter;
+import com.apeiron.immoxperts.service.TileSource;
+import com.apeiron.immoxperts.service.dto.TileDTO;
 import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.util.Set;
-import java.util.zip.GZIPInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 /**
- * Serves vector tiles from .mbtiles files for the GeatMap administrative drill-down.
- * Expects regions.mbtiles, departements.mbtiles, communes.mbtiles in the configured folder.
+ * Serves vector tiles from .mbtiles files or tile archives for the GeatMap administrative drill-down.
+ * Expects regions, departements, communes (.gmtiles or .mbtiles) in the configured folder.
  */
 @RestController
 @RequestMapping("/api/tiles/geatmap")
 public class GeatMapTileResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(GeatMapTileResource.class);
-    private static final Set<String> ALLOWED_LAYERS = Set.of("regions", "departements", "communes");
     private static final String TILE_CONTENT_TYPE = "application/vnd.mapbox-vector-tile";
 
-    @Value("${geatmap.tiles.path:./tiles}")
-    private String tilesPath;
+    /** Most tiles one batch request may ask for. */
+    static final int MAX_BATCH_TILES = 256;
+
+    static final int BATCH_TILE_ABSENT = 0;
+    static final int BATCH_TILE_PBF = 1;
+    static final int BATCH_TILE_GZIP = 2;
+
+    private final GeatMapTileService tileService;
+    private final GeatMapStatsTileService statsTileService;
+
+    public GeatMapTileResource(GeatMapTileService tileService, GeatMapStatsTileService statsTileService) {
+        this.tileService = tileService;
+        this.statsTileService = statsTileService;
+    }
 
     /**
      * GET /api/tiles/geatmap/{layer}/{z}/{x}/{y} — returns a single vector tile (e.g. .pbf).
-     * mbtiles uses TMS row: row = (1 << z) - 1 - y.
      */
     @GetMapping("/{layer}/{z}/{x}/{y}")
-    public ResponseEntity<ByteArrayResource> getTile(
+    public ResponseEntity<Resource> getTile(
         @PathVariable String layer,
         @PathVariable int z,
         @PathVariable int x,
-        @PathVariable int y
+        @PathVariable int y,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        if (!ALLOWED_LAYERS.contains(layer)) {
+        if (!tileService.isLayer(layer)) {
             return ResponseEntity.badRequest().build();
         }
-        Path base = Path.of(tilesPath).toAbsolutePath().normalize();
-        Path mbtilesFile = base.resolve(layer + ".mbtiles");
-        if (!Files.isRegularFile(mbtilesFile)) {
-            LOG.debug("mbtiles file not found: {}", mbtilesFile);
+        try {
+            return tileResponse(tileService.getTile(layer, z, x, y), "public, max-age=86400", acceptEncoding, ifNoneMatch);
+        } catch (IOException e) {
+            LOG.warn("Tile read error for {}: {}", tileService.getFile(layer), e.getMessage());
             return ResponseEntity.notFound().build();
         }
-        // mbtiles spec: tile_row is TMS (0 at bottom). XYZ y=0 is top, so TMS row = (1<<z)-1-y
-        int tmsRow = (1 << z) - 1 - y;
-        String jdbcUrl = "jdbc:sqlite:" + mbtilesFile.toString().replace("\\", "/");
-        try (Connection conn = DriverManager.getConnection(jdbcUrl)) {
-            String sql = "SELECT tile_data FROM tiles WHERE zoom_level = ? AND tile_column = ? AND tile_row = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setInt(1, z);
-                ps.setInt(2, x);
-                ps.setInt(3, tmsRow);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) {
-                        return ResponseEntity.notFound().build();
-                    }
-                    byte[] tileData = rs.getBytes("tile_data");
-                    if (tileData == null || tileData.length == 0) {
-                        return ResponseEntity.notFound().build();
-                    }
-                    // mbtiles often store tile_data gzip-compressed; Mapbox GL expects raw PBF (fixes "Unimplemented type: 3")
-                    byte[] payload = decompressIfGzip(tileData);
-                    HttpHeaders headers = new HttpHeaders();
-                    headers.setContentType(MediaType.parseMediaType(TILE_CONTENT_TYPE));
-                    headers.setCacheControl("public, max-age=86400");
-                    return ResponseEntity.ok().headers(headers).body(new ByteArrayResource(payload));
+    }
+
+    /**
+     * GET /api/tiles/geatmap/stats/{layer}/{z}/{x}/{y} — the vector tile of the layer with the sale statistics of each
+     * area in its feature properties (nb_mutations, nb_{type}, prix_m2_{type}), for choropleth styling.
+     */
+    @GetMapping("/stats/{layer}/{z}/{x}/{y}")
+    public ResponseEntity<Resource> getStatsTile(
+        @PathVariable String layer,
+        @PathVariable int z,
+        @PathVariable int x,
+        @PathVariable int y,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (!tileService.isLayer(layer)) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            // Statistics change more often than geometries; the ETag keeps revalidation cheap
+            return tileResponse(statsTileService.getTile(layer, z, x, y), "public, max-age=3600", acceptEncoding, ifNoneMatch);
+        } catch (IOException e) {
+            LOG.warn("Statistics tile error for {}: {}", tileService.getFile(layer), e.getMessage());
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * POST /api/tiles/geatmap/batch — several tiles of one or more layers in one response, for clients that prefetch a
+     * whole viewport. The body is a JSON array of {@code "layer/z/x/y"} (XYZ, at most {@value #MAX_BATCH_TILES}); tiles
+     * of a layer are read with one query on one connection.
+     * <p>
+     * The response is {@code application/octet-stream}, big-endian: the number of tiles as an int, then for each
+     * requested tile in request order one status byte (0 no tile, 1 PBF, 2 gzipped PBF), an int length and that many
+     * bytes. Gzipped tiles are only sent to clients accepting gzip. Single tiles stay on {@code /{layer}/{z}/{x}/{y}}.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<byte[]> getTiles(
+        @RequestBody List<String> tiles,
+        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        if (tiles.isEmpty() || tiles.size() > MAX_BATCH_TILES) {
+            return ResponseEntity.badRequest().build();
+        }
+        // Layer -> coordinates and their position in the request
+        Map<String, List<TileSource.Coordinates>> coordinates = new LinkedHashMap<>();
+        Map<String, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < tiles.size(); i++) {
+            String[] parts = tiles.get(i) != null ? tiles.get(i).split("/") : new String[0];
+            if (parts.length != 4 || !tileService.isLayer(parts[0])) {
+                return ResponseEntity.badRequest().build();
+            }
+            try {
+                TileSource.Coordinates c = new TileSource.Coordinates(
+                    Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]),
+                    Integer.parseInt(parts[3])
+                );
+                coordinates.computeIfAbsent(parts[0], k -> new ArrayList<>()).add(c);
+                positions.computeIfAbsent(parts[0], k -> new ArrayList<>()).add(i);
+            } catch (NumberFormatException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        TileDTO[] found = new TileDTO[tiles.size()];
+        for (Map.Entry<String, List<TileSource.Coordinates>> entry : coordinates.entrySet()) {
+            String layer = entry.getKey();
+            try {
+                List<TileDTO> layerTiles = tileService.getTiles(layer, entry.getValue());
+                for (int i = 0; i < layerTiles.size(); i++) {
+                    found[positions.get(layer).get(i)] = layerTiles.get(i);
                 }
+            } catch (IOException e) {
+                // Sent as absent, like the single tile endpoint answers 404
+                LOG.warn("Tile read error for {}: {}", tileService.getFile(layer), e.getMessage());
             }
-        } catch (SQLException e) {
-            LOG.warn("mbtiles read error for {}: {}", mbtilesFile, e.getMessage());
+        }
+
+        boolean gzip = acceptsGzip(acceptEncoding);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(found.length);
+            for (TileDTO tile : found) {
+                if (tile == null) {
+                    out.writeByte(BATCH_TILE_ABSENT);
+                    out.writeInt(0);
+                    continue;
+                }
+                byte[] data;
+                if (tile.gzipped() && !gzip) {
+                    data = tile.uncompressed();
+                } else {
+                    data = new byte[tile.length()];
+                    tile.data().duplicate().get(data);
+                }
+                out.writeByte(tile.gzipped() && gzip ? BATCH_TILE_GZIP : BATCH_TILE_PBF);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+            out.flush();
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+            headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+            return ResponseEntity.ok().headers(headers).body(bytes.toByteArray());
+        } catch (IOException e) {
+            LOG.warn("Tile batch error: {}", e.getMessage());
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private static ResponseEntity<Resource> tileResponse(TileDTO tile, String cacheControl, String acceptEncoding, String ifNoneMatch)
+        throws IOException {
+        if (tile == null) {
             return ResponseEntity.notFound().build();
         }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(TILE_CONTENT_TYPE));
+        headers.setCacheControl(cacheControl);
+        headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+        // Stored gzip bytes go out untouched with Content-Encoding so the browser inflates them; without the header
+        // Mapbox GL would parse gzip as PBF ("Unimplemented type: 3"). Clients without gzip get the tile inflated.
+        boolean inflate = tile.gzipped() && !acceptsGzip(acceptEncoding);
+        headers.setETag(tile.etag(inflate));
+        if (etagMatches(ifNoneMatch, tile.etag(inflate))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        Resource body;
+        if (inflate) {
+            body = new ByteArrayResource(tile.uncompressed());
+        } else {
+            if (tile.gzipped()) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            body = new ByteBufferResource(tile.data());
+        }
+        headers.setContentLength(body.contentLength());
+        return ResponseEntity.ok().headers(headers).body(body);
     }
 
     /**
@@ -95,47 +227,130 @@ public class GeatMapTileResource {
      * Use this to find the correct source-layer name (vector_layers[].id) if layers don't show.
      */
     @GetMapping("/metadata/{layer}")
-    public ResponseEntity<String> getMetadata(@PathVariable String layer) {
-        if (!ALLOWED_LAYERS.contains(layer)) {
+    public ResponseEntity<String> getMetadata(
+        @PathVariable String layer,
+        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        if (!tileService.isLayer(layer)) {
             return ResponseEntity.badRequest().build();
         }
-        Path base = Path.of(tilesPath).toAbsolutePath().normalize();
-        Path mbtilesFile = base.resolve(layer + ".mbtiles");
-        if (!Files.isRegularFile(mbtilesFile)) {
+        try {
+            GeatMapTileService.Metadata json = tileService.getMetadata(layer, "json");
+            if (json == null) {
+                return ResponseEntity.notFound().build();
+            }
+            if (etagMatches(ifNoneMatch, json.etag())) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(json.etag()).build();
+            }
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).eTag(json.etag()).body(json.value());
+        } catch (IOException e) {
+            LOG.warn("Tile metadata read error for {}: {}", tileService.getFile(layer), e.getMessage());
             return ResponseEntity.notFound().build();
         }
-        String jdbcUrl = "jdbc:sqlite:" + mbtilesFile.toString().replace("\\", "/");
-        try (Connection conn = DriverManager.getConnection(jdbcUrl)) {
-            try (PreparedStatement ps = conn.prepareStatement("SELECT value FROM metadata WHERE name = 'json'")) {
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (!rs.next()) {
-                        return ResponseEntity.notFound().build();
+    }
+
+    /**
+     * POST /api/tiles/geatmap/{layer}/archive — converts {layer}.mbtiles into a memory-mapped {layer}.gmtiles archive,
+     * which is served from then on.
+     */
+    @PostMapping("/{layer}/archive")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<TileArchiveWriter.Summary> convertToArchive(@PathVariable String layer) throws IOException {
+        LOG.debug("REST request to convert the {} tiles to an archive", layer);
+        if (!tileService.isLayer(layer)) {
+            return ResponseEntity.badRequest().build();
+        }
+        TileArchiveWriter.Summary summary = tileService.convert(layer);
+        return summary != null ? ResponseEntity.ok(summary) : ResponseEntity.notFound().build();
+    }
+
+    /** If-None-Match comparison (weak, as RFC 9110 requires for it): {@code *} or any listed tag equal to {@code etag}. */
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** True when Accept-Encoding lists gzip (or *) without q=0. */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(param.substring(2).trim()) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
                     }
-                    String json = rs.getString("value");
-                    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(json != null ? json : "{}");
                 }
             }
-        } catch (SQLException e) {
-            LOG.warn("mbtiles metadata read error for {}: {}", mbtilesFile, e.getMessage());
-            return ResponseEntity.notFound().build();
+            if (!refused) {
+                return true;
+            }
         }
+        return false;
     }
 
-    /** Decompress tile_data if it is gzip (mbtiles often stores PBF gzip-compressed). Returns raw bytes otherwise. */
-    private static byte[] decompressIfGzip(byte[] data) {
-        if (data == null || data.length < 2) return data;
-        if (data[0] != (byte) 0x1f || data[1] != (byte) 0x8b) return data;
-        try (
-            GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data));
-            ByteArrayOutputStream out = new ByteArrayOutputStream()
-        ) {
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = gzip.read(buf)) > 0) out.write(buf, 0, n);
-            return out.toByteArray();
-        } catch (IOException e) {
-            LOG.warn("Failed to decompress gzip tile_data: {}", e.getMessage());
-            return data;
+    /**
+     * Body backed by a tile buffer, possibly a slice of a memory-mapped archive: streamed to the response from the buffer
+     * instead of being copied into a new array first.
+     */
+    private static final class ByteBufferResource extends AbstractResource {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferResource(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public String getDescription() {
+            return "Tile buffer [" + buffer.remaining() + " bytes]";
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            ByteBuffer data = buffer.duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return data.hasRemaining() ? data.get() & 0xff : -1;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (!data.hasRemaining()) {
+                        return len == 0 ? 0 : -1;
+                    }
+                    int n = Math.min(len, data.remaining());
+                    data.get(b, off, n);
+                    return n;
+                }
+            };
         }
     }
 }
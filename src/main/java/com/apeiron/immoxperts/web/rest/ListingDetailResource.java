@@ -0,0 +1,72 @@
+package com.apeiron.immoxperts.web.rest;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.security.AuthoritiesConstants;
+import com.apeiron.immoxperts.service.ListingDetailIndexer;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * Maintenance of the parsed listing characteristics (dvf_achat_detail / dvf_louer_detail).
+ */
+@RestController
+@RequestMapping("/api/listing-details")
+public class ListingDetailResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingDetailResource.class);
+
+    private final ListingDetailIndexer listingDetailIndexer;
+
+    public ListingDetailResource(ListingDetailIndexer listingDetailIndexer) {
+        this.listingDetailIndexer = listingDetailIndexer;
+    }
+
+    /**
+     * {@code POST /api/listing-details/{kind}/backfill} : queue the re-parsing of every listing of {@code achat} or
+     * {@code louer}.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the queued job, whose state (and, once
+     * done, the number of listings parsed) is at the {@code Location} URI.
+     */
+    @PostMapping("/{kind}/backfill")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<MaintenanceJobDTO> backfill(@PathVariable String kind) {
+        LOG.debug("REST request to backfill listing details of {}", kind);
+        ListingKind listingKind;
+        try {
+            listingKind = ListingKind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        MaintenanceJobDTO job = listingDetailIndexer.submitBackfill(listingKind);
+        return ResponseEntity.accepted().location(URI.create("/api/listing-details/jobs/" + job.id())).body(job);
+    }
+
+    /**
+     * {@code GET /api/listing-details/jobs} : the most recent backfill jobs, newest first.
+     */
+    @GetMapping("/jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public List<MaintenanceJobDTO> getJobs() {
+        return listingDetailIndexer.getJobs();
+    }
+
+    /**
+     * {@code GET /api/listing-details/jobs/:id} : the state of a backfill job.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the job, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<MaintenanceJobDTO> getJob(@PathVariable String id) {
+        return ResponseUtil.wrapOrNotFound(listingDetailIndexer.getJob(id));
+    }
+}
@@ -0,0 +1,72 @@
+package com.apeiron.immoxperts.web.rest;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.security.AuthoritiesConstants;
+import com.apeiron.immoxperts.service.ListingDuplicateClusterer;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * Maintenance of the cross-source duplicate clusters (cluster_id of dvf_achat / dvf_louer).
+ */
+@RestController
+@RequestMapping("/api/listing-duplicates")
+public class ListingDuplicateResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingDuplicateResource.class);
+
+    private final ListingDuplicateClusterer listingDuplicateClusterer;
+
+    public ListingDuplicateResource(ListingDuplicateClusterer listingDuplicateClusterer) {
+        this.listingDuplicateClusterer = listingDuplicateClusterer;
+    }
+
+    /**
+     * {@code POST /api/listing-duplicates/{kind}/rebuild} : queue the recomputation of the duplicate clusters of
+     * {@code achat} or {@code louer}.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the queued job, whose state (and, once
+     * done, the number of listings that belong to a cluster) is at the {@code Location} URI.
+     */
+    @PostMapping("/{kind}/rebuild")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<MaintenanceJobDTO> rebuild(@PathVariable String kind) {
+        LOG.debug("REST request to rebuild listing duplicates of {}", kind);
+        ListingKind listingKind;
+        try {
+            listingKind = ListingKind.valueOf(kind.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        MaintenanceJobDTO job = listingDuplicateClusterer.submitRebuild(listingKind);
+        return ResponseEntity.accepted().location(URI.create("/api/listing-duplicates/jobs/" + job.id())).body(job);
+    }
+
+    /**
+     * {@code GET /api/listing-duplicates/jobs} : the most recent rebuild jobs, newest first.
+     */
+    @GetMapping("/jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public List<MaintenanceJobDTO> getJobs() {
+        return listingDuplicateClusterer.getJobs();
+    }
+
+    /**
+     * {@code GET /api/listing-duplicates/jobs/:id} : the state of a rebuild job.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the job, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<MaintenanceJobDTO> getJob(@PathVariable String id) {
+        return ResponseUtil.wrapOrNotFound(listingDuplicateClusterer.getJob(id));
+    }
+}
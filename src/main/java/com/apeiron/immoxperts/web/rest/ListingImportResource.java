@@ -0,0 +1,93 @@
+package com.apeiron.immoxperts.web.rest;
+
+import com.apeiron.immoxperts.domain.enumeration.ListingKind;
+import com.apeiron.immoxperts.security.AuthoritiesConstants;
+import com.apeiron.immoxperts.service.ListingImportJobService;
+import com.apeiron.immoxperts.service.ListingImportReader;
+import com.apeiron.immoxperts.service.dto.ListingImportJobDTO;
+import com.apeiron.immoxperts.web.rest.errors.BadRequestAlertException;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * Bulk import of scraped listings, run in the background.
+ */
+@RestController
+@RequestMapping("/api/listing-import")
+public class ListingImportResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListingImportResource.class);
+
+    private static final String ENTITY_NAME = "listingImport";
+
+    private final ListingImportJobService listingImportJobService;
+
+    public ListingImportResource(ListingImportJobService listingImportJobService) {
+        this.listingImportJobService = listingImportJobService;
+    }
+
+    /**
+     * {@code POST /api/listing-import/{kind}} : queue the import of a JSON Lines or CSV body into dvf_achat
+     * ({@code achat}) or dvf_louer ({@code louer}). The format is taken from {@code format} ({@code jsonl} / {@code csv}),
+     * else from the Content-Type ({@code text/csv} means CSV, anything else JSON Lines). A gzip Content-Encoding is
+     * decompressed.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the queued job, whose state (and, once
+     * done, the counts of inserted, updated, unchanged and rejected listings) is at the {@code Location} URI.
+     */
+    @PostMapping("/{kind}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ListingImportJobDTO> importListings(
+        @PathVariable String kind,
+        @RequestParam(required = false) String format,
+        HttpServletRequest request
+    ) throws IOException {
+        LOG.debug("REST request to import {} listings, format={}", kind, format);
+        ListingKind listingKind;
+        ListingImportReader.Format importFormat;
+        try {
+            listingKind = ListingKind.valueOf(kind.toUpperCase(Locale.ROOT));
+            importFormat = format != null
+                ? ListingImportReader.Format.valueOf(format.toUpperCase(Locale.ROOT))
+                : request.getContentType() != null && request.getContentType().startsWith("text/csv")
+                    ? ListingImportReader.Format.CSV
+                    : ListingImportReader.Format.JSONL;
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestAlertException("Unknown listing kind or import format", ENTITY_NAME, "invalidimport");
+        }
+
+        boolean gzip = "gzip".equalsIgnoreCase(request.getHeader(HttpHeaders.CONTENT_ENCODING));
+        ListingImportJobDTO job = listingImportJobService.submit(listingKind, importFormat, request.getInputStream(), gzip);
+        return ResponseEntity.accepted().location(URI.create("/api/listing-import/jobs/" + job.id())).body(job);
+    }
+
+    /**
+     * {@code GET /api/listing-import/jobs} : the most recent import jobs, newest first.
+     */
+    @GetMapping("/jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public List<ListingImportJobDTO> getJobs() {
+        return listingImportJobService.getJobs();
+    }
+
+    /**
+     * {@code GET /api/listing-import/jobs/:id} : the state of an import job.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the job, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<ListingImportJobDTO> getJob(@PathVariable String id) {
+        return ResponseUtil.wrapOrNotFound(listingImportJobService.getJob(id));
+    }
+}
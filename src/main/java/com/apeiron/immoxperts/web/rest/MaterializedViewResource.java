@@ -0,0 +1,84 @@
+package com.apeiron.immoxperts.web.rest;
+
+import com.apeiron.immoxperts.domain.enumeration.MaterializedView;
+import com.apeiron.immoxperts.security.AuthoritiesConstants;
+import com.apeiron.immoxperts.service.MaterializedViewRefreshService;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
+import com.apeiron.immoxperts.web.rest.errors.BadRequestAlertException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * Background refreshes of the materialized views.
+ */
+@RestController
+@RequestMapping("/api/admin/materialized-views")
+public class MaterializedViewResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MaterializedViewResource.class);
+
+    private static final String ENTITY_NAME = "materializedView";
+
+    private final MaterializedViewRefreshService materializedViewRefreshService;
+
+    public MaterializedViewResource(MaterializedViewRefreshService materializedViewRefreshService) {
+        this.materializedViewRefreshService = materializedViewRefreshService;
+    }
+
+    /**
+     * {@code POST /api/admin/materialized-views/refresh} : queue the refresh of the given views (all of them when none
+     * is given) and of the views built on them.
+     *
+     * @param views view names, e.g. {@code property_statistics_mv}.
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the queued job, whose state is at the
+     * {@code Location} URI.
+     */
+    @PostMapping("/refresh")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<RefreshJobDTO> refresh(@RequestParam(required = false) List<String> views) {
+        LOG.debug("REST request to refresh materialized views : {}", views);
+        List<MaterializedView> selected = new ArrayList<>();
+        if (views != null) {
+            for (String view : views) {
+                selected.add(
+                    MaterializedView.fromViewName(view.trim()).orElseThrow(() ->
+                        new BadRequestAlertException("Unknown materialized view " + view, ENTITY_NAME, "unknownview")
+                    )
+                );
+            }
+        }
+        return accepted(materializedViewRefreshService.submit(selected));
+    }
+
+    /**
+     * {@code GET /api/admin/materialized-views/jobs} : the most recent refresh jobs, newest first.
+     */
+    @GetMapping("/jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public List<RefreshJobDTO> getJobs() {
+        return materializedViewRefreshService.getJobs();
+    }
+
+    /**
+     * {@code GET /api/admin/materialized-views/jobs/:id} : the state of a refresh job.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the job, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/jobs/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<RefreshJobDTO> getJob(@PathVariable String id) {
+        return ResponseUtil.wrapOrNotFound(materializedViewRefreshService.getJob(id));
+    }
+
+    /** {@code 202 (Accepted)} with {@code job}, located at its status endpoint. */
+    static ResponseEntity<RefreshJobDTO> accepted(RefreshJobDTO job) {
+        return ResponseEntity.accepted().location(URI.create("/api/admin/materialized-views/jobs/" + job.id())).body(job);
+    }
+}
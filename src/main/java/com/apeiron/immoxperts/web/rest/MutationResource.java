@@ -325,10 +325,13 @@ public class MutationResource {
         return ResponseEntity.ok(statistics);
     }
 
+    /**
+     * {@code POST /statistics/refresh} : queue the refresh of the statistics views; the job state is at the
+     * {@code Location} URI.
+     */
     @PostMapping("/statistics/refresh")
-    public ResponseEntity<Void> refreshPropertyStatistics() {
-        propertyStatisticsService.refreshPropertyStatistics();
-        return ResponseEntity.ok().build();
+    public ResponseEntity<RefreshJobDTO> refreshPropertyStatistics() {
+        return MaterializedViewResource.accepted(propertyStatisticsService.refreshPropertyStatistics());
     }
 
     @GetMapping("/mutations/by-street-and-commune")
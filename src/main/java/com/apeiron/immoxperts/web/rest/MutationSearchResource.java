@@ -2,6 +2,7 @@ package com.apeiron.immoxperts.web.rest;
 
 import com.apeiron.immoxperts.service.MutationSearchService;
 import com.apeiron.immoxperts.service.dto.MutationDTO;
+import com.apeiron.immoxperts.service.dto.RefreshJobDTO;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,10 +52,13 @@ public class MutationSearchResource {
         return ResponseEntity.ok().headers(headers).body(page.getContent());
     }
 
+    /**
+     * {@code POST /api/mutation-search/refresh} : queue the refresh of mutation_search_mv; the job state is at the
+     * {@code Location} URI.
+     */
     @PostMapping("/refresh")
-    public ResponseEntity<Void> refreshMaterializedView() {
+    public ResponseEntity<RefreshJobDTO> refreshMaterializedView() {
         LOG.debug("REST request to refresh mutation search materialized view");
-        mutationSearchService.refreshMaterializedView();
-        return ResponseEntity.ok().build();
+        return MaterializedViewResource.accepted(mutationSearchService.refreshMaterializedView());
     }
 }
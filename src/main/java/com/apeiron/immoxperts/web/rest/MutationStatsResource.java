@@ -0,0 +1,191 @@
+package com.apeiron.immoxperts.web.rest;
+
+import com.apeiron.immoxperts.security.AuthoritiesConstants;
+import com.apeiron.immoxperts.service.MutationStatsCube;
+import com.apeiron.immoxperts.service.MutationStatsCubeService;
+import com.apeiron.immoxperts.service.RepeatSalesIndexService;
+import com.apeiron.immoxperts.service.dto.EstimatedValueDTO;
+import com.apeiron.immoxperts.service.dto.MaintenanceJobDTO;
+import com.apeiron.immoxperts.service.dto.PriceIndexDTO;
+import com.apeiron.immoxperts.service.dto.RepeatSalesIndexDTO;
+import com.apeiron.immoxperts.service.dto.StatsWindowDTO;
+import java.net.URI;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import tech.jhipster.web.util.ResponseUtil;
+
+/**
+ * Sale statistics over arbitrary windows, answered from the in-memory {@link MutationStatsCube}, and repeat-sales price
+ * indexes.
+ */
+@RestController
+@RequestMapping("/api/mutations/stats")
+public class MutationStatsResource {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MutationStatsResource.class);
+
+    static final int MAX_TIMESERIES_CODES = 500;
+    static final int MAX_SMOOTHING = 24;
+
+    private final MutationStatsCubeService mutationStatsCubeService;
+    private final RepeatSalesIndexService repeatSalesIndexService;
+
+    public MutationStatsResource(MutationStatsCubeService mutationStatsCubeService, RepeatSalesIndexService repeatSalesIndexService) {
+        this.mutationStatsCubeService = mutationStatsCubeService;
+        this.repeatSalesIndexService = repeatSalesIndexService;
+    }
+
+    /**
+     * GET /api/mutations/stats/window?level=commune&code=75056&from=2023-01&to=2024-06&types=maison,appartement —
+     * number of sales, average and standard deviation of the price and of the price per m², and percentiles of the price
+     * per m² (p10 to p90), of an area over a window.
+     *
+     * @param level {@code commune} (default), {@code departement} or {@code region}.
+     * @param code INSEE code of the area.
+     * @param from first month (yyyy-MM), inclusive; the first month with sales when absent.
+     * @param to last month (yyyy-MM), inclusive; the last month with sales when absent.
+     * @param types property types ({@code maison}, {@code appartement}, {@code local_commercial}, {@code dependance},
+     * {@code biens_multiples}, {@code terrain}); all of them when absent.
+     * @return 404 for an unknown area, 503 while the statistics are loading.
+     */
+    @GetMapping("/window")
+    public ResponseEntity<StatsWindowDTO> getStatsWindow(
+        @RequestParam(defaultValue = "commune") String level,
+        @RequestParam String code,
+        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+        @RequestParam(required = false) List<String> types
+    ) {
+        LOG.debug("REST request to get the stats of {} {} from {} to {} for {}", level, code, from, to, types);
+        if (!mutationStatsCubeService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            Optional<StatsWindowDTO> stats = mutationStatsCubeService.getStats(
+                MutationStatsCube.Level.valueOf(level.trim().toUpperCase(Locale.ROOT)),
+                code.trim().toUpperCase(Locale.ROOT),
+                types != null ? types.stream().map(t -> t.trim().toLowerCase(Locale.ROOT)).toList() : List.of(),
+                from,
+                to
+            );
+            return stats.map(ResponseEntity::ok).orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET /api/mutations/stats/timeseries?level=commune&codes=75056,69123&from=2020-01&types=appartement&smoothing=3 —
+     * for each area, the number of sales and the median price per m² of each month, raw and over a rolling window of
+     * {@code smoothing} months, with the smoothed median as an index.
+     *
+     * @param codes INSEE codes of the areas, at most {@value #MAX_TIMESERIES_CODES}; unknown areas are left out.
+     * @param smoothing length of the rolling window in months, 1 to {@value #MAX_SMOOTHING} (default 3).
+     * @return one series per known area, in the order requested; 503 while the statistics are loading.
+     * @see #getStatsWindow(String, String, YearMonth, YearMonth, List)
+     */
+    @GetMapping("/timeseries")
+    public ResponseEntity<List<PriceIndexDTO>> getPriceIndexes(
+        @RequestParam(defaultValue = "commune") String level,
+        @RequestParam List<String> codes,
+        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+        @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to,
+        @RequestParam(required = false) List<String> types,
+        @RequestParam(defaultValue = "3") int smoothing
+    ) {
+        LOG.debug("REST request to get the price index of {} {} from {} to {} for {}", level, codes, from, to, types);
+        if (codes.size() > MAX_TIMESERIES_CODES || smoothing < 1 || smoothing > MAX_SMOOTHING) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!mutationStatsCubeService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        try {
+            MutationStatsCube.Level cubeLevel = MutationStatsCube.Level.valueOf(level.trim().toUpperCase(Locale.ROOT));
+            List<String> cubeTypes = types != null ? types.stream().map(t -> t.trim().toLowerCase(Locale.ROOT)).toList() : List.of();
+            List<PriceIndexDTO> series = new ArrayList<>(codes.size());
+            for (String code : new LinkedHashSet<>(codes)) {
+                mutationStatsCubeService
+                    .getPriceIndex(cubeLevel, code.trim().toUpperCase(Locale.ROOT), cubeTypes, from, to, smoothing)
+                    .ifPresent(series::add);
+            }
+            return ResponseEntity.ok(series);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * GET /api/mutations/stats/repeat-sales?departement=69 — quarterly repeat-sales price index of a département.
+     *
+     * @return 404 when the département has no index (too few repeat sales, or not fitted yet).
+     */
+    @GetMapping("/repeat-sales")
+    public ResponseEntity<RepeatSalesIndexDTO> getRepeatSalesIndex(@RequestParam String departement) {
+        LOG.debug("REST request to get the repeat-sales index of {}", departement);
+        return ResponseUtil.wrapOrNotFound(repeatSalesIndexService.getIndex(departement.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * GET /api/mutations/stats/estimated-value?parcelle=75056000AB0012 — the latest sale of a parcel carried to the
+     * last quarter of the repeat-sales index of its département.
+     *
+     * @return 404 when the parcel never sold or its département has no index covering the sale.
+     */
+    @GetMapping("/estimated-value")
+    public ResponseEntity<EstimatedValueDTO> getEstimatedValue(@RequestParam String parcelle) {
+        LOG.debug("REST request to estimate the value of parcel {}", parcelle);
+        return ResponseUtil.wrapOrNotFound(repeatSalesIndexService.estimateParcel(parcelle.trim().toUpperCase(Locale.ROOT)));
+    }
+
+    /**
+     * {@code POST /api/mutations/stats/repeat-sales/rebuild} : queue the refit of the repeat-sales index of every
+     * département.
+     *
+     * @return the {@link ResponseEntity} with status {@code 202 (Accepted)} and the queued job, whose state (and, once
+     * done, the number of départements with an index) is at the {@code Location} URI.
+     */
+    @PostMapping("/repeat-sales/rebuild")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<MaintenanceJobDTO> rebuildRepeatSalesIndexes() {
+        LOG.debug("REST request to rebuild the repeat-sales indexes");
+        MaintenanceJobDTO job = repeatSalesIndexService.submitRebuild();
+        return ResponseEntity.accepted().location(URI.create("/api/mutations/stats/repeat-sales/jobs/" + job.id())).body(job);
+    }
+
+    /**
+     * {@code GET /api/mutations/stats/repeat-sales/jobs} : the most recent refit jobs, newest first.
+     */
+    @GetMapping("/repeat-sales/jobs")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public List<MaintenanceJobDTO> getRepeatSalesJobs() {
+        return repeatSalesIndexService.getJobs();
+    }
+
+    /**
+     * {@code GET /api/mutations/stats/repeat-sales/jobs/:id} : the state of a refit job.
+     *
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the job, or with status {@code 404 (Not Found)}.
+     */
+    @GetMapping("/repeat-sales/jobs/{id}")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public ResponseEntity<MaintenanceJobDTO> getRepeatSalesJob(@PathVariable String id) {
+        return ResponseUtil.wrapOrNotFound(repeatSalesIndexService.getJob(id));
+    }
+}
@@ -0,0 +1,48 @@
+-- Script 6 : Statistiques par commune précalculées (GET /api/mutations/commune, MutationCustomRepository.getStatsByCommune)
+-- Une ligne par commune (nom en majuscules) : nombre de mutations, prix moyens et répartition par catégorie.
+-- Une mutation compte dans chaque commune où elle a une adresse (adresse_local ou adresse_dispoparc). Catégories :
+-- un seul local → maison / appartement / local commercial, plusieurs locaux → biens multiples,
+-- aucun local mais des parcelles → terrain.
+-- Rafraîchie par POST /api/mutations/statistics/refresh. Tant qu'elle n'existe pas, l'application calcule la même
+-- agrégation pour la commune demandée.
+-- Exécuter dans le schéma dvf_plus_2025_2.
+
+CREATE MATERIALIZED VIEW IF NOT EXISTS dvf_plus_2025_2.commune_mutation_stats_mv AS
+WITH commune_mutations AS (
+    SELECT DISTINCT UPPER(a.commune) AS commune, x.idmutation
+    FROM (
+        SELECT idadresse, idmutation FROM dvf_plus_2025_2.dvf_plus_adresse_local
+        UNION ALL
+        SELECT idadresse, idmutation FROM dvf_plus_2025_2.dvf_plus_adresse_dispoparc
+    ) x
+    JOIN dvf_plus_2025_2.dvf_plus_adresse a ON a.idadresse = x.idadresse
+    WHERE a.commune IS NOT NULL
+),
+mutation_classes AS (
+    SELECT
+        m.idmutation,
+        m.valeurfonc,
+        COUNT(l.iddispoloc) AS locaux,
+        MAX(UPPER(l.libtyploc)) AS type_local,
+        SUM(l.sbati) AS surface,
+        EXISTS (SELECT 1 FROM dvf_plus_2025_2.dvf_plus_disposition_parcelle dp WHERE dp.idmutation = m.idmutation) AS parcelles
+    FROM dvf_plus_2025_2.dvf_plus_mutation m
+    LEFT JOIN dvf_plus_2025_2.dvf_plus_local l ON l.idmutation = m.idmutation
+    GROUP BY m.idmutation, m.valeurfonc
+)
+SELECT
+    cm.commune,
+    COUNT(*) AS total_mutations,
+    ROUND(AVG(mc.valeurfonc) FILTER (WHERE mc.valeurfonc > 0)) AS prix_moyen,
+    ROUND(AVG(mc.valeurfonc / mc.surface) FILTER (WHERE mc.valeurfonc > 0 AND mc.surface > 0)) AS prix_m2_moyen,
+    COUNT(*) FILTER (WHERE mc.locaux = 1 AND mc.type_local = 'MAISON') AS maisons,
+    COUNT(*) FILTER (WHERE mc.locaux = 1 AND mc.type_local = 'APPARTEMENT') AS appartements,
+    COUNT(*) FILTER (WHERE mc.locaux = 1 AND mc.type_local LIKE 'LOCAL%') AS locaux_commerciaux,
+    COUNT(*) FILTER (WHERE mc.locaux > 1) AS biens_multiples,
+    COUNT(*) FILTER (WHERE mc.locaux = 0 AND mc.parcelles) AS terrains
+FROM commune_mutations cm
+JOIN mutation_classes mc ON mc.idmutation = cm.idmutation
+GROUP BY cm.commune;
+
+-- Index unique requis par REFRESH MATERIALIZED VIEW CONCURRENTLY (lectures non bloquées pendant le rafraîchissement)
+CREATE UNIQUE INDEX IF NOT EXISTS commune_mutation_stats_mv_commune_key ON dvf_plus_2025_2.commune_mutation_stats_mv (commune);
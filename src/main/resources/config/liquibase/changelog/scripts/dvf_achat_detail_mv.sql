@@ -1,5 +1,6 @@
 -- Script 1 : Vue matérialisée des caractéristiques Achat (dvf_achat)
 -- Une ligne par publication (id) avec colonnes parsées depuis details.
+-- Obsolète : remplacée par la table dvf_achat_detail (voir dvf_listing_detail.sql).
 -- Exécuter dans le schéma où existent dvf_achat / dvf_louer (ex: dvf_plus_2025_2).
 
 DROP MATERIALIZED VIEW IF EXISTS dvf_plus_2025_2.dvf_achat_detail_mv CASCADE;
@@ -0,0 +1,47 @@
+-- Script 3 : Tables des caractéristiques Achat / Louer, alimentées par l'application (ListingDetailIndexer)
+-- Remplace dvf_achat_detail_mv / dvf_louer_detail_mv : plus de REFRESH complet, seules les nouvelles annonces
+-- (au-delà du watermark created_at / id) sont analysées. Le premier passage de l'application fait le backfill.
+-- details_md5 = md5 du texte details analysé : la réconciliation (listing.details.reconcile-interval) ré-analyse les
+-- annonces sans ligne de détail ou dont le texte a changé depuis.
+-- Exécuter dans le schéma où existent dvf_achat / dvf_louer (ex: dvf_plus_2025_2).
+
+CREATE TABLE IF NOT EXISTS dvf_plus_2025_2.dvf_achat_detail (
+    publication_id BIGINT PRIMARY KEY,
+    surface NUMERIC,
+    chambre INTEGER,
+    pieces INTEGER,
+    dpe VARCHAR(1),
+    terrain_sqm NUMERIC,
+    piscine VARCHAR(3),
+    meuble VARCHAR(3),
+    balcon VARCHAR(3),
+    cave VARCHAR(3),
+    jardin VARCHAR(3),
+    parking VARCHAR(3),
+    etage VARCHAR(50),
+    terrasse VARCHAR(3),
+    details_md5 VARCHAR(32),
+    parsed_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Tables déjà créées : les lignes sans empreinte sont ré-analysées une fois par la réconciliation
+ALTER TABLE dvf_plus_2025_2.dvf_achat_detail ADD COLUMN IF NOT EXISTS details_md5 VARCHAR(32);
+
+CREATE TABLE IF NOT EXISTS dvf_plus_2025_2.dvf_louer_detail (LIKE dvf_plus_2025_2.dvf_achat_detail INCLUDING ALL);
+ALTER TABLE dvf_plus_2025_2.dvf_louer_detail ADD COLUMN IF NOT EXISTS details_md5 VARCHAR(32);
+
+-- Position (created_at, id) de la dernière annonce analysée, par table source
+CREATE TABLE IF NOT EXISTS dvf_plus_2025_2.listing_detail_watermark (
+    table_name VARCHAR(50) PRIMARY KEY,
+    last_created_at TIMESTAMP NOT NULL,
+    last_id BIGINT NOT NULL,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- Parcours incrémental dans l'ordre du watermark
+CREATE INDEX IF NOT EXISTS dvf_achat_detail_sync_idx
+    ON dvf_plus_2025_2.dvf_achat ((COALESCE(created_at, TIMESTAMP '1970-01-01')), id);
+CREATE INDEX IF NOT EXISTS dvf_louer_detail_sync_idx
+    ON dvf_plus_2025_2.dvf_louer ((COALESCE(created_at, TIMESTAMP '1970-01-01')), id);
+
+-- Backfill manuel : POST /api/listing-details/achat/backfill et /api/listing-details/louer/backfill
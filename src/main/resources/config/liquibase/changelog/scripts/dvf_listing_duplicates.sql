@@ -0,0 +1,12 @@
+-- Script 5 : Regroupement des annonces en double entre sources (ListingDuplicateClusterer)
+-- cluster_id = plus petit id du groupe d'annonces décrivant le même bien, NULL si aucun doublon connu.
+-- Calculé par le job planifié (listing.duplicates.cron) ou POST /api/listing-duplicates/{achat|louer}/rebuild.
+-- La recherche n'affiche qu'une annonce par groupe (la plus petite id parmi celles qui passent les filtres), sauf avec
+-- expandDuplicates=true ; les totaux et les facettes comptent chaque groupe une fois.
+
+ALTER TABLE dvf_plus_2025_2.dvf_achat ADD COLUMN IF NOT EXISTS cluster_id BIGINT;
+ALTER TABLE dvf_plus_2025_2.dvf_louer ADD COLUMN IF NOT EXISTS cluster_id BIGINT;
+
+-- GET /api/{achat|louer}/{id}/duplicates ; index partiel, la plupart des annonces n'ont pas de doublon
+CREATE INDEX CONCURRENTLY IF NOT EXISTS dvf_achat_cluster_id_idx ON dvf_plus_2025_2.dvf_achat (cluster_id) WHERE cluster_id IS NOT NULL;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS dvf_louer_cluster_id_idx ON dvf_plus_2025_2.dvf_louer (cluster_id) WHERE cluster_id IS NOT NULL;
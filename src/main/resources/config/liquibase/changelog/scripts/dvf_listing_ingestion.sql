@@ -0,0 +1,23 @@
+-- Script 4 : Clé d'import des annonces (ListingIngestionService, POST /api/listing-import/{achat|louer})
+-- property_url_hash = 8 premiers octets du SHA-256 de property_url (espaces normalisés), calculé aussi côté Java
+-- (ListingImportNormalizer.urlHash). L'upsert de l'import se fait sur l'index unique de cette colonne.
+-- Exécuter dans le schéma où existent dvf_achat / dvf_louer (ex: dvf_plus_2025_2).
+
+ALTER TABLE dvf_plus_2025_2.dvf_achat ADD COLUMN IF NOT EXISTS property_url_hash BIGINT;
+ALTER TABLE dvf_plus_2025_2.dvf_louer ADD COLUMN IF NOT EXISTS property_url_hash BIGINT;
+
+UPDATE dvf_plus_2025_2.dvf_achat
+SET property_url_hash = ('x' || substr(encode(sha256(convert_to(regexp_replace(trim(property_url), '\s+', ' ', 'g'), 'UTF8')), 'hex'), 1, 16))::bit(64)::bigint
+WHERE property_url_hash IS NULL AND NULLIF(trim(property_url), '') IS NOT NULL;
+
+UPDATE dvf_plus_2025_2.dvf_louer
+SET property_url_hash = ('x' || substr(encode(sha256(convert_to(regexp_replace(trim(property_url), '\s+', ' ', 'g'), 'UTF8')), 'hex'), 1, 16))::bit(64)::bigint
+WHERE property_url_hash IS NULL AND NULLIF(trim(property_url), '') IS NOT NULL;
+
+-- Doublons existants (même URL) à traiter avant de créer les index uniques :
+-- SELECT property_url_hash, COUNT(*) FROM dvf_plus_2025_2.dvf_achat
+-- WHERE property_url_hash IS NOT NULL GROUP BY 1 HAVING COUNT(*) > 1;
+
+-- CONCURRENTLY : pas de verrou bloquant les lectures (à exécuter hors transaction)
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS dvf_achat_property_url_hash_key ON dvf_plus_2025_2.dvf_achat (property_url_hash);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS dvf_louer_property_url_hash_key ON dvf_plus_2025_2.dvf_louer (property_url_hash);
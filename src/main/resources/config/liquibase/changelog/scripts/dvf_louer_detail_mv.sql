@@ -1,5 +1,6 @@
 -- Script 2 : Vue matérialisée des caractéristiques Louer (dvf_louer)
 -- Une ligne par publication (id) avec colonnes parsées depuis details.
+-- Obsolète : remplacée par la table dvf_louer_detail (voir dvf_listing_detail.sql).
 
 DROP MATERIALIZED VIEW IF EXISTS dvf_plus_2025_2.dvf_louer_detail_mv CASCADE;
 
@@ -0,0 +1,17 @@
+-- Script 7 : Indice de prix par ventes répétées, par département et par trimestre (RepeatSalesIndexService)
+-- Base 100 au premier trimestre du département ; paires = nombre de ventes de paires tombant dans le trimestre.
+-- Recalculé par le job planifié (mutation.repeat-sales.cron) ou POST /api/mutations/stats/repeat-sales/rebuild,
+-- un département à la fois (suppression puis insertion dans la même transaction).
+-- Exécuter dans le schéma dvf_plus_2025_2.
+
+CREATE TABLE IF NOT EXISTS dvf_plus_2025_2.repeat_sales_index (
+    coddep VARCHAR(3) NOT NULL,
+    periode DATE NOT NULL,
+    indice DOUBLE PRECISION NOT NULL,
+    paires INTEGER NOT NULL,
+    calcule_le TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (coddep, periode)
+);
+
+-- Recherche de la dernière vente d'une parcelle (GET /api/mutations/stats/estimated-value)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS dvf_plus_disposition_parcelle_idpar_idx ON dvf_plus_2025_2.dvf_plus_disposition_parcelle (idpar);
@@ -70,10 +70,12 @@ export const API_ENDPOINTS = {
   louer: {
     search: `${API_BASE_URL}/api/louer/search-with-filters`,
     suggestions: `${API_BASE_URL}/api/louer/suggestions`,
+    details: `${API_BASE_URL}/api/louer/details`,
   },
   achat: {
     search: `${API_BASE_URL}/api/achat/search-with-filters`,
     suggestions: `${API_BASE_URL}/api/achat/suggestions`,
+    details: `${API_BASE_URL}/api/achat/details`,
   },
   adresses: {
     suggestions: `${API_BASE_URL}/api/adresses/suggestions`,
@@ -5,8 +5,6 @@ import { motion, AnimatePresence } from 'framer-motion';
 import { API_ENDPOINTS } from 'app/config/api.config';
 import {
   ASSOCIATION_LOGOS,
-  extractAllAttributes,
-  extractFurnishing,
   getAssociationFromSource,
   getAssociationUrlFromSource,
 } from './propertySearchUtils';
@@ -23,14 +21,12 @@ interface Property {
   surface: string;
   rooms: string;
   chambres: string;
-  bathrooms: string;
-  kitchen: string;
-  balcony: string;
   address: string;
   tags: string[];
   Association: string[];
   Association_url: string[];
   images: string[];
+  imageCount: number;
   dynamicAttributes?: { [key: string]: string };
 }
 
@@ -49,7 +45,10 @@ interface ApiProperty {
   details: string;
   description: string | null;
   propertyUrl: string | null;
-  images: string[];
+  /** Only filled by the details endpoint; search rows carry firstImage and imageCount, and details cut short */
+  images: string[] | null;
+  firstImage?: string | null;
+  imageCount?: number | null;
   /** From detail MV: surface, chambre, pieces, dpe, terrainSqm, piscine, meuble, terrasse, balcon, cave, jardin, parking, etage for display */
   surface?: number | null;
   chambre?: number | null;
@@ -91,10 +90,17 @@ interface LocationSuggestion {
 interface ImageGalleryProps {
   images: string[];
   tags: string[];
+  listingId?: number;
+  imageCount?: number;
 }
 
 const PAGE_SIZE = 30;
 
+const FALLBACK_IMAGE = '/content/assets/logo.png';
+
+/** Listings whose full image list was loaded (gallery hovered), most recently used last */
+const MAX_CACHED_LISTINGS = 50;
+
 type SearchMode = 'louer' | 'achat';
 
 interface PropertySearchProps {
@@ -151,25 +157,22 @@ const PropertySearch: React.FC<PropertySearchProps> = ({ mode = 'louer' }) => {
   const [locationSuggestions, setLocationSuggestions] = useState<LocationSuggestion[]>([]);
   const [locationSuggestionsLoading, setLocationSuggestionsLoading] = useState<boolean>(false);
   const locationInputContainerRef = useRef<HTMLDivElement>(null);
+  // Full image lists by listing id, loaded one listing at a time from /details when its gallery is hovered
+  const listingImagesCache = useRef<Map<number, string[]>>(new Map());
 
   const toggleMobileMenu = (): void => {
     setIsMobileMenuOpen(!isMobileMenuOpen);
   };
 
+  // Search rows are lean (details and description cut short, first image only): cards use the parsed detail columns
   const convertApiPropertyToProperty = (apiProp: ApiProperty): Property => {
     const details = apiProp.details || '';
     const description = apiProp.description || '';
 
-    // Prefer detail MV columns (surface, chambre, pieces, dpe) when present; else parse details
-    const attributes = extractAllAttributes(details);
-    const surfaceDisplay =
-      apiProp.surface != null ? `${Number(apiProp.surface)} m²` : (attributes['Surface'] || 'N/A');
-    const roomsDisplay =
-      apiProp.pieces != null ? `${apiProp.pieces} pièces` : (attributes['Pièces'] || 'N/A');
-    const chambresDisplay =
-      apiProp.chambre != null ? String(apiProp.chambre) : (attributes['Chambres'] || 'N/A');
-    const dpeDisplay =
-      apiProp.dpe ? `DPE ${apiProp.dpe.toUpperCase()}` : (attributes['Classe énergétique'] || 'N/A');
+    const surfaceDisplay = apiProp.surface != null ? `${Number(apiProp.surface)} m²` : 'N/A';
+    const roomsDisplay = apiProp.pieces != null ? `${apiProp.pieces} pièces` : 'N/A';
+    const chambresDisplay = apiProp.chambre != null ? String(apiProp.chambre) : 'N/A';
+    const dpeDisplay = apiProp.dpe ? `DPE ${apiProp.dpe.toUpperCase()}` : 'N/A';
 
     // Terrain only from detail MV (terrain_sqm). Do not use parsed "Terrain" from details text
     // (extractGardenTerrain returns "Jardin" when text contains "jardin", which is wrong for Terrain).
@@ -201,18 +204,44 @@ const PropertySearch: React.FC<PropertySearchProps> = ({ mode = 'louer' }) => {
       surface: surfaceDisplay,
       rooms: roomsDisplay,
       chambres: chambresDisplay,
-      bathrooms: attributes['Salles de bain'] || 'N/A',
-      kitchen: attributes['Cuisine'] || 'N/A',
-      balcony: attributes['Balcon/Terrasse'] || 'N/A',
       dynamicAttributes: displayAttributes,
       address: apiProp.address || `${apiProp.commune}, ${apiProp.department}`,
-      tags: [extractFurnishing(`${details} ${description}`), mode === 'achat' ? 'En vente' : 'À louer'].filter(tag => tag !== 'N/A'),
+      tags: [apiProp.meuble === 'Oui' ? 'Meublé' : 'N/A', mode === 'achat' ? 'En vente' : 'À louer'].filter(tag => tag !== 'N/A'),
       Association: [getAssociationFromSource(apiProp.source)],
       Association_url: [apiProp.propertyUrl?.trim() || getAssociationUrlFromSource(apiProp.source)],
-      images: apiProp.images && apiProp.images.length > 0 ? apiProp.images : ['/content/assets/logo.png'],
+      images: listingImagesCache.current.get(apiProp.id) ?? (apiProp.firstImage ? [apiProp.firstImage] : [FALLBACK_IMAGE]),
+      imageCount: apiProp.imageCount ?? 0,
     };
   };
 
+  // Full image list of one listing, from the cache or /details; null when it cannot be loaded
+  const loadListingImages = async (id: number): Promise<string[] | null> => {
+    const cache = listingImagesCache.current;
+    const cached = cache.get(id);
+    if (cached) {
+      cache.delete(id);
+      cache.set(id, cached);
+      return cached;
+    }
+    try {
+      const response = await fetch(`${API_ENDPOINTS[mode].details}?ids=${id}`);
+      if (!response.ok) return null;
+      const data: ApiProperty[] = await response.json();
+      const images = data?.[0]?.images;
+      if (!images || images.length === 0) return null;
+      cache.set(id, images);
+      if (cache.size > MAX_CACHED_LISTINGS) cache.delete(cache.keys().next().value);
+      return images;
+    } catch {
+      return null;
+    }
+  };
+
+  // Ids are per table: a cached achat listing is not the louer listing with the same id
+  useEffect(() => {
+    listingImagesCache.current.clear();
+  }, [mode]);
+
   // Initialize with preloaded results and pagination state
   useEffect(() => {
     if (preloadedResults.length > 0) {
@@ -440,7 +469,8 @@ const PropertySearch: React.FC<PropertySearchProps> = ({ mode = 'louer' }) => {
     ));
   };
 
-  const ImageGallery: React.FC<ImageGalleryProps> = ({ images, tags }) => {
+  const ImageGallery: React.FC<ImageGalleryProps> = ({ images: initialImages, tags, listingId, imageCount = 0 }) => {
+    const [images, setImages] = useState<string[]>(initialImages);
     const [currentImageIndex, setCurrentImageIndex] = useState<number>(0);
     const [isHovering, setIsHovering] = useState<boolean>(false);
 
@@ -450,6 +480,12 @@ const PropertySearch: React.FC<PropertySearchProps> = ({ mode = 'louer' }) => {
 
     const handleMouseEnter = (): void => {
       setIsHovering(true);
+      // Search rows only carry the first image: load the others the first time the gallery is hovered
+      if (listingId != null && imageCount > images.length) {
+        loadListingImages(listingId).then(loaded => {
+          if (loaded) setImages(loaded);
+        });
+      }
     };
 
     const handleMouseLeave = (): void => {
@@ -10,14 +10,12 @@ export interface PropertySearchCardData {
   surface: string;
   rooms: string;
   chambres: string;
-  bathrooms: string;
-  kitchen: string;
-  balcony: string;
   address: string;
   tags: string[];
   Association: string[];
   Association_url: string[];
   images: string[];
+  imageCount: number;
   dynamicAttributes?: { [key: string]: string };
 }
 
@@ -26,7 +24,7 @@ interface PropertySearchCardProps {
   index: number;
   mode: 'louer' | 'achat';
   associationDisplayNames: Record<string, string>;
-  ImageGallery: React.FC<{ images: string[]; tags: string[]; minimalOverlay?: boolean }>;
+  ImageGallery: React.FC<{ images: string[]; tags: string[]; listingId?: number; imageCount?: number; minimalOverlay?: boolean }>;
   priceLabel: string;
   priceSuffix: string;
 }
@@ -306,7 +304,13 @@ export const PropertySearchCard: React.FC<PropertySearchCardProps> = ({
       whileHover={{ y: -5, boxShadow: '0 10px 25px -5px rgba(0, 0, 0, 0.1)' }}
     >
       <div className="relative">
-        <ImageGallery images={property.images} tags={property.tags} minimalOverlay />
+        <ImageGallery
+          images={property.images}
+          tags={property.tags}
+          listingId={property.id}
+          imageCount={property.imageCount}
+          minimalOverlay
+        />
         {energyLetter && <EnergyClassBadge letter={energyLetter} />}
       </div>
 